@@ -16,23 +16,50 @@
 package org.docstr.gradle.plugins.gwt;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import javax.inject.Inject;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLauncher;
 import org.gradle.process.ExecResult;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+import org.docstr.gradle.plugins.gwt.internal.ContainerResources;
+import org.docstr.gradle.plugins.gwt.internal.GwtCdsArchives;
+import org.docstr.gradle.plugins.gwt.internal.GwtCompileServer;
+import org.docstr.gradle.plugins.gwt.internal.GwtCompileServerClient;
+import org.docstr.gradle.plugins.gwt.internal.GwtCompilerInvoker;
+import org.docstr.gradle.plugins.gwt.internal.GwtCompilePlanner;
+import org.docstr.gradle.plugins.gwt.internal.GwtCompilerWorkAction;
+import org.docstr.gradle.plugins.gwt.internal.GwtHeapTelemetry;
+import org.docstr.gradle.plugins.gwt.internal.GwtJvmLimiter;
+import org.docstr.gradle.plugins.gwt.internal.GwtModuleGraph;
+import org.docstr.gradle.plugins.gwt.internal.GwtOutputSync;
+import org.docstr.gradle.plugins.gwt.internal.GwtToolLauncher;
 import org.docstr.gradle.plugins.gwt.internal.GwtVersion;
+import org.docstr.gradle.plugins.gwt.internal.JavaSourceFingerprinter;
+import org.docstr.gradle.plugins.gwt.internal.MemorySizes;
 
 /**
  * Base class for all GWT related tasks.
@@ -42,18 +69,31 @@ public abstract class AbstractGwtActionTask extends DefaultTask {
   private static final Logger logger =
       Logging.getLogger(AbstractGwtActionTask.class);
 
+  private static final String JAVA_SUFFIX = ".java";
+  private static final String CLASS_SUFFIX = ".class";
+
   private String gwtVersion;
 
   private List<String> modules;
 
   private FileCollection src;
 
+  private Boolean narrowSourceInputs;
+
+  private Boolean normalizeSourceInputs;
+
   private FileCollection classpath;
 
   private String minHeapSize;
 
   private String maxHeapSize;
 
+  private boolean maxHeapSizeSet;
+
+  private String plannedMaxHeapSize;
+
+  private Boolean containerMaxHeapSize;
+
   private final String main;
 
   private List<Object> args = new ArrayList<>();
@@ -76,86 +116,796 @@ public abstract class AbstractGwtActionTask extends DefaultTask {
 
   private MethodNameDisplayMode methodNameDisplayMode;
 
+  private ExecutionMode executionMode;
+
+  private FileCollection workerClasspath;
+
+  private GwtCompileServerOptions compileServer;
+
+  private Provider<GwtJvmLimiter> jvmLimiter;
+
+  private GwtJvmLimiter.Lease jvmLease;
+
+  private GwtMachineSlotOptions machineSlots;
+
+  private GwtMachineSlotOptions.SlotLease slotLease;
+
+  private GwtHeapTelemetryOptions heapTelemetry;
+
+  private File telemetryFile;
+
+  private GwtJvmProfile jvmProfile;
+
+  private GwtJvmProfile jvmProfileOverride;
+
+  private File cdsArchiveDir;
+
+  private File sourceBundle;
+
+  private FileCollection sourceBundleContents;
+
+  private Provider<JavaLauncher> javaLauncher;
+
+  private JavaLauncher javaLauncherOverride;
+
   public AbstractGwtActionTask(String main) {
     this.main = main;
   }
 
   @TaskAction
   public void exec() {
+    if (getSrc() == null) {
+      throw new InvalidUserDataException("No Source is set");
+    }
+    if (getClasspath() == null) {
+      throw new InvalidUserDataException("Classpath is not set");
+    }
+    if (getModules() == null || getModules().isEmpty()) {
+      throw new InvalidUserDataException("No module[s] given");
+    }
+    if (getJsInteropExports().shouldGenerate()) {
+      if (getJsInteropExports().getIncludePatterns().isEmpty()
+          && !getJsInteropExports().getExcludePatterns().isEmpty()) {
+        throw new InvalidUserDataException(
+            "No include pattern(s) for JsInterop exports given");
+      }
+    }
+
+    FileCollection classpath = getClasspath();
+    if (prependSrcToClasspath() && getSourceBundle() != null) {
+      classpath = bundledClasspath(getSrc().plus(classpath));
+    } else if (prependSrcToClasspath()) {
+      classpath = getSrc().plus(classpath);
+    }
+
+    planContainerMaxHeapSize();
+    planExecution();
+    try {
+      acquireLeases();
+      addCommonArgs();
+      addArgs();
+      // Configure extraJvmArgs specified by users
+      for (Object extraJvmArg : getExtraJvmArgs()) {
+        jvmArgs.add(extraJvmArg);
+      }
+      logger.info("main={}, gwtVersion={}, modules={}, "
+              + "minHeapSize={}, maxHeapSize={},  extraJvmArgs={}, "
+              + "executionMode={}",
+          main, getGwtVersion(), getModules(), effectiveMinHeapSize(),
+          effectiveMaxHeapSize(), getExtraJvmArgs(), getExecutionMode());
+
+      execute(classpath);
+    } finally {
+      releaseLeases();
+      plannedMaxHeapSize = null;
+    }
+  }
+
+  /**
+   * Waits for the JVM limiter and the machine slots to allow a JVM with the
+   * {@link #effectiveMaxHeapSize() effective heap}.
+   */
+  private void acquireLeases() {
+    jvmLease = acquireJvmLease();
+    if (getMachineSlots() != null && getMachineSlots().isEnabled()
+        && usesJvmLimiter()) {
+      slotLease = getMachineSlots()
+          .acquire(getPath(), effectiveMaxHeapSize(), logger);
+    }
+  }
+
+  private void releaseLeases() {
+    if (slotLease != null) {
+      slotLease.close();
+      slotLease = null;
+    }
+    if (jvmLease != null) {
+      jvmLease.close();
+      jvmLease = null;
+    }
+  }
+
+  /**
+   * Raises the default maximum heap size to a quarter of the container's
+   * memory limit. Done when the task runs, so the task's input doesn't
+   * depend on the machine.
+   */
+  private void planContainerMaxHeapSize() {
+    if (!Boolean.TRUE.equals(getContainerMaxHeapSize()) || isMaxHeapSizeSet()) {
+      return;
+    }
+    final long containerHeap = ContainerResources.get().getMemoryLimit() / 4;
+    if (containerHeap > MemorySizes.parse(getMaxHeapSize())) {
+      setPlannedMaxHeapSize(MemorySizes.format(containerHeap));
+    }
+  }
+
+  /**
+   * Called before the task waits for a JVM, subclasses may pick the heap
+   * size of the JVM here.
+   */
+  protected void planExecution() {
+  }
+
+  /**
+   * @return true if the maximum heap size was set on this task, instead of
+   *     coming from the extension
+   */
+  protected boolean isMaxHeapSizeSet() {
+    return maxHeapSizeSet;
+  }
+
+  /**
+   * Overrides the maximum heap size of the next execution without changing
+   * the task's input.
+   *
+   * @param plannedMaxHeapSize the heap size to use, e.g. "1536M"
+   */
+  protected void setPlannedMaxHeapSize(final String plannedMaxHeapSize) {
+    this.plannedMaxHeapSize = plannedMaxHeapSize;
+  }
+
+  /**
+   * @return the maximum heap size the JVM is started with
+   */
+  protected String effectiveMaxHeapSize() {
+    return plannedMaxHeapSize != null ? plannedMaxHeapSize : getMaxHeapSize();
+  }
+
+  /**
+   * @return the minimum heap size the JVM is started with, which never
+   *     exceeds a planned maximum heap size
+   */
+  protected String effectiveMinHeapSize() {
+    if (plannedMaxHeapSize != null && MemorySizes.parse(getMinHeapSize())
+        > MemorySizes.parse(plannedMaxHeapSize)) {
+      return plannedMaxHeapSize;
+    }
+    return getMinHeapSize();
+  }
+
+  private GwtJvmLimiter.Lease acquireJvmLease() {
+    if (getJvmLimiter() == null || !usesJvmLimiter()) {
+      return null;
+    }
+    try {
+      return getJvmLimiter().get()
+          .acquire(getPath(), MemorySizes.parse(effectiveMaxHeapSize()));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GradleException("Interrupted while waiting for a GWT JVM slot",
+          e);
+    }
+  }
+
+  /**
+   * Takes up to the given number of leases for further GWT JVMs of this
+   * task, as far as the {@link #getJvmLimiter() JVM limiter} allows them
+   * right now, each with the {@link #effectiveMaxHeapSize() effective heap}.
+   *
+   * @param count the number of further JVMs the task would like to run
+   * @return the granted leases, to be closed when their JVMs have finished,
+   *     or null if the number of JVMs isn't limited
+   */
+  protected List<GwtJvmLimiter.Lease> tryAcquireJvmLeases(final int count) {
+    if (jvmLease == null) {
+      return null;
+    }
+    final List<GwtJvmLimiter.Lease> leases = new ArrayList<>();
+    final long heap = MemorySizes.parse(effectiveMaxHeapSize());
+    while (leases.size() < count) {
+      final GwtJvmLimiter.Lease lease =
+          getJvmLimiter().get().tryAcquire(getPath(), heap);
+      if (lease == null) {
+        break;
+      }
+      leases.add(lease);
+    }
+    return leases;
+  }
+
+  /**
+   * Tasks that keep their JVM running until stopped by the user don't take
+   * part in the limits of the {@link #getJvmLimiter() JVM limiter}.
+   *
+   * @return true if the task waits for the JVM limiter
+   */
+  protected boolean usesJvmLimiter() {
+    return true;
+  }
+
+  /**
+   * Lets the {@link #getJvmLimiter() JVM limiter} close the leases of this
+   * task when the task has finished, instead of when the task action
+   * returns. Tasks whose tool still runs asynchronously after the task
+   * action returned call this.
+   *
+   * @return false if the task holds leases the limiter can't take over, the
+   *     task then has to wait for its tool
+   */
+  protected boolean holdLeasesUntilFinished() {
+    if (jvmLease == null && slotLease == null) {
+      return true;
+    }
+    if (getJvmLimiter() == null) {
+      return false;
+    }
+    // closed in reverse order, like by releaseLeases()
+    if (jvmLease != null) {
+      getJvmLimiter().get().hold(getPath(), jvmLease);
+      jvmLease = null;
+    }
+    if (slotLease != null) {
+      getJvmLimiter().get().hold(getPath(), slotLease);
+      slotLease = null;
+    }
+    return true;
+  }
+
+  /**
+   * Limits the number of local workers to the share of the processors
+   * granted by the JVM limiter and the machine wide slots.
+   *
+   * @param localWorkers the configured number of local workers, may be null
+   * @return the number of local workers to use
+   */
+  protected Integer limitLocalWorkers(final Integer localWorkers) {
+    Integer limited = localWorkers;
+    if (jvmLease != null) {
+      limited = limited == null ? jvmLease.getLocalWorkers()
+          : Math.min(limited, jvmLease.getLocalWorkers());
+    }
+    if (slotLease != null) {
+      limited = limited == null ? slotLease.getLocalWorkers()
+          : Math.min(limited, slotLease.getLocalWorkers());
+    }
+    return limited;
+  }
+
+  /**
+   * Adds the arguments that are common to the GWT tools run by these tasks.
+   * Subclasses running a tool that doesn't accept all of them override this.
+   */
+  protected void addCommonArgs() {
+    addSourceArgs();
+    argOnOff(getIncremental(), "-incremental", "-noincremental");
+    argIfSet("-logLevel", getLogLevel());
+  }
+
+  /**
+   * Adds the arguments that affect how the Java sources are read and
+   * translated.
+   */
+  protected void addSourceArgs() {
+    argIfSet("-XjsInteropMode", getJsInteropMode());
+    if (doesSupportJsInteropExports(GwtVersion.parse(getGwtVersion()))) {
+      argOnOff(getJsInteropExports().shouldGenerate(),
+          "-generateJsInteropExports",
+          "-nogenerateJsInteropExports");
+      getJsInteropExports().getIncludePatterns()
+          .forEach(includePattern
+              -> argIfSet("-includeJsInteropExports",
+              includePattern));
+      getJsInteropExports().getExcludePatterns()
+          .forEach(excludePattern
+              -> argIfSet("-excludeJsInteropExports",
+              excludePattern));
+    }
+    argIfSet("-XmethodNameDisplayMode", getMethodNameDisplayMode());
+    argIfSet("-sourceLevel", getSourceLevel());
+  }
+
+  /**
+   * Runs the GWT tool once all args/jvmArgs are collected, using the JVM
+   * defined by the {@link ExecutionMode}.
+   *
+   * @param classpath the classpath of the tool, including the sources
+   */
+  protected void execute(final FileCollection classpath) {
+    execute(classpath, toolArgs());
+  }
+
+  /**
+   * Runs the GWT tool with the given arguments instead of the collected
+   * ones, using the JVM defined by the {@link ExecutionMode}. If the
+   * {@link #measuresHeap() heap is measured}, its usage is logged, and a run
+   * that ran out of memory may be retried with a larger heap.
+   *
+   * @param classpath the classpath of the tool, including the sources
+   * @param toolArgs the arguments of the tool, without the modules
+   */
+  protected void execute(final FileCollection classpath,
+      final List<String> toolArgs) {
+    final GwtHeapTelemetryOptions options = getHeapTelemetry();
+    // long running dev mode JVMs aren't measured, like they aren't limited
+    if (options == null || !measuresHeap() || !usesJvmLimiter()) {
+      executeOnce(classpath, toolArgs);
+      return;
+    }
+    boolean retried = false;
+    while (true) {
+      telemetryFile = new File(getTemporaryDir(), "heap-telemetry.properties");
+      telemetryFile.delete();
+      try {
+        executeOnce(classpath, toolArgs);
+        final GwtHeapTelemetry.Report report =
+            GwtHeapTelemetry.Report.readFrom(telemetryFile);
+        if (report != null) {
+          logHeapReport(report);
+          heapReported(report);
+        }
+        return;
+      } catch (RuntimeException e) {
+        final GwtHeapTelemetry.Report report =
+            GwtHeapTelemetry.Report.readFrom(telemetryFile);
+        if (report == null || !report.isOutOfMemory()) {
+          throw e;
+        }
+        logHeapReport(report);
+        final String retryHeapSize = retryHeapSize(options);
+        if (retried || retryHeapSize == null) {
+          throw e;
+        }
+        logger.lifecycle("{} ran out of memory with -Xmx{}, retrying with "
+            + "-Xmx{}", getPath(), effectiveMaxHeapSize(), retryHeapSize);
+        setPlannedMaxHeapSize(retryHeapSize);
+        // the leases were sized for the smaller heap
+        releaseLeases();
+        acquireLeases();
+        retried = true;
+      } finally {
+        telemetryFile = null;
+      }
+    }
+  }
+
+  private void logHeapReport(final GwtHeapTelemetry.Report report) {
+    // the peak of a run out of memory is the heap, 25% headroom make 1.5x
+    logger.lifecycle("{} {}, recommended maxHeapSize {}", getPath(), report,
+        MemorySizes.format(GwtCompilePlanner.recommendedHeap(
+            report.isOutOfMemory() ? report.getMaxHeap() * 6 / 5
+                : report.getPeakHeap())));
+  }
+
+  /**
+   * @return the heap of the retry after running out of memory, or null if
+   *     no retry should be made
+   */
+  private String retryHeapSize(final GwtHeapTelemetryOptions options) {
+    if (!options.isRetryOnOutOfMemory()) {
+      return null;
+    }
+    long max = MemorySizes.parse(options.getRetryMaxHeapSize());
+    if (max <= 0) {
+      final long physicalMemory = MemorySizes.physicalMemory();
+      max = physicalMemory > 0 ? physicalMemory / 4 * 3 : -1;
+    }
+    final long retry = GwtHeapTelemetry.retryHeap(
+        MemorySizes.parse(effectiveMaxHeapSize()), options.getRetryFactor(),
+        max);
+    return retry > 0 ? MemorySizes.format(retry) : null;
+  }
+
+  /**
+   * @return whether the heap usage of the GWT JVM is measured, by default if
+   *     the {@link GwtHeapTelemetryOptions heap telemetry} is enabled
+   */
+  protected boolean measuresHeap() {
+    return getHeapTelemetry() != null && getHeapTelemetry().isEnabled();
+  }
+
+  /**
+   * Called with the heap telemetry of a successful run.
+   *
+   * @param report the heap usage of the run
+   */
+  protected void heapReported(final GwtHeapTelemetry.Report report) {
+  }
+
+  private void executeOnce(final FileCollection classpath,
+      final List<String> toolArgs) {
+    if (getExecutionMode() == ExecutionMode.WORKER
+        && supportsReusableJvm()) {
+      execInWorker(classpath, toolArgs);
+    } else if (getExecutionMode() == ExecutionMode.SERVER
+        && supportsReusableJvm() && !isDebug()) {
+      execInServer(classpath, toolArgs);
+    } else {
+      javaExec(classpath, toolArgs);
+    }
+  }
+
+  private void javaExec(final FileCollection classpath,
+      final List<String> toolArgs) {
+    final FileCollection execClasspath = telemetryFile != null
+        ? classpath.plus(getProject().files(pluginJar())) : classpath;
     final ExecResult execResult = getProject()
         .javaexec(javaExecSpec -> {
-          if (getSrc() == null) {
-            throw new InvalidUserDataException("No Source is set");
-          }
-          if (getClasspath() == null) {
-            throw new InvalidUserDataException("Classpath is not set");
-          }
-          if (getModules() == null || getModules().isEmpty()) {
-            throw new InvalidUserDataException("No module[s] given");
-          }
-          if (getJsInteropExports().shouldGenerate()) {
-            if (getJsInteropExports().getIncludePatterns().isEmpty()
-                && !getJsInteropExports().getExcludePatterns().isEmpty()) {
-              throw new InvalidUserDataException(
-                  "No include pattern(s) for JsInterop exports given");
-            }
+          if (telemetryFile != null) {
+            javaExecSpec.getMainClass().set(GwtToolLauncher.class.getName());
+            javaExecSpec.args(telemetryFile.getAbsolutePath(), main);
+          } else {
+            javaExecSpec.getMainClass().set(main);
           }
-
-          javaExecSpec.getMainClass().set(main);
           javaExecSpec.setDebug(isDebug());
+          final JavaLauncher launcher = effectiveJavaLauncher();
+          if (launcher != null) {
+            javaExecSpec.setExecutable(javaExecutable(launcher));
+          }
 
           // "Fixes" convention mapping
-          javaExecSpec.setMinHeapSize(getMinHeapSize());
-          javaExecSpec.setMaxHeapSize(getMaxHeapSize());
-
-          FileCollection classpath = getClasspath();
-          if (prependSrcToClasspath()) {
-            classpath = getSrc().plus(classpath);
-          }
+          javaExecSpec.setMinHeapSize(effectiveMinHeapSize());
+          javaExecSpec.setMaxHeapSize(effectiveMaxHeapSize());
 
           if (System.getProperty("os.name").toLowerCase()
               .contains("windows")) {
-            javaExecSpec.environment("CLASSPATH", classpath.getAsPath());
+            javaExecSpec.environment("CLASSPATH", execClasspath.getAsPath());
           } else {
-            javaExecSpec.setClasspath(classpath);
+            javaExecSpec.setClasspath(execClasspath);
           }
 
-          argIfSet("-XjsInteropMode", getJsInteropMode());
-          if (doesSupportJsInteropExports(GwtVersion.parse(getGwtVersion()))) {
-            argOnOff(getJsInteropExports().shouldGenerate(),
-                "-generateJsInteropExports",
-                "-nogenerateJsInteropExports");
-            getJsInteropExports().getIncludePatterns()
-                .forEach(includePattern
-                    -> argIfSet("-includeJsInteropExports",
-                    includePattern));
-            getJsInteropExports().getExcludePatterns()
-                .forEach(excludePattern
-                    -> argIfSet("-excludeJsInteropExports",
-                    excludePattern));
-          }
-          argIfSet("-XmethodNameDisplayMode", getMethodNameDisplayMode());
-          argOnOff(getIncremental(), "-incremental", "-noincremental");
-          argIfSet("-sourceLevel", getSourceLevel());
-          argIfSet("-logLevel", getLogLevel());
-
-          addArgs();
-          // Configure extraJvmArgs specified by users
-          for (Object extraJvmArg : getExtraJvmArgs()) {
-            jvmArgs.add(extraJvmArg);
-          }
-          javaExecSpec.jvmArgs(jvmArgs);
-          javaExecSpec.args(args);
+          javaExecSpec.jvmArgs(toolJvmArgs());
+          javaExecSpec.args(toolArgs);
           // the module names are expected to be the last parameters
           javaExecSpec.args(getModules());
-          logger.info("main={}, gwtVersion={}, modules={}, "
-                  + "minHeapSize={}, maxHeapSize={},  extraJvmArgs={} ",
-              main, getGwtVersion(), getModules(), getMinHeapSize(),
-              getMaxHeapSize(), getExtraJvmArgs());
         });
     execResult.assertNormalExitValue().rethrowFailure();
   }
 
+  /**
+   * Runs the GWT tool in a worker daemon whose classpath is only made of
+   * {@link #getWorkerClasspath()}. Gradle reuses such a daemon for all
+   * invocations with the same classpath and fork options, so warm daemons
+   * are shared by all GWT tasks of a build and across builds running in the
+   * same Gradle daemon.
+   */
+  private void execInWorker(final FileCollection classpath,
+      final List<String> toolArgs) {
+    final List<String> stringArgs = new ArrayList<>(toolArgs);
+    stringArgs.addAll(getModules());
+
+    final long start = System.nanoTime();
+    final WorkQueue workQueue = workerQueue();
+    submitToWorker(workQueue, classpath, stringArgs, telemetryFile, null,
+        null);
+    workQueue.await();
+    logger.info("{} in worker daemon took {} ms including worker startup",
+        main, (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /**
+   * @return a queue of process isolated workers with the GWT SDK on their
+   *     classpath and the heap and JVM arguments of this task
+   */
+  protected WorkQueue workerQueue() {
+    checkWorkerClasspath();
+    final List<String> stringJvmArgs = toolJvmArgs();
+    final JavaLauncher launcher = effectiveJavaLauncher();
+    return getWorkerExecutor().processIsolation(spec -> {
+      spec.getClasspath().from(getWorkerClasspath());
+      spec.forkOptions(forkOptions -> {
+        if (launcher != null) {
+          forkOptions.setExecutable(javaExecutable(launcher));
+        }
+        forkOptions.setMinHeapSize(effectiveMinHeapSize());
+        forkOptions.setMaxHeapSize(effectiveMaxHeapSize());
+        forkOptions.setDebug(isDebug());
+        forkOptions.jvmArgs(stringJvmArgs);
+      });
+    });
+  }
+
+  /**
+   * Submits one invocation of the GWT tool of this task to the given queue.
+   *
+   * @param workQueue the queue created by {@link #workerQueue()}
+   * @param classpath the classpath of the tool, including the sources
+   * @param toolArgs all arguments of the invocation, including the modules
+   */
+  protected void submitToWorker(final WorkQueue workQueue,
+      final FileCollection classpath, final List<String> toolArgs) {
+    submitToWorker(workQueue, classpath, toolArgs, null, null, null);
+  }
+
+  /**
+   * Submits one invocation of the GWT tool of this task to the given queue.
+   * After the tool succeeded the worker syncs its staged output into the
+   * output directory by content.
+   *
+   * @param workQueue the queue created by {@link #workerQueue()}
+   * @param classpath the classpath of the tool, including the sources
+   * @param toolArgs all arguments of the invocation, including the modules
+   * @param stagingDir the directory the tool writes its output to
+   * @param outputDir the directory to sync the output into
+   */
+  protected void submitToWorker(final WorkQueue workQueue,
+      final FileCollection classpath, final List<String> toolArgs,
+      final File stagingDir, final File outputDir) {
+    submitToWorker(workQueue, classpath, toolArgs, null, stagingDir,
+        outputDir);
+  }
+
+  private void submitToWorker(final WorkQueue workQueue,
+      final FileCollection classpath, final List<String> toolArgs,
+      final File reportFile, final File stagingDir, final File outputDir) {
+    workQueue.submit(GwtCompilerWorkAction.class, parameters -> {
+      parameters.getMainClass().set(main);
+      parameters.getClasspath().from(classpath);
+      parameters.getArgs().set(toolArgs);
+      if (reportFile != null) {
+        parameters.getTelemetryFile().set(reportFile);
+      }
+      if (stagingDir != null) {
+        parameters.getStagingDir().set(stagingDir);
+        parameters.getOutputDir().set(outputDir);
+        parameters.getSyncManifest().set(syncManifest());
+      }
+    });
+  }
+
+  /**
+   * @return the file listing the files the last sync of staged output wrote
+   *     to the output directory, see {@link GwtOutputSync}
+   */
+  protected File syncManifest() {
+    return new File(getTemporaryDir(), "synced-files.txt");
+  }
+
+  /**
+   * Runs the GWT tool in the long lived GWT compile server matching the
+   * worker classpath and JVM settings, starting the server if necessary.
+   * The output of the tool is streamed back and logged.
+   */
+  private void execInServer(final FileCollection classpath,
+      final List<String> toolArgs) {
+    checkWorkerClasspath();
+    final List<String> serverJvmArgs = reusableJvmArgs();
+    final GwtCompileServerOptions options = getCompileServer();
+    // servers of different JDKs must not share their state directory
+    final List<String> serverKey = new ArrayList<>(serverJvmArgs);
+    serverKey.add(0, javaExecutable(effectiveJavaLauncher()));
+    final GwtCompileServerClient client = new GwtCompileServerClient(
+        GwtCompileServerClient.stateDir(options.getBaseDir(),
+            getWorkerClasspath(), serverKey));
+
+    final List<String> command =
+        reusableJvmCommand(serverJvmArgs, GwtCompileServer.class);
+    command.add("-stateDir");
+    command.add(client.getStateDir().getAbsolutePath());
+    command.add("-idleTimeout");
+    command.add(String.valueOf(options.getIdleTimeout()));
+    command.add("-memoryCeiling");
+    command.add(String.valueOf(options.getMemoryCeiling()));
+
+    final List<String> classpathEntries = new ArrayList<>();
+    classpath.forEach(file -> classpathEntries.add(file.getAbsolutePath()));
+
+    final long start = System.nanoTime();
+    final boolean success;
+    try {
+      client.ensureRunning(command);
+      final List<String> stringArgs = new ArrayList<>(toolArgs);
+      stringArgs.addAll(getModules());
+      success = client.compile(main, classpathEntries, stringArgs,
+          logger::quiet);
+    } catch (IOException e) {
+      throw new GradleException(
+          "Failed to run " + main + " in the GWT compile server", e);
+    }
+    logger.info("{} in GWT compile server {} took {} ms", main,
+        client.getStateDir(), (System.nanoTime() - start) / 1_000_000);
+    if (!success) {
+      throw new GradleException(main + " failed, see log output");
+    }
+  }
+
+  /**
+   * @return the heap settings and JVM arguments of this task as arguments of
+   *     the java command
+   */
+  protected List<String> reusableJvmArgs() {
+    final List<String> reusableJvmArgs = new ArrayList<>();
+    if (effectiveMinHeapSize() != null) {
+      reusableJvmArgs.add("-Xms" + effectiveMinHeapSize());
+    }
+    if (effectiveMaxHeapSize() != null) {
+      reusableJvmArgs.add("-Xmx" + effectiveMaxHeapSize());
+    }
+    reusableJvmArgs.addAll(toolJvmArgs());
+    return reusableJvmArgs;
+  }
+
+  /**
+   * Creates the command line of a long lived JVM that runs one of the
+   * plugin's own main classes with the GWT SDK on the classpath.
+   *
+   * @param jvmArgs the arguments of the JVM
+   * @param mainClass the main class that must not depend on the Gradle API
+   * @return the command line, to be completed with the program arguments
+   */
+  protected List<String> reusableJvmCommand(final List<String> jvmArgs,
+      final Class<?> mainClass) {
+    checkWorkerClasspath();
+    final List<String> command = new ArrayList<>();
+    command.add(javaExecutable(effectiveJavaLauncher()));
+    command.addAll(jvmArgs);
+    final FileCollection jvmClasspath =
+        getWorkerClasspath().plus(getProject().files(pluginJar()));
+    final File archive = cdsArchive(jvmClasspath);
+    if (archive != null) {
+      logger.info("Using AppCDS archive {}", archive);
+      command.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+    }
+    command.add("-cp");
+    command.add(jvmClasspath.getAsPath());
+    command.add(mainClass.getName());
+    return command;
+  }
+
+  /**
+   * @return the AppCDS archive created by {@link GwtCdsArchive} for the
+   *     given classpath and the JDK of this task, or null if there is none
+   */
+  private File cdsArchive(final FileCollection jvmClasspath) {
+    final JavaLauncher launcher = effectiveJavaLauncher();
+    if (getCdsArchiveDir() == null
+        || !GwtCdsArchives.isSupported(javaSpecificationVersion(launcher))) {
+      return null;
+    }
+    final File archive = GwtCdsArchives.archive(getCdsArchiveDir(),
+        GwtCdsArchives.key(jvmClasspath, jdk(launcher)));
+    return archive.isFile() ? archive : null;
+  }
+
+  /**
+   * @return the toolchain launcher of the GWT JVMs of this task, or null to
+   *     use the JDK running Gradle
+   */
+  protected JavaLauncher effectiveJavaLauncher() {
+    if (javaLauncherOverride != null) {
+      return javaLauncherOverride;
+    }
+    return getJavaLauncher() != null ? getJavaLauncher().getOrNull() : null;
+  }
+
+  /**
+   * Runs the following executions with the given toolchain launcher instead
+   * of {@link #getJavaLauncher()}, without changing the task's input.
+   *
+   * @param launcher the launcher to use, null to use the task's launcher
+   *     again
+   */
+  protected void overrideJavaLauncher(final JavaLauncher launcher) {
+    this.javaLauncherOverride = launcher;
+  }
+
+  /**
+   * @param launcher a toolchain launcher, null for the JDK running Gradle
+   * @return the path of the java executable
+   */
+  static String javaExecutable(final JavaLauncher launcher) {
+    if (launcher == null) {
+      return new File(System.getProperty("java.home"), "bin/java")
+          .getAbsolutePath();
+    }
+    return launcher.getExecutablePath().getAsFile().getAbsolutePath();
+  }
+
+  /**
+   * @param launcher a toolchain launcher, null for the JDK running Gradle
+   * @return the specification version of the JDK, e.g. "1.8" or "17"
+   */
+  static String javaSpecificationVersion(final JavaLauncher launcher) {
+    if (launcher == null) {
+      return System.getProperty("java.specification.version");
+    }
+    final int version = launcher.getMetadata().getLanguageVersion().asInt();
+    return version < 9 ? "1." + version : String.valueOf(version);
+  }
+
+  /**
+   * @param launcher a toolchain launcher, null for the JDK running Gradle
+   * @return the identity of the JDK for the AppCDS archives
+   */
+  static String jdk(final JavaLauncher launcher) {
+    if (launcher == null) {
+      return GwtCdsArchives.currentJdk();
+    }
+    return GwtCdsArchives.jdk(launcher.getMetadata().getVendor() + " "
+            + launcher.getMetadata().getLanguageVersion(),
+        launcher.getMetadata().getInstallationPath().getAsFile());
+  }
+
+  static File pluginJar() {
+    try {
+      return new File(GwtCompileServer.class.getProtectionDomain()
+          .getCodeSource().getLocation().toURI());
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void checkWorkerClasspath() {
+    if (getWorkerClasspath() == null || getWorkerClasspath().isEmpty()) {
+      throw new InvalidUserDataException("Worker classpath is not set, can't "
+          + "run " + main + " in a reusable JVM");
+    }
+  }
+
+  /**
+   * @return the collected args as strings, without the modules that are
+   *     expected to be the last parameters
+   */
+  protected List<String> toolArgs() {
+    final List<String> stringArgs = new ArrayList<>();
+    args.forEach(arg -> stringArgs.add(String.valueOf(arg)));
+    return stringArgs;
+  }
+
+  private List<String> toolJvmArgs() {
+    final List<String> stringJvmArgs = new ArrayList<>();
+    final GwtJvmProfile profile = jvmProfileOverride != null
+        ? jvmProfileOverride : getJvmProfile();
+    if (profile != null) {
+      stringJvmArgs.addAll(profile.jvmArgsWithout(getExtraJvmArgs()));
+    }
+    jvmArgs.forEach(arg -> stringJvmArgs.add(String.valueOf(arg)));
+    return stringJvmArgs;
+  }
+
+  /**
+   * @return the name of the {@link GwtJvmProfile JVM profile} used by this
+   *     kind of task, or null if it doesn't use one
+   */
+  protected String jvmProfileName() {
+    return null;
+  }
+
+  /**
+   * Runs the following executions with the given JVM profile instead of
+   * {@link #getJvmProfile()}, without changing the task's input.
+   *
+   * @param profile the profile to use, null to use the task's profile again
+   */
+  protected void overrideJvmProfile(final GwtJvmProfile profile) {
+    this.jvmProfileOverride = profile;
+  }
+
+  /**
+   * If true the task can run its GWT tool in a reusable JVM (a worker daemon
+   * or the compile server) when {@link ExecutionMode#WORKER} or
+   * {@link ExecutionMode#SERVER} is configured. Long running tools like the
+   * (Super) Dev Mode always run in a forked JVM.
+   *
+   * @return true if a reusable JVM is supported, false otherwise.
+   */
+  protected boolean supportsReusableJvm() {
+    return GwtCompilerInvoker.isSupported(main);
+  }
+
+  @Inject
+  protected abstract WorkerExecutor getWorkerExecutor();
+
   /**
    * If true this causes that the src is prepended to the classpath. This
    * is set to false for Super Dev Mode as the source is given to it as
@@ -256,12 +1006,126 @@ public abstract class AbstractGwtActionTask extends DefaultTask {
     return true;
   }
 
-  @InputFiles
-  @PathSensitive(PathSensitivity.RELATIVE)
+  @Internal
   public FileCollection getSrc() {
     return src;
   }
 
+  /**
+   * Returns the part of {@link #getSrc()} that is an input of this task. If
+   * {@link #getNarrowSourceInputs()} is true these are only the module
+   * descriptors of the modules' inherits chain and the files below the
+   * source, super-source, public and resource paths they declare, so that
+   * server only changes leave the task up to date. Otherwise, or if a module
+   * can't be found in the source directories, it is all of the sources.
+   * If {@link #getNormalizeSourceInputs()} is true the Java sources are left
+   * out, as {@link #getJavaSourceFingerprint()} covers them.
+   *
+   * @return the source files the GWT tool reads
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public FileCollection getSourceInputs() {
+    final FileCollection sources =
+        getProject().files((Callable<Object>) this::narrowedSources);
+    if (!Boolean.TRUE.equals(getNormalizeSourceInputs())) {
+      return sources;
+    }
+    return sources.getAsFileTree()
+        .matching(pattern -> pattern.exclude("**/*" + JAVA_SUFFIX));
+  }
+
+  /**
+   * Returns the fingerprint of the Java files of the source inputs if
+   * {@link #getNormalizeSourceInputs()} is true. The fingerprint ignores
+   * comments and formatting, so that Javadoc edits, reformatting and license
+   * headers leave the task up to date and hit the build cache.
+   *
+   * @return the fingerprint of the normalized Java sources, or null if they
+   *     aren't normalized
+   */
+  @Input
+  @Optional
+  public String getJavaSourceFingerprint() {
+    if (!Boolean.TRUE.equals(getNormalizeSourceInputs())) {
+      return null;
+    }
+    final JavaSourceFingerprinter fingerprinter = new JavaSourceFingerprinter(
+        new File(getTemporaryDir(), "java-source-fingerprints.properties"));
+    final List<FileVisitDetails> javaSources = new ArrayList<>();
+    getProject().files((Callable<Object>) this::narrowedSources).getAsFileTree()
+        .matching(pattern -> pattern.include("**/*" + JAVA_SUFFIX))
+        .visit(details -> {
+          if (!details.isDirectory()) {
+            javaSources.add(details);
+          }
+        });
+    try {
+      for (FileVisitDetails source : javaSources) {
+        fingerprinter.add(source.getRelativePath().getPathString(),
+            source.getFile());
+      }
+      return fingerprinter.finish();
+    } catch (IOException e) {
+      throw new GradleException("Can't fingerprint the sources of "
+          + getPath(), e);
+    }
+  }
+
+  private Object narrowedSources() {
+    final GwtModuleGraph graph = Boolean.TRUE.equals(getNarrowSourceInputs())
+        ? inputModuleGraph() : null;
+    if (graph == null) {
+      return getSrc();
+    }
+    final List<String> includes = new ArrayList<>(graph.getDescriptorPaths());
+    graph.getSourcePaths().forEach(path -> includes.add(path + "**"));
+    return narrowed(getSrc(), includes, Collections.emptyList());
+  }
+
+  /**
+   * @return the module graph to narrow the inputs to, or null if it can't be
+   *     read completely
+   */
+  private GwtModuleGraph inputModuleGraph() {
+    if (getSrc() == null || getModules() == null || getModules().isEmpty()) {
+      return null;
+    }
+    final GwtModuleGraph graph;
+    try {
+      graph = GwtModuleGraph.load(getModules(), getSrc()
+          .plus(getClasspath() != null ? getClasspath() : getProject().files())
+          .plus(getWorkerClasspath() != null
+              ? getWorkerClasspath() : getProject().files()));
+    } catch (IOException e) {
+      logger.warn("Can't narrow the source inputs of {}: {}", getPath(),
+          e.getMessage());
+      return null;
+    }
+    if (!Collections.disjoint(graph.getMissingModules(), getModules())) {
+      return null;
+    }
+    return graph;
+  }
+
+  /**
+   * @return the given files, with directories reduced to the included and
+   *     not excluded files
+   */
+  private List<Object> narrowed(final FileCollection files,
+      final List<String> includes, final List<String> excludes) {
+    final List<Object> narrowed = new ArrayList<>();
+    for (File root : files) {
+      if (root.isDirectory()) {
+        narrowed.add(getProject().fileTree(root).include(includes)
+            .exclude(excludes));
+      } else {
+        narrowed.add(root);
+      }
+    }
+    return narrowed;
+  }
+
   /**
    * Sets the source directories used by this task instance. These source
    * directories are used by GWT to read java source files from.
@@ -273,11 +1137,87 @@ public abstract class AbstractGwtActionTask extends DefaultTask {
     this.src = src;
   }
 
-  @Classpath
+  @Internal
+  public Boolean getNarrowSourceInputs() {
+    return narrowSourceInputs;
+  }
+
+  /**
+   * Sets whether only the sources of the GWT modules are inputs of this
+   * task, see {@link #getSourceInputs()}.
+   *
+   * @param narrowSourceInputs true to narrow the source inputs
+   */
+  public void setNarrowSourceInputs(Boolean narrowSourceInputs) {
+    this.narrowSourceInputs = narrowSourceInputs;
+  }
+
+  @Internal
+  public Boolean getNormalizeSourceInputs() {
+    return normalizeSourceInputs;
+  }
+
+  /**
+   * Sets whether the Java sources are inputs of this task without their
+   * comments and formatting, see {@link #getJavaSourceFingerprint()}.
+   *
+   * @param normalizeSourceInputs true to normalize the Java sources
+   */
+  public void setNormalizeSourceInputs(Boolean normalizeSourceInputs) {
+    this.normalizeSourceInputs = normalizeSourceInputs;
+  }
+
+  @Internal
   public FileCollection getClasspath() {
     return classpath;
   }
 
+  /**
+   * Returns the part of {@link #getClasspath()} that is an input of this
+   * task. If the {@link #getSourceInputs() source inputs are narrowed}, the
+   * directories of the classpath, like the classes of the project, only
+   * contribute the module descriptors, the classes below the source paths of
+   * the modules and the packages of the generators and linkers they declare.
+   * So server classes aren't inputs, while the tool still runs with the whole
+   * classpath.
+   * Classes that generators load from other packages aren't inputs either,
+   * set {@link #setNarrowSourceInputs(Boolean) narrowSourceInputs} to false
+   * for such generators. Jars are always inputs as a whole.
+   *
+   * <p>If the {@link #getNormalizeSourceInputs() sources are normalized},
+   * the classes below the source paths in the directories aren't inputs,
+   * as the compiler reads these sources instead, which are inputs. So a
+   * Javadoc edit that moves lines doesn't change the input through the line
+   * numbers of the compiled classes.
+   *
+   * @return the classpath of the GWT tool, narrowed to the GWT classes
+   */
+  @Classpath
+  public FileCollection getClasspathInputs() {
+    return getProject().files((Callable<Object>) () -> {
+      final boolean narrow = Boolean.TRUE.equals(getNarrowSourceInputs());
+      final boolean normalize =
+          Boolean.TRUE.equals(getNormalizeSourceInputs());
+      final GwtModuleGraph graph =
+          narrow || normalize ? inputModuleGraph() : null;
+      if (graph == null || getClasspath() == null) {
+        return getClasspath();
+      }
+      final List<String> includes = new ArrayList<>();
+      if (narrow) {
+        includes.addAll(graph.getDescriptorPaths());
+        graph.getSourcePaths().forEach(path -> includes.add(path + "**"));
+        graph.getGeneratorPaths().forEach(path -> includes.add(path + "**"));
+      }
+      final List<String> excludes = new ArrayList<>();
+      if (normalize) {
+        graph.getSourcePaths().forEach(path -> excludes.add(path + "**/*"
+            + CLASS_SUFFIX));
+      }
+      return narrowed(getClasspath(), includes, excludes);
+    }).builtBy((Callable<Object>) this::getClasspath);
+  }
+
   /**
    * Sets the classpath for the spawned java process.
    *
@@ -313,6 +1253,23 @@ public abstract class AbstractGwtActionTask extends DefaultTask {
    */
   public void setMaxHeapSize(String maxHeapSize) {
     this.maxHeapSize = maxHeapSize;
+    this.maxHeapSizeSet = true;
+  }
+
+  @Internal
+  public Boolean getContainerMaxHeapSize() {
+    return containerMaxHeapSize;
+  }
+
+  /**
+   * Sets whether the default maximum heap size is raised to a quarter of
+   * the container's memory limit. Ignored if the maximum heap size is set
+   * on this task.
+   *
+   * @param containerMaxHeapSize true to derive the heap from the container
+   */
+  public void setContainerMaxHeapSize(Boolean containerMaxHeapSize) {
+    this.containerMaxHeapSize = containerMaxHeapSize;
   }
 
   @Input
@@ -408,4 +1365,203 @@ public abstract class AbstractGwtActionTask extends DefaultTask {
       MethodNameDisplayMode methodNameDisplayMode) {
     this.methodNameDisplayMode = methodNameDisplayMode;
   }
+
+  @Internal
+  public ExecutionMode getExecutionMode() {
+    return executionMode;
+  }
+
+  /**
+   * Sets how the JVM running the GWT tool is provided.
+   *
+   * @param executionMode the execution mode to set
+   */
+  public void setExecutionMode(ExecutionMode executionMode) {
+    this.executionMode = executionMode;
+  }
+
+  @Internal
+  public FileCollection getWorkerClasspath() {
+    return workerClasspath;
+  }
+
+  /**
+   * Sets the classpath of the worker daemon or compile server used with
+   * {@link ExecutionMode#WORKER} and {@link ExecutionMode#SERVER}. This is
+   * expected to contain the GWT SDK only as it is part of the key under which
+   * worker daemons are reused.
+   *
+   * @param workerClasspath the worker classpath to set
+   */
+  public void setWorkerClasspath(FileCollection workerClasspath) {
+    this.workerClasspath = workerClasspath;
+  }
+
+  @Internal
+  public GwtCompileServerOptions getCompileServer() {
+    return compileServer;
+  }
+
+  /**
+   * Sets the options of the compile server used with
+   * {@link ExecutionMode#SERVER}.
+   *
+   * @param compileServer the compile server options to set
+   */
+  public void setCompileServer(GwtCompileServerOptions compileServer) {
+    this.compileServer = compileServer;
+  }
+
+  @Internal
+  public Provider<GwtJvmLimiter> getJvmLimiter() {
+    return jvmLimiter;
+  }
+
+  /**
+   * Sets the build service that limits the concurrently running GWT JVMs.
+   *
+   * @param jvmLimiter the JVM limiter to set, null to not limit this task
+   */
+  public void setJvmLimiter(Provider<GwtJvmLimiter> jvmLimiter) {
+    this.jvmLimiter = jvmLimiter;
+  }
+
+  @Internal
+  public GwtMachineSlotOptions getMachineSlots() {
+    return machineSlots;
+  }
+
+  /**
+   * Sets the machine wide slots the GWT JVM of this task has to wait for.
+   *
+   * @param machineSlots the slot options to set
+   */
+  public void setMachineSlots(GwtMachineSlotOptions machineSlots) {
+    this.machineSlots = machineSlots;
+  }
+
+  @Internal
+  public File getCdsArchiveDir() {
+    return cdsArchiveDir;
+  }
+
+  /**
+   * Sets the directory of the AppCDS archives created by
+   * {@link GwtCdsArchive}. The reusable GWT JVMs use a matching archive if
+   * there is one.
+   *
+   * @param cdsArchiveDir the archive directory to set
+   */
+  public void setCdsArchiveDir(File cdsArchiveDir) {
+    this.cdsArchiveDir = cdsArchiveDir;
+  }
+
+  /**
+   * Replaces the directories the {@link #getSourceBundle() source bundle} is
+   * made of with the bundle, at the position of the first of them. Other
+   * directories, e.g. sources only this task reads, stay on the classpath.
+   *
+   * @param classpath the sources and the classpath of the tool
+   * @return the classpath with the bundle
+   */
+  FileCollection bundledClasspath(final FileCollection classpath) {
+    final Set<File> bundled = getSourceBundleContents() != null
+        ? getSourceBundleContents().getFiles() : null;
+    final List<File> files = new ArrayList<>();
+    boolean bundleAdded = false;
+    for (File file : classpath) {
+      if (file.isFile() || bundled != null && !bundled.contains(file)) {
+        files.add(file);
+      } else if (!bundleAdded) {
+        files.add(getSourceBundle());
+        bundleAdded = true;
+      }
+    }
+    if (!bundleAdded) {
+      files.add(0, getSourceBundle());
+    }
+    return getProject().files(files);
+  }
+
+  @Internal
+  public File getSourceBundle() {
+    return sourceBundle;
+  }
+
+  /**
+   * Sets the jar written by {@link GwtSourceBundle}. If set, the GWT tool
+   * gets the jar on its classpath instead of the directories of the sources
+   * and the classpath. The bundle isn't an input itself, it's made of the
+   * sources and the classpath.
+   *
+   * @param sourceBundle the bundle to use, null to use the directories
+   */
+  public void setSourceBundle(File sourceBundle) {
+    this.sourceBundle = sourceBundle;
+  }
+
+  @Internal
+  public FileCollection getSourceBundleContents() {
+    return sourceBundleContents;
+  }
+
+  /**
+   * Sets the source directories and the classpath the
+   * {@link #getSourceBundle() source bundle} is made of. Only these
+   * directories are replaced by the bundle, other directories of the
+   * sources and the classpath stay on the classpath. If not set, the bundle
+   * replaces all directories.
+   *
+   * @param sourceBundleContents the sources and the classpath of the bundle
+   */
+  public void setSourceBundleContents(FileCollection sourceBundleContents) {
+    this.sourceBundleContents = sourceBundleContents;
+  }
+
+  @Internal
+  public Provider<JavaLauncher> getJavaLauncher() {
+    return javaLauncher;
+  }
+
+  /**
+   * Sets the toolchain launcher of the GWT JVMs of this task, e.g.
+   * {@code javaToolchains.launcherFor { languageVersion =
+   * JavaLanguageVersion.of(11) }}. By default the JDK running Gradle is used.
+   * The launcher is not an input as the JDK doesn't change the generated
+   * JavaScript.
+   *
+   * @param javaLauncher the launcher to set
+   */
+  public void setJavaLauncher(Provider<JavaLauncher> javaLauncher) {
+    this.javaLauncher = javaLauncher;
+  }
+
+  @Internal
+  public GwtJvmProfile getJvmProfile() {
+    return jvmProfile;
+  }
+
+  /**
+   * Sets the JVM profile whose arguments tune the GWT JVM of this task.
+   * Arguments in {@link #getExtraJvmArgs()} win over the profile.
+   *
+   * @param jvmProfile the profile to set, null for none
+   */
+  public void setJvmProfile(GwtJvmProfile jvmProfile) {
+    this.jvmProfile = jvmProfile;
+  }
+
+  @Internal
+  public GwtHeapTelemetryOptions getHeapTelemetry() {
+    return heapTelemetry;
+  }
+
+  /**
+   * Sets the options of the heap telemetry of the GWT JVM of this task.
+   *
+   * @param heapTelemetry the telemetry options to set
+   */
+  public void setHeapTelemetry(GwtHeapTelemetryOptions heapTelemetry) {
+    this.heapTelemetry = heapTelemetry;
+  }
 }
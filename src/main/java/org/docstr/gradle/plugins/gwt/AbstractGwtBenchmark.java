@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputFile;
+import org.docstr.gradle.plugins.gwt.internal.GwtHeapTelemetry;
+import org.docstr.gradle.plugins.gwt.internal.MemorySizes;
+
+/**
+ * Base class of the tasks comparing variants of the production compile on
+ * the current project. The compile runs once per candidate and iteration,
+ * each writing to its own directory below {@link #getWar()}, and the wall
+ * time, the peak resident set size and the
+ * {@link GwtHeapTelemetryOptions heap telemetry} of every run are reported.
+ * The peak resident set size is only known for forked compiles.
+ *
+ * @param <T> the type of the compared candidates
+ */
+public abstract class AbstractGwtBenchmark<T> extends GwtCompile {
+
+  private int iterations = 1;
+  private File reportFile;
+
+  private GwtHeapTelemetry.Report lastReport;
+
+  protected AbstractGwtBenchmark() {
+    getOutputs().upToDateWhen(task -> false);
+  }
+
+  @Override
+  protected void execute(final FileCollection classpath) {
+    final List<T> candidates = candidates();
+    final StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+        "%-12s %4s %10s %10s %10s %6s %8s%n", "candidate", "run", "wall ms",
+        "peak RSS", "peak heap", "GCs", "GC ms"));
+    final StringBuilder descriptions = new StringBuilder();
+    try {
+      for (T candidate : candidates) {
+        final String name = name(candidate);
+        descriptions.append(String.format(Locale.ROOT, "%-12s %s%n", name,
+            describe(candidate)));
+        select(candidate);
+        for (int i = 1; i <= iterations; i++) {
+          final List<String> args = toolArgs();
+          replaceOutputDirArgs(args, name);
+          lastReport = null;
+          final long start = System.nanoTime();
+          execute(classpath, args);
+          final long millis = (System.nanoTime() - start) / 1_000_000;
+          report.append(String.format(Locale.ROOT,
+              "%-12s %4d %10d %10s %10s %6s %8s%n", name, i, millis,
+              lastReport != null && lastReport.getPeakRss() > 0
+                  ? MemorySizes.format(lastReport.getPeakRss()) : "-",
+              lastReport != null
+                  ? MemorySizes.format(lastReport.getPeakHeap()) : "-",
+              lastReport != null ? lastReport.getGcCount() : "-",
+              lastReport != null ? lastReport.getGcMillis() : "-"));
+        }
+      }
+    } finally {
+      select(null);
+    }
+    report.append(descriptions);
+
+    getLogger().lifecycle(report.toString());
+    try {
+      Files.write(reportFile.toPath(),
+          report.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new GradleException("Can't write " + reportFile, e);
+    }
+  }
+
+  /**
+   * @return the candidates to compare, at least one
+   * @throws org.gradle.api.InvalidUserDataException if none are given
+   */
+  protected abstract List<T> candidates();
+
+  /**
+   * @param candidate a candidate
+   * @return the name of the candidate in the report and its output directory
+   */
+  protected abstract String name(T candidate);
+
+  /**
+   * @param candidate a candidate
+   * @return the details of the candidate listed below the report
+   */
+  protected abstract String describe(T candidate);
+
+  /**
+   * Makes the following compiles use the given candidate.
+   *
+   * @param candidate the candidate, or null to restore the task's settings
+   */
+  protected abstract void select(T candidate);
+
+  /**
+   * Always measures the heap, the report is made of it.
+   */
+  @Override
+  protected boolean measuresHeap() {
+    return true;
+  }
+
+  /**
+   * Keeps the heap telemetry for the report instead of recording it for the
+   * compile plan.
+   */
+  @Override
+  protected void heapReported(final GwtHeapTelemetry.Report report) {
+    lastReport = report;
+  }
+
+  @Input
+  public int getIterations() {
+    return iterations;
+  }
+
+  /**
+   * Sets how often the compile is run per candidate. Defaults to 1.
+   *
+   * @param iterations the number of runs per candidate
+   */
+  public void setIterations(int iterations) {
+    this.iterations = iterations;
+  }
+
+  @OutputFile
+  public File getReportFile() {
+    return reportFile;
+  }
+
+  /**
+   * Sets the file receiving the benchmark report.
+   *
+   * @param reportFile the report file to set
+   */
+  public void setReportFile(File reportFile) {
+    this.reportFile = reportFile;
+  }
+}
@@ -16,33 +16,89 @@
 package org.docstr.gradle.plugins.gwt;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.Callable;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.IConventionAware;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
+import org.docstr.gradle.plugins.gwt.internal.ContainerResources;
 import org.docstr.gradle.plugins.gwt.internal.GwtCompileOptionsImpl;
+import org.docstr.gradle.plugins.gwt.internal.GwtCompilePlanner;
+import org.docstr.gradle.plugins.gwt.internal.GwtHeapHistory;
+import org.docstr.gradle.plugins.gwt.internal.GwtHeapTelemetry;
+import org.docstr.gradle.plugins.gwt.internal.GwtModuleGraph;
+import org.docstr.gradle.plugins.gwt.internal.GwtOutputSync;
+import org.docstr.gradle.plugins.gwt.internal.MemorySizes;
 
 /**
  * Common implementation of tasks used for GWT compilation.
  */
-public class AbstractGwtCompile extends AbstractGwtTask implements
+public abstract class AbstractGwtCompile extends AbstractGwtTask implements
     GwtCompileOptions {
 
   private final GwtCompileOptions options = new GwtCompileOptionsImpl();
 
+  private boolean localWorkersSet;
+
+  private Integer plannedLocalWorkers;
+
+  private GwtCompilePlanOptions compilePlan;
+
+  private Boolean planMaxHeapSize;
+
+  private Boolean planLocalWorkers;
+
+  private Boolean stageOutput;
+
   public AbstractGwtCompile() {
-    super("com.google.gwt.dev.Compiler");
+    this("com.google.gwt.dev.Compiler");
+  }
+
+  protected AbstractGwtCompile(String main) {
+    super(main);
   }
 
   @Override
   protected void addArgs() {
     super.addArgs();
 
-    argIfSet("-localWorkers", getLocalWorkers());
+    argIfSet("-localWorkers", limitLocalWorkers(plannedLocalWorkers != null
+        ? plannedLocalWorkers : getLocalWorkers()));
+    addActiveProcessorCount();
+    addPrecompileArgs();
+    argOnOff(getIncrementalCompileWarnings(), "-incrementalCompileWarnings",
+        "-noincrementalCompileWarnings");
+    argOnOff(getSaveSource(), "-saveSource", "-nosaveSource");
+    argIfSet("-saveSourceOutput", getSaveSourceOutput());
+  }
+
+  /**
+   * Tells the compiler JVM the CPU quota of the container, so that its GC
+   * and compiler threads fit the quota. Skipped if the extra JVM arguments
+   * set the count.
+   */
+  private void addActiveProcessorCount() {
+    final int cpuLimit = ContainerResources.get().getCpuLimit();
+    if (cpuLimit > 0 && getExtraJvmArgs().stream().noneMatch(arg ->
+        String.valueOf(arg).startsWith("-XX:ActiveProcessorCount="))) {
+      jvmArgs("-XX:ActiveProcessorCount="
+          + ContainerResources.availableProcessors());
+    }
+  }
+
+  /**
+   * Adds the compiler arguments that are handled by GWT's precompile stage
+   * (parsing, type checking, generators and AST optimizations).
+   */
+  protected void addPrecompileArgs() {
     argIfEnabled(getDraftCompile(), "-draftCompile");
     argIfEnabled(getCompileReport(), "-compileReport");
     argIfEnabled(getCompilerMetrics(), "-XcompilerMetrics");
@@ -66,20 +122,213 @@ public class AbstractGwtCompile extends AbstractGwtTask implements
     argIfSet("-Xnamespace", getNamespace());
     argOnOff(getEnforceStrictResources(), "-XenforceStrictResources",
         "-XnoenforceStrictResources");
-    argOnOff(getIncrementalCompileWarnings(), "-incrementalCompileWarnings",
-        "-noincrementalCompileWarnings");
     argOnOff(getOverlappingSourceWarnings(), "-overlappingSourceWarnings",
         "-nooverlappingSourceWarnings");
-    argOnOff(getSaveSource(), "-saveSource", "-nosaveSource");
-    argIfSet("-saveSourceOutput", getSaveSourceOutput());
     argOnOff(getClosureFormattedOutput(), "-XclosureFormattedOutput",
         "-XnoclosureFormattedOutput");
   }
 
+  /**
+   * Picks the heap size and local workers from the {@link #getCompilePlan()
+   * compile plan} unless they are set explicitly.
+   */
+  @Override
+  protected void planExecution() {
+    plannedLocalWorkers = null;
+    final boolean planHeap = Boolean.TRUE.equals(getPlanMaxHeapSize())
+        && !isMaxHeapSizeSet();
+    final boolean planWorkers = Boolean.TRUE.equals(getPlanLocalWorkers())
+        && !localWorkersSet;
+    if (getCompilePlan() == null || !planHeap && !planWorkers) {
+      return;
+    }
+
+    final GwtModuleGraph graph;
+    try {
+      graph = GwtModuleGraph.load(getModules(), getSrc().plus(getClasspath())
+          .plus(getWorkerClasspath() != null
+              ? getWorkerClasspath() : getProject().files()));
+    } catch (IOException | ArithmeticException e) {
+      getLogger().warn("Can't plan the compile of {}: {}", getModules(),
+          e.getMessage());
+      return;
+    }
+    final long pastPeak = getCompilePlan().getHistoryFile() == null ? -1
+        : new GwtHeapHistory(getCompilePlan().getHistoryFile())
+            .peak(String.join(",", getModules()));
+    final GwtCompilePlanner.Plan plan = GwtCompilePlanner.plan(
+        graph.estimatePermutations(), ContainerResources.availableProcessors(),
+        MemorySizes.availableMemory(), pastPeak);
+    getLogger().lifecycle("GWT compile plan for {}: {}", getModules(), plan);
+
+    if (planHeap) {
+      setPlannedMaxHeapSize(MemorySizes.format(plan.getMaxHeapSize()));
+    }
+    if (planWorkers) {
+      plannedLocalWorkers = plan.getLocalWorkers();
+    }
+  }
+
+  /**
+   * Runs the compiler and, if the {@link #getStageOutput() output is
+   * staged}, syncs its output into the war directory afterwards.
+   */
+  @Override
+  protected void execute(final FileCollection classpath) {
+    final List<String> args = toolArgs();
+    final File stagingDir = stageOutput(args);
+    if (stagingDir == null) {
+      super.execute(classpath);
+      return;
+    }
+    execute(classpath, args);
+    syncOutput(stagingDir);
+  }
+
+  /**
+   * Redirects the war directory in the given compiler arguments to an empty
+   * staging directory, to be synced by {@link #syncOutput(File)}.
+   *
+   * @param args the compiler arguments to change
+   * @return the staging directory, or null if the output isn't staged
+   */
+  protected File stageOutput(final List<String> args) {
+    final int index = args.indexOf("-war");
+    if (!Boolean.TRUE.equals(getStageOutput()) || index < 0
+        || index + 1 >= args.size()) {
+      return null;
+    }
+    final File stagingDir = new File(getTemporaryDir(), "staging");
+    try {
+      GwtOutputSync.delete(stagingDir.toPath());
+    } catch (IOException e) {
+      throw new GradleException("Can't clean " + stagingDir, e);
+    }
+    args.set(index + 1, stagingDir.getAbsolutePath());
+    return stagingDir;
+  }
+
+  /**
+   * Moves the new and changed files of the staging directory into the war
+   * directory and removes the files of the previous sync the compile didn't
+   * produce again.
+   *
+   * @param stagingDir the directory returned by {@link #stageOutput(List)}
+   */
+  protected void syncOutput(final File stagingDir) {
+    try {
+      final GwtOutputSync.Result result =
+          GwtOutputSync.sync(stagingDir, getWar(), syncManifest());
+      getLogger().info("Synced the GWT output into {}: {}", getWar(), result);
+    } catch (IOException e) {
+      throw new GradleException("Can't sync the GWT output into " + getWar(),
+          e);
+    }
+  }
+
+  /**
+   * Removes an argument and its value from the given compiler arguments.
+   *
+   * @param args the compiler arguments to change
+   * @param arg the argument to remove
+   * @param hasValue true if the argument is followed by a value
+   */
+  protected static void removeArg(final List<String> args, final String arg,
+      final boolean hasValue) {
+    final int index = args.indexOf(arg);
+    if (index >= 0) {
+      args.remove(index);
+      if (hasValue && index < args.size()) {
+        args.remove(index);
+      }
+    }
+  }
+
+  /**
+   * Records the peak heap usage for the {@link #getCompilePlan() compile
+   * plan} of the next compile.
+   */
+  @Override
+  protected void heapReported(final GwtHeapTelemetry.Report report) {
+    if (getCompilePlan() != null && getCompilePlan().getHistoryFile() != null) {
+      try {
+        new GwtHeapHistory(getCompilePlan().getHistoryFile())
+            .record(String.join(",", getModules()), report.getPeakHeap());
+      } catch (IOException e) {
+        getLogger().warn("Can't record the heap usage in {}",
+            getCompilePlan().getHistoryFile(), e);
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected String jvmProfileName() {
+    return GwtJvmProfile.COMPILE;
+  }
+
   protected void configure(final GwtCompileOptions options) {
     ((IConventionAware) this).getConventionMapping()
-        .map("localWorkers",
-            (Callable<Integer>) () -> options.getLocalWorkers());
+        .map("localWorkers", (Callable<Integer>) () ->
+            options.getLocalWorkers() != null ? options.getLocalWorkers()
+                : ContainerResources.availableProcessors());
+  }
+
+  @Internal
+  public GwtCompilePlanOptions getCompilePlan() {
+    return compilePlan;
+  }
+
+  /**
+   * Sets the options of the compile planner, null to not plan compiles.
+   *
+   * @param compilePlan the compile plan options
+   */
+  public void setCompilePlan(GwtCompilePlanOptions compilePlan) {
+    this.compilePlan = compilePlan;
+  }
+
+  /**
+   * @return true if the compiler writes to a staging directory that is
+   *     synced into the war directory by content
+   */
+  @Internal
+  public Boolean getStageOutput() {
+    return stageOutput;
+  }
+
+  public void setStageOutput(Boolean stageOutput) {
+    this.stageOutput = stageOutput;
+  }
+
+  @Internal
+  public Boolean getPlanMaxHeapSize() {
+    return planMaxHeapSize;
+  }
+
+  /**
+   * Sets whether the compile planner picks the maximum heap size. Ignored
+   * if the maximum heap size is set on this task.
+   *
+   * @param planMaxHeapSize true to plan the maximum heap size
+   */
+  public void setPlanMaxHeapSize(Boolean planMaxHeapSize) {
+    this.planMaxHeapSize = planMaxHeapSize;
+  }
+
+  @Internal
+  public Boolean getPlanLocalWorkers() {
+    return planLocalWorkers;
+  }
+
+  /**
+   * Sets whether the compile planner picks the number of local workers.
+   * Ignored if the local workers are set on this task.
+   *
+   * @param planLocalWorkers true to plan the local workers
+   */
+  public void setPlanLocalWorkers(Boolean planLocalWorkers) {
+    this.planLocalWorkers = planLocalWorkers;
   }
 
   /** {@inheritDoc} */
@@ -93,6 +342,7 @@ public class AbstractGwtCompile extends AbstractGwtTask implements
   @Override
   public void setLocalWorkers(Integer localWorkers) {
     options.setLocalWorkers(localWorkers);
+    localWorkersSet = true;
   }
 
   /** {@inheritDoc} */
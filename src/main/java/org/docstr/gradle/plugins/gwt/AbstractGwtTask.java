@@ -43,7 +43,10 @@ public abstract class AbstractGwtTask extends AbstractGwtActionTask {
     dirArgIfSet("-extra", getExtra());
     dirArgIfSet("-workDir", getWorkDir());
     dirArgIfSet("-gen", getGen());
+    addCacheDirJvmArg();
+  }
 
+  protected void addCacheDirJvmArg() {
     final File cacheDir = getCacheDir();
     if (cacheDir != null) {
       cacheDir.mkdirs();
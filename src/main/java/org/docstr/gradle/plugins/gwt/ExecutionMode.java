@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+/**
+ * Defines how the JVM running a GWT tool is provided.
+ */
+public enum ExecutionMode {
+  /** A new JVM is forked for every task execution (default) */
+  FORK,
+  /**
+   * The compiler runs in a Gradle worker daemon that is reused by tasks
+   * with the same GWT SDK classpath and JVM settings
+   */
+  WORKER,
+  /**
+   * The compiler runs in a long lived GWT compile server that survives the
+   * Gradle daemon and is shared by all builds of the current user
+   */
+  SERVER
+}
@@ -18,8 +18,14 @@ package org.docstr.gradle.plugins.gwt;
 import static java.lang.String.format;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import javax.inject.Inject;
+import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
@@ -31,9 +37,15 @@ import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.testing.Test;
+import org.gradle.build.event.BuildEventsListenerRegistry;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.docstr.gradle.plugins.gwt.internal.ContainerResources;
+import org.docstr.gradle.plugins.gwt.internal.GwtJvmLimiter;
 import org.docstr.gradle.plugins.gwt.internal.GwtVersion;
+import org.docstr.gradle.plugins.gwt.internal.MemorySizes;
 
 public class GwtBasePlugin implements Plugin<Project> {
 
@@ -46,6 +58,19 @@ public class GwtBasePlugin implements Plugin<Project> {
   public static final String WORK_DIR = "work";
   public static final String CACHE_DIR = "cache";
   public static final String LOG_DIR = "log";
+  public static final String COMPILE_SERVER_DIR = "gwt-compile-server";
+  public static final String JVM_LIMITER_SERVICE = "gwtJvmLimiter";
+  public static final String MACHINE_SLOTS_DIR = "gwt-slots";
+  public static final String HEAP_HISTORY_FILE = "heap-history.properties";
+  public static final String CDS_DIR = "cds";
+  public static final String TASK_GWT_CDS_ARCHIVE = "gwtCdsArchive";
+  public static final String CLASSPATH_INDEX_DIR = "classpathIndex";
+  public static final String TASK_GWT_CLASSPATH_INDEX = "gwtClasspathIndex";
+  public static final String TASK_GWT_INHERITS_REPORT = "gwtInheritsReport";
+  public static final String TASK_GWT_PRECHECK = "gwtPrecheck";
+  public static final String CHECK_DIR = "check";
+  public static final String SOURCE_BUNDLE_DIR = "sourceBundle";
+  public static final String TASK_GWT_SOURCE_BUNDLE = "gwtSourceBundle";
 
   public static final String DEV_WAR = "war";
 
@@ -65,6 +90,13 @@ public class GwtBasePlugin implements Plugin<Project> {
   private Configuration gwtConfiguration;
   private Configuration gwtSdkConfiguration;
   private ConfigurableFileCollection allGwtConfigurations;
+  private Provider<GwtJvmLimiter> jvmLimiter;
+  private final BuildEventsListenerRegistry buildEvents;
+
+  @Inject
+  public GwtBasePlugin(final BuildEventsListenerRegistry buildEvents) {
+    this.buildEvents = buildEvents;
+  }
 
   @Override
   public void apply(final Project project) {
@@ -74,12 +106,19 @@ public class GwtBasePlugin implements Plugin<Project> {
     final File gwtBuildDir = new File(project.getBuildDir(), BUILD_DIR);
 
     extension = configureGwtExtension(gwtBuildDir);
+    jvmLimiter = registerJvmLimiter();
 
-    configureAbstractActionTasks();
+    configureAbstractActionTasks(gwtBuildDir);
     configureAbstractTasks();
-    configureGwtCompile();
+    configureGwtCompile(gwtBuildDir);
+    configureGwtCheck(gwtBuildDir);
     configureGwtDev();
     configureGwtSuperDev();
+    registerCdsArchive(gwtBuildDir);
+    registerClasspathIndex(gwtBuildDir);
+    registerInheritsReport(gwtBuildDir);
+    registerPrecheck(gwtBuildDir);
+    registerSourceBundle(gwtBuildDir);
 
     gwtConfiguration = project.getConfigurations().create(GWT_CONFIGURATION)
         .setDescription(
@@ -145,6 +184,29 @@ public class GwtBasePlugin implements Plugin<Project> {
     });
   }
 
+  private Provider<GwtJvmLimiter> registerJvmLimiter() {
+    final GwtJvmLimitOptions options = extension.getJvmLimit();
+    final int processors = ContainerResources.availableProcessors();
+    final Provider<GwtJvmLimiter> limiter = project.getGradle()
+        .getSharedServices().registerIfAbsent(
+        JVM_LIMITER_SERVICE, GwtJvmLimiter.class, spec -> {
+          spec.getParameters().getProcessors().set(processors);
+          spec.getParameters().getMaxJvms().set(project.provider(() ->
+              options.getMaxJvms() != null ? options.getMaxJvms()
+                  : Math.max(1, processors / 2)));
+          spec.getParameters().getMaxTotalHeap().set(project.provider(() -> {
+            if (options.getMaxTotalHeap() != null) {
+              return MemorySizes.parse(options.getMaxTotalHeap());
+            }
+            final long physicalMemory = MemorySizes.physicalMemory();
+            return physicalMemory > 0 ? physicalMemory / 4 * 3 : -1L;
+          }));
+        });
+    // releases the leases held for test tasks
+    buildEvents.onTaskCompletion(limiter);
+    return limiter;
+  }
+
   private String gwtDependency(final String artifactId,
       final GwtVersion gwtVersion) {
     String group = gwtVersion.isAtLeast(2, 10) ? GWT_GROUP_OSS : GWT_GROUP_GOOGLE;
@@ -158,10 +220,16 @@ public class GwtBasePlugin implements Plugin<Project> {
     extension.setWorkDir(new File(buildDir, WORK_DIR));
     extension.setCacheDir(new File(buildDir, CACHE_DIR));
     extension.getDev().setLogDir(new File(buildDir, LOG_DIR));
-    extension.getCompiler()
-        .setLocalWorkers(Runtime.getRuntime().availableProcessors());
     extension.setLogLevel(getLogLevel());
     extension.getSuperDev().setUseClasspathForSrc(true);
+    extension.getCompileServer().setBaseDir(
+        new File(project.getGradle().getGradleUserHomeDir(),
+            COMPILE_SERVER_DIR));
+    extension.getMachineSlots().setDir(
+        new File(project.getGradle().getGradleUserHomeDir(),
+            MACHINE_SLOTS_DIR));
+    extension.getCompilePlan().setHistoryFile(
+        new File(buildDir, HEAP_HISTORY_FILE));
 
     ConventionMapping conventionMapping = ((IConventionAware) extension)
         .getConventionMapping();
@@ -175,6 +243,135 @@ public class GwtBasePlugin implements Plugin<Project> {
   }
 
 
+  private void registerCdsArchive(final File gwtBuildDir) {
+    project.getTasks().register(TASK_GWT_CDS_ARCHIVE, GwtCdsArchive.class,
+        task -> {
+          task.setGroup(GWT_TASK_GROUP);
+          task.setDescription("Creates an AppCDS archive of the GWT SDK for the GWT compile server and agents");
+          task.setArchiveDir(new File(gwtBuildDir, CDS_DIR));
+          task.dependsOn(project.getTasks().named(JavaPlugin.COMPILE_JAVA_TASK_NAME),
+              project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
+          final ConventionMapping conventionMapping =
+              ((IConventionAware) task).getConventionMapping();
+          conventionMapping.map("sdkClasspath",
+              (Callable<FileCollection>) () -> gwtSdkConfiguration
+                  .plus(project.files(AbstractGwtActionTask.pluginJar())));
+          conventionMapping.map("trainingClasspath",
+              (Callable<FileCollection>) () -> {
+                final SourceSet mainSourceSet = getMainSourceSet();
+                return extension.getSrc()
+                    .plus(mainSourceSet.getCompileClasspath())
+                    .plus(project.files(
+                        mainSourceSet.getOutput().getClassesDirs()));
+              });
+          conventionMapping.map("modules",
+              (Callable<List<String>>) () -> extension.getModules());
+          conventionMapping.map("javaLauncher",
+              (Callable<Provider<JavaLauncher>>) () -> extension.getJavaLauncher());
+          conventionMapping.map("maxHeapSize",
+              (Callable<String>) () -> extension.getMaxHeapSize());
+        });
+  }
+
+  private void registerClasspathIndex(final File gwtBuildDir) {
+    project.getTasks().register(TASK_GWT_CLASSPATH_INDEX,
+        GwtClasspathIndex.class, task -> {
+          task.setGroup(GWT_TASK_GROUP);
+          task.setDescription("Finds the classpath entries containing GWT modules or their sources");
+          final File indexDir = new File(gwtBuildDir, CLASSPATH_INDEX_DIR);
+          task.setIndexFile(new File(indexDir, "index.txt"));
+          task.setReportFile(new File(indexDir, "report.txt"));
+          task.dependsOn(project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
+          final ConventionMapping conventionMapping =
+              ((IConventionAware) task).getConventionMapping();
+          conventionMapping.map("classpath",
+              (Callable<FileCollection>) this::compileClasspath);
+          conventionMapping.map("src",
+              (Callable<FileCollection>) () -> extension.getSrc());
+          conventionMapping.map("modules",
+              (Callable<List<String>>) () -> extension.getModules());
+          conventionMapping.map("keep",
+              (Callable<List<String>>) () -> extension.getClasspathPruning()
+                  .getKeep());
+        });
+  }
+
+  private void registerInheritsReport(final File gwtBuildDir) {
+    project.getTasks().register(TASK_GWT_INHERITS_REPORT,
+        GwtInheritsReport.class, task -> {
+          task.setGroup(GWT_TASK_GROUP);
+          task.setDescription("Lists the inherits of the GWT modules the client code doesn't use");
+          task.setReportFile(new File(gwtBuildDir, "inherits-report.txt"));
+          task.dependsOn(project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
+          final ConventionMapping conventionMapping =
+              ((IConventionAware) task).getConventionMapping();
+          conventionMapping.map("src",
+              (Callable<FileCollection>) () -> extension.getSrc());
+          conventionMapping.map("classpath",
+              (Callable<FileCollection>) this::compileClasspath);
+          conventionMapping.map("modules",
+              (Callable<List<String>>) () -> extension.getModules());
+        });
+  }
+
+  private void registerPrecheck(final File gwtBuildDir) {
+    project.getTasks().register(TASK_GWT_PRECHECK, GwtPrecheck.class, task -> {
+      task.setGroup(GWT_TASK_GROUP);
+      task.setDescription("Checks the GWT client sources for code the GWT compiler can't translate");
+      task.setReportFile(new File(gwtBuildDir, "precheck.txt"));
+      task.dependsOn(project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
+      final ConventionMapping conventionMapping =
+          ((IConventionAware) task).getConventionMapping();
+      conventionMapping.map("src",
+          (Callable<FileCollection>) () -> extension.getSrc());
+      conventionMapping.map("classpath",
+          (Callable<FileCollection>) () -> getMainSourceSet()
+              .getCompileClasspath().plus(gwtSdkConfiguration));
+      conventionMapping.map("modules",
+          (Callable<List<String>>) () -> extension.getModules());
+      conventionMapping.map("failOnWarning",
+          (Callable<Boolean>) () -> extension.getPrecheck().isFailOnWarning());
+    });
+  }
+
+  private void registerSourceBundle(final File gwtBuildDir) {
+    project.getTasks().register(TASK_GWT_SOURCE_BUNDLE, GwtSourceBundle.class,
+        task -> {
+          task.setGroup(GWT_TASK_GROUP);
+          task.setDescription("Packs the GWT sources, resources and classes into a single jar for the compiler");
+          task.setBundleFile(sourceBundleFile(gwtBuildDir));
+          task.dependsOn(project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
+          final ConventionMapping conventionMapping =
+              ((IConventionAware) task).getConventionMapping();
+          conventionMapping.map("src",
+              (Callable<FileCollection>) () -> extension.getSrc());
+          conventionMapping.map("classpath",
+              (Callable<FileCollection>) this::compileClasspath);
+          conventionMapping.map("modules", (Callable<List<String>>) () -> {
+            // the draft compile may use the dev modules
+            final Set<String> modules = new LinkedHashSet<>(
+                extension.getModules());
+            if (extension.getDevModules() != null) {
+              modules.addAll(extension.getDevModules());
+            }
+            return new ArrayList<>(modules);
+          });
+        });
+  }
+
+  private static File sourceBundleFile(final File gwtBuildDir) {
+    return new File(new File(gwtBuildDir, SOURCE_BUNDLE_DIR), "sources.jar");
+  }
+
+  /**
+   * @return the compile classpath and classes of the main source set
+   */
+  private FileCollection compileClasspath() {
+    final SourceSet mainSourceSet = getMainSourceSet();
+    return mainSourceSet.getCompileClasspath()
+        .plus(project.files(mainSourceSet.getOutput().getClassesDirs()));
+  }
+
   private void createSuperDevModeTask(final Project project) {
     project.getTasks().register(TASK_GWT_SUPER_DEV, GwtSuperDev.class, task -> {
       task.dependsOn(project.getTasks().named(JavaPlugin.COMPILE_JAVA_TASK_NAME),
@@ -204,17 +401,45 @@ public class GwtBasePlugin implements Plugin<Project> {
     });
   }
 
-  private void configureAbstractActionTasks() {
-    final JavaPluginConvention javaConvention = getJavaConvention();
-    final SourceSet mainSourceSet = javaConvention.getSourceSets()
-        .getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+  private void configureAbstractActionTasks(final File gwtBuildDir) {
     project.getTasks().withType(AbstractGwtActionTask.class).configureEach(task -> {
       task.setGroup(GwtBasePlugin.GWT_TASK_GROUP);
+      task.dependsOn((Callable<List<String>>) () -> {
+        if (!(task instanceof AbstractGwtCompile)) {
+          return Collections.emptyList();
+        }
+        final List<String> dependencies = new ArrayList<>();
+        if (extension.getPrecheck().isEnabled()) {
+          dependencies.add(TASK_GWT_PRECHECK);
+        }
+        if (extension.getSourceBundle().isEnabled()) {
+          dependencies.add(TASK_GWT_SOURCE_BUNDLE);
+        }
+        return dependencies;
+      });
 
       ConventionMapping conventionMapping = ((IConventionAware) task)
           .getConventionMapping();
       conventionMapping.map("gwtVersion",
           (Callable<String>) () -> extension.getGwtVersion());
+      conventionMapping.map("jvmLimiter",
+          (Callable<Provider<GwtJvmLimiter>>) () ->
+              extension.getJvmLimit().isEnabled() ? jvmLimiter : null);
+      task.usesService(jvmLimiter);
+      conventionMapping.map("machineSlots",
+          (Callable<GwtMachineSlotOptions>) () -> extension.getMachineSlots());
+      conventionMapping.map("jvmProfile", (Callable<GwtJvmProfile>) () -> {
+        final GwtJvmProfileOptions profiles = extension.getJvmProfiles();
+        return profiles.isEnabled() && task.jvmProfileName() != null
+            ? profiles.getProfile(task.jvmProfileName()) : null;
+      });
+      conventionMapping.map("cdsArchiveDir",
+          (Callable<File>) () -> new File(gwtBuildDir, CDS_DIR));
+      conventionMapping.map("javaLauncher",
+          (Callable<Provider<JavaLauncher>>) () -> extension.getJavaLauncher());
+      conventionMapping.map("heapTelemetry",
+          (Callable<GwtHeapTelemetryOptions>) () -> extension
+              .getHeapTelemetry());
       conventionMapping.map("modules", (Callable<List<String>>) () -> {
         final List<String> devModules = extension.getDevModules();
         if (task.isDevTask() && devModules != null && !devModules.isEmpty()) {
@@ -224,13 +449,28 @@ public class GwtBasePlugin implements Plugin<Project> {
       });
       conventionMapping.map("src",
           (Callable<FileCollection>) () -> extension.getSrc());
-      conventionMapping.map("classpath",
-          (Callable<FileCollection>) () -> mainSourceSet.getCompileClasspath()
-              .plus(project.files(mainSourceSet.getOutput().getClassesDirs())));
+      conventionMapping.map("narrowSourceInputs",
+          (Callable<Boolean>) () -> extension.isNarrowSourceInputs());
+      conventionMapping.map("normalizeSourceInputs",
+          (Callable<Boolean>) () -> extension.isNormalizeSourceInputs());
+      conventionMapping.map("classpath", (Callable<FileCollection>) () -> {
+        if (!extension.getClasspathPruning().isEnabled()
+            || !(task instanceof AbstractGwtCompile)) {
+          return compileClasspath();
+        }
+        final FileCollection compileClasspath = compileClasspath();
+        final File indexFile = new File(new File(gwtBuildDir,
+            CLASSPATH_INDEX_DIR), "index.txt");
+        return project.files((Callable<List<File>>) () -> GwtClasspathIndex
+            .prunedClasspath(compileClasspath, indexFile))
+            .builtBy(TASK_GWT_CLASSPATH_INDEX);
+      });
       conventionMapping.map("minHeapSize",
           (Callable<String>) () -> extension.getMinHeapSize());
       conventionMapping.map("maxHeapSize",
           (Callable<String>) () -> extension.getMaxHeapSize());
+      conventionMapping.map("containerMaxHeapSize",
+          (Callable<Boolean>) () -> !extension.isMaxHeapSizeSet());
       conventionMapping.map("extraJvmArgs",
           (Callable<List<String>>) () -> extension.getExtraJvmArgs());
       conventionMapping.map("sourceLevel",
@@ -242,12 +482,51 @@ public class GwtBasePlugin implements Plugin<Project> {
       conventionMapping.map("jsInteropExports", extension::getJsInteropExports);
       conventionMapping
           .map("methodNameDisplayMode", extension::getMethodNameDisplayMode);
+      conventionMapping.map("executionMode",
+          (Callable<ExecutionMode>) () -> extension.getExecutionMode());
+      conventionMapping.map("workerClasspath",
+          (Callable<FileCollection>) () -> gwtSdkConfiguration);
+      conventionMapping.map("compileServer",
+          (Callable<GwtCompileServerOptions>) () -> extension
+              .getCompileServer());
     });
   }
 
-  private void configureGwtCompile() {
+  private void configureGwtCompile(final File gwtBuildDir) {
     project.getTasks().withType(AbstractGwtCompile.class).configureEach(
-        task -> task.configure(extension.getCompiler()));
+        task -> {
+          task.configure(extension.getCompiler());
+          final ConventionMapping conventionMapping =
+              ((IConventionAware) task).getConventionMapping();
+          conventionMapping.map("compilePlan",
+              (Callable<GwtCompilePlanOptions>) () ->
+                  extension.getCompilePlan().isEnabled()
+                      ? extension.getCompilePlan() : null);
+          conventionMapping.map("planMaxHeapSize",
+              (Callable<Boolean>) () -> !extension.isMaxHeapSizeSet());
+          conventionMapping.map("planLocalWorkers",
+              (Callable<Boolean>) () ->
+                  extension.getCompiler().getLocalWorkers() == null);
+          conventionMapping.map("stageOutput",
+              (Callable<Boolean>) () -> extension.isStageOutput());
+          conventionMapping.map("sourceBundle",
+              (Callable<File>) () -> extension.getSourceBundle().isEnabled()
+                  ? sourceBundleFile(gwtBuildDir) : null);
+          conventionMapping.map("sourceBundleContents",
+              (Callable<FileCollection>) () -> {
+                final GwtSourceBundle bundle = project.getTasks()
+                    .named(TASK_GWT_SOURCE_BUNDLE, GwtSourceBundle.class)
+                    .get();
+                return bundle.getSrc().plus(bundle.getClasspath());
+              });
+        });
+  }
+
+  private void configureGwtCheck(final File gwtBuildDir) {
+    project.getTasks().withType(GwtCheck.class).configureEach(task ->
+        ((IConventionAware) task).getConventionMapping().map("markerFile",
+            (Callable<File>) () -> new File(new File(gwtBuildDir, CHECK_DIR),
+                task.getName() + ".txt")));
   }
 
   private void configureGwtDev() {
@@ -282,6 +561,17 @@ public class GwtBasePlugin implements Plugin<Project> {
         testTask.systemProperty("gwt.args", gwtArgs);
         logger.info("Using gwt.args for test: " + gwtArgs);
 
+        final GwtJvmProfile profile =
+            gwtPluginExtension.getJvmProfiles().getProfile(GwtJvmProfile.TEST);
+        if (gwtPluginExtension.getJvmProfiles().isEnabled() && profile != null) {
+          testTask.jvmArgs(profile.jvmArgsWithout(testTask.getJvmArgs()));
+        }
+
+        if (gwtPluginExtension.getJavaLauncher() != null) {
+          // a convention so that a launcher set on the task still wins
+          testTask.getJavaLauncher().convention(gwtPluginExtension.getJavaLauncher());
+        }
+
         if (testExtension.getCacheDir() != null) {
           testTask.systemProperty("gwt.persistentunitcachedir",
               testExtension.getCacheDir());
@@ -289,6 +579,10 @@ public class GwtBasePlugin implements Plugin<Project> {
           logger.info("Using gwt.persistentunitcachedir for test: {0}",
               testExtension.getCacheDir());
         }
+
+        if (gwtPluginExtension.getJvmLimit().isIncludeTests()) {
+          configureTestJvmLimit(testTask, testExtension, gwtPluginExtension);
+        }
       });
 
       project.getPlugins().withType(GwtWarPlugin.class,
@@ -296,6 +590,50 @@ public class GwtBasePlugin implements Plugin<Project> {
     });
   }
 
+  /**
+   * Lets GWT tests wait for the JVM limiter and divides their local workers
+   * like for the compile tasks.
+   */
+  private void configureTestJvmLimit(final Test testTask,
+      final GwtTestExtension testExtension,
+      final GwtPluginExtension gwtPluginExtension) {
+    testTask.usesService(jvmLimiter);
+    testTask.doFirst(task -> {
+      final long heap = MemorySizes.parse(testTask.getMaxHeapSize())
+          * testTask.getMaxParallelForks();
+      Integer localWorkers = testExtension.getLocalWorkers();
+      if (gwtPluginExtension.getJvmLimit().isEnabled()) {
+        final GwtJvmLimiter.Lease lease;
+        try {
+          lease = jvmLimiter.get().acquire(testTask.getPath(), heap);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new GradleException(
+              "Interrupted while waiting for a GWT JVM slot", e);
+        }
+        // released when the task has finished, even if the tests fail
+        jvmLimiter.get().hold(testTask.getPath(), lease);
+        final int share = lease.getLocalWorkers();
+        localWorkers =
+            localWorkers == null ? share : Math.min(localWorkers, share);
+      }
+      if (gwtPluginExtension.getMachineSlots().isEnabled()) {
+        final GwtMachineSlotOptions.SlotLease slotLease =
+            gwtPluginExtension.getMachineSlots().acquire(testTask.getPath(),
+                heap > 0 ? MemorySizes.format(heap) : null, logger);
+        jvmLimiter.get().hold(testTask.getPath(), slotLease);
+        final int share = slotLease.getLocalWorkers();
+        localWorkers =
+            localWorkers == null ? share : Math.min(localWorkers, share);
+      }
+      if (localWorkers != null) {
+        testExtension.setLocalWorkers(localWorkers);
+        testTask.systemProperty("gwt.args",
+            testExtension.getParameterString());
+      }
+    });
+  }
+
   private LogLevel getLogLevel() {
     if (logger.isTraceEnabled()) {
       return LogLevel.TRACE;
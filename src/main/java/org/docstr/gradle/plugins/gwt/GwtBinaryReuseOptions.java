@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+
+/**
+ * Options for reusing the output of {@link GwtCompile} that was published
+ * to a local or file based Maven repository. The artifact's version is the
+ * fingerprint of all compile inputs, so a compile with the same sources,
+ * classpath, flags and GWT version unpacks the artifact instead of running
+ * the compiler.
+ */
+public class GwtBinaryReuseOptions {
+
+  private boolean enabled = false;
+  private File repository = new File(System.getProperty("user.home"),
+      ".m2/repository");
+  private String group;
+  private String artifactId;
+  private boolean publish = false;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets whether compileGwt looks for a published artifact before compiling.
+   *
+   * @param enabled true to reuse published compile output
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public File getRepository() {
+    return repository;
+  }
+
+  /**
+   * Sets the root directory of the Maven repository. Defaults to the local
+   * Maven repository ~/.m2/repository.
+   *
+   * @param repository the repository directory
+   */
+  public void setRepository(File repository) {
+    this.repository = repository;
+  }
+
+  public String getGroup() {
+    return group;
+  }
+
+  /**
+   * Sets the group of the artifacts. Defaults to the group of the project,
+   * or its name if the project has no group.
+   *
+   * @param group the group of the artifacts
+   */
+  public void setGroup(String group) {
+    this.group = group;
+  }
+
+  public String getArtifactId() {
+    return artifactId;
+  }
+
+  /**
+   * Sets the artifact id of the artifacts. Defaults to the name of the
+   * project with the suffix "-gwt".
+   *
+   * @param artifactId the artifact id of the artifacts
+   */
+  public void setArtifactId(String artifactId) {
+    this.artifactId = artifactId;
+  }
+
+  public boolean isPublish() {
+    return publish;
+  }
+
+  /**
+   * Sets whether the output of a compile is published to the repository
+   * when no artifact was found. Defaults to false, e.g. to let only CI
+   * builds publish.
+   *
+   * @param publish true to publish compile output
+   */
+  public void setPublish(boolean publish) {
+    this.publish = publish;
+  }
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.docstr.gradle.plugins.gwt.internal.GwtCdsArchives;
+import org.docstr.gradle.plugins.gwt.internal.GwtCdsTraining;
+
+/**
+ * Task to create an AppCDS archive of the GWT SDK classes the compiler
+ * loads, which the GWT compile server and compile agent JVMs map instead of
+ * loading and verifying these classes on every start. A training run
+ * validates the modules and records the loaded classes, then the archive is
+ * dumped for the {@link #getSdkClasspath() SDK classpath}.
+ *
+ * <p>The archive only matches the JDK running the build and the exact
+ * paths, sizes and modification times of the SDK classpath. Its name
+ * contains a hash of these, which is also an input of the task, so the
+ * build cache only restores archives the JVM accepts. GWT JVMs use the
+ * archive whenever a matching one exists. AppCDS needs Java 11 or
+ * later; with older JDKs no archive is created.
+ */
+@CacheableTask
+public class GwtCdsArchive extends DefaultTask {
+
+  private static final Logger logger = Logging.getLogger(GwtCdsArchive.class);
+
+  private FileCollection sdkClasspath;
+  private FileCollection trainingClasspath;
+  private List<String> modules;
+  private String maxHeapSize;
+  private File archiveDir;
+  private Provider<JavaLauncher> javaLauncher;
+
+  @TaskAction
+  protected void createArchive() {
+    final String specificationVersion =
+        AbstractGwtActionTask.javaSpecificationVersion(launcher());
+    if (!GwtCdsArchives.isSupported(specificationVersion)) {
+      logger.lifecycle("AppCDS archives need Java 11 or later, no archive "
+          + "created for Java {}", specificationVersion);
+      return;
+    }
+    final File classList = new File(getTemporaryDir(), "classes.lst");
+    final File classpathFile = new File(getTemporaryDir(), "classpath.txt");
+    final List<String> entries = new ArrayList<>();
+    getTrainingClasspath().forEach(file -> entries.add(file.getAbsolutePath()));
+    try {
+      Files.write(classpathFile.toPath(), entries, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new GradleException("Can't write " + classpathFile, e);
+    }
+
+    final List<String> training = java();
+    if (getMaxHeapSize() != null) {
+      training.add("-Xmx" + getMaxHeapSize());
+    }
+    training.add("-Xshare:off");
+    training.add("-XX:DumpLoadedClassList=" + classList.getAbsolutePath());
+    training.add("-cp");
+    training.add(getSdkClasspath().getAsPath());
+    training.add(GwtCdsTraining.class.getName());
+    training.add(classpathFile.getAbsolutePath());
+    training.addAll(getModules());
+    exec(training);
+
+    final File archive = getArchiveFile();
+    archive.getParentFile().mkdirs();
+    // the JVM dumps read only archives, which it can't overwrite
+    archive.delete();
+    final List<String> dump = java();
+    dump.add("-Xshare:dump");
+    dump.add("-XX:SharedClassListFile=" + classList.getAbsolutePath());
+    dump.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+    dump.add("-cp");
+    dump.add(getSdkClasspath().getAsPath());
+    exec(dump);
+    logger.lifecycle("Created AppCDS archive {} ({} KB)", archive,
+        archive.length() / 1024);
+  }
+
+  private List<String> java() {
+    final List<String> command = new ArrayList<>();
+    command.add(AbstractGwtActionTask.javaExecutable(launcher()));
+    return command;
+  }
+
+  private JavaLauncher launcher() {
+    return getJavaLauncher() != null ? getJavaLauncher().getOrNull() : null;
+  }
+
+  private void exec(final List<String> command) {
+    logger.info("Running {}", command);
+    getProject().exec(spec -> spec.commandLine(command))
+        .assertNormalExitValue();
+  }
+
+  @Classpath
+  public FileCollection getSdkClasspath() {
+    return sdkClasspath;
+  }
+
+  /**
+   * Sets the classpath of the archived JVMs, which must equal the classpath
+   * of the GWT JVMs that use the archive.
+   *
+   * @param sdkClasspath the classpath to set
+   */
+  public void setSdkClasspath(FileCollection sdkClasspath) {
+    this.sdkClasspath = sdkClasspath;
+  }
+
+  @Classpath
+  public FileCollection getTrainingClasspath() {
+    return trainingClasspath;
+  }
+
+  /**
+   * Sets the sources and classes of the project validated by the training
+   * run.
+   *
+   * @param trainingClasspath the classpath to set
+   */
+  public void setTrainingClasspath(FileCollection trainingClasspath) {
+    this.trainingClasspath = trainingClasspath;
+  }
+
+  @Input
+  public List<String> getModules() {
+    return modules;
+  }
+
+  /**
+   * Sets the modules validated by the training run.
+   *
+   * @param modules the modules to set
+   */
+  public void setModules(List<String> modules) {
+    this.modules = modules;
+  }
+
+  @Internal
+  public String getMaxHeapSize() {
+    return maxHeapSize;
+  }
+
+  /**
+   * Sets the maximum heap size of the training run.
+   *
+   * @param maxHeapSize the maximum heap size to set
+   */
+  public void setMaxHeapSize(String maxHeapSize) {
+    this.maxHeapSize = maxHeapSize;
+  }
+
+  @Internal
+  public Provider<JavaLauncher> getJavaLauncher() {
+    return javaLauncher;
+  }
+
+  /**
+   * Sets the toolchain launcher of the JDK the archive is created for, which
+   * must be the launcher of the GWT JVMs. By default the JDK running Gradle
+   * is used.
+   *
+   * @param javaLauncher the launcher to set
+   */
+  public void setJavaLauncher(Provider<JavaLauncher> javaLauncher) {
+    this.javaLauncher = javaLauncher;
+  }
+
+  /**
+   * @return the JDK the archive is created for
+   */
+  @Input
+  public String getJdk() {
+    return AbstractGwtActionTask.jdk(launcher());
+  }
+
+  @Internal
+  public File getArchiveDir() {
+    return archiveDir;
+  }
+
+  /**
+   * Sets the directory of the archives.
+   *
+   * @param archiveDir the directory to set
+   */
+  public void setArchiveDir(File archiveDir) {
+    this.archiveDir = archiveDir;
+  }
+
+  /**
+   * @return the key of the archive, which covers the exact paths, sizes and
+   *     modification times of the SDK classpath that the normalized
+   *     classpath input ignores
+   */
+  @Input
+  public String getArchiveKey() {
+    return GwtCdsArchives.key(getSdkClasspath(), getJdk());
+  }
+
+  /**
+   * @return the archive for the SDK classpath and JDK
+   */
+  @OutputFile
+  public File getArchiveFile() {
+    return GwtCdsArchives.archive(getArchiveDir(), getArchiveKey());
+  }
+}
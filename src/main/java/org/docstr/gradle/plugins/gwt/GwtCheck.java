@@ -15,15 +15,40 @@
  */
 package org.docstr.gradle.plugins.gwt;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.docstr.gradle.plugins.gwt.internal.GwtJvmLimiter;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.workers.WorkQueue;
+
 /**
  * Task to run the GWT compiler for validation only so that no JavaScript output is produced.
+ * Whatever the {@link ExecutionMode}, each module is validated in its own
+ * Gradle worker, so several modules are validated in parallel. If the GWT
+ * version can't run in a worker, or in debug mode, all modules are validated
+ * in a single run of the configured execution mode, with heap telemetry like
+ * a compile. The only output is the {@link #getMarkerFile()
+ * marker file} written after all modules passed, which makes the task up to
+ * date and cacheable as long as its inputs don't change.
  */
-public class GwtCheck extends AbstractGwtCompile {
+@CacheableTask
+public abstract class GwtCheck extends AbstractGwtCompile {
+
+  private static final String[] DIR_ARGS =
+      {"-war", "-deploy", "-extra", "-workDir", "-gen"};
+
+  private File markerFile;
 
   public GwtCheck() {
     setValidateOnly(true);
-
-    getOutputs().upToDateWhen(task -> false);
   }
 
   /** {@inheritDoc} */
@@ -31,4 +56,125 @@ public class GwtCheck extends AbstractGwtCompile {
   protected boolean isDevTask() {
     return false;
   }
+
+  /** {@inheritDoc} */
+  @Override
+  protected String jvmProfileName() {
+    return GwtJvmProfile.CHECK;
+  }
+
+  @Override
+  protected void execute(final FileCollection classpath) {
+    if (validatesInWorkers()) {
+      // every worker is a GWT JVM of its own, the lease of the task covers
+      // one of them
+      final List<String> modules = getModules();
+      final List<GwtJvmLimiter.Lease> leases =
+          tryAcquireJvmLeases(modules.size() - 1);
+      final int concurrent =
+          leases != null ? leases.size() + 1 : modules.size();
+      try {
+        final WorkQueue workQueue = workerQueue();
+        for (int i = 0; i < modules.size(); i++) {
+          final List<String> args = toolArgs();
+          redirectDirArgs(args, new File(getTemporaryDir(), modules.get(i)));
+          args.add(modules.get(i));
+          submitToWorker(workQueue, classpath, args);
+          if ((i + 1) % concurrent == 0) {
+            workQueue.await();
+          }
+        }
+        // the marker must only be written once every module passed
+        workQueue.await();
+      } finally {
+        if (leases != null) {
+          leases.forEach(GwtJvmLimiter.Lease::close);
+        }
+      }
+    } else {
+      final List<String> args = toolArgs();
+      redirectDirArgs(args, getTemporaryDir());
+      execute(classpath, args);
+    }
+    writeMarker();
+  }
+
+  /**
+   * @return true if each module is validated in its own worker
+   */
+  boolean validatesInWorkers() {
+    return getModules().size() > 1 && supportsReusableJvm() && !isDebug();
+  }
+
+  /**
+   * Moves the directories written by the compiler during validation to the
+   * given directory, so they neither overlap with the output of the compile
+   * tasks nor with each other when validating in parallel.
+   */
+  private static void redirectDirArgs(final List<String> args,
+      final File dir) {
+    for (String arg : DIR_ARGS) {
+      removeArg(args, arg, true);
+      args.add(arg);
+      args.add(new File(dir, arg.substring(1)).getAbsolutePath());
+    }
+  }
+
+  private void writeMarker() {
+    final List<String> lines = new ArrayList<>();
+    lines.add("modules=" + String.join(",", getModules()));
+    final String fingerprint = getJavaSourceFingerprint();
+    if (fingerprint != null) {
+      lines.add("sources=" + fingerprint);
+    }
+    try {
+      getMarkerFile().getParentFile().mkdirs();
+      Files.write(getMarkerFile().toPath(), lines, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new GradleException("Can't write " + getMarkerFile(), e);
+    }
+  }
+
+  /**
+   * The compiler doesn't write anything to the war directory when only
+   * validating, so it's no output of this task.
+   */
+  @Internal
+  @Override
+  public File getWar() {
+    return super.getWar();
+  }
+
+  /** {@inheritDoc} */
+  @Internal
+  @Override
+  public File getDeploy() {
+    return super.getDeploy();
+  }
+
+  /** {@inheritDoc} */
+  @Internal
+  @Override
+  public File getExtra() {
+    return super.getExtra();
+  }
+
+  /** {@inheritDoc} */
+  @Internal
+  @Override
+  public File getGen() {
+    return super.getGen();
+  }
+
+  /**
+   * @return the file written after all modules passed the validation
+   */
+  @OutputFile
+  public File getMarkerFile() {
+    return markerFile;
+  }
+
+  public void setMarkerFile(File markerFile) {
+    this.markerFile = markerFile;
+  }
 }
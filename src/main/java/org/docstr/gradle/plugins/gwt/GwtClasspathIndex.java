@@ -0,0 +1,232 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.docstr.gradle.plugins.gwt.internal.GwtClasspathScanner;
+import org.docstr.gradle.plugins.gwt.internal.GwtModuleDescriptor;
+import org.docstr.gradle.plugins.gwt.internal.GwtModuleGraph;
+
+/**
+ * Task to index the compile classpath of the GWT modules. It keeps the
+ * entries containing module descriptors or files below the source paths of
+ * the modules' inherits chain and writes their positions in the classpath
+ * to {@link #getIndexFile()}. The compile tasks then only get these entries,
+ * see {@link #prunedClasspath(FileCollection, File)}. The dropped entries
+ * and the time it took to scan them are written to
+ * {@link #getReportFile()}.
+ */
+public class GwtClasspathIndex extends DefaultTask {
+
+  private FileCollection classpath;
+  private FileCollection src;
+  private List<String> modules;
+  private List<String> keep;
+  private File indexFile;
+  private File reportFile;
+
+  @TaskAction
+  protected void index() {
+    final List<File> entries = new ArrayList<>(getClasspath().getFiles());
+    final List<GwtClasspathScanner.Entry> scanned;
+    try {
+      final GwtModuleGraph graph = GwtModuleGraph.load(getModules(),
+          getSrc().plus(getClasspath()));
+      scanned = new GwtClasspathScanner(graph, getKeep()).scan(entries);
+    } catch (IOException e) {
+      throw new GradleException("Can't index the GWT classpath", e);
+    }
+
+    final List<String> index = new ArrayList<>();
+    final StringBuilder report = new StringBuilder();
+    int dropped = 0;
+    long droppedFiles = 0;
+    long droppedMillis = 0;
+    for (int i = 0; i < scanned.size(); i++) {
+      final GwtClasspathScanner.Entry entry = scanned.get(i);
+      if (entry.isKept()) {
+        // positions keep the index independent of the absolute paths
+        index.add(String.valueOf(i));
+      } else {
+        dropped++;
+        droppedFiles += entry.getFiles();
+        droppedMillis += entry.getScanMillis();
+      }
+      report.append(String.format(Locale.ROOT, "%-8s %-50s %7d files %6d ms %s%n",
+          entry.isKept() ? "kept" : "dropped", entry.getFile().getName(),
+          entry.getFiles(), entry.getScanMillis(),
+          entry.isKept() ? entry.getReason() : ""));
+    }
+    final String summary = String.format(Locale.ROOT,
+        "Dropped %d of %d classpath entries with %d files, scanning them took "
+            + "%d ms", dropped, scanned.size(), droppedFiles, droppedMillis);
+    report.append(summary).append(System.lineSeparator());
+    getLogger().lifecycle(summary);
+
+    try {
+      Files.write(getIndexFile().toPath(), index, StandardCharsets.UTF_8);
+      Files.write(getReportFile().toPath(),
+          report.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new GradleException("Can't write " + getIndexFile(), e);
+    }
+  }
+
+  /**
+   * Reads the pruned classpath. Before the index exists, e.g. while the
+   * build is configured, this is the whole classpath.
+   *
+   * @param classpath the classpath that was indexed
+   * @param indexFile the index written by the task
+   * @return the kept entries of the classpath, in order
+   */
+  static List<File> prunedClasspath(final FileCollection classpath,
+      final File indexFile) {
+    final List<File> entries = new ArrayList<>(classpath.getFiles());
+    if (!indexFile.isFile()) {
+      return entries;
+    }
+    final List<File> pruned = new ArrayList<>();
+    try {
+      for (String line : Files.readAllLines(indexFile.toPath(),
+          StandardCharsets.UTF_8)) {
+        final int position = Integer.parseInt(line.trim());
+        if (position >= entries.size()) {
+          // the classpath changed since it was indexed
+          return entries;
+        }
+        pruned.add(entries.get(position));
+      }
+    } catch (IOException | NumberFormatException e) {
+      return entries;
+    }
+    return pruned;
+  }
+
+  @Classpath
+  public FileCollection getClasspath() {
+    return classpath;
+  }
+
+  /**
+   * Sets the classpath to index.
+   *
+   * @param classpath the classpath to set
+   */
+  public void setClasspath(FileCollection classpath) {
+    this.classpath = classpath;
+  }
+
+  @Internal
+  public FileCollection getSrc() {
+    return src;
+  }
+
+  /**
+   * Sets the source directories containing the compiled modules.
+   *
+   * @param src the source directories to set
+   */
+  public void setSrc(FileCollection src) {
+    this.src = src;
+  }
+
+  /**
+   * @return the module descriptors in the source directories, which decide
+   *     the source paths
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public FileTree getModuleDescriptors() {
+    return getSrc().getAsFileTree()
+        .matching(pattern -> pattern.include("**/*" + GwtModuleDescriptor.SUFFIX));
+  }
+
+  @Input
+  public List<String> getModules() {
+    return modules;
+  }
+
+  /**
+   * Sets the compiled modules.
+   *
+   * @param modules the modules to set
+   */
+  public void setModules(List<String> modules) {
+    this.modules = modules;
+  }
+
+  @Input
+  public List<String> getKeep() {
+    return keep;
+  }
+
+  /**
+   * Sets the file name patterns of entries that are always kept, see
+   * {@link GwtClasspathPruningOptions#setKeep(List)}.
+   *
+   * @param keep the patterns to set
+   */
+  public void setKeep(List<String> keep) {
+    this.keep = keep;
+  }
+
+  @OutputFile
+  public File getIndexFile() {
+    return indexFile;
+  }
+
+  /**
+   * Sets the file receiving the positions of the kept entries.
+   *
+   * @param indexFile the index file to set
+   */
+  public void setIndexFile(File indexFile) {
+    this.indexFile = indexFile;
+  }
+
+  @OutputFile
+  public File getReportFile() {
+    return reportFile;
+  }
+
+  /**
+   * Sets the file receiving the report of the kept and dropped entries.
+   *
+   * @param reportFile the report file to set
+   */
+  public void setReportFile(File reportFile) {
+    this.reportFile = reportFile;
+  }
+}
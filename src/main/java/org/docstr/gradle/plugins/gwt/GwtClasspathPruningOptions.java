@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Options of the classpath pruning, which passes only the classpath entries
+ * containing GWT modules or their sources to the GWT compile tasks. Server
+ * libraries then neither slow down the compiler's resource scanning nor
+ * invalidate the compile when they change. The {@link GwtClasspathIndex}
+ * task finds these entries and reports the dropped ones.
+ */
+public class GwtClasspathPruningOptions {
+
+  private boolean enabled = false;
+  private final List<String> keep = new ArrayList<>();
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets whether the classpath of the compile tasks is pruned.
+   *
+   * @param enabled true to prune the classpath
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public List<String> getKeep() {
+    return keep;
+  }
+
+  /**
+   * Sets the file name patterns, with * and ? wildcards, of classpath
+   * entries that are always kept. These are libraries without GWT modules
+   * that generators need, e.g. "guice-*.jar" for GIN.
+   *
+   * @param keep the patterns to set
+   */
+  public void setKeep(List<String> keep) {
+    this.keep.clear();
+    this.keep.addAll(keep);
+  }
+
+  public void keep(String... patterns) {
+    this.keep.addAll(Arrays.asList(patterns));
+  }
+}
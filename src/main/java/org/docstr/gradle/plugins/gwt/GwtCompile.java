@@ -16,17 +16,42 @@
 package org.docstr.gradle.plugins.gwt;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import org.docstr.gradle.plugins.gwt.internal.GwtBinaryRepository;
+import org.docstr.gradle.plugins.gwt.internal.GwtOutputSync;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.ConventionMapping;
 import org.gradle.api.internal.IConventionAware;
 import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
 
 /**
  * Task to run the GWT compiler for production quality output.
  */
 @CacheableTask
-public class GwtCompile extends AbstractGwtCompile {
+public abstract class GwtCompile extends AbstractGwtCompile {
+
+  /** Arguments that don't affect the output of the compiler. */
+  private static final String[] UNRELATED_ARGS = {"-war", "-deploy", "-extra",
+      "-workDir", "-gen", "-localWorkers", "-logLevel", "-missingDepsFile"};
+
+  private GwtBinaryReuseOptions binaryReuse;
+
+  public GwtCompile() {
+    super();
+  }
+
+  protected GwtCompile(String main) {
+    super(main);
+  }
 
   /** {@inheritDoc} */
   @Override
@@ -41,6 +66,128 @@ public class GwtCompile extends AbstractGwtCompile {
     return false;
   }
 
+  /**
+   * Unpacks the compile output published with the same input fingerprint
+   * instead of compiling, if {@link #getBinaryReuse() binary reuse} is
+   * enabled. Otherwise compiles and optionally publishes the output. Only
+   * the war directory is published, so a compile that also writes to the
+   * deploy, extra or gen directory doesn't take part.
+   */
+  @Override
+  protected void execute(final FileCollection classpath) {
+    final GwtBinaryReuseOptions reuse = getBinaryReuse();
+    if (reuse == null || !reuse.isEnabled()) {
+      super.execute(classpath);
+      return;
+    }
+    if (getDeploy() != null || getExtra() != null || getGen() != null) {
+      getLogger().lifecycle("Not reusing compile output of {}, as the "
+          + "deploy, extra and gen directories aren't published", getModules());
+      super.execute(classpath);
+      return;
+    }
+    final String projectGroup = String.valueOf(getProject().getGroup());
+    final GwtBinaryRepository repository = new GwtBinaryRepository(
+        reuse.getRepository(), reuse.getGroup() != null ? reuse.getGroup()
+            : projectGroup.isEmpty() ? getProject().getName() : projectGroup,
+        reuse.getArtifactId() != null ? reuse.getArtifactId()
+            : getProject().getName() + "-gwt");
+    try {
+      final String fingerprint = inputFingerprint();
+      final File unpacked = new File(getTemporaryDir(), "reused");
+      GwtOutputSync.delete(unpacked.toPath());
+      if (repository.unpack(fingerprint, unpacked)) {
+        getLogger().lifecycle("Reusing {} instead of compiling {}",
+            repository.artifact(fingerprint), getModules());
+        GwtOutputSync.sync(unpacked, getWar(), syncManifest());
+        return;
+      }
+      super.execute(classpath);
+      if (reuse.isPublish()) {
+        repository.publish(fingerprint, getWar());
+        getLogger().lifecycle("Published {}", repository.artifact(fingerprint));
+      }
+    } catch (IOException e) {
+      throw new GradleException("Can't reuse the compile output of "
+          + getModules() + " from " + reuse.getRepository(), e);
+    }
+  }
+
+  /**
+   * @return the fingerprint of the sources, classpath, flags and GWT
+   *     version of this compile
+   */
+  private String inputFingerprint() throws IOException {
+    final List<String> parts = new ArrayList<>();
+    parts.add(getGwtVersion());
+    parts.addAll(getModules());
+    final List<String> args = toolArgs();
+    for (String arg : UNRELATED_ARGS) {
+      removeArg(args, arg, true);
+    }
+    // paths like the one of -saveSourceOutput differ between checkouts
+    final Path projectDir = getProject().getProjectDir().toPath();
+    for (String arg : args) {
+      final File file = new File(arg);
+      parts.add(file.isAbsolute() ? projectDir.relativize(file.toPath())
+          .toString().replace(File.separatorChar, '/') : arg);
+    }
+    if (getJavaSourceFingerprint() != null) {
+      parts.add(getJavaSourceFingerprint());
+    }
+    final Map<String, File> sources = new TreeMap<>();
+    getSourceInputs().getAsFileTree().visit(details -> {
+      if (!details.isDirectory()) {
+        // like on the classpath, the first of several equal paths wins
+        sources.putIfAbsent(details.getRelativePath().getPathString(),
+            details.getFile());
+      }
+    });
+    final List<File> classpath = new ArrayList<>(getClasspath().getFiles());
+    if (getMissingDepsFile() != null) {
+      classpath.add(getMissingDepsFile());
+    }
+    return GwtBinaryRepository.fingerprint(sources, classpath, parts);
+  }
+
+  /**
+   * @return the options to reuse published compile output, or null
+   */
+  @Internal
+  public GwtBinaryReuseOptions getBinaryReuse() {
+    return binaryReuse;
+  }
+
+  public void setBinaryReuse(GwtBinaryReuseOptions binaryReuse) {
+    this.binaryReuse = binaryReuse;
+  }
+
+  /**
+   * Redirects the war, deploy, extra, work and gen directories in the given
+   * compiler arguments to sub directories with the given name, so that
+   * several compiles of this task don't overwrite each other.
+   *
+   * @param args the compiler arguments to change
+   * @param name the name of the sub directories
+   */
+  protected void replaceOutputDirArgs(final List<String> args,
+      final String name) {
+    replaceDirArg(args, "-war", getWar(), name);
+    replaceDirArg(args, "-deploy", getDeploy(), name);
+    replaceDirArg(args, "-extra", getExtra(), name);
+    replaceDirArg(args, "-workDir", getWorkDir(), name);
+    replaceDirArg(args, "-gen", getGen(), name);
+  }
+
+  private static void replaceDirArg(final List<String> args, final String arg,
+      final File dir, final String name) {
+    if (dir != null) {
+      removeArg(args, arg, true);
+      args.add(arg);
+      args.add(new File(dir, name).getAbsolutePath());
+    }
+  }
+
   @Override
   protected void configure(final GwtCompileOptions options) {
     super.configure(options);
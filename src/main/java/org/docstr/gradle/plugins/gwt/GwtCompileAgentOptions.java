@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Options for compiling GWT permutations on a pool of compile agents.
+ */
+public class GwtCompileAgentOptions {
+
+  private List<String> agents = new ArrayList<>();
+  private String token;
+  private int localAgents = 0;
+
+  /**
+   * @return true if remote or local compile agents are configured
+   */
+  public boolean isEnabled() {
+    return !agents.isEmpty() || localAgents > 0;
+  }
+
+  public List<String> getAgents() {
+    return agents;
+  }
+
+  /**
+   * Sets the addresses of remote compile agents in the form
+   * {@code host:port}.
+   *
+   * @param agents the agent addresses to set
+   */
+  public void setAgents(List<String> agents) {
+    this.agents = new ArrayList<>(agents);
+  }
+
+  public void agents(String... agents) {
+    this.agents.addAll(Arrays.asList(agents));
+  }
+
+  public String getToken() {
+    return token;
+  }
+
+  /**
+   * Sets the secret that the remote compile agents were started with.
+   *
+   * @param token the token to set
+   */
+  public void setToken(String token) {
+    this.token = token;
+  }
+
+  public int getLocalAgents() {
+    return localAgents;
+  }
+
+  /**
+   * Sets the number of compile agent JVMs started on the local machine for
+   * the duration of the permutation compile, in addition to the remote
+   * agents.
+   *
+   * @param localAgents the number of local agents
+   */
+  public void setLocalAgents(int localAgents) {
+    this.localAgents = localAgents;
+  }
+}
@@ -0,0 +1,304 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.gradle.api.GradleException;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.workers.WorkQueue;
+import org.docstr.gradle.plugins.gwt.internal.GwtCompileAgent;
+import org.docstr.gradle.plugins.gwt.internal.GwtJvmLimiter;
+import org.docstr.gradle.plugins.gwt.internal.GwtPermutationDispatcher;
+
+/**
+ * Task to run the permutation compile stage of the GWT compiler. Every
+ * permutation written by {@link GwtPrecompile} is compiled to JavaScript by
+ * its own worker, so permutations are compiled in parallel up to the number
+ * of Gradle workers and the number of GWT JVMs the
+ * {@link #getJvmLimiter() JVM limiter} grants. Alternatively the
+ * permutations are handed to a pool of (possibly remote) compile agents, see
+ * {@link GwtCompileAgentOptions}.
+ */
+@CacheableTask
+public abstract class GwtCompilePerms extends GwtCompile {
+
+  private static final Logger logger =
+      Logging.getLogger(GwtCompilePerms.class);
+
+  /** Name of the file in which GWT's precompile stage stores the count. */
+  static final String PERM_COUNT_FILE = "permCount.txt";
+
+  /** Name of the file in which GWT stores the precompiled module. */
+  static final String PRECOMPILATION_FILE = "precompilation.ser";
+
+  private static final long AGENT_START_TIMEOUT_MILLIS = 60_000;
+
+  private File precompileDir;
+  private File permsDir;
+  private GwtCompileAgentOptions compileAgents;
+
+  public GwtCompilePerms() {
+    super("com.google.gwt.dev.CompilePerms");
+  }
+
+  @Override
+  protected void addCommonArgs() {
+    argIfSet("-logLevel", getLogLevel());
+  }
+
+  @Override
+  protected void addArgs() {
+    addCacheDirJvmArg();
+  }
+
+  @Override
+  protected void execute(final FileCollection classpath) {
+    getProject().delete(getProject().fileTree(getPermsDir()));
+    final List<GwtPermutationDispatcher.Job> jobs = permutationJobs();
+
+    final GwtCompileAgentOptions agentOptions = getCompileAgents();
+    if (agentOptions != null && agentOptions.isEnabled()) {
+      compileOnAgents(agentOptions, jobs);
+    } else {
+      compileInWorkers(classpath, jobs);
+    }
+  }
+
+  private List<GwtPermutationDispatcher.Job> permutationJobs() {
+    final List<GwtPermutationDispatcher.Job> jobs = new ArrayList<>();
+    for (String module : getModules()) {
+      final int permCount = readPermCount(module);
+      final File precompilation = new File(getPrecompileDir(),
+          module + "/compiler/" + PRECOMPILATION_FILE);
+      final String hash;
+      try {
+        hash = GwtPermutationDispatcher.hash(precompilation);
+      } catch (IOException e) {
+        throw new GradleException("Can't read " + precompilation, e);
+      }
+      for (int perm = 0; perm < permCount; perm++) {
+        jobs.add(new GwtPermutationDispatcher.Job(module, perm,
+            precompilation, hash, toolArgs(), new File(getPermsDir(),
+            module + "/compiler/permutation-" + perm + ".js")));
+      }
+    }
+    return jobs;
+  }
+
+  private void compileInWorkers(final FileCollection classpath,
+      final List<GwtPermutationDispatcher.Job> jobs) {
+    // CompilePerms reads the precompiled ASTs from and writes the
+    // permutations to the same directory, so it gets a private copy
+    final File workDir = new File(getTemporaryDir(), "work");
+    getProject().delete(workDir);
+    getProject().copy(spec -> spec.from(getPrecompileDir()).into(workDir));
+
+    // every worker is a GWT JVM of its own, the lease of the task covers
+    // one of them
+    final List<GwtJvmLimiter.Lease> leases =
+        tryAcquireJvmLeases(jobs.size() - 1);
+    final int concurrent = leases != null ? leases.size() + 1 : jobs.size();
+    logger.info("Compiling {} permutations in parallel workers, {} at a time",
+        jobs.size(), concurrent);
+    try {
+      final WorkQueue workQueue = workerQueue();
+      for (int i = 0; i < jobs.size(); i++) {
+        final GwtPermutationDispatcher.Job job = jobs.get(i);
+        final List<String> args = new ArrayList<>(job.getArgs());
+        args.add("-workDir");
+        args.add(workDir.getAbsolutePath());
+        args.add("-perms");
+        args.add(String.valueOf(job.getPerm()));
+        args.add(job.getModule());
+        submitToWorker(workQueue, classpath, args);
+        if ((i + 1) % concurrent == 0) {
+          workQueue.await();
+        }
+      }
+      workQueue.await();
+    } finally {
+      if (leases != null) {
+        leases.forEach(GwtJvmLimiter.Lease::close);
+      }
+    }
+
+    for (GwtPermutationDispatcher.Job job : jobs) {
+      final File permutation = new File(workDir, job.getModule()
+          + "/compiler/" + job.getOutput().getName());
+      getProject().copy(spec -> spec.from(permutation)
+          .into(job.getOutput().getParentFile()));
+    }
+  }
+
+  /**
+   * Sends the permutations to the pool of remote and local compile agents.
+   * Local agents only live as long as this task action.
+   */
+  private void compileOnAgents(final GwtCompileAgentOptions agentOptions,
+      final List<GwtPermutationDispatcher.Job> jobs) {
+    String token = agentOptions.getToken();
+    if (token == null || token.isEmpty()) {
+      if (!agentOptions.getAgents().isEmpty()) {
+        throw new InvalidUserDataException(
+            "A token is required to use remote compile agents");
+      }
+      token = UUID.randomUUID().toString();
+    }
+
+    final List<InetSocketAddress> addresses = new ArrayList<>();
+    agentOptions.getAgents()
+        .forEach(agent -> addresses.add(GwtPermutationDispatcher.parseAddress(agent)));
+    final List<Process> localAgents = new ArrayList<>();
+    try {
+      addresses.addAll(
+          startLocalAgents(agentOptions.getLocalAgents(), token, localAgents));
+      logger.info("Compiling {} permutations on {} compile agents",
+          jobs.size(), addresses.size());
+      new GwtPermutationDispatcher(addresses, token, logger::info)
+          .compile(jobs);
+    } catch (IOException e) {
+      throw new GradleException("Compiling permutations on agents failed", e);
+    } finally {
+      localAgents.forEach(Process::destroy);
+    }
+  }
+
+  private List<InetSocketAddress> startLocalAgents(final int count,
+      final String token, final List<Process> processes) throws IOException {
+    final List<File> portFiles = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final File agentDir = new File(getTemporaryDir(), "agent-" + i);
+      final File portFile = new File(agentDir, "port");
+      getProject().delete(portFile);
+      agentDir.mkdirs();
+      final List<String> command =
+          reusableJvmCommand(reusableJvmArgs(), GwtCompileAgent.class);
+      command.addAll(Arrays.asList("-token", token,
+          "-workDir", agentDir.getAbsolutePath(),
+          "-portFile", portFile.getAbsolutePath()));
+      processes.add(new ProcessBuilder(command)
+          .redirectErrorStream(true)
+          .redirectOutput(new File(agentDir, "agent.log"))
+          .start());
+      portFiles.add(portFile);
+    }
+
+    final List<InetSocketAddress> addresses = new ArrayList<>();
+    final long deadline = System.currentTimeMillis() + AGENT_START_TIMEOUT_MILLIS;
+    for (File portFile : portFiles) {
+      while (!portFile.isFile()) {
+        if (System.currentTimeMillis() > deadline) {
+          throw new IOException("Local compile agent didn't start, see "
+              + new File(portFile.getParentFile(), "agent.log"));
+        }
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while starting agents", e);
+        }
+      }
+      final int port = Integer.parseInt(new String(
+          Files.readAllBytes(portFile.toPath()), StandardCharsets.UTF_8).trim());
+      addresses.add(new InetSocketAddress(
+          InetAddress.getLoopbackAddress().getHostAddress(), port));
+    }
+    return addresses;
+  }
+
+  private int readPermCount(final String module) {
+    final File permCountFile = new File(getPrecompileDir(),
+        module + "/compiler/" + PERM_COUNT_FILE);
+    try {
+      return Integer.parseInt(new String(
+          Files.readAllBytes(permCountFile.toPath()), StandardCharsets.UTF_8)
+          .trim());
+    } catch (IOException | NumberFormatException e) {
+      throw new GradleException("Can't read the permutation count of "
+          + module + " from " + permCountFile, e);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Internal
+  public File getWar() {
+    return super.getWar();
+  }
+
+  @InputDirectory
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public File getPrecompileDir() {
+    return precompileDir;
+  }
+
+  /**
+   * Sets the work directory of the {@link GwtPrecompile} task to read the
+   * precompiled permutations from.
+   *
+   * @param precompileDir the precompile directory to set
+   */
+  public void setPrecompileDir(File precompileDir) {
+    this.precompileDir = precompileDir;
+  }
+
+  @OutputDirectory
+  public File getPermsDir() {
+    return permsDir;
+  }
+
+  /**
+   * Sets the directory that receives the compiled permutations.
+   *
+   * @param permsDir the permutations directory to set
+   */
+  public void setPermsDir(File permsDir) {
+    this.permsDir = permsDir;
+  }
+
+  @Internal
+  public GwtCompileAgentOptions getCompileAgents() {
+    return compileAgents;
+  }
+
+  /**
+   * Sets the compile agents to compile the permutations on. If no agents are
+   * configured, the permutations are compiled in Gradle workers.
+   *
+   * @param compileAgents the compile agent options to set
+   */
+  public void setCompileAgents(GwtCompileAgentOptions compileAgents) {
+    this.compileAgents = compileAgents;
+  }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+
+/**
+ * Options of the compile planner, which picks the heap size and the number
+ * of local workers of the GWT compile tasks from the estimated number of
+ * permutations, the available memory and the peak heap usage of earlier
+ * compiles. Values set explicitly in the extension or on a task win over the
+ * plan.
+ */
+public class GwtCompilePlanOptions {
+
+  private boolean enabled = false;
+  private File historyFile;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets whether the heap size and local workers of compile tasks are
+   * planned.
+   *
+   * @param enabled true to plan compiles
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public File getHistoryFile() {
+    return historyFile;
+  }
+
+  /**
+   * Sets the file keeping the peak heap usage of earlier compiles. Defaults
+   * to "build/gwt/heap-history.properties".
+   *
+   * @param historyFile the history file
+   */
+  public void setHistoryFile(File historyFile) {
+    this.historyFile = historyFile;
+  }
+}
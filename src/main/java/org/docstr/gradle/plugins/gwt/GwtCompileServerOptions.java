@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+
+/**
+ * Options of the GWT compile server used with {@link ExecutionMode#SERVER}.
+ */
+public class GwtCompileServerOptions {
+
+  private File baseDir;
+  private int idleTimeout = 180;
+  private int memoryCeiling = 80;
+
+  public File getBaseDir() {
+    return baseDir;
+  }
+
+  /**
+   * Sets the directory that holds the state and logs of all compile
+   * servers. Defaults to "gwt-compile-server" in the Gradle user home.
+   *
+   * @param baseDir the base directory to set
+   */
+  public void setBaseDir(File baseDir) {
+    this.baseDir = baseDir;
+  }
+
+  public int getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /**
+   * Sets the time in minutes after which an unused server exits.
+   *
+   * @param idleTimeout the idle timeout in minutes
+   */
+  public void setIdleTimeout(int idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  public int getMemoryCeiling() {
+    return memoryCeiling;
+  }
+
+  /**
+   * Sets the share of the maximum heap (in percent) the server may still use
+   * after a compile. A server exceeding it exits after the compile and is
+   * started again on the next request.
+   *
+   * @param memoryCeiling the memory ceiling in percent of the maximum heap
+   */
+  public void setMemoryCeiling(int memoryCeiling) {
+    this.memoryCeiling = memoryCeiling;
+  }
+}
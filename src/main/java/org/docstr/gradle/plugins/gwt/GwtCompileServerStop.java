@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.docstr.gradle.plugins.gwt.internal.GwtCompileServerClient;
+
+/**
+ * Shuts down all running GWT compile servers.
+ */
+public class GwtCompileServerStop extends DefaultTask {
+
+  private static final Logger logger =
+      Logging.getLogger(GwtCompileServerStop.class);
+
+  private File baseDir;
+
+  public GwtCompileServerStop() {
+    getOutputs().upToDateWhen(task -> false);
+  }
+
+  @TaskAction
+  protected void stopServers() {
+    boolean found = false;
+    for (GwtCompileServerClient client
+        : GwtCompileServerClient.all(getBaseDir())) {
+      if (client.shutdown()) {
+        logger.lifecycle("Stopped GWT compile server in {}",
+            client.getStateDir());
+        found = true;
+      }
+    }
+    if (!found) {
+      logger.lifecycle("No GWT compile server is running");
+    }
+  }
+
+  @Internal
+  public File getBaseDir() {
+    return baseDir;
+  }
+
+  /**
+   * Sets the directory that holds the state of all compile servers.
+   *
+   * @param baseDir the base directory to set
+   */
+  public void setBaseDir(File baseDir) {
+    this.baseDir = baseDir;
+  }
+}
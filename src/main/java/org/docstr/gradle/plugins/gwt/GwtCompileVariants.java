@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Nested;
+import org.gradle.workers.WorkQueue;
+
+/**
+ * Task to compile several output variants of the same modules, e.g.
+ * obfuscated and pretty printed JavaScript. All variants are compiled by
+ * the same task with a shared persistent unit cache, so the sources are
+ * only parsed and type checked once. With {@link ExecutionMode#WORKER} the
+ * first variant warms up the cache and the remaining variants are compiled
+ * in parallel.
+ *
+ * <p>Every variant is written to a directory named after it below
+ * {@link #getWar()}. The same applies to the deploy, extra, work and gen
+ * directories if these are set.
+ */
+@CacheableTask
+public abstract class GwtCompileVariants extends GwtCompile {
+
+  private static final Logger logger =
+      Logging.getLogger(GwtCompileVariants.class);
+
+  private final List<GwtOutputVariant> variants = new ArrayList<>();
+
+  @Override
+  protected void execute(final FileCollection classpath) {
+    if (variants.isEmpty()) {
+      throw new InvalidUserDataException("No output variants given");
+    }
+    if (getExecutionMode() == ExecutionMode.WORKER && supportsReusableJvm()) {
+      final WorkQueue workQueue = workerQueue();
+      for (int i = 0; i < variants.size(); i++) {
+        final List<String> args = variantArgs(variants.get(i));
+        args.addAll(getModules());
+        submitToWorker(workQueue, classpath, args);
+        if (i == 0) {
+          workQueue.await();
+        }
+      }
+      workQueue.await();
+    } else {
+      for (GwtOutputVariant variant : variants) {
+        execute(classpath, variantArgs(variant));
+      }
+    }
+  }
+
+  /**
+   * @return the collected arguments with the output directories and the
+   *     output options of the given variant
+   */
+  private List<String> variantArgs(final GwtOutputVariant variant) {
+    logger.info("Compiling output variant {}", variant.getName());
+    final List<String> args = toolArgs();
+    replaceOutputDirArgs(args, variant.getName());
+    if (variant.getStyle() != null) {
+      removeArg(args, "-style", true);
+      args.add("-style");
+      args.add(variant.getStyle().toString());
+    }
+    if (variant.getClosureFormattedOutput() != null) {
+      removeArg(args, "-XclosureFormattedOutput", false);
+      removeArg(args, "-XnoclosureFormattedOutput", false);
+      args.add(variant.getClosureFormattedOutput()
+          ? "-XclosureFormattedOutput" : "-XnoclosureFormattedOutput");
+    }
+    return args;
+  }
+
+  @Nested
+  public List<GwtOutputVariant> getVariants() {
+    return variants;
+  }
+
+  /**
+   * Sets the output variants to compile.
+   *
+   * @param variants the variants to set
+   */
+  public void setVariants(List<GwtOutputVariant> variants) {
+    this.variants.clear();
+    this.variants.addAll(variants);
+  }
+}
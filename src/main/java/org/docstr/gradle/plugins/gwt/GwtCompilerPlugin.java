@@ -16,29 +16,60 @@
 package org.docstr.gradle.plugins.gwt;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.IConventionAware;
 import org.gradle.api.plugins.JavaBasePlugin;
 import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.TaskProvider;
 
 public class GwtCompilerPlugin implements Plugin<Project> {
 
   public static final String OUT_DIR = "out";
   public static final String DRAFT_OUT_DIR = "draftOut";
+  public static final String STAGES_DIR = "stages";
+  public static final String PRECOMPILE_DIR = "precompile";
+  public static final String PERMS_DIR = "perms";
+  public static final String VARIANTS_DIR = "variants";
+  public static final String MODULES_DIR = "modules";
+  public static final String LOCALE_SHARDS_DIR = "localeShards";
+  public static final String BENCHMARK_DIR = "jvmProfileBenchmark";
+  public static final String JDK_BENCHMARK_DIR = "jdkBenchmark";
 
   public static final String TASK_COMPILE_GWT = "compileGwt";
   public static final String TASK_DRAFT_COMPILE_GWT = "draftCompileGwt";
   public static final String TASK_CHECK = "checkGwt";
+  public static final String TASK_PRECOMPILE_GWT = "precompileGwt";
+  public static final String TASK_COMPILE_PERMS_GWT = "compilePermsGwt";
+  public static final String TASK_LINK_GWT = "linkGwt";
+  public static final String TASK_COMPILE_GWT_VARIANTS = "compileGwtVariants";
+  public static final String TASK_LOCALE_SHARD_MODULES =
+      "generateGwtLocaleShardModules";
+  public static final String TASK_MERGE_LOCALE_SHARDS = "mergeGwtLocaleShards";
+  public static final String TASK_BENCHMARK_JVM_PROFILES =
+      "benchmarkGwtJvmProfiles";
+  public static final String TASK_BENCHMARK_JDKS = "benchmarkGwtJdks";
+  public static final String TASK_COMPILE_SERVER_STATUS =
+      "gwtCompileServerStatus";
+  public static final String TASK_COMPILE_SERVER_STOP = "gwtCompileServerStop";
 
   @Override
   public void apply(final Project project) {
-    project.getPlugins().apply(GwtBasePlugin.class);
+    final GwtBasePlugin gwtBasePlugin = project.getPlugins()
+        .apply(GwtBasePlugin.class);
+    final GwtPluginExtension extension = gwtBasePlugin.getExtension();
 
     final File gwtBuildDir = new File(project.getBuildDir(),
         GwtBasePlugin.BUILD_DIR);
 
     project.getTasks().register(TASK_COMPILE_GWT, GwtCompile.class, task -> {
       task.setWar(new File(gwtBuildDir, OUT_DIR));
+      task.setBinaryReuse(extension.getBinaryReuse());
       task.setDescription("Runs the GWT compiler to translate Java sources to JavaScript for production ready output");
       task.dependsOn(project.getTasks().named(JavaPlugin.COMPILE_JAVA_TASK_NAME),
               project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
@@ -51,11 +82,246 @@ public class GwtCompilerPlugin implements Plugin<Project> {
               project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
     });
 
-    project.getTasks().register(TASK_CHECK, task -> {
+    project.getTasks().register(TASK_CHECK, GwtCheck.class, task -> {
       task.setDescription("Runs the GWT compiler to validate the relevant sources");
       task.dependsOn(project.getTasks().named(JavaPlugin.COMPILE_JAVA_TASK_NAME),
               project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
       task.setGroup(JavaBasePlugin.VERIFICATION_GROUP);
     });
+
+    project.getTasks().register(TASK_BENCHMARK_JVM_PROFILES,
+        GwtJvmProfileBenchmark.class, task -> {
+          final File benchmarkDir = new File(gwtBuildDir, BENCHMARK_DIR);
+          task.setWar(benchmarkDir);
+          task.setReportFile(new File(benchmarkDir, "report.txt"));
+          task.setDescription("Compiles the GWT modules once per JVM profile and compares the wall time and heap usage");
+          ((IConventionAware) task).getConventionMapping().map("profiles",
+              (Callable<List<GwtJvmProfile>>) () -> new ArrayList<>(
+                  extension.getJvmProfiles().getProfiles().values()));
+          task.dependsOn(project.getTasks().named(JavaPlugin.COMPILE_JAVA_TASK_NAME),
+              project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
+        });
+
+    project.getTasks().register(TASK_BENCHMARK_JDKS, GwtJdkBenchmark.class,
+        task -> {
+          final File benchmarkDir = new File(gwtBuildDir, JDK_BENCHMARK_DIR);
+          task.setWar(benchmarkDir);
+          task.setReportFile(new File(benchmarkDir, "report.txt"));
+          task.setDescription("Compiles the GWT modules once per JDK toolchain and compares the wall time and memory usage");
+          task.dependsOn(project.getTasks().named(JavaPlugin.COMPILE_JAVA_TASK_NAME),
+              project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
+        });
+
+    project.getTasks().register(TASK_COMPILE_SERVER_STATUS,
+        GwtCompileServerStatus.class, task -> {
+          task.setGroup(GwtBasePlugin.GWT_TASK_GROUP);
+          task.setDescription("Checks the health of the running GWT compile servers");
+          ((IConventionAware) task).getConventionMapping().map("baseDir",
+              (Callable<File>) () -> extension.getCompileServer().getBaseDir());
+        });
+
+    project.getTasks().register(TASK_COMPILE_SERVER_STOP,
+        GwtCompileServerStop.class, task -> {
+          task.setGroup(GwtBasePlugin.GWT_TASK_GROUP);
+          task.setDescription("Shuts down the running GWT compile servers");
+          ((IConventionAware) task).getConventionMapping().map("baseDir",
+              (Callable<File>) () -> extension.getCompileServer().getBaseDir());
+        });
+
+    project.afterEvaluate(p -> {
+      if (extension.isSplitCompile()
+          || extension.getCompileAgents().isEnabled()) {
+        registerCompileStages(project, gwtBuildDir, extension);
+      } else if (extension.getLocaleShards().isEnabled()) {
+        registerLocaleShards(project, gwtBuildDir, extension);
+      } else if (extension.isCompilePerModule()) {
+        registerModuleCompiles(project, gwtBuildDir, extension);
+      }
+      if (!extension.getVariants().isEmpty()) {
+        project.getTasks().register(TASK_COMPILE_GWT_VARIANTS,
+            GwtCompileVariants.class, task -> {
+              task.setWar(new File(gwtBuildDir, VARIANTS_DIR));
+              task.setVariants(extension.getVariants());
+              task.setDescription("Runs the GWT compiler once for all configured output variants");
+              task.dependsOn(project.getTasks().named(JavaPlugin.COMPILE_JAVA_TASK_NAME),
+                  project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
+            });
+      }
+    });
+  }
+
+  /**
+   * @return true if the modules are compiled by their own
+   *     {@link GwtModuleCompile} tasks instead of compileGwt
+   */
+  static boolean isCompiledPerModule(final GwtPluginExtension extension) {
+    return extension.isCompilePerModule() && !extension.isSplitCompile()
+        && !extension.getCompileAgents().isEnabled()
+        && !extension.getLocaleShards().isEnabled();
+  }
+
+  /**
+   * Registers a compile task for every group of locales of every module,
+   * each compiling a module restricted to these locales, and a task merging
+   * their outputs. The compileGwt task is replaced by these tasks but still
+   * triggers them.
+   */
+  private void registerLocaleShards(final Project project,
+      final File gwtBuildDir, final GwtPluginExtension extension) {
+    final File shardsDir = new File(gwtBuildDir, LOCALE_SHARDS_DIR);
+    final File moduleDir = new File(shardsDir, MODULES_DIR);
+    final List<String> modules = extension.getModules();
+    final List<List<String>> localeGroups =
+        extension.getLocaleShards().getLocaleGroups();
+
+    final TaskProvider<GwtLocaleShardModules> modulesTask = project.getTasks()
+        .register(TASK_LOCALE_SHARD_MODULES, GwtLocaleShardModules.class,
+            task -> {
+              task.setModules(modules);
+              task.setLocaleGroups(localeGroups);
+              task.setSrc(project.files((Callable<FileCollection>) extension::getSrc));
+              task.setModuleDir(moduleDir);
+              task.setGroup(GwtBasePlugin.GWT_TASK_GROUP);
+              task.setDescription("Generates the GWT modules of the locale shards");
+              task.dependsOn(project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
+            });
+
+    final List<TaskProvider<GwtModuleCompile>> shardTasks = new ArrayList<>();
+    final List<File> shardDirs = new ArrayList<>();
+    for (String module : modules) {
+      for (int shard = 0; shard < localeGroups.size(); shard++) {
+        final String shardModule =
+            GwtLocaleShardModules.shardModule(module, shard);
+        final File shardDir = new File(shardsDir, module + "/" + shard);
+        final List<String> locales = localeGroups.get(shard);
+        shardDirs.add(shardDir);
+        shardTasks.add(project.getTasks().register(
+            moduleCompileTaskName(module, modules) + "LocaleShard" + shard,
+            GwtModuleCompile.class, task -> {
+              task.setModules(Collections.singletonList(shardModule));
+              task.setSrc(project.files(
+                  (Callable<FileCollection>) extension::getSrc, moduleDir));
+              task.setWar(shardDir);
+              task.setDescription("Runs the GWT compiler for the module "
+                  + module + " and the locales " + locales);
+              task.dependsOn(modulesTask,
+                  project.getTasks().named(JavaPlugin.COMPILE_JAVA_TASK_NAME));
+            }));
+      }
+    }
+
+    final TaskProvider<GwtMergeLocaleShards> mergeTask = project.getTasks()
+        .register(TASK_MERGE_LOCALE_SHARDS, GwtMergeLocaleShards.class,
+            task -> {
+              task.setShardDirs(shardDirs);
+              task.setWar(new File(gwtBuildDir, OUT_DIR));
+              task.setGroup(GwtBasePlugin.GWT_TASK_GROUP);
+              task.setDescription("Merges the outputs of the GWT locale shards");
+              task.dependsOn(shardTasks);
+            });
+
+    project.getTasks().named(TASK_COMPILE_GWT, task -> {
+      task.dependsOn(mergeTask);
+      task.setEnabled(false);
+    });
+  }
+
+  /**
+   * Registers a compile task with its own output directory for every GWT
+   * module. The compileGwt task is replaced by these tasks but still
+   * triggers them.
+   */
+  private void registerModuleCompiles(final Project project,
+      final File gwtBuildDir, final GwtPluginExtension extension) {
+    final File modulesDir = new File(gwtBuildDir, MODULES_DIR);
+    final List<String> modules = extension.getModules();
+    final List<TaskProvider<GwtModuleCompile>> moduleTasks = new ArrayList<>();
+    for (String module : modules) {
+      moduleTasks.add(project.getTasks().register(
+          moduleCompileTaskName(module, modules), GwtModuleCompile.class,
+          task -> {
+            task.setModules(Collections.singletonList(module));
+            task.setWar(new File(modulesDir, module));
+            task.setDescription("Runs the GWT compiler for the module " + module);
+            task.dependsOn(project.getTasks().named(JavaPlugin.COMPILE_JAVA_TASK_NAME),
+                project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
+          }));
+    }
+
+    project.getTasks().named(TASK_COMPILE_GWT, task -> {
+      task.dependsOn(moduleTasks);
+      task.setEnabled(false);
+    });
+  }
+
+  /**
+   * @return compileGwt followed by the simple name of the module, or by the
+   *     full name if another module has the same simple name
+   */
+  static String moduleCompileTaskName(final String module,
+      final List<String> modules) {
+    final String simpleName = simpleName(module);
+    final boolean unique = modules.stream()
+        .filter(other -> simpleName(other).equals(simpleName))
+        .count() == 1;
+    final StringBuilder name = new StringBuilder(TASK_COMPILE_GWT);
+    for (String part : (unique ? simpleName : module).split("\\.")) {
+      if (!part.isEmpty()) {
+        name.append(Character.toUpperCase(part.charAt(0)))
+            .append(part.substring(1));
+      }
+    }
+    return name.toString();
+  }
+
+  private static String simpleName(final String module) {
+    return module.substring(module.lastIndexOf('.') + 1);
+  }
+
+  /**
+   * Registers separate, cacheable tasks for GWT's precompile, permutation
+   * compile and link stages. The compileGwt task is replaced by the stages
+   * but still triggers them, so tasks using its output keep working.
+   */
+  private void registerCompileStages(final Project project,
+      final File gwtBuildDir, final GwtPluginExtension extension) {
+    final File stagesDir = new File(gwtBuildDir, STAGES_DIR);
+    final File precompileDir = new File(stagesDir, PRECOMPILE_DIR);
+    final File permsDir = new File(stagesDir, PERMS_DIR);
+
+    final TaskProvider<GwtPrecompile> precompileTask = project.getTasks()
+        .register(TASK_PRECOMPILE_GWT, GwtPrecompile.class, task -> {
+          task.setWorkDir(precompileDir);
+          if (extension.getCompileAgents().isEnabled()) {
+            // Compile agents don't have the project classpath
+            task.setDisableGeneratingOnShards(true);
+          }
+          task.setDescription("Runs the precompile stage of the GWT compiler");
+          task.dependsOn(project.getTasks().named(JavaPlugin.COMPILE_JAVA_TASK_NAME),
+              project.getTasks().named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME));
+        });
+
+    final TaskProvider<GwtCompilePerms> compilePermsTask = project.getTasks()
+        .register(TASK_COMPILE_PERMS_GWT, GwtCompilePerms.class, task -> {
+          task.setPrecompileDir(precompileDir);
+          task.setPermsDir(permsDir);
+          task.setCompileAgents(extension.getCompileAgents());
+          task.setDescription("Compiles the GWT permutations in parallel workers");
+          task.dependsOn(precompileTask);
+        });
+
+    final TaskProvider<GwtLink> linkTask = project.getTasks()
+        .register(TASK_LINK_GWT, GwtLink.class, task -> {
+          task.setPrecompileDir(precompileDir);
+          task.setPermsDir(permsDir);
+          task.setWar(new File(gwtBuildDir, OUT_DIR));
+          task.setDescription("Runs the link stage of the GWT compiler");
+          task.dependsOn(compilePermsTask);
+        });
+
+    project.getTasks().named(TASK_COMPILE_GWT, task -> {
+      task.dependsOn(linkTask);
+      task.setEnabled(false);
+    });
   }
 }
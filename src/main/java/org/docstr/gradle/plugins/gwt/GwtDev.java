@@ -24,7 +24,7 @@ import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
 import org.docstr.gradle.plugins.gwt.internal.GwtDevOptionsImpl;
 
-public class GwtDev extends AbstractGwtTask implements GwtDevOptions {
+public abstract class GwtDev extends AbstractGwtTask implements GwtDevOptions {
 
   private final GwtDevOptions options = new GwtDevOptionsImpl();
 
@@ -36,6 +36,12 @@ public class GwtDev extends AbstractGwtTask implements GwtDevOptions {
     getOutputs().upToDateWhen(task -> false);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  protected boolean usesJvmLimiter() {
+    return false;
+  }
+
   @Override
   protected void addArgs() {
     super.addArgs();
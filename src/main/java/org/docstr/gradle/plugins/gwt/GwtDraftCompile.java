@@ -23,7 +23,7 @@ import org.gradle.api.tasks.OutputDirectory;
  * Task to run the GWT compiler for development quality output.
  */
 @CacheableTask
-public class GwtDraftCompile extends AbstractGwtCompile {
+public abstract class GwtDraftCompile extends AbstractGwtCompile {
 
   public GwtDraftCompile() {
     setDraftCompile(true);
@@ -35,4 +35,10 @@ public class GwtDraftCompile extends AbstractGwtCompile {
   public File getWar() {
     return super.getWar();
   }
+
+  /** {@inheritDoc} */
+  @Override
+  protected String jvmProfileName() {
+    return GwtJvmProfile.DRAFT;
+  }
 }
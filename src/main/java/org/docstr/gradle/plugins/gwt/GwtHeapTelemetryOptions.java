@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+/**
+ * Options of the heap telemetry of the forked GWT JVMs. Once enabled, the
+ * peak heap usage, the number of garbage collections and their duration are
+ * logged after each run of a GWT compile or check task, together with a
+ * recommended maximum heap size. Optionally, a run that ran out of memory is
+ * retried once with a larger heap. The telemetry is off by default because a
+ * forked GWT JVM then starts through a launcher of this plugin, which puts the
+ * plugin jar on the classpath of the compiler.
+ */
+public class GwtHeapTelemetryOptions {
+
+  private boolean enabled = false;
+  private boolean retryOnOutOfMemory = false;
+  private double retryFactor = 1.5;
+  private String retryMaxHeapSize;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets whether the heap usage of the GWT JVMs is measured. Defaults to
+   * false.
+   *
+   * @param enabled true to measure the heap usage
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public boolean isRetryOnOutOfMemory() {
+    return retryOnOutOfMemory;
+  }
+
+  /**
+   * Sets whether a run that ran out of memory is retried once with a
+   * larger heap.
+   *
+   * @param retryOnOutOfMemory true to retry
+   */
+  public void setRetryOnOutOfMemory(boolean retryOnOutOfMemory) {
+    this.retryOnOutOfMemory = retryOnOutOfMemory;
+  }
+
+  public double getRetryFactor() {
+    return retryFactor;
+  }
+
+  /**
+   * Sets the factor the heap is multiplied with for the retry. Defaults to
+   * 1.5.
+   *
+   * @param retryFactor the factor
+   */
+  public void setRetryFactor(double retryFactor) {
+    this.retryFactor = retryFactor;
+  }
+
+  public String getRetryMaxHeapSize() {
+    return retryMaxHeapSize;
+  }
+
+  /**
+   * Sets the largest heap of a retry, e.g. "8G". Defaults to 75% of the
+   * physical memory.
+   *
+   * @param retryMaxHeapSize the largest heap
+   */
+  public void setRetryMaxHeapSize(String retryMaxHeapSize) {
+    this.retryMaxHeapSize = retryMaxHeapSize;
+  }
+}
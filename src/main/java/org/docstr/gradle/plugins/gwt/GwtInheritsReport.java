@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.docstr.gradle.plugins.gwt.internal.GwtInheritsAnalyzer;
+
+/**
+ * Task to report the inherits of the project's GWT modules that the
+ * project's client code doesn't import from. For every inherited library
+ * module it estimates the compilation units and permutations the inherit
+ * adds, including the modules only it inherits.
+ */
+public class GwtInheritsReport extends DefaultTask {
+
+  private FileCollection src;
+  private FileCollection classpath;
+  private List<String> modules;
+  private File reportFile;
+
+  @TaskAction
+  protected void report() {
+    final List<GwtInheritsAnalyzer.Inherit> inherits;
+    try {
+      inherits = new GwtInheritsAnalyzer(getModules(), getSrc(),
+          getClasspath()).analyze();
+    } catch (IOException e) {
+      throw new GradleException("Can't analyze the inherits of "
+          + getModules(), e);
+    }
+
+    final StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+        "%-45s %-35s %-9s %6s %12s%n", "inherit", "inherited by", "status",
+        "units", "permutations"));
+    int removable = 0;
+    for (GwtInheritsAnalyzer.Inherit inherit : inherits) {
+      final String status;
+      if (inherit.isUsed()) {
+        status = "used";
+      } else if (inherit.isRemovable()) {
+        status = "unused";
+        removable++;
+      } else {
+        status = "no source";
+      }
+      report.append(String.format(Locale.ROOT, "%-45s %-35s %-9s %6d %12s%n",
+          inherit.getModule(), inherit.getInheritedBy(), status,
+          inherit.getUnits(), inherit.getPermutations() >= 0
+              ? "-" + inherit.getPermutations() : "?"));
+      if (inherit.getExclusiveModules().size() > 1) {
+        report.append("    with ").append(inherit.getExclusiveModules()
+            .subList(1, inherit.getExclusiveModules().size()))
+            .append(System.lineSeparator());
+      }
+    }
+    report.append(String.format(Locale.ROOT, "%d of %d inherits look unused. "
+        + "Check generators, linkers and fully qualified references before "
+        + "removing them.%n", removable, inherits.size()));
+
+    getLogger().lifecycle(report.toString());
+    try {
+      Files.write(getReportFile().toPath(),
+          report.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new GradleException("Can't write " + getReportFile(), e);
+    }
+  }
+
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public FileCollection getSrc() {
+    return src;
+  }
+
+  /**
+   * Sets the source directories of the project's modules.
+   *
+   * @param src the source directories to set
+   */
+  public void setSrc(FileCollection src) {
+    this.src = src;
+  }
+
+  @Classpath
+  public FileCollection getClasspath() {
+    return classpath;
+  }
+
+  /**
+   * Sets the classpath with the inherited modules.
+   *
+   * @param classpath the classpath to set
+   */
+  public void setClasspath(FileCollection classpath) {
+    this.classpath = classpath;
+  }
+
+  @Input
+  public List<String> getModules() {
+    return modules;
+  }
+
+  /**
+   * Sets the modules whose inherits are reported.
+   *
+   * @param modules the modules to set
+   */
+  public void setModules(List<String> modules) {
+    this.modules = modules;
+  }
+
+  @OutputFile
+  public File getReportFile() {
+    return reportFile;
+  }
+
+  /**
+   * Sets the file receiving the report.
+   *
+   * @param reportFile the report file to set
+   */
+  public void setReportFile(File reportFile) {
+    this.reportFile = reportFile;
+  }
+}
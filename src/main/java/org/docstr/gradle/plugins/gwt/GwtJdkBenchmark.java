@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.jvm.toolchain.JavaLanguageVersion;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.jvm.toolchain.JavaToolchainService;
+
+/**
+ * Task to compare JDKs on the current project. It runs the production
+ * compile once per Java language version and iteration with the matching
+ * toolchain and reports the wall time, the peak resident set size and the
+ * heap telemetry of every JDK.
+ *
+ * <p>The compiles always run in a forked JVM, as only then the resident set
+ * size belongs to the compile alone.
+ */
+public abstract class GwtJdkBenchmark
+    extends AbstractGwtBenchmark<JavaLauncher> {
+
+  private List<Integer> languageVersions;
+
+  @Override
+  protected List<JavaLauncher> candidates() {
+    final List<Integer> versions = getLanguageVersions();
+    if (versions == null || versions.isEmpty()) {
+      throw new InvalidUserDataException("No Java language versions given");
+    }
+    final List<JavaLauncher> launchers = new ArrayList<>();
+    for (Integer version : versions) {
+      launchers.add(getJavaToolchainService()
+          .launcherFor(spec -> spec.getLanguageVersion()
+              .set(JavaLanguageVersion.of(version)))
+          .get());
+    }
+    return launchers;
+  }
+
+  @Override
+  protected String name(final JavaLauncher launcher) {
+    return "java" + launcher.getMetadata().getLanguageVersion();
+  }
+
+  @Override
+  protected String describe(final JavaLauncher launcher) {
+    return launcher.getMetadata().getInstallationPath().toString();
+  }
+
+  @Override
+  protected void select(final JavaLauncher launcher) {
+    overrideJavaLauncher(launcher);
+  }
+
+  /**
+   * @return always {@link ExecutionMode#FORK}, so that each compile runs in
+   *     a JVM of its own
+   */
+  @Override
+  @Internal
+  public ExecutionMode getExecutionMode() {
+    return ExecutionMode.FORK;
+  }
+
+  @Inject
+  protected abstract JavaToolchainService getJavaToolchainService();
+
+  @Input
+  public List<Integer> getLanguageVersions() {
+    return languageVersions;
+  }
+
+  /**
+   * Sets the Java language versions to compare, e.g. {@code [11, 17]}. A
+   * toolchain of each version must be installed or provisioned.
+   *
+   * @param languageVersions the versions to set
+   */
+  public void setLanguageVersions(List<Integer> languageVersions) {
+    this.languageVersions = languageVersions;
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+/**
+ * Options of the build wide limit of concurrently running GWT JVMs. The
+ * limit applies to the GWT compile and check tasks, optionally to test
+ * tasks, but not to the development mode tasks. As the limit is shared by all
+ * projects of a build, the options of the first project running a GWT task
+ * apply.
+ */
+public class GwtJvmLimitOptions {
+
+  private boolean enabled = true;
+  private Integer maxJvms;
+  private String maxTotalHeap;
+  private boolean includeTests = false;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets whether GWT JVMs wait for the limits.
+   *
+   * @param enabled false to not limit GWT JVMs
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Integer getMaxJvms() {
+    return maxJvms;
+  }
+
+  /**
+   * Sets the maximum number of concurrently running GWT JVMs. Defaults to
+   * half the available processors.
+   *
+   * @param maxJvms the maximum number of GWT JVMs
+   */
+  public void setMaxJvms(Integer maxJvms) {
+    this.maxJvms = maxJvms;
+  }
+
+  public String getMaxTotalHeap() {
+    return maxTotalHeap;
+  }
+
+  /**
+   * Sets the maximum heap of all concurrently running GWT JVMs, e.g. "8G".
+   * Defaults to 75% of the physical memory.
+   *
+   * @param maxTotalHeap the maximum total heap
+   */
+  public void setMaxTotalHeap(String maxTotalHeap) {
+    this.maxTotalHeap = maxTotalHeap;
+  }
+
+  public boolean isIncludeTests() {
+    return includeTests;
+  }
+
+  /**
+   * Sets whether test tasks wait for the limits and the machine slots too.
+   * Enable it if the test tasks run GWT tests, which start a GWT compiler
+   * in the test JVM.
+   *
+   * @param includeTests true to limit the test tasks of the project
+   */
+  public void setIncludeTests(boolean includeTests) {
+    this.includeTests = includeTests;
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A named set of JVM arguments tuning the GWT JVM for a kind of task, e.g.
+ * a fast starting JIT for short draft compiles.
+ */
+public class GwtJvmProfile {
+
+  public static final String DRAFT = "draft";
+  public static final String CHECK = "check";
+  public static final String COMPILE = "compile";
+  public static final String SUPER_DEV = "superDev";
+  public static final String TEST = "test";
+
+  private final String name;
+  private final List<String> jvmArgs = new ArrayList<>();
+
+  public GwtJvmProfile(final String name, final String... jvmArgs) {
+    this.name = name;
+    this.jvmArgs.addAll(Arrays.asList(jvmArgs));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public List<String> getJvmArgs() {
+    return jvmArgs;
+  }
+
+  /**
+   * Sets the JVM arguments of this profile.
+   *
+   * @param jvmArgs the JVM arguments to set
+   */
+  public void setJvmArgs(List<String> jvmArgs) {
+    this.jvmArgs.clear();
+    this.jvmArgs.addAll(jvmArgs);
+  }
+
+  /**
+   * Returns the JVM arguments of this profile that don't conflict with the
+   * given ones, which win: arguments setting the same option are dropped,
+   * and the garbage collector is only selected if the given arguments don't
+   * select one.
+   *
+   * @param userJvmArgs the JVM arguments set by the user
+   * @return the JVM arguments of this profile to add
+   */
+  public List<String> jvmArgsWithout(final Iterable<?> userJvmArgs) {
+    final List<String> userOptions = new ArrayList<>();
+    boolean userSelectsGc = false;
+    for (Object arg : userJvmArgs) {
+      userOptions.add(optionName(String.valueOf(arg)));
+      userSelectsGc |= isGcSelection(String.valueOf(arg));
+    }
+    final List<String> result = new ArrayList<>();
+    for (String arg : jvmArgs) {
+      if (!userOptions.contains(optionName(arg))
+          && !(userSelectsGc && isGcSelection(arg))) {
+        result.add(arg);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the name of the option set by the argument, e.g. "UseG1GC" for
+   *     "-XX:+UseG1GC" or "-XX:-UseG1GC"
+   */
+  private static String optionName(final String arg) {
+    String option = arg;
+    if (option.startsWith("-XX:")) {
+      option = option.substring(4);
+      if (option.startsWith("+") || option.startsWith("-")) {
+        option = option.substring(1);
+      }
+    }
+    final int value = option.indexOf('=');
+    return value >= 0 ? option.substring(0, value) : option;
+  }
+
+  private static boolean isGcSelection(final String arg) {
+    return arg.startsWith("-XX:+Use") && arg.endsWith("GC");
+  }
+}
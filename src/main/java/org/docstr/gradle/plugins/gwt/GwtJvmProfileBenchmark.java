@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.util.List;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.tasks.Internal;
+
+/**
+ * Task to compare JVM profiles on the current project. It runs the
+ * production compile once per profile and iteration and reports the wall
+ * time and the heap telemetry of every profile.
+ */
+public abstract class GwtJvmProfileBenchmark
+    extends AbstractGwtBenchmark<GwtJvmProfile> {
+
+  private List<GwtJvmProfile> profiles;
+
+  @Override
+  protected List<GwtJvmProfile> candidates() {
+    final List<GwtJvmProfile> profiles = getProfiles();
+    if (profiles == null || profiles.isEmpty()) {
+      throw new InvalidUserDataException("No JVM profiles given");
+    }
+    return profiles;
+  }
+
+  @Override
+  protected String name(final GwtJvmProfile profile) {
+    return profile.getName();
+  }
+
+  @Override
+  protected String describe(final GwtJvmProfile profile) {
+    return profile.jvmArgsWithout(getExtraJvmArgs()).toString();
+  }
+
+  @Override
+  protected void select(final GwtJvmProfile profile) {
+    overrideJvmProfile(profile);
+  }
+
+  @Internal
+  public List<GwtJvmProfile> getProfiles() {
+    return profiles;
+  }
+
+  /**
+   * Sets the JVM profiles to compare.
+   *
+   * @param profiles the profiles to set
+   */
+  public void setProfiles(List<GwtJvmProfile> profiles) {
+    this.profiles = profiles;
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import groovy.lang.Closure;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.gradle.util.ConfigureUtil;
+
+/**
+ * The JVM profiles of the GWT tasks. Each kind of task uses the profile of
+ * the same name: {@link GwtDraftCompile} "draft", {@link GwtCheck} "check",
+ * the other compile tasks "compile", {@link GwtSuperDev} "superDev" and test
+ * tasks running GWT tests "test". Arguments in {@code extraJvmArgs} win
+ * over the arguments of a profile.
+ */
+public class GwtJvmProfileOptions {
+
+  private boolean enabled = false;
+  private final Map<String, GwtJvmProfile> profiles = new LinkedHashMap<>();
+
+  public GwtJvmProfileOptions() {
+    // short lived JVMs, C1 only and a simple collector start fastest
+    add(new GwtJvmProfile(GwtJvmProfile.DRAFT,
+        "-XX:TieredStopAtLevel=1", "-XX:+UseParallelGC"));
+    add(new GwtJvmProfile(GwtJvmProfile.CHECK,
+        "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC"));
+    // long compiles keep many equal strings and gain from a large young
+    // generation, which G1 sizes for throughput with a relaxed pause goal
+    add(new GwtJvmProfile(GwtJvmProfile.COMPILE,
+        "-XX:+UseG1GC", "-XX:+UseStringDeduplication",
+        "-XX:MaxGCPauseMillis=500", "-XX:+ParallelRefProcEnabled"));
+    add(new GwtJvmProfile(GwtJvmProfile.SUPER_DEV,
+        "-XX:+UseG1GC", "-XX:+UseStringDeduplication"));
+    add(new GwtJvmProfile(GwtJvmProfile.TEST, "-XX:+UseParallelGC"));
+  }
+
+  private void add(final GwtJvmProfile profile) {
+    profiles.put(profile.getName(), profile);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets whether the GWT tasks use the JVM profile of their kind.
+   *
+   * @param enabled true to use the profiles
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * @return the profiles by name
+   */
+  public Map<String, GwtJvmProfile> getProfiles() {
+    return Collections.unmodifiableMap(profiles);
+  }
+
+  /**
+   * @param name the name of the profile
+   * @return the profile or null if there is none with the given name
+   */
+  public GwtJvmProfile getProfile(final String name) {
+    return profiles.get(name);
+  }
+
+  /**
+   * Configures the profile with the given name, creating it if necessary.
+   *
+   * @param name the name of the profile
+   * @param c the closure configuring the profile
+   * @return the profile
+   */
+  public GwtJvmProfile profile(final String name, Closure<GwtJvmProfile> c) {
+    final GwtJvmProfile profile = profiles.computeIfAbsent(name,
+        GwtJvmProfile::new);
+    ConfigureUtil.configure(c, profile);
+    return profile;
+  }
+}
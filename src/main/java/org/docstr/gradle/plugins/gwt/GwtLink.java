@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+/**
+ * Task to run the link stage of the GWT compiler. It combines the
+ * precompiled module of {@link GwtPrecompile} and the permutations of
+ * {@link GwtCompilePerms} into the output of the linkers.
+ */
+@CacheableTask
+public abstract class GwtLink extends GwtCompile {
+
+  private File precompileDir;
+  private File permsDir;
+
+  public GwtLink() {
+    super("com.google.gwt.dev.Link");
+  }
+
+  @Override
+  protected void addCommonArgs() {
+    argIfSet("-logLevel", getLogLevel());
+  }
+
+  @Override
+  protected void addArgs() {
+    dirArgIfSet("-war", getWar());
+    dirArgIfSet("-deploy", getDeploy());
+    dirArgIfSet("-extra", getExtra());
+    args("-workDir", getLinkWorkDir());
+  }
+
+  @Override
+  protected void execute(final FileCollection classpath) {
+    final File workDir = getLinkWorkDir();
+    getProject().sync(spec -> {
+      spec.from(getPrecompileDir());
+      spec.from(getPermsDir());
+      spec.into(workDir);
+    });
+    super.execute(classpath);
+  }
+
+  private File getLinkWorkDir() {
+    return new File(getTemporaryDir(), "work");
+  }
+
+  @InputDirectory
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public File getPrecompileDir() {
+    return precompileDir;
+  }
+
+  /**
+   * Sets the work directory of the {@link GwtPrecompile} task.
+   *
+   * @param precompileDir the precompile directory to set
+   */
+  public void setPrecompileDir(File precompileDir) {
+    this.precompileDir = precompileDir;
+  }
+
+  @InputDirectory
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public File getPermsDir() {
+    return permsDir;
+  }
+
+  /**
+   * Sets the output directory of the {@link GwtCompilePerms} task.
+   *
+   * @param permsDir the permutations directory to set
+   */
+  public void setPermsDir(File permsDir) {
+    this.permsDir = permsDir;
+  }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.docstr.gradle.plugins.gwt.internal.GwtModuleDescriptor;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Task to generate the modules compiled by the shards of a locale sharded
+ * compile. The module of a shard inherits the original module, keeps its
+ * output name and restricts the locale property to the locales of the
+ * shard. The modules live in their own package, so no default source or
+ * public path of the original package is added twice.
+ */
+@CacheableTask
+public class GwtLocaleShardModules extends DefaultTask {
+
+  /** Package of the generated shard modules. */
+  static final String SHARD_PACKAGE = "gwtlocaleshards";
+
+  private List<String> modules = new ArrayList<>();
+  private List<List<String>> localeGroups = new ArrayList<>();
+  private FileCollection src;
+  private File moduleDir;
+
+  /**
+   * @return the name of the module compiled by the given shard of a module
+   */
+  public static String shardModule(final String module, final int shard) {
+    return SHARD_PACKAGE + "." + module.replace('.', '_') + "_" + shard;
+  }
+
+  @TaskAction
+  public void generate() {
+    getProject().delete(getProject().fileTree(getModuleDir()));
+    for (String module : getModules()) {
+      final String outputName = outputName(module);
+      for (int shard = 0; shard < getLocaleGroups().size(); shard++) {
+        final File file = new File(getModuleDir(),
+            shardModule(module, shard).replace('.', '/')
+                + GwtModuleDescriptor.SUFFIX);
+        final String content = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!-- Generated by the GWT Gradle plugin, do not edit -->\n"
+            + "<module rename-to=\"" + outputName + "\">\n"
+            + "  <inherits name=\"" + module + "\"/>\n"
+            + "  <set-property name=\"locale\" value=\""
+            + String.join(",", getLocaleGroups().get(shard)) + "\"/>\n"
+            + "</module>\n";
+        try {
+          file.getParentFile().mkdirs();
+          Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+          throw new GradleException("Can't write " + file, e);
+        }
+      }
+    }
+  }
+
+  private String outputName(final String module) {
+    try {
+      final GwtModuleDescriptor descriptor =
+          GwtModuleDescriptor.find(module, getSrc());
+      return descriptor != null ? descriptor.getOutputName() : module;
+    } catch (IOException e) {
+      throw new GradleException("Can't read the GWT module " + module, e);
+    }
+  }
+
+  @Input
+  public List<String> getModules() {
+    return modules;
+  }
+
+  /**
+   * Sets the modules to generate shard modules for.
+   *
+   * @param modules the modules to set
+   */
+  public void setModules(List<String> modules) {
+    this.modules = new ArrayList<>(modules);
+  }
+
+  @Input
+  public List<List<String>> getLocaleGroups() {
+    return localeGroups;
+  }
+
+  /**
+   * Sets the locales of every shard.
+   *
+   * @param localeGroups the locale groups to set
+   */
+  public void setLocaleGroups(List<List<String>> localeGroups) {
+    this.localeGroups = new ArrayList<>(localeGroups);
+  }
+
+  @Internal
+  public FileCollection getSrc() {
+    return src;
+  }
+
+  /**
+   * Sets the source directories to look up the original modules in.
+   *
+   * @param src the source directories
+   */
+  public void setSrc(FileCollection src) {
+    this.src = src;
+  }
+
+  /**
+   * @return the output names of the modules, as these end up in the shard
+   *     modules
+   */
+  @Input
+  public List<String> getOutputNames() {
+    final List<String> outputNames = new ArrayList<>();
+    getModules().forEach(module -> outputNames.add(outputName(module)));
+    return outputNames;
+  }
+
+  @OutputDirectory
+  public File getModuleDir() {
+    return moduleDir;
+  }
+
+  /**
+   * Sets the directory that receives the generated modules.
+   *
+   * @param moduleDir the module directory to set
+   */
+  public void setModuleDir(File moduleDir) {
+    this.moduleDir = moduleDir;
+  }
+}
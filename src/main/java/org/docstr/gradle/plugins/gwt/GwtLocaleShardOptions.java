@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Options for splitting the compile of localized modules into shards that
+ * each cover a group of locales.
+ */
+public class GwtLocaleShardOptions {
+
+  private List<String> locales = new ArrayList<>();
+  private int shards = 1;
+
+  /**
+   * @return true if the locales are split into more than one shard
+   */
+  public boolean isEnabled() {
+    return !locales.isEmpty() && getShardCount() > 1;
+  }
+
+  public List<String> getLocales() {
+    return locales;
+  }
+
+  /**
+   * Sets all locales the modules are compiled for, as known to the locale
+   * property of the modules, including "default" if used.
+   *
+   * @param locales the locales to set
+   */
+  public void setLocales(List<String> locales) {
+    this.locales = new ArrayList<>(locales);
+  }
+
+  public void locales(String... locales) {
+    this.locales.addAll(Arrays.asList(locales));
+  }
+
+  public int getShards() {
+    return shards;
+  }
+
+  /**
+   * Sets the number of shards the locales are split into.
+   *
+   * @param shards the number of shards
+   */
+  public void setShards(int shards) {
+    this.shards = shards;
+  }
+
+  /**
+   * @return the locales of every shard, the locales are distributed round
+   *     robin
+   */
+  public List<List<String>> getLocaleGroups() {
+    final int count = getShardCount();
+    final List<List<String>> groups = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      groups.add(new ArrayList<>());
+    }
+    for (int i = 0; i < locales.size(); i++) {
+      groups.get(i % count).add(locales.get(i));
+    }
+    return groups;
+  }
+
+  private int getShardCount() {
+    return Math.max(1, Math.min(shards, locales.size()));
+  }
+}
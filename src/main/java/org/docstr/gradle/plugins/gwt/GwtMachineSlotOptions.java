@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import java.io.IOException;
+import org.docstr.gradle.plugins.gwt.internal.ContainerResources;
+import org.docstr.gradle.plugins.gwt.internal.GwtMachineSlots;
+import org.docstr.gradle.plugins.gwt.internal.MemorySizes;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+
+/**
+ * Options of the slots that coordinate the GWT JVMs of all Gradle builds
+ * running on the same machine. The processors and memory of the machine
+ * are divided into slots, every GWT JVM holds as many slots as its heap
+ * needs. All builds sharing the slot directory must use the same number of
+ * slots.
+ */
+public class GwtMachineSlotOptions {
+
+  private boolean enabled = false;
+  private File dir;
+  private Integer slots;
+  private String totalHeap;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets whether GWT JVMs wait for machine wide slots.
+   *
+   * @param enabled true to coordinate with other builds
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public File getDir() {
+    return dir;
+  }
+
+  /**
+   * Sets the directory shared by all builds on the machine. Defaults to
+   * "gwt-slots" in the Gradle user home.
+   *
+   * @param dir the slot directory to set
+   */
+  public void setDir(File dir) {
+    this.dir = dir;
+  }
+
+  public Integer getSlots() {
+    return slots;
+  }
+
+  /**
+   * Sets the number of slots. Defaults to half the available processors.
+   *
+   * @param slots the number of slots
+   */
+  public void setSlots(Integer slots) {
+    this.slots = slots;
+  }
+
+  public String getTotalHeap() {
+    return totalHeap;
+  }
+
+  /**
+   * Sets the heap of all slots together, e.g. "24G". Defaults to 75% of the
+   * physical memory.
+   *
+   * @param totalHeap the heap of all slots
+   */
+  public void setTotalHeap(String totalHeap) {
+    this.totalHeap = totalHeap;
+  }
+
+  /**
+   * Waits for the slots a GWT JVM with the given heap needs.
+   *
+   * @return the lease, which limits the local workers of the JVM
+   */
+  SlotLease acquire(final String owner, final String maxHeapSize,
+      final Logger logger) {
+    final int processors = ContainerResources.availableProcessors();
+    final GwtMachineSlots machineSlots = new GwtMachineSlots(dir,
+        slots != null ? slots : Math.max(1, processors / 2));
+    long heap = MemorySizes.parse(totalHeap);
+    if (heap <= 0) {
+      final long physicalMemory = MemorySizes.physicalMemory();
+      heap = physicalMemory > 0 ? physicalMemory / 4 * 3 : -1;
+    }
+    try {
+      final GwtMachineSlots.Lease lease = machineSlots.acquire(owner,
+          machineSlots.slotsFor(MemorySizes.parse(maxHeapSize), heap),
+          logger::lifecycle);
+      return new SlotLease(lease,
+          machineSlots.localWorkersFor(lease, processors), logger);
+    } catch (IOException e) {
+      throw new GradleException("Can't use the GWT slots in " + dir, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GradleException("Interrupted while waiting for GWT slots", e);
+    }
+  }
+
+  /**
+   * Slots held by a GWT JVM of this build.
+   */
+  static final class SlotLease implements AutoCloseable {
+
+    private final GwtMachineSlots.Lease lease;
+    private final int localWorkers;
+    private final Logger logger;
+
+    private SlotLease(final GwtMachineSlots.Lease lease,
+        final int localWorkers, final Logger logger) {
+      this.lease = lease;
+      this.localWorkers = localWorkers;
+      this.logger = logger;
+    }
+
+    int getLocalWorkers() {
+      return localWorkers;
+    }
+
+    @Override
+    public void close() {
+      try {
+        lease.close();
+      } catch (IOException e) {
+        logger.warn("Can't release the GWT slots: {}", e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.docstr.gradle.plugins.gwt.internal.GwtLocaleShardMerger;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Task to merge the outputs of the shards of a locale sharded compile into
+ * a single war directory, see {@link GwtLocaleShardMerger}.
+ */
+@CacheableTask
+public class GwtMergeLocaleShards extends DefaultTask {
+
+  private List<File> shardDirs = new ArrayList<>();
+  private File war;
+
+  @TaskAction
+  public void merge() {
+    try {
+      GwtLocaleShardMerger.merge(getShardDirs(), getWar());
+    } catch (IOException e) {
+      throw new GradleException("Merging the locale shards failed", e);
+    }
+  }
+
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public List<File> getShardDirs() {
+    return shardDirs;
+  }
+
+  /**
+   * Sets the output directories of the shard compiles, in shard order.
+   *
+   * @param shardDirs the shard directories to set
+   */
+  public void setShardDirs(List<File> shardDirs) {
+    this.shardDirs = new ArrayList<>(shardDirs);
+  }
+
+  @OutputDirectory
+  public File getWar() {
+    return war;
+  }
+
+  /**
+   * Sets the directory that receives the merged output.
+   *
+   * @param war the war directory to set
+   */
+  public void setWar(File war) {
+    this.war = war;
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import java.util.List;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.workers.WorkQueue;
+
+/**
+ * Task to run the GWT compiler for a single module. The compiler runs in a
+ * Gradle worker whatever the {@link #getExecutionMode() execution mode} is,
+ * and the task action doesn't wait for it, so Gradle can run the compile
+ * tasks of several modules in parallel, even within the same project. The
+ * leases of the JVM limiter are released when the task has finished. Falls
+ * back to the execution mode if the GWT version doesn't support running in
+ * a worker.
+ */
+@CacheableTask
+public abstract class GwtModuleCompile extends GwtCompile {
+
+  @Override
+  protected void execute(final FileCollection classpath) {
+    if (!supportsReusableJvm()) {
+      super.execute(classpath);
+      return;
+    }
+    final List<String> args = toolArgs();
+    final File stagingDir = stageOutput(args);
+    args.addAll(getModules());
+    final WorkQueue workQueue = workerQueue();
+    // Gradle waits for the submitted work before the task completes, the
+    // worker syncs the staged output itself
+    if (stagingDir != null) {
+      submitToWorker(workQueue, classpath, args, stagingDir, getWar());
+    } else {
+      submitToWorker(workQueue, classpath, args);
+    }
+    if (!holdLeasesUntilFinished()) {
+      // the leases have to cover the compile
+      workQueue.await();
+    }
+  }
+}
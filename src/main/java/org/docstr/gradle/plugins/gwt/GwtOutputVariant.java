@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+
+/**
+ * An output variant of {@link GwtCompileVariants}. Variants only differ in
+ * the options that affect the generated JavaScript, everything else is
+ * taken from the compile task.
+ */
+public class GwtOutputVariant {
+
+  private final String name;
+  private Style style;
+  private Boolean closureFormattedOutput;
+
+  public GwtOutputVariant(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @return the name of the variant, which is also the name of its output
+   *     directory
+   */
+  @Input
+  public String getName() {
+    return name;
+  }
+
+  @Input
+  @Optional
+  public Style getStyle() {
+    return style;
+  }
+
+  /**
+   * Sets the script output style of this variant. Defaults to the style of
+   * the compile task.
+   *
+   * @param style the style to set
+   */
+  public void setStyle(Style style) {
+    this.style = style;
+  }
+
+  @Input
+  @Optional
+  public Boolean getClosureFormattedOutput() {
+    return closureFormattedOutput;
+  }
+
+  /**
+   * Sets whether this variant is formatted for the Closure Compiler.
+   * Defaults to the setting of the compile task.
+   *
+   * @param closureFormattedOutput true to format the output for the Closure
+   *     Compiler
+   */
+  public void setClosureFormattedOutput(Boolean closureFormattedOutput) {
+    this.closureFormattedOutput = closureFormattedOutput;
+  }
+}
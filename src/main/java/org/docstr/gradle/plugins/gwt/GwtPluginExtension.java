@@ -21,7 +21,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Optional;
+import org.gradle.jvm.toolchain.JavaLauncher;
 import org.gradle.util.ConfigureUtil;
 import org.docstr.gradle.plugins.gwt.internal.GwtCompileOptionsImpl;
 import org.docstr.gradle.plugins.gwt.internal.GwtDevOptionsImpl;
@@ -30,6 +32,8 @@ import org.docstr.gradle.plugins.gwt.internal.GwtSuperDevOptionsImpl;
 
 public class GwtPluginExtension {
 
+  static final String DEFAULT_HEAP_SIZE = "256M";
+
   private String gwtVersion;
   private boolean codeserver = true;
   private boolean elemental = false;
@@ -49,15 +53,44 @@ public class GwtPluginExtension {
   private JsInteropMode jsInteropMode;
   private MethodNameDisplayMode methodNameDisplayMode;
 
-  private String minHeapSize = "256M";
-  private String maxHeapSize = "256M";
+  private String minHeapSize = DEFAULT_HEAP_SIZE;
+  private String maxHeapSize;
   private List<String> extraJvmArgs = new ArrayList<>();
+  private ExecutionMode executionMode = ExecutionMode.FORK;
+  private Provider<JavaLauncher> javaLauncher;
+  private boolean splitCompile = false;
+  private boolean narrowSourceInputs = false;
+  private boolean normalizeSourceInputs = false;
+  private boolean stageOutput = true;
+  private boolean compilePerModule = false;
+  private final List<GwtOutputVariant> variants = new ArrayList<>();
 
   private final GwtJsInteropExportsOptions jsInteropExports = new GwtJsInteropExportsOptionsImpl();
   private final GwtDevOptions dev = new GwtDevOptionsImpl();
   private final GwtSuperDevOptions superDev = new GwtSuperDevOptionsImpl();
   private final GwtCompileOptions compiler = new GwtCompileOptionsImpl();
   private final GwtTestOptions test = new GwtTestOptions();
+  private final GwtCompileServerOptions compileServer =
+      new GwtCompileServerOptions();
+  private final GwtCompileAgentOptions compileAgents =
+      new GwtCompileAgentOptions();
+  private final GwtLocaleShardOptions localeShards =
+      new GwtLocaleShardOptions();
+  private final GwtJvmLimitOptions jvmLimit = new GwtJvmLimitOptions();
+  private final GwtMachineSlotOptions machineSlots =
+      new GwtMachineSlotOptions();
+  private final GwtCompilePlanOptions compilePlan =
+      new GwtCompilePlanOptions();
+  private final GwtHeapTelemetryOptions heapTelemetry =
+      new GwtHeapTelemetryOptions();
+  private final GwtJvmProfileOptions jvmProfiles = new GwtJvmProfileOptions();
+  private final GwtClasspathPruningOptions classpathPruning =
+      new GwtClasspathPruningOptions();
+  private final GwtPrecheckOptions precheck = new GwtPrecheckOptions();
+  private final GwtBinaryReuseOptions binaryReuse =
+      new GwtBinaryReuseOptions();
+  private final GwtSourceBundleOptions sourceBundle =
+      new GwtSourceBundleOptions();
 
   public List<String> getModules() {
     return modules;
@@ -166,8 +199,17 @@ public class GwtPluginExtension {
     this.minHeapSize = minHeapSize;
   }
 
+  /**
+   * @return the maximum heap size of the GWT JVMs. If not set, the tasks
+   *     raise the default to a quarter of the container's memory limit when
+   *     they run.
+   */
   public String getMaxHeapSize() {
-    return maxHeapSize;
+    return maxHeapSize != null ? maxHeapSize : DEFAULT_HEAP_SIZE;
+  }
+
+  boolean isMaxHeapSizeSet() {
+    return maxHeapSize != null;
   }
 
   public void setMaxHeapSize(String maxHeapSize) {
@@ -182,6 +224,145 @@ public class GwtPluginExtension {
     this.extraJvmArgs = extraJvmArgs;
   }
 
+  public Provider<JavaLauncher> getJavaLauncher() {
+    return javaLauncher;
+  }
+
+  /**
+   * Sets the toolchain launcher of all GWT JVMs including the GWT tests,
+   * e.g. {@code javaToolchains.launcherFor { languageVersion =
+   * JavaLanguageVersion.of(11) }}. By default the JDK running Gradle is used
+   * for the GWT tools and the project toolchain for the tests.
+   *
+   * @param javaLauncher the launcher to set
+   */
+  public void setJavaLauncher(Provider<JavaLauncher> javaLauncher) {
+    this.javaLauncher = javaLauncher;
+  }
+
+  public ExecutionMode getExecutionMode() {
+    return executionMode;
+  }
+
+  /**
+   * Sets how the JVMs of the GWT compile tasks are provided. With
+   * {@link ExecutionMode#WORKER} the compiler runs in Gradle worker daemons
+   * that stay warm between tasks and builds, with
+   * {@link ExecutionMode#SERVER} in a GWT compile server that also survives
+   * the Gradle daemon.
+   *
+   * @param executionMode The execution mode.
+   */
+  public void setExecutionMode(ExecutionMode executionMode) {
+    this.executionMode = executionMode;
+  }
+
+  public boolean isNarrowSourceInputs() {
+    return narrowSourceInputs;
+  }
+
+  /**
+   * If true only the module descriptors and the files below the source,
+   * super-source, public and resource paths of the GWT modules are inputs
+   * of the GWT tasks. Changes to other files of {@link #getSrc()}, e.g.
+   * server code or server resources, then leave the GWT tasks up to date,
+   * even if a generator reads them. Defaults to false.
+   *
+   * @param narrowSourceInputs true to narrow the inputs to the GWT paths
+   */
+  public void setNarrowSourceInputs(boolean narrowSourceInputs) {
+    this.narrowSourceInputs = narrowSourceInputs;
+  }
+
+  public boolean isNormalizeSourceInputs() {
+    return normalizeSourceInputs;
+  }
+
+  /**
+   * If true the Java sources are inputs of the GWT tasks without their
+   * comments and formatting. Javadoc edits, reformatting and license header
+   * changes then leave the GWT tasks up to date. The compiled classes of
+   * these sources, whose line numbers change with such edits, are then no
+   * inputs. Line numbers in source maps and stack traces of the output may
+   * then be stale. Defaults to false.
+   *
+   * @param normalizeSourceInputs true to normalize the Java sources
+   */
+  public void setNormalizeSourceInputs(boolean normalizeSourceInputs) {
+    this.normalizeSourceInputs = normalizeSourceInputs;
+  }
+
+  public boolean isStageOutput() {
+    return stageOutput;
+  }
+
+  /**
+   * If true, which is the default, the GWT compiler writes to a staging
+   * directory that is then synced into the output directory. Files with
+   * unchanged content keep their timestamp and files of the previous sync
+   * that the compile didn't produce again are removed. Other files of the
+   * output directory are kept. So the war tasks and deployment syncs only
+   * see the files that changed.
+   *
+   * @param stageOutput false to let the compiler write to the output
+   *     directory directly
+   */
+  public void setStageOutput(boolean stageOutput) {
+    this.stageOutput = stageOutput;
+  }
+
+  public boolean isSplitCompile() {
+    return splitCompile;
+  }
+
+  /**
+   * If set to true, the production compile is split into the tasks
+   * precompileGwt, compilePermsGwt and linkGwt that each have cacheable
+   * outputs. compileGwt then only triggers these tasks. Configuring
+   * {@link #getCompileAgents() compile agents} implies a split compile.
+   *
+   * @param splitCompile true to split the compile into stages.
+   */
+  public void setSplitCompile(boolean splitCompile) {
+    this.splitCompile = splitCompile;
+  }
+
+  public boolean isCompilePerModule() {
+    return compilePerModule;
+  }
+
+  /**
+   * If set to true, a compileGwt&lt;Module&gt; task is registered for every
+   * module. These tasks have their own outputs and cache keys and run in
+   * parallel, compileGwt then only triggers them. Ignored for a
+   * {@link #isSplitCompile() split compile} and
+   * {@link #getLocaleShards() locale shards}.
+   *
+   * @param compilePerModule true to compile every module in its own task.
+   */
+  public void setCompilePerModule(boolean compilePerModule) {
+    this.compilePerModule = compilePerModule;
+  }
+
+  public List<GwtOutputVariant> getVariants() {
+    return variants;
+  }
+
+  /**
+   * Adds an output variant that is compiled by the compileGwtVariants task
+   * together with the other variants, sharing a single parse and type
+   * check of the sources.
+   *
+   * @param name the name of the variant and its output directory.
+   * @param c configures the options of the variant.
+   */
+  public GwtPluginExtension variant(String name, Closure<GwtOutputVariant> c) {
+    GwtOutputVariant variant = new GwtOutputVariant(name);
+    ConfigureUtil.configure(c, variant);
+    variants.add(variant);
+    return this;
+  }
+
   public GwtJsInteropExportsOptions getJsInteropExports() {
     return jsInteropExports;
   }
@@ -228,6 +409,116 @@ public class GwtPluginExtension {
     return this;
   }
 
+  public GwtCompileServerOptions getCompileServer() {
+    return compileServer;
+  }
+
+  public GwtPluginExtension compileServer(
+      Closure<GwtCompileServerOptions> c) {
+    ConfigureUtil.configure(c, compileServer);
+    return this;
+  }
+
+  public GwtCompileAgentOptions getCompileAgents() {
+    return compileAgents;
+  }
+
+  public GwtPluginExtension compileAgents(Closure<GwtCompileAgentOptions> c) {
+    ConfigureUtil.configure(c, compileAgents);
+    return this;
+  }
+
+  public GwtLocaleShardOptions getLocaleShards() {
+    return localeShards;
+  }
+
+  public GwtPluginExtension localeShards(Closure<GwtLocaleShardOptions> c) {
+    ConfigureUtil.configure(c, localeShards);
+    return this;
+  }
+
+  public GwtJvmLimitOptions getJvmLimit() {
+    return jvmLimit;
+  }
+
+  public GwtPluginExtension jvmLimit(Closure<GwtJvmLimitOptions> c) {
+    ConfigureUtil.configure(c, jvmLimit);
+    return this;
+  }
+
+  public GwtMachineSlotOptions getMachineSlots() {
+    return machineSlots;
+  }
+
+  public GwtPluginExtension machineSlots(Closure<GwtMachineSlotOptions> c) {
+    ConfigureUtil.configure(c, machineSlots);
+    return this;
+  }
+
+  public GwtCompilePlanOptions getCompilePlan() {
+    return compilePlan;
+  }
+
+  public GwtPluginExtension compilePlan(Closure<GwtCompilePlanOptions> c) {
+    ConfigureUtil.configure(c, compilePlan);
+    return this;
+  }
+
+  public GwtHeapTelemetryOptions getHeapTelemetry() {
+    return heapTelemetry;
+  }
+
+  public GwtPluginExtension heapTelemetry(Closure<GwtHeapTelemetryOptions> c) {
+    ConfigureUtil.configure(c, heapTelemetry);
+    return this;
+  }
+
+  public GwtJvmProfileOptions getJvmProfiles() {
+    return jvmProfiles;
+  }
+
+  public GwtPluginExtension jvmProfiles(Closure<GwtJvmProfileOptions> c) {
+    ConfigureUtil.configure(c, jvmProfiles);
+    return this;
+  }
+
+  public GwtClasspathPruningOptions getClasspathPruning() {
+    return classpathPruning;
+  }
+
+  public GwtPluginExtension classpathPruning(
+      Closure<GwtClasspathPruningOptions> c) {
+    ConfigureUtil.configure(c, classpathPruning);
+    return this;
+  }
+
+  public GwtPrecheckOptions getPrecheck() {
+    return precheck;
+  }
+
+  public GwtPluginExtension precheck(Closure<GwtPrecheckOptions> c) {
+    ConfigureUtil.configure(c, precheck);
+    return this;
+  }
+
+  public GwtBinaryReuseOptions getBinaryReuse() {
+    return binaryReuse;
+  }
+
+  public GwtPluginExtension binaryReuse(Closure<GwtBinaryReuseOptions> c) {
+    ConfigureUtil.configure(c, binaryReuse);
+    return this;
+  }
+
+  public GwtSourceBundleOptions getSourceBundle() {
+    return sourceBundle;
+  }
+
+  public GwtPluginExtension sourceBundle(Closure<GwtSourceBundleOptions> c) {
+    ConfigureUtil.configure(c, sourceBundle);
+    return this;
+  }
+
   public FileCollection getSrc() {
     return src;
   }
@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.docstr.gradle.plugins.gwt.internal.GwtClasspathScanner;
+import org.docstr.gradle.plugins.gwt.internal.GwtModuleDescriptor;
+import org.docstr.gradle.plugins.gwt.internal.GwtModuleGraph;
+import org.docstr.gradle.plugins.gwt.internal.GwtTranslatabilityChecker;
+import org.docstr.gradle.plugins.gwt.internal.GwtTranslatableIndex;
+
+/**
+ * Task to check the client sources of the project's GWT modules for code
+ * the GWT compiler can't translate, without starting the compiler. The
+ * sources are parsed with the javac Tree API and checked against the JRE
+ * emulation and the sources of the modules' inherits chain, see
+ * {@link GwtTranslatabilityChecker}. Only changed sources are parsed again.
+ *
+ * <p>The check needs the javac Tree API of the JDK running Gradle. On a JRE,
+ * or on Java 8 where the API isn't on the classpath, the check is skipped.
+ * The java.lang types are those of that JDK, so its version and the
+ * availability of the API are inputs, and a skipped check isn't cached.
+ */
+@CacheableTask
+public class GwtPrecheck extends DefaultTask {
+
+  private static final String JAVA_SUFFIX = ".java";
+
+  private FileCollection src;
+  private FileCollection classpath;
+  private List<String> modules;
+  private Boolean failOnWarning;
+  private File reportFile;
+
+  public GwtPrecheck() {
+    getOutputs().doNotCacheIf("the javac Tree API isn't available",
+        task -> !GwtTranslatabilityChecker.isAvailable());
+  }
+
+  @TaskAction
+  protected void check() {
+    final List<GwtTranslatabilityChecker.Problem> problems;
+    if (!GwtTranslatabilityChecker.isAvailable()) {
+      getLogger().lifecycle("The GWT precheck needs the javac Tree API, "
+          + "skipped on Java {}", System.getProperty("java.version"));
+      problems = new ArrayList<>();
+    } else {
+      try {
+        problems = checkSources();
+      } catch (IOException e) {
+        throw new GradleException("Can't check the GWT sources", e);
+      }
+    }
+
+    final StringBuilder report = new StringBuilder();
+    int errors = 0;
+    int warnings = 0;
+    for (GwtTranslatabilityChecker.Problem problem : problems) {
+      report.append(problem).append(System.lineSeparator());
+      if (problem.isError()) {
+        errors++;
+        getLogger().error(problem.toString());
+      } else {
+        warnings++;
+        getLogger().warn(problem.toString());
+      }
+    }
+    try {
+      Files.write(getReportFile().toPath(),
+          report.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new GradleException("Can't write " + getReportFile(), e);
+    }
+    if (errors > 0 || Boolean.TRUE.equals(getFailOnWarning()) && warnings > 0) {
+      throw new GradleException(String.format("GWT precheck found %d errors "
+          + "and %d warnings, see %s", errors, warnings, getReportFile()));
+    }
+  }
+
+  private List<GwtTranslatabilityChecker.Problem> checkSources()
+      throws IOException {
+    final List<File> srcDirs = new ArrayList<>(getSrc().getFiles());
+    final List<File> roots = new ArrayList<>(srcDirs);
+    roots.addAll(getClasspath().getFiles());
+    final GwtModuleGraph graph = GwtModuleGraph.load(getModules(), roots);
+    final GwtTranslatableIndex index = GwtTranslatableIndex.load(graph, roots);
+    if (index.isEmpty()) {
+      getLogger().warn("No JRE emulation found on the classpath of {}, "
+          + "the GWT precheck is skipped", getModules());
+      return new ArrayList<>();
+    }
+
+    // the client sources are those below the source paths of the project's
+    // own modules, the first source directory wins like on the classpath
+    final Set<String> clientPaths = new LinkedHashSet<>();
+    for (String module : graph.getModules()) {
+      final String descriptor =
+          module.replace('.', '/') + GwtModuleDescriptor.SUFFIX;
+      for (File dir : srcDirs) {
+        if (new File(dir, descriptor).isFile()) {
+          clientPaths.addAll(graph.getJavaSourcePaths(module));
+          break;
+        }
+      }
+    }
+    final Map<String, File> sources = new LinkedHashMap<>();
+    final Set<String> projectTypes = new HashSet<>();
+    for (File dir : srcDirs) {
+      for (String name : GwtClasspathScanner.names(dir)) {
+        if (!name.endsWith(JAVA_SUFFIX)) {
+          continue;
+        }
+        projectTypes.add(name.substring(0, name.length() - JAVA_SUFFIX.length()));
+        for (String path : clientPaths) {
+          if (name.startsWith(path)) {
+            sources.putIfAbsent(name, new File(dir, name));
+            break;
+          }
+        }
+      }
+    }
+
+    final long start = System.nanoTime();
+    final List<GwtTranslatabilityChecker.Problem> problems =
+        new GwtTranslatabilityChecker(index, projectTypes,
+            new File(getTemporaryDir(), "precheck-cache.properties"))
+            .check(sources);
+    getLogger().info("Checked {} GWT sources in {} ms", sources.size(),
+        (System.nanoTime() - start) / 1_000_000);
+    return problems;
+  }
+
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public FileCollection getSrc() {
+    return src;
+  }
+
+  /**
+   * Sets the source directories of the project's modules.
+   *
+   * @param src the source directories to set
+   */
+  public void setSrc(FileCollection src) {
+    this.src = src;
+  }
+
+  @Classpath
+  public FileCollection getClasspath() {
+    return classpath;
+  }
+
+  /**
+   * Sets the classpath with the GWT SDK and the inherited modules.
+   *
+   * @param classpath the classpath to set
+   */
+  public void setClasspath(FileCollection classpath) {
+    this.classpath = classpath;
+  }
+
+  @Input
+  public List<String> getModules() {
+    return modules;
+  }
+
+  /**
+   * Sets the modules whose sources are checked.
+   *
+   * @param modules the modules to set
+   */
+  public void setModules(List<String> modules) {
+    this.modules = modules;
+  }
+
+  /**
+   * @return the Java version of the JDK running the check, whose java.lang
+   *     types are checked against the JRE emulation
+   */
+  @Input
+  public String getJavaVersion() {
+    return System.getProperty("java.specification.version");
+  }
+
+  /**
+   * @return true if the JDK running the check provides the javac Tree API,
+   *     false if the check is skipped
+   */
+  @Input
+  public boolean isTreeApiAvailable() {
+    return GwtTranslatabilityChecker.isAvailable();
+  }
+
+  @Input
+  public Boolean getFailOnWarning() {
+    return failOnWarning;
+  }
+
+  /**
+   * Sets whether warnings fail the task.
+   *
+   * @param failOnWarning true to fail on warnings
+   */
+  public void setFailOnWarning(Boolean failOnWarning) {
+    this.failOnWarning = failOnWarning;
+  }
+
+  @OutputFile
+  public File getReportFile() {
+    return reportFile;
+  }
+
+  /**
+   * Sets the file receiving the found problems.
+   *
+   * @param reportFile the report file to set
+   */
+  public void setReportFile(File reportFile) {
+    this.reportFile = reportFile;
+  }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+/**
+ * Options of the translatability pre-check, which parses the client sources
+ * before the GWT compile tasks run and fails within seconds on JRE types
+ * GWT doesn't emulate and on broken JsInterop rules, see {@link GwtPrecheck}.
+ */
+public class GwtPrecheckOptions {
+
+  private boolean enabled = false;
+  private boolean failOnWarning = false;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets whether the compile tasks depend on the pre-check.
+   *
+   * @param enabled true to check the sources before compiling
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public boolean isFailOnWarning() {
+    return failOnWarning;
+  }
+
+  /**
+   * Sets whether warnings, e.g. imports of types outside of all GWT source
+   * paths, fail the pre-check too. Defaults to false.
+   *
+   * @param failOnWarning true to fail on warnings
+   */
+  public void setFailOnWarning(boolean failOnWarning) {
+    this.failOnWarning = failOnWarning;
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+
+/**
+ * Task to run the precompile stage of the GWT compiler. It parses and type
+ * checks the sources, runs the generators and writes the optimized ASTs of
+ * all permutations to its work directory for {@link GwtCompilePerms}.
+ */
+@CacheableTask
+public abstract class GwtPrecompile extends GwtCompile {
+
+  public GwtPrecompile() {
+    super("com.google.gwt.dev.Precompile");
+  }
+
+  @Override
+  protected void addCommonArgs() {
+    addSourceArgs();
+    argIfSet("-logLevel", getLogLevel());
+  }
+
+  @Override
+  protected void addArgs() {
+    dirArgIfSet("-workDir", getWorkDir());
+    dirArgIfSet("-gen", getGen());
+    addCacheDirJvmArg();
+    addPrecompileArgs();
+  }
+
+  @Override
+  protected void execute(final FileCollection classpath) {
+    // Results of modules that are no longer compiled must not be cached
+    getProject().delete(getProject().fileTree(getWorkDir()));
+    super.execute(classpath);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Internal
+  public File getWar() {
+    return super.getWar();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @OutputDirectory
+  public File getWorkDir() {
+    return super.getWorkDir();
+  }
+}
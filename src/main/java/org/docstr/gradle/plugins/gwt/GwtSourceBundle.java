@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.docstr.gradle.plugins.gwt.internal.GwtModuleGraph;
+import org.docstr.gradle.plugins.gwt.internal.GwtSourceBundler;
+
+/**
+ * Task to pack the source directories and the class and resource
+ * directories of the compile classpath into a single jar, see
+ * {@link GwtSourceBundler}. If enabled, the compile tasks put the bundle on
+ * the classpath of the GWT compiler instead of these directories, so the
+ * compiler scans one entry instead of many directory trees.
+ */
+@CacheableTask
+public class GwtSourceBundle extends DefaultTask {
+
+  private FileCollection src;
+  private FileCollection classpath;
+  private List<String> modules;
+  private File bundleFile;
+
+  @TaskAction
+  protected void bundle() {
+    final long start = System.nanoTime();
+    final List<File> entries = new ArrayList<>(getSrc().getFiles());
+    entries.addAll(getClasspath().getFiles());
+    final int files;
+    try {
+      final GwtModuleGraph graph = GwtModuleGraph.load(getModules(),
+          getSrc().plus(getClasspath()));
+      // without all modules the relevant paths are unknown
+      final Set<String> sourcePaths =
+          Collections.disjoint(graph.getMissingModules(), getModules())
+              ? graph.getSourcePaths() : null;
+      files = new GwtSourceBundler(graph.getDescriptorPaths(), sourcePaths)
+          .bundle(entries, getBundleFile());
+    } catch (IOException e) {
+      throw new GradleException("Can't write " + getBundleFile(), e);
+    }
+    getLogger().lifecycle("Bundled {} files into {} in {} ms", files,
+        getBundleFile(), (System.nanoTime() - start) / 1_000_000);
+  }
+
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public FileCollection getSrc() {
+    return src;
+  }
+
+  /**
+   * Sets the source directories of the project's modules.
+   *
+   * @param src the source directories to set
+   */
+  public void setSrc(FileCollection src) {
+    this.src = src;
+  }
+
+  @Classpath
+  public FileCollection getClasspath() {
+    return classpath;
+  }
+
+  /**
+   * Sets the compile classpath, only its directories are bundled.
+   *
+   * @param classpath the classpath to set
+   */
+  public void setClasspath(FileCollection classpath) {
+    this.classpath = classpath;
+  }
+
+  @Input
+  public List<String> getModules() {
+    return modules;
+  }
+
+  /**
+   * Sets the modules whose sources and resources are bundled.
+   *
+   * @param modules the modules to set
+   */
+  public void setModules(List<String> modules) {
+    this.modules = modules;
+  }
+
+  @OutputFile
+  public File getBundleFile() {
+    return bundleFile;
+  }
+
+  public void setBundleFile(File bundleFile) {
+    this.bundleFile = bundleFile;
+  }
+}
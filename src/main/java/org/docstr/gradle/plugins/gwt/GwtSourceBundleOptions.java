@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt;
+
+/**
+ * Options of the source bundle, which packs the source directories and the
+ * class and resource directories of the GWT compile classpath into a single
+ * jar, see {@link GwtSourceBundle}.
+ */
+public class GwtSourceBundleOptions {
+
+  private boolean enabled = false;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets whether the compile tasks read the sources and classes of the
+   * project from the bundle instead of their directories.
+   *
+   * @param enabled true to compile from the bundle
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+}
@@ -30,7 +30,7 @@ import org.docstr.gradle.plugins.gwt.internal.GwtSuperDevOptionsImpl;
 /**
  * Task to run the GWT Super Dev Mode.
  */
-public class GwtSuperDev extends AbstractGwtActionTask implements
+public abstract class GwtSuperDev extends AbstractGwtActionTask implements
     GwtSuperDevOptions {
 
   private final GwtSuperDevOptions options = new GwtSuperDevOptionsImpl();
@@ -41,6 +41,18 @@ public class GwtSuperDev extends AbstractGwtActionTask implements
     getOutputs().upToDateWhen(task -> false);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  protected boolean usesJvmLimiter() {
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected String jvmProfileName() {
+    return GwtJvmProfile.SUPER_DEV;
+  }
+
   @Override
   protected void addArgs() {
     if (!Boolean.TRUE.equals(getUseClasspathForSrc())) {
@@ -61,7 +61,13 @@ public class GwtWarPlugin implements Plugin<Project> {
     logger.debug("Configuring war plugin with GWT settings");
 
     project.afterEvaluate(p -> warTaskProvider.configure(warTask -> {
-      ConfigurableFileCollection files = project.files(compileTask.getWar()).builtBy(compileTask);
+      ConfigurableFileCollection files = project.files();
+      if (GwtCompilerPlugin.isCompiledPerModule(extension)) {
+        project.getTasks().withType(GwtModuleCompile.class).forEach(
+            moduleTask -> files.from(moduleTask.getWar()).builtBy(moduleTask));
+      } else {
+        files.from(compileTask.getWar()).builtBy(compileTask);
+      }
 
       String modulePathPrefix = extension.getModulePathPrefix();
       if (modulePathPrefix == null || modulePathPrefix.isEmpty()) {
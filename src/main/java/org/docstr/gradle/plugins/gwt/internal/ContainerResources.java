@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * The CPU and memory limits of the cgroup v2 the build runs in, e.g. the
+ * limits of a Kubernetes pod. The JVM of the build doesn't always apply
+ * them, and the GWT JVMs it starts must share them anyway. The limits are
+ * read once, the memory usage on every call as it changes during the build.
+ */
+public final class ContainerResources {
+
+  private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+  private static final ContainerResources NONE =
+      new ContainerResources(-1, -1, null);
+
+  private static volatile ContainerResources current;
+
+  private final int cpuLimit;
+  private final long memoryLimit;
+  private final Path memoryCurrent;
+
+  ContainerResources(final int cpuLimit, final long memoryLimit,
+      final Path memoryCurrent) {
+    this.cpuLimit = cpuLimit;
+    this.memoryLimit = memoryLimit;
+    this.memoryCurrent = memoryCurrent;
+  }
+
+  /**
+   * @return the resources of the cgroup of this process, whose limits are
+   *     read once
+   */
+  public static ContainerResources get() {
+    if (current == null) {
+      current = detect();
+    }
+    return current;
+  }
+
+  private static ContainerResources detect() {
+    try {
+      final Path cgroupFile = Paths.get("/proc/self/cgroup");
+      if (!Files.isRegularFile(cgroupFile)) {
+        return NONE;
+      }
+      for (String line : Files.readAllLines(cgroupFile,
+          StandardCharsets.UTF_8)) {
+        // cgroup v2 has a single hierarchy: "0::/kubepods/pod1/abc"
+        if (line.startsWith("0::")) {
+          Path dir = CGROUP_ROOT.resolve(line.substring(3).replaceFirst("^/", ""));
+          if (!Files.isDirectory(dir)) {
+            // a cgroup namespace shows the container's cgroup as root
+            dir = CGROUP_ROOT;
+          }
+          return read(CGROUP_ROOT, dir);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // limits can't be read, so none apply
+    }
+    return NONE;
+  }
+
+  /**
+   * Reads the limits of a cgroup, which are the lowest limits of the cgroup
+   * and its parents.
+   *
+   * @param root the mount point of the cgroup v2 hierarchy
+   * @param dir the directory of the cgroup
+   * @return the limits
+   */
+  static ContainerResources read(final Path root, final Path dir)
+      throws IOException {
+    int cpuLimit = -1;
+    long memoryLimit = -1;
+    for (Path level = dir; level != null && level.startsWith(root);
+        level = level.getParent()) {
+      final int cpus = cpuLimit(level.resolve("cpu.max"));
+      if (cpus > 0 && (cpuLimit < 0 || cpus < cpuLimit)) {
+        cpuLimit = cpus;
+      }
+      final long memory = readLimit(level.resolve("memory.max"));
+      if (memory > 0 && (memoryLimit < 0 || memory < memoryLimit)) {
+        memoryLimit = memory;
+      }
+    }
+    return new ContainerResources(cpuLimit, memoryLimit,
+        dir.resolve("memory.current"));
+  }
+
+  /**
+   * @return the processors granted by a "quota period" cpu.max, rounded up,
+   *     or -1 without a quota
+   */
+  private static int cpuLimit(final Path cpuMax) throws IOException {
+    final String[] values = readFirstLine(cpuMax).split("\\s+");
+    if (values.length != 2 || "max".equals(values[0])) {
+      return -1;
+    }
+    final long quota = Long.parseLong(values[0]);
+    final long period = Long.parseLong(values[1]);
+    return (int) Math.max(1, (quota + period - 1) / period);
+  }
+
+  private static long readLimit(final Path file) throws IOException {
+    final String value = readFirstLine(file);
+    return value.isEmpty() || "max".equals(value) ? -1 : Long.parseLong(value);
+  }
+
+  private static String readFirstLine(final Path file) throws IOException {
+    if (!Files.isRegularFile(file)) {
+      return "";
+    }
+    final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    return lines.isEmpty() ? "" : lines.get(0).trim();
+  }
+
+  /**
+   * @return the processors of the CPU quota, or -1 without a quota
+   */
+  public int getCpuLimit() {
+    return cpuLimit;
+  }
+
+  /**
+   * @return the memory limit in bytes, or -1 without a limit
+   */
+  public long getMemoryLimit() {
+    return memoryLimit;
+  }
+
+  /**
+   * @return the memory left below the limit in bytes, or -1 without a limit
+   */
+  public long getAvailableMemory() {
+    if (memoryLimit < 0) {
+      return -1;
+    }
+    long memoryUsage;
+    try {
+      memoryUsage = readLimit(memoryCurrent);
+    } catch (IOException | RuntimeException e) {
+      // the usage can't be read, so the whole limit is left
+      memoryUsage = -1;
+    }
+    return Math.max(0, memoryLimit - Math.max(0, memoryUsage));
+  }
+
+  /**
+   * @return the processors available to the build, limited by the CPU quota
+   */
+  public static int availableProcessors() {
+    final int processors = Runtime.getRuntime().availableProcessors();
+    final int cpuLimit = get().getCpuLimit();
+    return cpuLimit > 0 ? Math.min(processors, cpuLimit) : processors;
+  }
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compile output published to a local or file based Maven repository,
+ * with the fingerprint of the compile inputs as version. An artifact is
+ * stored as {@code <group>/<artifactId>/<fingerprint>/
+ * <artifactId>-<fingerprint>.zip} next to a minimal pom, so the repository
+ * can also be used by Gradle or Maven consumers.
+ *
+ * <p>Artifacts are written atomically, so the repository may be shared by
+ * concurrent builds.
+ */
+public final class GwtBinaryRepository {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File root;
+  private final String group;
+  private final String artifactId;
+
+  public GwtBinaryRepository(final File root, final String group,
+      final String artifactId) {
+    this.root = root;
+    this.group = group;
+    this.artifactId = artifactId;
+  }
+
+  /**
+   * Computes the fingerprint of a compile. Files are hashed by content and
+   * their names, not their absolute paths, so checkouts in different
+   * directories and machines get the same fingerprint.
+   *
+   * @param sources the sources by path relative to their source root, in
+   *     a stable order
+   * @param classpath the classpath of the compiler, in order
+   * @param parts everything else that affects the output, like the flags
+   *     and the GWT version
+   * @return the fingerprint
+   * @throws IOException if a file can't be read
+   */
+  public static String fingerprint(final Map<String, File> sources,
+      final List<File> classpath, final Iterable<String> parts)
+      throws IOException {
+    final MessageDigest digest = digest();
+    for (String part : parts) {
+      update(digest, part);
+    }
+    for (Map.Entry<String, File> source : sources.entrySet()) {
+      update(digest, source.getKey());
+      updateContent(digest, source.getValue().toPath());
+    }
+    for (File entry : classpath) {
+      update(digest, entry.getName());
+      if (entry.isFile()) {
+        updateContent(digest, entry.toPath());
+      } else if (entry.isDirectory()) {
+        final Path dir = entry.toPath();
+        for (Path file : files(dir)) {
+          update(digest, dir.relativize(file).toString()
+              .replace(File.separatorChar, '/'));
+          updateContent(digest, file);
+        }
+      }
+    }
+    return GwtCompileAgentProtocol.toHex(digest.digest());
+  }
+
+  /**
+   * @param fingerprint the fingerprint of the compile
+   * @return the artifact file, which may not exist
+   */
+  public File artifact(final String fingerprint) {
+    return new File(versionDir(fingerprint),
+        artifactId + "-" + fingerprint + ".zip");
+  }
+
+  /**
+   * Unpacks the artifact with the given fingerprint into the target
+   * directory.
+   *
+   * @param fingerprint the fingerprint of the compile
+   * @param target the directory to unpack into, should be empty
+   * @return false if the repository has no such artifact
+   * @throws IOException if the artifact can't be read or unpacked
+   */
+  public boolean unpack(final String fingerprint, final File target)
+      throws IOException {
+    final File artifact = artifact(fingerprint);
+    if (!artifact.isFile()) {
+      return false;
+    }
+    final Path root = target.toPath().toAbsolutePath().normalize();
+    try (ZipInputStream in = new ZipInputStream(
+        Files.newInputStream(artifact.toPath()))) {
+      for (ZipEntry entry = in.getNextEntry(); entry != null;
+          entry = in.getNextEntry()) {
+        final Path path = root.resolve(entry.getName()).normalize();
+        if (!path.startsWith(root)) {
+          throw new IOException("Invalid entry " + entry.getName() + " in "
+              + artifact);
+        }
+        if (entry.isDirectory()) {
+          Files.createDirectories(path);
+        } else {
+          Files.createDirectories(path.getParent());
+          Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Publishes the given compile output with the given fingerprint, unless
+   * an artifact with the fingerprint already exists.
+   *
+   * @param fingerprint the fingerprint of the compile
+   * @param output the directory written by the compiler
+   * @throws IOException if the artifact can't be written
+   */
+  public void publish(final String fingerprint, final File output)
+      throws IOException {
+    final File artifact = artifact(fingerprint);
+    if (artifact.isFile()) {
+      return;
+    }
+    final File dir = versionDir(fingerprint);
+    Files.createDirectories(dir.toPath());
+    final Path tmp = Files.createTempFile(dir.toPath(), artifactId, ".tmp");
+    try {
+      try (ZipOutputStream out = new ZipOutputStream(
+          Files.newOutputStream(tmp))) {
+        final Path from = output.toPath();
+        for (Path file : files(from)) {
+          out.putNextEntry(new ZipEntry(from.relativize(file).toString()
+              .replace(File.separatorChar, '/')));
+          Files.copy(file, out);
+          out.closeEntry();
+        }
+      }
+      write(new File(dir, artifactId + "-" + fingerprint + ".pom"),
+          pom(fingerprint));
+      Files.move(tmp, artifact.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private File versionDir(final String fingerprint) {
+    return new File(new File(new File(root, group.replace('.', '/')),
+        artifactId), fingerprint);
+  }
+
+  String pom(final String fingerprint) {
+    return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+        + "  <modelVersion>4.0.0</modelVersion>\n"
+        + "  <groupId>" + group + "</groupId>\n"
+        + "  <artifactId>" + artifactId + "</artifactId>\n"
+        + "  <version>" + fingerprint + "</version>\n"
+        + "  <packaging>zip</packaging>\n"
+        + "</project>\n";
+  }
+
+  private static void write(final File file, final String content)
+      throws IOException {
+    final Path tmp = Files.createTempFile(file.getParentFile().toPath(),
+        file.getName(), ".tmp");
+    try {
+      Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+      Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private static List<Path> files(final Path dir) throws IOException {
+    try (Stream<Path> paths = Files.walk(dir)) {
+      return paths.filter(Files::isRegularFile).sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void update(final MessageDigest digest, final String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static void updateContent(final MessageDigest digest,
+      final Path file) throws IOException {
+    // the size separates the content from the next name
+    update(digest, String.valueOf(Files.size(file)));
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream in = Files.newInputStream(file)) {
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        digest.update(buffer, 0, read);
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Names the AppCDS archives of the GWT SDK. The JVM only uses an archive
+ * that was dumped by the same JDK with the same leading classpath, so the
+ * archive name is a hash of both.
+ */
+public final class GwtCdsArchives {
+
+  private static final String SUFFIX = ".jsa";
+
+  private GwtCdsArchives() {
+  }
+
+  /**
+   * @param javaSpecificationVersion the specification version of the JDK,
+   *     e.g. "1.8" or "17"
+   * @return true if the JDK can dump and use archives of application
+   *     classes without commercial features
+   */
+  public static boolean isSupported(final String javaSpecificationVersion) {
+    if (javaSpecificationVersion == null
+        || javaSpecificationVersion.startsWith("1.")) {
+      return false;
+    }
+    try {
+      return Integer.parseInt(javaSpecificationVersion) >= 11;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return the version of the running JDK, which identifies it for the
+   *     archives
+   */
+  public static String currentJdk() {
+    return jdk(System.getProperty("java.vm.vendor") + " "
+        + System.getProperty("java.vm.version"),
+        new File(System.getProperty("java.home")));
+  }
+
+  /**
+   * @param version the vendor and version of a JDK
+   * @param javaHome the installation directory of the JDK
+   * @return the identity of the JDK for the archives
+   */
+  public static String jdk(final String version, final File javaHome) {
+    return version + " " + javaHome.getAbsolutePath();
+  }
+
+  /**
+   * @param classpath the classpath of the JVM, in order
+   * @param jdk the JDK as returned by {@link #jdk(String, File)}
+   * @return the key of the archive for the classpath and JDK
+   */
+  public static String key(final Iterable<File> classpath, final String jdk) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(jdk.getBytes(StandardCharsets.UTF_8));
+      for (File file : classpath) {
+        // the JVM rejects archives whose jars changed in path, size or time
+        digest.update((file.getAbsolutePath() + '\0' + file.length() + '\0'
+            + file.lastModified() + '\0').getBytes(StandardCharsets.UTF_8));
+      }
+      final StringBuilder key = new StringBuilder();
+      for (byte b : digest.digest()) {
+        key.append(String.format("%02x", b));
+      }
+      return key.substring(0, 32);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param dir the directory of the archives
+   * @param key the key as returned by {@link #key(Iterable, String)}
+   * @return the archive file, which may not exist
+   */
+  public static File archive(final File dir, final String key) {
+    return new File(dir, "gwt-" + key + SUFFIX);
+  }
+}
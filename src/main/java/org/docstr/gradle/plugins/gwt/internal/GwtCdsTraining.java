@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The training run for an AppCDS archive of the GWT SDK. It validates the
+ * given modules with the GWT compiler, which loads the SDK classes the
+ * compiler needs from the classpath of the JVM. The project classes are
+ * loaded by a child class loader, so they aren't archived.
+ *
+ * <p>Arguments: a file listing the project classpath, one entry per line,
+ * followed by the modules.
+ *
+ * <p>This class must not depend on the Gradle API as it is started with the
+ * GWT SDK and the plugin jar on the classpath only.
+ */
+public final class GwtCdsTraining {
+
+  private GwtCdsTraining() {
+  }
+
+  public static void main(final String[] args) throws Exception {
+    final List<File> classpath = new ArrayList<>();
+    for (String line : Files.readAllLines(Paths.get(args[0]),
+        StandardCharsets.UTF_8)) {
+      if (!line.isEmpty()) {
+        classpath.add(new File(line));
+      }
+    }
+    final List<String> toolArgs = new ArrayList<>(
+        Arrays.asList("-validateOnly", "-logLevel", "WARN"));
+    toolArgs.addAll(Arrays.asList(args).subList(1, args.length));
+
+    // the output only matters if the training fails
+    final StringWriter log = new StringWriter();
+    boolean success;
+    try (URLClassLoader classLoader = GwtCompilerInvoker.createClassLoader(
+        classpath, GwtCdsTraining.class.getClassLoader())) {
+      success = GwtCompilerInvoker.run("com.google.gwt.dev.Compiler", toolArgs,
+          classLoader, new PrintWriter(log));
+    } catch (OutOfMemoryError e) {
+      success = false;
+    }
+    if (!success) {
+      System.err.println("GWT training compile failed, the archive may miss "
+          + "classes:\n" + log);
+    }
+    // the compiler may leave non-daemon threads behind
+    System.exit(0);
+  }
+}
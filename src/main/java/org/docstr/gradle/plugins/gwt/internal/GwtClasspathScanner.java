@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds the classpath entries that contribute to a GWT compile: those
+ * containing module descriptors or files below the source paths of the
+ * modules reachable from the compiled modules. All other entries, typically
+ * server libraries, are only scanned by the compiler's resource oracle.
+ */
+public final class GwtClasspathScanner {
+
+  private final GwtModuleGraph graph;
+  private final List<Pattern> keep = new ArrayList<>();
+
+  /**
+   * @param graph the module graph of the compiled modules
+   * @param keepPatterns file name patterns with * and ? wildcards of
+   *     entries that are always kept, e.g. libraries used by generators
+   */
+  public GwtClasspathScanner(final GwtModuleGraph graph,
+      final Iterable<String> keepPatterns) {
+    this.graph = graph;
+    for (String pattern : keepPatterns) {
+      keep.add(glob(pattern));
+    }
+  }
+
+  private static Pattern glob(final String pattern) {
+    final StringBuilder regex = new StringBuilder();
+    for (String part : pattern.split("(?=[*?])|(?<=[*?])")) {
+      if (part.equals("*")) {
+        regex.append(".*");
+      } else if (part.equals("?")) {
+        regex.append('.');
+      } else if (!part.isEmpty()) {
+        regex.append(Pattern.quote(part));
+      }
+    }
+    return Pattern.compile(regex.toString());
+  }
+
+  /**
+   * Scans the given classpath entries.
+   *
+   * @param classpath the classpath, in order
+   * @return one result per entry, in classpath order
+   * @throws IOException if an entry can't be read
+   */
+  public List<Entry> scan(final Iterable<File> classpath) throws IOException {
+    final List<Entry> entries = new ArrayList<>();
+    for (File file : classpath) {
+      entries.add(scanEntry(file));
+    }
+    return entries;
+  }
+
+  private Entry scanEntry(final File file) throws IOException {
+    for (Pattern pattern : keep) {
+      if (pattern.matcher(file.getName()).matches()) {
+        return new Entry(file, "kept by pattern", 0, 0);
+      }
+    }
+    final long start = System.nanoTime();
+    final List<String> names = names(file);
+    final long scanMillis = (System.nanoTime() - start) / 1_000_000;
+    String reason = null;
+    for (String name : names) {
+      if (name.endsWith(GwtModuleDescriptor.SUFFIX)) {
+        reason = "module descriptors";
+        break;
+      }
+      if (reason == null && isSource(name)) {
+        reason = "module sources";
+      }
+    }
+    return new Entry(file, reason, names.size(), scanMillis);
+  }
+
+  private boolean isSource(final String name) {
+    for (String path : graph.getSourcePaths()) {
+      if (name.startsWith(path)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param file a directory or jar
+   * @return the relative paths of all files of the directory or jar, none if
+   *     it is neither
+   * @throws IOException if the directory or jar can't be read
+   */
+  public static List<String> names(final File file) throws IOException {
+    final List<String> names = new ArrayList<>();
+    if (file.isDirectory()) {
+      final Path root = file.toPath();
+      try (Stream<Path> files = Files.walk(root)) {
+        files.filter(Files::isRegularFile).forEach(path -> names.add(
+            root.relativize(path).toString().replace(File.separatorChar, '/')));
+      }
+    } else if (file.isFile()
+        && file.getName().toLowerCase(Locale.ROOT).endsWith(".jar")) {
+      try (ZipFile jar = new ZipFile(file)) {
+        final Enumeration<? extends ZipEntry> jarEntries = jar.entries();
+        while (jarEntries.hasMoreElements()) {
+          final ZipEntry entry = jarEntries.nextElement();
+          if (!entry.isDirectory()) {
+            names.add(entry.getName());
+          }
+        }
+      }
+    }
+    return Collections.unmodifiableList(names);
+  }
+
+  /**
+   * The scan result of one classpath entry.
+   */
+  public static final class Entry {
+
+    private final File file;
+    private final String reason;
+    private final int files;
+    private final long scanMillis;
+
+    Entry(final File file, final String reason, final int files,
+        final long scanMillis) {
+      this.file = file;
+      this.reason = reason;
+      this.files = files;
+      this.scanMillis = scanMillis;
+    }
+
+    public File getFile() {
+      return file;
+    }
+
+    /**
+     * @return true if the compiler needs the entry
+     */
+    public boolean isKept() {
+      return reason != null;
+    }
+
+    /**
+     * @return why the entry is kept, or null if it is dropped
+     */
+    public String getReason() {
+      return reason;
+    }
+
+    /**
+     * @return the number of files in the entry
+     */
+    public int getFiles() {
+      return files;
+    }
+
+    /**
+     * @return how long listing the files of the entry took, which is about
+     *     what the compiler spends on scanning it
+     */
+    public long getScanMillis() {
+      return scanMillis;
+    }
+  }
+}
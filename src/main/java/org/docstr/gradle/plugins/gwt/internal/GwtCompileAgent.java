@@ -0,0 +1,275 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileAgentProtocol.FRAME_FILE;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileAgentProtocol.PRECOMPILATION_CACHED;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileAgentProtocol.PRECOMPILATION_FILE;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileAgentProtocol.PRECOMPILATION_MISSING;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.FRAME_RESULT;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A compile agent that compiles single GWT permutations for a
+ * {@link GwtPermutationDispatcher}, which may run on another machine. The
+ * agent caches the precompiled modules it receives by their hash, so every
+ * precompiled module is transferred to every agent only once.
+ *
+ * <p>Jobs run one after another as the GWT compiler relies on static
+ * state, a pool of agents is used to compile permutations in parallel.
+ *
+ * <p>This class must not depend on the Gradle API as it is started with the
+ * GWT SDK and the plugin jar on the classpath only.
+ */
+public final class GwtCompileAgent {
+
+  private static final String COMPILE_PERMS = "com.google.gwt.dev.CompilePerms";
+  private static final Pattern MODULE_NAME = Pattern.compile("[\\w.$-]+");
+  private static final Pattern HASH = Pattern.compile("[0-9a-f]{40}");
+  private static final int CACHED_PRECOMPILATIONS = 4;
+
+  private final byte[] token;
+  private final File workDir;
+  private final Object jobLock = new Object();
+  /** Number of running jobs per precompilation hash, guarded by itself. */
+  private final Map<String, Integer> pinned = new HashMap<>();
+
+  private GwtCompileAgent(final String token, final File workDir) {
+    this.token = token.getBytes(StandardCharsets.UTF_8);
+    this.workDir = workDir;
+  }
+
+  /**
+   * @param args {@code -token <token> -workDir <dir> [-port <port>]
+   *     [-bindAddress <address>] [-portFile <file>]}
+   * @throws IOException if the server socket can't be opened
+   */
+  public static void main(final String[] args) throws IOException {
+    String token = null;
+    File workDir = null;
+    int port = 0;
+    String bindAddress = null;
+    File portFile = null;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "-token":
+          token = args[i + 1];
+          break;
+        case "-workDir":
+          workDir = new File(args[i + 1]);
+          break;
+        case "-port":
+          port = Integer.parseInt(args[i + 1]);
+          break;
+        case "-bindAddress":
+          bindAddress = args[i + 1];
+          break;
+        case "-portFile":
+          portFile = new File(args[i + 1]);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown argument " + args[i]);
+      }
+    }
+    if (token == null || token.isEmpty() || workDir == null) {
+      throw new IllegalArgumentException("-token and -workDir are required");
+    }
+    new GwtCompileAgent(token, workDir).run(port,
+        bindAddress == null ? InetAddress.getLoopbackAddress()
+            : InetAddress.getByName(bindAddress), portFile);
+  }
+
+  private void run(final int port, final InetAddress bindAddress,
+      final File portFile) throws IOException {
+    workDir.mkdirs();
+    try (ServerSocket serverSocket = new ServerSocket(port, 50, bindAddress)) {
+      if (portFile != null) {
+        final File tmp = new File(portFile.getPath() + ".tmp");
+        Files.write(tmp.toPath(), String.valueOf(serverSocket.getLocalPort())
+            .getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), portFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      }
+      log("Listening on " + serverSocket.getLocalSocketAddress());
+      while (true) {
+        final Socket socket = serverSocket.accept();
+        final Thread handler = new Thread(() -> handle(socket),
+            "gwt-compile-agent-job");
+        handler.setDaemon(true);
+        handler.start();
+      }
+    }
+  }
+
+  private void handle(final Socket socket) {
+    try (Socket s = socket;
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(s.getInputStream()));
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(s.getOutputStream()))) {
+      if (!MessageDigest.isEqual(token,
+          in.readUTF().getBytes(StandardCharsets.UTF_8))) {
+        log("Rejected a job from " + s.getRemoteSocketAddress()
+            + " with an invalid token");
+        return;
+      }
+      final String module = in.readUTF();
+      final int perm = in.readInt();
+      final String hash = in.readUTF();
+      final List<String> args = GwtCompileServerProtocol.readStrings(in);
+      if (!MODULE_NAME.matcher(module).matches()
+          || !HASH.matcher(hash).matches() || perm < 0) {
+        log("Rejected an invalid job for module " + module);
+        return;
+      }
+      pin(hash);
+      try {
+        compile(in, out, module, perm, hash, args);
+      } finally {
+        unpin(hash);
+      }
+    } catch (IOException e) {
+      log("Job failed: " + e);
+    }
+  }
+
+  /**
+   * Compiles a permutation of a precompilation that is pinned, so it can't
+   * be removed from the cache in the meantime.
+   */
+  private void compile(final DataInputStream in, final DataOutputStream out,
+      final String module, final int perm, final String hash,
+      final List<String> args) throws IOException {
+    final File precompileRoot = new File(workDir, "cache/" + hash);
+    final File compilerDir = new File(precompileRoot, module + "/compiler");
+    final File precompilation = new File(compilerDir, PRECOMPILATION_FILE);
+    if (precompilation.isFile()) {
+      out.writeByte(PRECOMPILATION_CACHED);
+      out.flush();
+    } else {
+      out.writeByte(PRECOMPILATION_MISSING);
+      out.flush();
+      // the cache is keyed by the hash, so it must match the content
+      GwtCompileAgentProtocol.receiveFile(in, precompilation, hash);
+    }
+    precompileRoot.setLastModified(System.currentTimeMillis());
+
+    final File permFile = new File(compilerDir,
+        "permutation-" + perm + ".js");
+    final PrintWriter writer = new PrintWriter(
+        new GwtCompileServerProtocol.LogFrameWriter(out), true);
+    boolean success;
+    synchronized (jobLock) {
+      final long start = System.nanoTime();
+      final List<String> toolArgs = new ArrayList<>(args);
+      toolArgs.addAll(Arrays.asList("-workDir",
+          precompileRoot.getAbsolutePath(), "-perms", String.valueOf(perm),
+          module));
+      try (URLClassLoader classLoader = GwtCompilerInvoker.createClassLoader(
+          Collections.emptyList(), GwtCompileAgent.class.getClassLoader())) {
+        success = GwtCompilerInvoker
+            .run(COMPILE_PERMS, toolArgs, classLoader, writer);
+      } catch (Exception | OutOfMemoryError e) {
+        e.printStackTrace(writer);
+        success = false;
+      }
+      log(String.format("Compiled permutation %d of %s in %d ms", perm,
+          module, (System.nanoTime() - start) / 1_000_000));
+      removeOldPrecompilations();
+    }
+    writer.flush();
+    success = success && permFile.isFile();
+    out.writeByte(FRAME_RESULT);
+    out.writeUTF(String.valueOf(success));
+    if (success) {
+      out.writeByte(FRAME_FILE);
+      GwtCompileAgentProtocol.sendFile(out, permFile);
+      permFile.delete();
+    }
+    out.flush();
+  }
+
+  private void pin(final String hash) {
+    synchronized (pinned) {
+      pinned.merge(hash, 1, Integer::sum);
+    }
+  }
+
+  private void unpin(final String hash) {
+    synchronized (pinned) {
+      pinned.computeIfPresent(hash, (key, jobs) -> jobs > 1 ? jobs - 1 : null);
+    }
+  }
+
+  /**
+   * Removes the least recently used precompilations beyond the cache size,
+   * except the ones pinned by running jobs.
+   */
+  private void removeOldPrecompilations() {
+    final File[] cached = new File(workDir, "cache").listFiles(File::isDirectory);
+    if (cached == null || cached.length <= CACHED_PRECOMPILATIONS) {
+      return;
+    }
+    Arrays.sort(cached,
+        Comparator.comparingLong(File::lastModified).reversed());
+    synchronized (pinned) {
+      for (int i = CACHED_PRECOMPILATIONS; i < cached.length; i++) {
+        if (!pinned.containsKey(cached[i].getName())) {
+          delete(cached[i]);
+        }
+      }
+    }
+  }
+
+  private static void delete(final File file) {
+    final File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  private static void log(final String message) {
+    System.out.println(String.format("%tF %<tT GWT compile agent: %s",
+        System.currentTimeMillis(), message));
+  }
+}
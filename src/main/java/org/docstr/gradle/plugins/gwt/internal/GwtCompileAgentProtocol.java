@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The TCP protocol spoken between {@link GwtPermutationDispatcher} and
+ * {@link GwtCompileAgent}.
+ *
+ * <p>A connection carries one permutation job. The coordinator sends the
+ * shared token, the module name, the permutation number, the hash of the
+ * precompiled module and the arguments for GWT's CompilePerms. The agent
+ * answers {@link #PRECOMPILATION_MISSING} if it doesn't have the precompiled
+ * module cached yet, in which case the coordinator sends it. The agent then
+ * streams {@link GwtCompileServerProtocol#FRAME_LOG} frames, a
+ * {@link GwtCompileServerProtocol#FRAME_RESULT} frame and, on success, the
+ * compiled permutation in a {@link #FRAME_FILE} frame.
+ */
+final class GwtCompileAgentProtocol {
+
+  static final String PRECOMPILATION_FILE = "precompilation.ser";
+
+  static final byte PRECOMPILATION_MISSING = 'N';
+  static final byte PRECOMPILATION_CACHED = 'H';
+  static final byte FRAME_FILE = 'F';
+
+  private GwtCompileAgentProtocol() {
+  }
+
+  static void sendFile(final DataOutputStream out, final File file)
+      throws IOException {
+    out.writeLong(file.length());
+    try (InputStream in = new FileInputStream(file)) {
+      copy(in, out, file.length());
+    }
+    out.flush();
+  }
+
+  static void receiveFile(final DataInputStream in, final File file)
+      throws IOException {
+    receiveFile(in, file, null);
+  }
+
+  /**
+   * Receives a file sent by {@link #sendFile(DataOutputStream, File)}. The
+   * file only appears once it's complete, and if a hash is given only if
+   * the received content has that {@link #hash(File) hash}, so a truncated
+   * or corrupt transfer never ends up in a cache.
+   *
+   * @param in the stream to read from
+   * @param file the file to write
+   * @param expectedHash the hash the content must have, null to accept any
+   * @throws IOException if the file can't be received or has another hash
+   */
+  static void receiveFile(final DataInputStream in, final File file,
+      final String expectedHash) throws IOException {
+    final long length = in.readLong();
+    file.getParentFile().mkdirs();
+    final File tmp = new File(file.getPath() + "."
+        + Thread.currentThread().getId() + ".part");
+    try (OutputStream out = new FileOutputStream(tmp)) {
+      copy(in, out, length);
+    } catch (IOException e) {
+      tmp.delete();
+      throw e;
+    }
+    if (expectedHash != null) {
+      final String hash = hash(tmp);
+      if (!hash.equals(expectedHash)) {
+        tmp.delete();
+        throw new IOException("Received " + file.getName() + " with hash "
+            + hash + " instead of " + expectedHash);
+      }
+    }
+    if (!tmp.renameTo(file)) {
+      file.delete();
+      if (!tmp.renameTo(file)) {
+        throw new IOException("Can't move " + tmp + " to " + file);
+      }
+    }
+  }
+
+  static String hash(final File file) throws IOException {
+    try (InputStream in = new FileInputStream(file)) {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      final byte[] buffer = new byte[65536];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+      return toHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static String toHex(final byte[] bytes) {
+    final StringBuilder hex = new StringBuilder();
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  private static void copy(final InputStream in, final OutputStream out,
+      final long length) throws IOException {
+    final byte[] buffer = new byte[65536];
+    long remaining = length;
+    while (remaining > 0) {
+      final int read = in.read(buffer, 0,
+          (int) Math.min(buffer.length, remaining));
+      if (read == -1) {
+        throw new IOException("Unexpected end of stream");
+      }
+      out.write(buffer, 0, read);
+      remaining -= read;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+/**
+ * Picks the heap size and the number of local workers of a GWT compile.
+ * Permutations compiled in parallel by local workers share the heap of the
+ * compiler JVM, so every worker adds to the heap needed by the precompile.
+ */
+public final class GwtCompilePlanner {
+
+  /** Heap needed by the precompile and the compiler itself. */
+  static final long BASE_HEAP = 512L * 1024 * 1024;
+  /** Heap needed by each permutation compiled in parallel. */
+  static final long WORKER_HEAP = 256L * 1024 * 1024;
+  static final long MIN_HEAP = 256L * 1024 * 1024;
+  private static final long ROUNDING = 64L * 1024 * 1024;
+
+  private GwtCompilePlanner() {
+  }
+
+  /**
+   * Plans a compile.
+   *
+   * @param permutations the estimated number of permutations
+   * @param processors the available processors
+   * @param availableMemory the available memory in bytes, or -1 if unknown
+   * @param pastPeak the peak heap usage of the last compile of the same
+   *     modules in bytes, or -1 if unknown
+   * @return the plan
+   */
+  public static Plan plan(final long permutations, final int processors,
+      final long availableMemory, final long pastPeak) {
+    int localWorkers = (int) Math.max(1,
+        Math.min(permutations, Math.max(1, processors)));
+    if (availableMemory > 0) {
+      final long workersInMemory =
+          (availableMemory * 4 / 5 - BASE_HEAP) / WORKER_HEAP;
+      localWorkers = (int) Math.max(1, Math.min(localWorkers, workersInMemory));
+    }
+
+    long heap = pastPeak > 0
+        ? recommendedHeap(pastPeak)
+        : BASE_HEAP + localWorkers * WORKER_HEAP;
+    heap = (heap + ROUNDING - 1) / ROUNDING * ROUNDING;
+    if (availableMemory > 0) {
+      // rounded down, so the heap stays within the available memory
+      heap = Math.min(heap, availableMemory * 4 / 5 / ROUNDING * ROUNDING);
+    }
+    heap = Math.max(MIN_HEAP, heap);
+    return new Plan(permutations, localWorkers, heap, pastPeak);
+  }
+
+  /**
+   * @param peak the peak heap usage of a compile in bytes, or -1 if unknown
+   * @return the maximum heap size recommended for the compile, leaving 25%
+   *     headroom above the peak
+   */
+  public static long recommendedHeap(final long peak) {
+    if (peak <= 0) {
+      return BASE_HEAP + WORKER_HEAP;
+    }
+    return Math.max(MIN_HEAP,
+        (peak * 5 / 4 + ROUNDING - 1) / ROUNDING * ROUNDING);
+  }
+
+  /**
+   * The heap size and local workers picked for a compile.
+   */
+  public static final class Plan {
+
+    private final long permutations;
+    private final int localWorkers;
+    private final long maxHeapSize;
+    private final long pastPeak;
+
+    Plan(final long permutations, final int localWorkers,
+        final long maxHeapSize, final long pastPeak) {
+      this.permutations = permutations;
+      this.localWorkers = localWorkers;
+      this.maxHeapSize = maxHeapSize;
+      this.pastPeak = pastPeak;
+    }
+
+    public long getPermutations() {
+      return permutations;
+    }
+
+    public int getLocalWorkers() {
+      return localWorkers;
+    }
+
+    public long getMaxHeapSize() {
+      return maxHeapSize;
+    }
+
+    @Override
+    public String toString() {
+      return "~" + permutations + " permutations, " + localWorkers
+          + " local workers, -Xmx" + MemorySizes.format(maxHeapSize)
+          + (pastPeak > 0
+              ? " (last peak heap " + MemorySizes.format(pastPeak) + ")"
+              : " (no heap usage recorded yet)");
+    }
+  }
+}
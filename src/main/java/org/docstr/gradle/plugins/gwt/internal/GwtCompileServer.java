@@ -0,0 +1,289 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.COMMAND_COMPILE;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.COMMAND_SHUTDOWN;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.COMMAND_STATUS;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.FRAME_RESULT;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.FRAME_STATUS;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.KEY_PID;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.KEY_PORT;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.KEY_TOKEN;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.SERVER_FILE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A long lived JVM that keeps gwt-dev loaded and JIT compiled between
+ * builds, similar to the Kotlin compile daemon. It accepts compile requests
+ * from {@link GwtCompileServerClient} on a loopback socket and runs them one
+ * after another as the GWT compiler relies on static state.
+ *
+ * <p>The server exits when it was idle for the configured time, when the
+ * used heap after a compile exceeds the configured share of the maximum heap
+ * or when it is asked to shut down.
+ *
+ * <p>This class must not depend on the Gradle API as it is started with the
+ * GWT SDK and the plugin jar on the classpath only.
+ */
+public final class GwtCompileServer {
+
+  private final File stateDir;
+  private final long idleTimeoutMillis;
+  private final int memoryCeilingPercent;
+  private final String token = UUID.randomUUID().toString();
+  private final Object compileLock = new Object();
+  private final AtomicInteger activeRequests = new AtomicInteger();
+  private final long startTime = System.currentTimeMillis();
+
+  private ServerSocket serverSocket;
+  private volatile boolean running = true;
+  private volatile long lastActivity = System.currentTimeMillis();
+  private int compiles;
+
+  private GwtCompileServer(final File stateDir, final long idleTimeoutMillis,
+      final int memoryCeilingPercent) {
+    this.stateDir = stateDir;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.memoryCeilingPercent = memoryCeilingPercent;
+  }
+
+  /**
+   * @param args {@code -stateDir <dir> -idleTimeout <minutes>
+   *     -memoryCeiling <percent>}
+   * @throws IOException if the server socket can't be opened
+   */
+  public static void main(final String[] args) throws IOException {
+    File stateDir = null;
+    long idleTimeoutMinutes = 180;
+    int memoryCeilingPercent = 80;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "-stateDir":
+          stateDir = new File(args[i + 1]);
+          break;
+        case "-idleTimeout":
+          idleTimeoutMinutes = Long.parseLong(args[i + 1]);
+          break;
+        case "-memoryCeiling":
+          memoryCeilingPercent = Integer.parseInt(args[i + 1]);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown argument " + args[i]);
+      }
+    }
+    if (stateDir == null) {
+      throw new IllegalArgumentException("-stateDir is required");
+    }
+    new GwtCompileServer(stateDir,
+        TimeUnit.MINUTES.toMillis(idleTimeoutMinutes), memoryCeilingPercent)
+        .run();
+  }
+
+  private void run() throws IOException {
+    stateDir.mkdirs();
+    serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+
+    final Properties properties = new Properties();
+    properties.setProperty(KEY_PORT,
+        String.valueOf(serverSocket.getLocalPort()));
+    properties.setProperty(KEY_TOKEN, token);
+    properties.setProperty(KEY_PID, pid());
+    GwtCompileServerProtocol.writeServerFile(stateDir, properties);
+    log("Listening on port " + serverSocket.getLocalPort());
+
+    final Thread idleWatcher = new Thread(this::watchIdleTime,
+        "gwt-compile-server-idle-watcher");
+    idleWatcher.setDaemon(true);
+    idleWatcher.start();
+
+    while (running) {
+      final Socket socket;
+      try {
+        socket = serverSocket.accept();
+      } catch (IOException e) {
+        if (running) {
+          log("Accepting a connection failed: " + e);
+        }
+        continue;
+      }
+      final Thread handler = new Thread(() -> handle(socket),
+          "gwt-compile-server-request");
+      handler.setDaemon(true);
+      handler.start();
+    }
+    log("Stopped");
+  }
+
+  private void handle(final Socket socket) {
+    activeRequests.incrementAndGet();
+    lastActivity = System.currentTimeMillis();
+    try (Socket s = socket;
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(s.getInputStream()));
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(s.getOutputStream()))) {
+      if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+          in.readUTF().getBytes(StandardCharsets.UTF_8))) {
+        log("Rejected a request with an invalid token");
+        return;
+      }
+      final String command = in.readUTF();
+      switch (command) {
+        case COMMAND_COMPILE:
+          compile(in, out);
+          break;
+        case COMMAND_STATUS:
+          writeFrame(out, FRAME_STATUS, status());
+          break;
+        case COMMAND_SHUTDOWN:
+          writeFrame(out, FRAME_STATUS, "Shutting down");
+          shutdown("requested by client");
+          break;
+        default:
+          log("Unknown command " + command);
+      }
+    } catch (IOException e) {
+      log("Request failed: " + e);
+    } finally {
+      lastActivity = System.currentTimeMillis();
+      activeRequests.decrementAndGet();
+    }
+  }
+
+  private void compile(final DataInputStream in, final DataOutputStream out)
+      throws IOException {
+    final String mainClass = in.readUTF();
+    final List<String> classpath = GwtCompileServerProtocol.readStrings(in);
+    final List<String> args = GwtCompileServerProtocol.readStrings(in);
+
+    final PrintWriter writer = new PrintWriter(
+        new GwtCompileServerProtocol.LogFrameWriter(out), true);
+    boolean success;
+    boolean exceedsCeiling;
+    synchronized (compileLock) {
+      final int compile = ++compiles;
+      final long start = System.nanoTime();
+      try (URLClassLoader classLoader = GwtCompilerInvoker.createClassLoader(
+          classpath.stream().map(File::new)::iterator,
+          GwtCompileServer.class.getClassLoader())) {
+        success = GwtCompilerInvoker.run(mainClass, args, classLoader, writer);
+      } catch (Exception | OutOfMemoryError e) {
+        e.printStackTrace(writer);
+        success = false;
+      }
+      final long millis = (System.nanoTime() - start) / 1_000_000;
+      writer.println(String.format(
+          "[INFO] %s finished in %d ms (%s run #%d in GWT compile server %s)",
+          mainClass, millis, compile == 1 ? "cold" : "warm", compile, pid()));
+
+      System.gc();
+      final Runtime runtime = Runtime.getRuntime();
+      final long used = runtime.totalMemory() - runtime.freeMemory();
+      exceedsCeiling = used * 100 / runtime.maxMemory() > memoryCeilingPercent;
+      if (exceedsCeiling) {
+        writer.println(String.format("[INFO] GWT compile server uses %d MB "
+                + "after the compile which exceeds its memory ceiling of "
+                + "%d%%, shutting down", used >> 20, memoryCeilingPercent));
+      }
+    }
+    writer.flush();
+    writeFrame(out, FRAME_RESULT, String.valueOf(success));
+    if (exceedsCeiling) {
+      shutdown("memory ceiling exceeded");
+    }
+  }
+
+  private String status() {
+    final Runtime runtime = Runtime.getRuntime();
+    return String.format("pid=%s, uptime=%ds, compiles=%d, activeRequests=%d, "
+            + "usedHeap=%dM, maxHeap=%dM, idleTimeout=%dmin, memoryCeiling=%d%%",
+        pid(), (System.currentTimeMillis() - startTime) / 1000, compiles,
+        activeRequests.get() - 1,
+        (runtime.totalMemory() - runtime.freeMemory()) >> 20,
+        runtime.maxMemory() >> 20,
+        TimeUnit.MILLISECONDS.toMinutes(idleTimeoutMillis),
+        memoryCeilingPercent);
+  }
+
+  private void watchIdleTime() {
+    while (running) {
+      try {
+        Thread.sleep(Math.min(idleTimeoutMillis, 10_000));
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (activeRequests.get() == 0
+          && System.currentTimeMillis() - lastActivity > idleTimeoutMillis) {
+        shutdown("idle timeout");
+      }
+    }
+  }
+
+  private synchronized void shutdown(final String reason) {
+    if (!running) {
+      return;
+    }
+    running = false;
+    log("Shutting down: " + reason);
+    new File(stateDir, SERVER_FILE).delete();
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      log("Closing the server socket failed: " + e);
+    }
+  }
+
+  private static void writeFrame(final DataOutputStream out, final byte type,
+      final String payload) throws IOException {
+    synchronized (out) {
+      out.writeByte(type);
+      out.writeUTF(payload);
+      out.flush();
+    }
+  }
+
+  private static void log(final String message) {
+    System.out.println(
+        String.format("%tF %<tT GWT compile server: %s", System.currentTimeMillis(),
+            message));
+  }
+
+  private static String pid() {
+    final String name = ManagementFactory.getRuntimeMXBean().getName();
+    final int at = name.indexOf('@');
+    return at > 0 ? name.substring(0, at) : name;
+  }
+}
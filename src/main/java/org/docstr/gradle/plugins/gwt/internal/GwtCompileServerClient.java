@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.COMMAND_COMPILE;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.COMMAND_SHUTDOWN;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.COMMAND_STATUS;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.FRAME_LOG;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.FRAME_RESULT;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.FRAME_STATUS;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.KEY_PORT;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.KEY_TOKEN;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.LOG_FILE;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.START_LOCK_FILE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * Client side of the {@link GwtCompileServer}. Every distinct combination of
+ * GWT SDK classpath and JVM settings gets its own server and state directory
+ * below a common base directory.
+ */
+public final class GwtCompileServerClient {
+
+  private static final long START_TIMEOUT_MILLIS = 60_000;
+
+  private final File stateDir;
+
+  public GwtCompileServerClient(final File stateDir) {
+    this.stateDir = stateDir;
+  }
+
+  /**
+   * @param baseDir the directory that holds the state of all servers
+   * @param sdkClasspath the classpath of the server JVM
+   * @param jvmArgs the arguments of the server JVM
+   * @return the state directory of the server for the given settings
+   */
+  public static File stateDir(final File baseDir,
+      final Iterable<File> sdkClasspath, final List<String> jvmArgs) {
+    final StringBuilder key = new StringBuilder();
+    sdkClasspath.forEach(file -> key.append(file.getAbsolutePath()).append('\n'));
+    jvmArgs.forEach(arg -> key.append(arg).append('\n'));
+    return new File(baseDir, sha1(key.toString()).substring(0, 16));
+  }
+
+  /**
+   * @param baseDir the directory that holds the state of all servers
+   * @return clients for all servers that have a state directory
+   */
+  public static List<GwtCompileServerClient> all(final File baseDir) {
+    final List<GwtCompileServerClient> clients = new ArrayList<>();
+    final File[] stateDirs = baseDir.listFiles(File::isDirectory);
+    if (stateDirs != null) {
+      for (File stateDir : stateDirs) {
+        clients.add(new GwtCompileServerClient(stateDir));
+      }
+    }
+    return clients;
+  }
+
+  public File getStateDir() {
+    return stateDir;
+  }
+
+  /**
+   * Starts the server using the given command unless it is already running.
+   * A file lock ensures that concurrent builds start only one server.
+   *
+   * @param command the command line that starts {@link GwtCompileServer}
+   * @throws IOException if the server couldn't be started
+   */
+  public void ensureRunning(final List<String> command) throws IOException {
+    stateDir.mkdirs();
+    try (RandomAccessFile lockFile = new RandomAccessFile(
+        new File(stateDir, START_LOCK_FILE), "rw");
+        FileChannel channel = lockFile.getChannel();
+        FileLock lock = channel.lock()) {
+      if (status() != null) {
+        return;
+      }
+      new File(stateDir, GwtCompileServerProtocol.SERVER_FILE).delete();
+      new ProcessBuilder(command)
+          .redirectErrorStream(true)
+          .redirectOutput(
+              ProcessBuilder.Redirect.appendTo(new File(stateDir, LOG_FILE)))
+          .start();
+
+      final long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+      while (System.currentTimeMillis() < deadline) {
+        if (status() != null) {
+          return;
+        }
+        try {
+          Thread.sleep(200);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while starting the server", e);
+        }
+      }
+      throw new IOException("GWT compile server didn't start within "
+          + START_TIMEOUT_MILLIS + " ms, see " + new File(stateDir, LOG_FILE));
+    }
+  }
+
+  /**
+   * Runs a GWT tool in the server.
+   *
+   * @param mainClass the fully qualified name of the GWT tool
+   * @param classpath the sources and classes of the project
+   * @param args the arguments of the tool
+   * @param log receives the log output of the tool line by line
+   * @return true if the tool finished successfully, false otherwise
+   * @throws IOException if the server can't be reached
+   */
+  public boolean compile(final String mainClass, final List<String> classpath,
+      final List<String> args, final Consumer<String> log) throws IOException {
+    try (Connection connection = connect(COMMAND_COMPILE)) {
+      if (connection == null) {
+        throw new IOException("GWT compile server in " + stateDir
+            + " is not running");
+      }
+      connection.out.writeUTF(mainClass);
+      GwtCompileServerProtocol.writeStrings(connection.out, classpath);
+      GwtCompileServerProtocol.writeStrings(connection.out, args);
+      connection.out.flush();
+      while (true) {
+        final byte frame = connection.in.readByte();
+        final String payload = connection.in.readUTF();
+        if (frame == FRAME_LOG) {
+          log.accept(payload);
+        } else if (frame == FRAME_RESULT) {
+          return Boolean.parseBoolean(payload);
+        } else {
+          throw new IOException("Unexpected frame " + frame);
+        }
+      }
+    }
+  }
+
+  /**
+   * Performs a health check.
+   *
+   * @return a status description of the server, null if it is not running
+   */
+  public String status() {
+    return request(COMMAND_STATUS);
+  }
+
+  /**
+   * @return true if a running server was asked to shut down
+   */
+  public boolean shutdown() {
+    return request(COMMAND_SHUTDOWN) != null;
+  }
+
+  private String request(final String command) {
+    try (Connection connection = connect(command)) {
+      if (connection == null) {
+        return null;
+      }
+      final byte frame = connection.in.readByte();
+      final String payload = connection.in.readUTF();
+      return frame == FRAME_STATUS ? payload : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private Connection connect(final String command) throws IOException {
+    final Properties properties =
+        GwtCompileServerProtocol.readServerFile(stateDir);
+    if (properties == null) {
+      return null;
+    }
+    final Socket socket;
+    try {
+      socket = new Socket(InetAddress.getLoopbackAddress(),
+          Integer.parseInt(properties.getProperty(KEY_PORT)));
+    } catch (IOException | NumberFormatException e) {
+      // Stale server file of a server that died
+      return null;
+    }
+    final Connection connection = new Connection(socket);
+    connection.out.writeUTF(properties.getProperty(KEY_TOKEN, ""));
+    connection.out.writeUTF(command);
+    connection.out.flush();
+    return connection;
+  }
+
+  private static String sha1(final String value) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-1")
+          .digest(value.getBytes(StandardCharsets.UTF_8));
+      final StringBuilder hex = new StringBuilder();
+      for (byte b : digest) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Connection implements AutoCloseable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    private Connection(final Socket socket) throws IOException {
+      this.socket = socket;
+      this.in = new DataInputStream(
+          new BufferedInputStream(socket.getInputStream()));
+      this.out = new DataOutputStream(
+          new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    @Override
+    public void close() throws IOException {
+      socket.close();
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The local socket protocol spoken between the GWT compile tasks and the
+ * {@link GwtCompileServer}.
+ *
+ * <p>Every connection carries exactly one request. A request starts with the
+ * secret token of the server followed by a command. A compile request then
+ * sends the main class, the project classpath and the arguments. The server
+ * answers with a sequence of frames, each starting with a frame type byte:
+ * {@link #FRAME_LOG} frames carry one line of compiler output and a final
+ * {@link #FRAME_RESULT} or {@link #FRAME_STATUS} frame ends the response.
+ *
+ * <p>The port and token of a running server are published in
+ * {@link #SERVER_FILE} inside the server's state directory, which is only
+ * readable by the user who started the server.
+ */
+final class GwtCompileServerProtocol {
+
+  static final String SERVER_FILE = "server.properties";
+  static final String START_LOCK_FILE = "start.lock";
+  static final String LOG_FILE = "server.log";
+
+  static final String KEY_PORT = "port";
+  static final String KEY_TOKEN = "token";
+  static final String KEY_PID = "pid";
+
+  static final String COMMAND_COMPILE = "compile";
+  static final String COMMAND_STATUS = "status";
+  static final String COMMAND_SHUTDOWN = "shutdown";
+
+  static final byte FRAME_LOG = 'L';
+  static final byte FRAME_RESULT = 'R';
+  static final byte FRAME_STATUS = 'S';
+
+  private GwtCompileServerProtocol() {
+  }
+
+  static void writeStrings(final DataOutputStream out,
+      final List<String> strings) throws IOException {
+    out.writeInt(strings.size());
+    for (String string : strings) {
+      out.writeUTF(string);
+    }
+  }
+
+  static List<String> readStrings(final DataInputStream in)
+      throws IOException {
+    final int size = in.readInt();
+    final List<String> strings = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      strings.add(in.readUTF());
+    }
+    return strings;
+  }
+
+  static Properties readServerFile(final File stateDir) throws IOException {
+    final File serverFile = new File(stateDir, SERVER_FILE);
+    if (!serverFile.isFile()) {
+      return null;
+    }
+    final Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(serverFile)) {
+      properties.load(in);
+    }
+    return properties;
+  }
+
+  static void writeServerFile(final File stateDir, final Properties properties)
+      throws IOException {
+    final File tmp = new File(stateDir, SERVER_FILE + ".tmp");
+    try (OutputStream out = new FileOutputStream(tmp)) {
+      properties.store(out, "GWT compile server");
+    }
+    tmp.setReadable(false, false);
+    tmp.setReadable(true, true);
+    Files.move(tmp.toPath(), new File(stateDir, SERVER_FILE).toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Writer that sends every completed line as a {@link #FRAME_LOG} frame.
+   */
+  static final class LogFrameWriter extends Writer {
+
+    private final DataOutputStream out;
+    private final StringBuilder line = new StringBuilder();
+
+    LogFrameWriter(final DataOutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public synchronized void write(final char[] chars, final int offset,
+        final int length) throws IOException {
+      for (int i = offset; i < offset + length; i++) {
+        final char c = chars[i];
+        if (c == '\n') {
+          sendLine();
+        } else if (c != '\r') {
+          line.append(c);
+        }
+      }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+      if (line.length() > 0) {
+        sendLine();
+      }
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+
+    private void sendLine() throws IOException {
+      synchronized (out) {
+        out.writeByte(FRAME_LOG);
+        // writeUTF is limited to 64k, huge lines are not useful in logs anyway
+        out.writeUTF(line.length() > 16384 ? line.substring(0, 16384)
+            : line.toString());
+      }
+      line.setLength(0);
+    }
+  }
+}
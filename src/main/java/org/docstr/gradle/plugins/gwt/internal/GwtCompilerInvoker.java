@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs GWT tools inside the current JVM. The {@code main} methods of the GWT
+ * tools call {@link System#exit(int)}, so the tools are driven through their
+ * argument processors and entry points by reflection instead. This allows a
+ * JVM with a loaded gwt-dev to be reused for several compiles.
+ */
+public final class GwtCompilerInvoker {
+
+  private static final String TREE_LOGGER = "com.google.gwt.core.ext.TreeLogger";
+  private static final String TREE_LOGGER_TYPE =
+      "com.google.gwt.core.ext.TreeLogger$Type";
+  private static final String PRINT_WRITER_TREE_LOGGER =
+      "com.google.gwt.dev.util.log.PrintWriterTreeLogger";
+
+  private static final Map<String, EntryPoint> ENTRY_POINTS;
+
+  static {
+    Map<String, EntryPoint> entryPoints = new HashMap<>();
+    entryPoints.put("com.google.gwt.dev.Compiler",
+        new EntryPoint("com.google.gwt.dev.CompilerOptions",
+            "com.google.gwt.dev.CompilerOptionsImpl", true));
+    entryPoints.put("com.google.gwt.dev.Precompile",
+        new EntryPoint("com.google.gwt.dev.Precompile$PrecompileOptions",
+            "com.google.gwt.dev.Precompile$PrecompileOptionsImpl", false));
+    entryPoints.put("com.google.gwt.dev.CompilePerms",
+        new EntryPoint("com.google.gwt.dev.CompilePerms$CompilePermsOptions",
+            "com.google.gwt.dev.CompilePerms$CompilePermsOptionsImpl", false));
+    entryPoints.put("com.google.gwt.dev.Link",
+        new EntryPoint("com.google.gwt.dev.Link$LinkOptions",
+            "com.google.gwt.dev.Link$LinkOptionsImpl", false));
+    ENTRY_POINTS = Collections.unmodifiableMap(entryPoints);
+  }
+
+  private GwtCompilerInvoker() {
+  }
+
+  /**
+   * @param mainClass the fully qualified name of the GWT tool
+   * @return true if the tool can be run in-process by this class
+   */
+  public static boolean isSupported(final String mainClass) {
+    return ENTRY_POINTS.containsKey(mainClass);
+  }
+
+  /**
+   * Runs the given GWT tool with the given arguments.
+   *
+   * @param mainClass the fully qualified name of the GWT tool
+   * @param args the command line arguments for the tool
+   * @param classLoader the class loader that sees gwt-dev as well as the
+   *     sources and classes of the project
+   * @param out the writer that receives the log output of the tool
+   * @return true if the tool finished successfully, false otherwise
+   * @throws Exception if the tool could not be started at all
+   * @throws OutOfMemoryError if the tool ran out of memory and didn't catch
+   *     it itself
+   */
+  public static boolean run(final String mainClass, final List<String> args,
+      final ClassLoader classLoader, final PrintWriter out) throws Exception {
+    final EntryPoint entryPoint = ENTRY_POINTS.get(mainClass);
+    if (entryPoint == null) {
+      throw new IllegalArgumentException(
+          "Can't run " + mainClass + " in-process");
+    }
+
+    final Thread thread = Thread.currentThread();
+    final ClassLoader contextClassLoader = thread.getContextClassLoader();
+    thread.setContextClassLoader(classLoader);
+    try {
+      final Class<?> toolClass = load(classLoader, mainClass);
+      final Class<?> optionsInterface =
+          load(classLoader, entryPoint.optionsInterface);
+      final Object options =
+          accessible(load(classLoader, entryPoint.optionsImpl)
+              .getDeclaredConstructor()).newInstance();
+
+      final Class<?> argProcessorClass =
+          load(classLoader, mainClass + "$ArgProcessor");
+      final Object argProcessor =
+          accessible(argProcessorClass.getDeclaredConstructor(optionsInterface))
+              .newInstance(options);
+      final Method processArgs = accessible(
+          argProcessorClass.getMethod("processArgs", String[].class));
+      if (!(Boolean) processArgs
+          .invoke(argProcessor, (Object) args.toArray(new String[0]))) {
+        return false;
+      }
+
+      final Class<?> treeLoggerClass = load(classLoader, TREE_LOGGER);
+      final Object logger = createLogger(classLoader, options, out);
+      try {
+        if (entryPoint.staticCompile) {
+          return (Boolean) accessible(toolClass.getMethod("compile",
+              treeLoggerClass, optionsInterface)).invoke(null, logger, options);
+        }
+        final Object tool =
+            accessible(toolClass.getDeclaredConstructor(optionsInterface))
+                .newInstance(options);
+        return (Boolean) accessible(toolClass.getMethod("run", treeLoggerClass))
+            .invoke(tool, logger);
+      } catch (InvocationTargetException e) {
+        out.println("[ERROR] " + e.getCause());
+        if (e.getCause() instanceof OutOfMemoryError) {
+          throw (OutOfMemoryError) e.getCause();
+        }
+        // UnableToCompleteException and friends have already been logged
+        return false;
+      } finally {
+        out.flush();
+      }
+    } finally {
+      thread.setContextClassLoader(contextClassLoader);
+    }
+  }
+
+  /**
+   * Creates the class loader for a single invocation. It adds the sources and
+   * classes of the project to the given parent, which is expected to see
+   * gwt-dev and stays loaded (and JIT compiled) between invocations.
+   *
+   * @param classpath the project classpath
+   * @param parent the class loader that sees the GWT SDK
+   * @return the newly created class loader, to be closed after use
+   */
+  public static URLClassLoader createClassLoader(final Iterable<File> classpath,
+      final ClassLoader parent) {
+    final List<URL> urls = new ArrayList<>();
+    for (File file : classpath) {
+      try {
+        urls.add(file.toURI().toURL());
+      } catch (MalformedURLException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+    return new URLClassLoader(urls.toArray(new URL[0]), parent);
+  }
+
+  private static Object createLogger(final ClassLoader classLoader,
+      final Object options, final PrintWriter out) throws Exception {
+    final Class<?> loggerClass = load(classLoader, PRINT_WRITER_TREE_LOGGER);
+    final Object logger =
+        loggerClass.getConstructor(PrintWriter.class).newInstance(out);
+    final Object logLevel = accessible(options.getClass().getMethod("getLogLevel"))
+        .invoke(options);
+    if (logLevel != null) {
+      loggerClass.getMethod("setMaxDetail",
+          load(classLoader, TREE_LOGGER_TYPE)).invoke(logger, logLevel);
+    }
+    return logger;
+  }
+
+  private static Class<?> load(final ClassLoader classLoader,
+      final String name) throws ClassNotFoundException {
+    return Class.forName(name, true, classLoader);
+  }
+
+  private static <T extends AccessibleObject> T accessible(
+      final T member) {
+    member.setAccessible(true);
+    return member;
+  }
+
+  private static final class EntryPoint {
+
+    private final String optionsInterface;
+    private final String optionsImpl;
+    private final boolean staticCompile;
+
+    private EntryPoint(final String optionsInterface, final String optionsImpl,
+        final boolean staticCompile) {
+      this.optionsInterface = optionsInterface;
+      this.optionsImpl = optionsImpl;
+      this.staticCompile = staticCompile;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URLClassLoader;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.workers.WorkAction;
+
+/**
+ * Runs a GWT tool inside a Gradle worker daemon. The daemon's classpath only
+ * contains the GWT SDK, so the daemon (together with its loaded and JIT
+ * compiled gwt-dev classes) is reused by every compile with the same SDK
+ * and JVM settings. The project specific classpath is provided by a short
+ * lived class loader per invocation.
+ */
+public abstract class GwtCompilerWorkAction
+    implements WorkAction<GwtCompilerWorkParameters> {
+
+  private static final Logger logger =
+      Logging.getLogger(GwtCompilerWorkAction.class);
+
+  /** Number of invocations in this worker daemon, survives between builds. */
+  private static final AtomicInteger invocations = new AtomicInteger();
+
+  @Override
+  public void execute() {
+    final GwtCompilerWorkParameters parameters = getParameters();
+    final String mainClass = parameters.getMainClass().get();
+    final int invocation = invocations.incrementAndGet();
+    final long start = System.nanoTime();
+    final GwtHeapTelemetry telemetry = GwtHeapTelemetry.start();
+
+    final boolean success;
+    try (URLClassLoader classLoader = GwtCompilerInvoker.createClassLoader(
+        parameters.getClasspath(), getClass().getClassLoader())) {
+      final PrintWriter out = new PrintWriter(System.out, true);
+      success = GwtCompilerInvoker
+          .run(mainClass, parameters.getArgs().get(), classLoader, out);
+    } catch (OutOfMemoryError e) {
+      telemetry.outOfMemory();
+      throw e;
+    } catch (Exception e) {
+      throw new GradleException("Failed to run " + mainClass
+          + " in GWT worker daemon", e);
+    } finally {
+      writeTelemetry(telemetry);
+    }
+
+    final long millis = (System.nanoTime() - start) / 1_000_000;
+    logger.lifecycle("{} finished in {} ms ({} run #{} in this worker daemon)",
+        mainClass, millis, invocation == 1 ? "cold" : "warm", invocation);
+
+    if (!success) {
+      throw new GradleException(mainClass + " failed, see log output");
+    }
+    if (parameters.getStagingDir().isPresent()) {
+      syncOutput(parameters.getStagingDir().get().getAsFile(),
+          parameters.getOutputDir().get().getAsFile(),
+          parameters.getSyncManifest().get().getAsFile());
+    }
+  }
+
+  private void syncOutput(final File stagingDir, final File outputDir,
+      final File manifest) {
+    try {
+      logger.info("Synced the GWT output into {}: {}", outputDir,
+          GwtOutputSync.sync(stagingDir, outputDir, manifest));
+    } catch (IOException e) {
+      throw new GradleException("Can't sync the GWT output into "
+          + outputDir, e);
+    }
+  }
+
+  private void writeTelemetry(final GwtHeapTelemetry telemetry) {
+    if (getParameters().getTelemetryFile().isPresent()) {
+      try {
+        telemetry.finish()
+            .writeTo(getParameters().getTelemetryFile().get().getAsFile());
+      } catch (IOException e) {
+        logger.warn("Can't write heap telemetry", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkParameters;
+
+/**
+ * Parameters of a GWT tool invocation that is executed in a worker daemon.
+ */
+public interface GwtCompilerWorkParameters extends WorkParameters {
+
+  /**
+   * @return the fully qualified name of the GWT tool to run
+   */
+  Property<String> getMainClass();
+
+  /**
+   * @return the sources and classes of the project that are visible to the
+   *     GWT tool in addition to the classpath of the worker daemon
+   */
+  ConfigurableFileCollection getClasspath();
+
+  /**
+   * @return the command line arguments for the GWT tool
+   */
+  ListProperty<String> getArgs();
+
+  /**
+   * @return the file receiving the {@link GwtHeapTelemetry heap telemetry}
+   *     of the invocation, optional
+   */
+  RegularFileProperty getTelemetryFile();
+
+  /**
+   * @return the directory the GWT tool writes its output to, which is
+   *     synced into {@link #getOutputDir()} after a successful run, optional
+   */
+  DirectoryProperty getStagingDir();
+
+  /**
+   * @return the output directory the {@link #getStagingDir() staged output}
+   *     is synced into
+   */
+  DirectoryProperty getOutputDir();
+
+  /**
+   * @return the file listing the files synced into {@link #getOutputDir()},
+   *     see {@link GwtOutputSync}
+   */
+  RegularFileProperty getSyncManifest();
+}
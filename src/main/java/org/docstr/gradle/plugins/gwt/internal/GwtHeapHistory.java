@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Keeps the peak heap usage of earlier GWT compiles in a properties file,
+ * keyed by the compiled modules.
+ */
+public final class GwtHeapHistory {
+
+  private final File file;
+
+  public GwtHeapHistory(final File file) {
+    this.file = file;
+  }
+
+  /**
+   * @param key the compiled modules
+   * @return the last recorded peak heap usage in bytes or -1 if unknown
+   */
+  public synchronized long peak(final String key) {
+    final String value = load().getProperty(key);
+    try {
+      return value == null ? -1 : Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Records the peak heap usage of a compile, replacing the earlier one.
+   *
+   * @param key the compiled modules
+   * @param peak the peak heap usage in bytes
+   * @throws IOException if the history can't be written
+   */
+  public synchronized void record(final String key, final long peak)
+      throws IOException {
+    final Properties properties = load();
+    properties.setProperty(key, Long.toString(peak));
+    Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+    final File temp = new File(file.getPath() + ".tmp");
+    try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+      properties.store(out, "Peak heap usage of GWT compiles in bytes");
+    }
+    Files.move(temp.toPath(), file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private Properties load() {
+    final Properties properties = new Properties();
+    if (file.isFile()) {
+      try (InputStream in = Files.newInputStream(file.toPath())) {
+        properties.load(in);
+      } catch (IOException e) {
+        // a broken history is as good as none
+      }
+    }
+    return properties;
+  }
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Measures the heap usage and garbage collections of a GWT tool run in the
+ * current JVM. A run counts as out of memory if an {@link OutOfMemoryError}
+ * was seen or a heap pool was still nearly full after a collection.
+ *
+ * <p>This class must not depend on the Gradle API as it runs in the forked
+ * GWT JVMs.
+ */
+public final class GwtHeapTelemetry {
+
+  /** Share of a pool that counts as full after a collection, in percent. */
+  private static final int FULL_PERCENT = 98;
+
+  private final long gcCount;
+  private final long gcMillis;
+  private final long thresholdCount;
+  private volatile boolean outOfMemory;
+
+  private GwtHeapTelemetry(final long gcCount, final long gcMillis,
+      final long thresholdCount) {
+    this.gcCount = gcCount;
+    this.gcMillis = gcMillis;
+    this.thresholdCount = thresholdCount;
+  }
+
+  /**
+   * Starts measuring, resetting the peak usage of the heap pools.
+   *
+   * @return the measurement
+   */
+  public static GwtHeapTelemetry start() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+        final long max = pool.getUsage().getMax();
+        if (pool.isCollectionUsageThresholdSupported() && max > 0) {
+          pool.setCollectionUsageThreshold(max / 100 * FULL_PERCENT);
+        }
+      }
+    }
+    return new GwtHeapTelemetry(gcCount(), gcMillis(), thresholdCount());
+  }
+
+  /**
+   * Marks the run as out of memory.
+   */
+  public void outOfMemory() {
+    outOfMemory = true;
+  }
+
+  /**
+   * @return the report of the run so far
+   */
+  public Report finish() {
+    return finish(-1);
+  }
+
+  /**
+   * @return the report of the run so far, including the peak resident set
+   *     size of the process, which is only meaningful if the process ran the
+   *     tool alone
+   */
+  public Report finishProcess() {
+    return finish(peakRss());
+  }
+
+  private Report finish(final long peakRss) {
+    long peakHeap = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+        peakHeap += pool.getPeakUsage().getUsed();
+      }
+    }
+    return new Report(peakHeap, Runtime.getRuntime().maxMemory(),
+        gcCount() - gcCount, gcMillis() - gcMillis,
+        outOfMemory || thresholdCount() > thresholdCount, peakRss);
+  }
+
+  /**
+   * Picks the heap of the retry of a run that ran out of memory.
+   *
+   * @param current the maximum heap of the run in bytes
+   * @param factor the factor to grow the heap by
+   * @param max the maximum heap of the retry in bytes, zero or less for no
+   *     limit
+   * @return the heap of the retry in bytes, or -1 if it wouldn't be larger
+   *     than the current heap
+   */
+  public static long retryHeap(final long current, final double factor,
+      final long max) {
+    final long retry = Math.min(max > 0 ? max : Long.MAX_VALUE,
+        (long) (current * factor));
+    return current > 0 && retry > current ? retry : -1;
+  }
+
+  /**
+   * @return the peak resident set size of this process in bytes or -1 if
+   *     unknown, which it is on other systems than Linux
+   */
+  private static long peakRss() {
+    try {
+      for (String line : Files.readAllLines(Paths.get("/proc/self/status"),
+          StandardCharsets.US_ASCII)) {
+        if (line.startsWith("VmHWM:")) {
+          // "VmHWM:    123456 kB"
+          return MemorySizes.parse(line.substring("VmHWM:".length())
+              .replace("kB", "K").replace(" ", "").replace("\t", ""));
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // not Linux
+    }
+    return -1;
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc
+        : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean gc
+        : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(0, gc.getCollectionTime());
+    }
+    return millis;
+  }
+
+  private static long thresholdCount() {
+    long count = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP
+          && pool.isCollectionUsageThresholdSupported()) {
+        count += pool.getCollectionUsageThresholdCount();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * The heap usage of a run. The peak is the sum of the peaks of all heap
+   * pools, so it may be a bit higher than the real peak.
+   */
+  public static final class Report {
+
+    private final long peakHeap;
+    private final long maxHeap;
+    private final long gcCount;
+    private final long gcMillis;
+    private final boolean outOfMemory;
+    private final long peakRss;
+
+    Report(final long peakHeap, final long maxHeap, final long gcCount,
+        final long gcMillis, final boolean outOfMemory, final long peakRss) {
+      this.peakHeap = peakHeap;
+      this.maxHeap = maxHeap;
+      this.gcCount = gcCount;
+      this.gcMillis = gcMillis;
+      this.outOfMemory = outOfMemory;
+      this.peakRss = peakRss;
+    }
+
+    public long getPeakHeap() {
+      return peakHeap;
+    }
+
+    public long getMaxHeap() {
+      return maxHeap;
+    }
+
+    public long getGcCount() {
+      return gcCount;
+    }
+
+    public long getGcMillis() {
+      return gcMillis;
+    }
+
+    public boolean isOutOfMemory() {
+      return outOfMemory;
+    }
+
+    /**
+     * @return the peak resident set size of the JVM in bytes, or -1 if
+     *     unknown
+     */
+    public long getPeakRss() {
+      return peakRss;
+    }
+
+    /**
+     * Writes the report to a file.
+     *
+     * @param file the file
+     * @throws IOException if the file can't be written
+     */
+    public void writeTo(final File file) throws IOException {
+      final Properties properties = new Properties();
+      properties.setProperty("peakHeap", Long.toString(peakHeap));
+      properties.setProperty("maxHeap", Long.toString(maxHeap));
+      properties.setProperty("gcCount", Long.toString(gcCount));
+      properties.setProperty("gcMillis", Long.toString(gcMillis));
+      properties.setProperty("outOfMemory", Boolean.toString(outOfMemory));
+      properties.setProperty("peakRss", Long.toString(peakRss));
+      try (OutputStream out = Files.newOutputStream(file.toPath())) {
+        properties.store(out, null);
+      }
+    }
+
+    /**
+     * Reads a report written by {@link #writeTo(File)}.
+     *
+     * @param file the file
+     * @return the report or null if the file doesn't exist or is broken
+     */
+    public static Report readFrom(final File file) {
+      if (!file.isFile()) {
+        return null;
+      }
+      final Properties properties = new Properties();
+      try (InputStream in = Files.newInputStream(file.toPath())) {
+        properties.load(in);
+        return new Report(Long.parseLong(properties.getProperty("peakHeap")),
+            Long.parseLong(properties.getProperty("maxHeap")),
+            Long.parseLong(properties.getProperty("gcCount")),
+            Long.parseLong(properties.getProperty("gcMillis")),
+            Boolean.parseBoolean(properties.getProperty("outOfMemory")),
+            Long.parseLong(properties.getProperty("peakRss", "-1")));
+      } catch (IOException | RuntimeException e) {
+        return null;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "peak heap " + MemorySizes.format(peakHeap) + " of "
+          + MemorySizes.format(maxHeap) + ", " + gcCount + " GCs taking "
+          + gcMillis + " ms"
+          + (peakRss > 0 ? ", peak RSS " + MemorySizes.format(peakRss) : "")
+          + (outOfMemory ? ", out of memory" : "");
+    }
+  }
+}
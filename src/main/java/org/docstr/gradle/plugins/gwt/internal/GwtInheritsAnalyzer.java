@@ -0,0 +1,310 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds inherited modules the project's client code doesn't use. An
+ * inherit is unused if no import of the project's modules' sources refers
+ * to a package that only the inherited module, or the modules only it
+ * inherits, provide, or to a type they emulate with super sources, e.g.
+ * java.util.logging.Logger of the Logging module. References by fully qualified name, in the same
+ * package or from generators and linkers aren't seen, so the unused
+ * inherits are candidates that need a review.
+ */
+public final class GwtInheritsAnalyzer {
+
+  private static final Pattern IMPORT = Pattern.compile(
+      "^\\s*import\\s+(?:static\\s+)?([\\w.]+?)(\\.\\*)?\\s*;",
+      Pattern.MULTILINE);
+  private static final String JAVA_SUFFIX = ".java";
+
+  private final List<String> rootModules;
+  private final List<File> src;
+  private final List<File> roots = new ArrayList<>();
+  private final Map<File, List<String>> names = new LinkedHashMap<>();
+
+  /**
+   * @param rootModules the compiled modules
+   * @param src the source directories of the project
+   * @param classpath the classpath with the inherited modules
+   */
+  public GwtInheritsAnalyzer(final List<String> rootModules,
+      final Iterable<File> src, final Iterable<File> classpath) {
+    this.rootModules = rootModules;
+    this.src = new ArrayList<>();
+    src.forEach(this.src::add);
+    roots.addAll(this.src);
+    classpath.forEach(roots::add);
+  }
+
+  /**
+   * @return the library modules inherited by the project's modules, in
+   *     declaration order
+   * @throws IOException if a module or source can't be read
+   */
+  public List<Inherit> analyze() throws IOException {
+    final GwtModuleGraph graph = GwtModuleGraph.load(rootModules, roots);
+    final Set<String> projectModules = new LinkedHashSet<>();
+    for (String module : graph.getModules()) {
+      if (isProjectModule(module)) {
+        projectModules.add(module);
+      }
+    }
+    final Set<String> imports = imports(graph, projectModules);
+
+    final Map<String, String> candidates = new LinkedHashMap<>();
+    for (String module : projectModules) {
+      for (String inherited : graph.getInherits(module)) {
+        if (!projectModules.contains(inherited)
+            && graph.getModules().contains(inherited)) {
+          candidates.putIfAbsent(inherited, module);
+        }
+      }
+    }
+
+    final List<Inherit> result = new ArrayList<>();
+    for (Map.Entry<String, String> candidate : candidates.entrySet()) {
+      final GwtModuleGraph without = GwtModuleGraph.load(rootModules, roots,
+          Collections.singleton(candidate.getKey()));
+      final List<String> exclusive = new ArrayList<>(graph.getModules());
+      exclusive.removeAll(without.getModules());
+      final Set<String> paths = new LinkedHashSet<>();
+      exclusive.forEach(module -> paths.addAll(graph.getJavaSourcePaths(module)));
+      final Set<String> superPaths = new LinkedHashSet<>();
+      exclusive.forEach(module -> superPaths.addAll(
+          graph.getSuperSourcePaths(module)));
+      final Set<String> emulated = emulatedTypes(superPaths);
+
+      boolean used = false;
+      for (String imported : imports) {
+        used |= startsWithAny(imported, paths)
+            || refersToAny(imported, emulated);
+      }
+      final Set<String> unitPaths = new LinkedHashSet<>(paths);
+      unitPaths.addAll(superPaths);
+      result.add(new Inherit(candidate.getKey(), candidate.getValue(), used,
+          exclusive, units(unitPaths), savedPermutations(graph, without)));
+    }
+    return result;
+  }
+
+  private boolean isProjectModule(final String module) {
+    final String path = module.replace('.', '/') + GwtModuleDescriptor.SUFFIX;
+    for (File root : src) {
+      if (new File(root, path).isFile()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the imports of the sources of the project's modules as paths,
+   *     e.g. "com/google/gwt/json/client/JSONObject" or
+   *     "com/google/gwt/json/client/" for on demand imports
+   */
+  private Set<String> imports(final GwtModuleGraph graph,
+      final Set<String> projectModules) throws IOException {
+    final Set<String> paths = new LinkedHashSet<>();
+    projectModules.forEach(module -> paths.addAll(graph.getJavaSourcePaths(module)));
+    final Set<String> imports = new LinkedHashSet<>();
+    for (File root : src) {
+      for (String name : names(root)) {
+        if (!name.endsWith(JAVA_SUFFIX) || !startsWithAny(name, paths)) {
+          continue;
+        }
+        final String source = new String(
+            Files.readAllBytes(new File(root, name).toPath()),
+            StandardCharsets.UTF_8);
+        final Matcher matcher = IMPORT.matcher(source);
+        while (matcher.find()) {
+          imports.add(matcher.group(1).replace('.', '/')
+              + (matcher.group(2) != null ? "/" : ""));
+        }
+      }
+    }
+    return imports;
+  }
+
+  /**
+   * @return the types of the super sources below the given paths, with the
+   *     super source path stripped, e.g. "java/util/logging/Logger"
+   */
+  private Set<String> emulatedTypes(final Set<String> superPaths)
+      throws IOException {
+    final Set<String> types = new LinkedHashSet<>();
+    if (superPaths.isEmpty()) {
+      return types;
+    }
+    for (File root : roots) {
+      for (String name : names(root)) {
+        if (!name.endsWith(JAVA_SUFFIX)) {
+          continue;
+        }
+        for (String superPath : superPaths) {
+          if (name.startsWith(superPath)) {
+            types.add(name.substring(superPath.length(),
+                name.length() - JAVA_SUFFIX.length()));
+          }
+        }
+      }
+    }
+    return types;
+  }
+
+  /**
+   * @return true if the import, as returned by {@link #imports}, refers to
+   *     one of the types or their members
+   */
+  private static boolean refersToAny(final String imported,
+      final Set<String> types) {
+    for (String type : types) {
+      if (imported.endsWith("/")
+          ? type.startsWith(imported)
+              && type.indexOf('/', imported.length()) < 0
+          : imported.equals(type) || imported.startsWith(type + "/")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private long units(final Set<String> paths) throws IOException {
+    final Set<String> units = new LinkedHashSet<>();
+    for (File root : roots) {
+      for (String name : names(root)) {
+        if (name.endsWith(JAVA_SUFFIX) && startsWithAny(name, paths)) {
+          units.add(name);
+        }
+      }
+    }
+    return units.size();
+  }
+
+  private List<String> names(final File root) throws IOException {
+    List<String> rootNames = names.get(root);
+    if (rootNames == null) {
+      rootNames = GwtClasspathScanner.names(root);
+      names.put(root, rootNames);
+    }
+    return rootNames;
+  }
+
+  private static long savedPermutations(final GwtModuleGraph graph,
+      final GwtModuleGraph without) {
+    try {
+      return graph.estimatePermutations() - without.estimatePermutations();
+    } catch (ArithmeticException e) {
+      return -1;
+    }
+  }
+
+  private static boolean startsWithAny(final String path,
+      final Set<String> prefixes) {
+    for (String prefix : prefixes) {
+      if (path.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A module inherited by one of the project's modules.
+   */
+  public static final class Inherit {
+
+    private final String module;
+    private final String inheritedBy;
+    private final boolean used;
+    private final List<String> exclusiveModules;
+    private final long units;
+    private final long permutations;
+
+    Inherit(final String module, final String inheritedBy,
+        final boolean used, final List<String> exclusiveModules,
+        final long units, final long permutations) {
+      this.module = module;
+      this.inheritedBy = inheritedBy;
+      this.used = used;
+      this.exclusiveModules = Collections.unmodifiableList(exclusiveModules);
+      this.units = units;
+      this.permutations = permutations;
+    }
+
+    public String getModule() {
+      return module;
+    }
+
+    /**
+     * @return the project module declaring the inherit
+     */
+    public String getInheritedBy() {
+      return inheritedBy;
+    }
+
+    /**
+     * @return true if an import of the project's sources refers to the
+     *     sources of the inherited module
+     */
+    public boolean isUsed() {
+      return used;
+    }
+
+    /**
+     * @return true if the inherit is unused and adds sources to the compile
+     */
+    public boolean isRemovable() {
+      return !used && units > 0;
+    }
+
+    /**
+     * @return the inherited module and the modules only it inherits
+     */
+    public List<String> getExclusiveModules() {
+      return exclusiveModules;
+    }
+
+    /**
+     * @return the number of compilation units the exclusive modules add
+     */
+    public long getUnits() {
+      return units;
+    }
+
+    /**
+     * @return the estimated number of permutations removing the inherit
+     *     saves, -1 if unknown
+     */
+    public long getPermutations() {
+      return permutations;
+    }
+  }
+}
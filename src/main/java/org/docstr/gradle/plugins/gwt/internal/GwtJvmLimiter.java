@@ -0,0 +1,295 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationCompletionListener;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+
+/**
+ * Limits the number of GWT JVMs and their total heap within a build. Tasks
+ * acquire a {@link Lease} for the duration of their GWT JVM. Leases are
+ * granted in request order, a single lease is always granted even if its
+ * heap exceeds the limit. The available processors are divided among the
+ * running JVMs through the granted number of local workers.
+ *
+ * <p>Tasks that can't close their lease themselves, like test tasks, let the
+ * limiter {@link #hold(String, AutoCloseable) hold} it until they have
+ * finished. The limiter must be registered as task completion listener for
+ * that.
+ */
+public abstract class GwtJvmLimiter implements BuildService<GwtJvmLimiter.Params>,
+    OperationCompletionListener, AutoCloseable {
+
+  private static final Logger logger = Logging.getLogger(GwtJvmLimiter.class);
+
+  /**
+   * Parameters of the limiter.
+   */
+  public interface Params extends BuildServiceParameters {
+
+    /**
+     * @return the maximum number of concurrently running GWT JVMs
+     */
+    Property<Integer> getMaxJvms();
+
+    /**
+     * @return the maximum heap of all concurrently running GWT JVMs in
+     *     bytes, zero or less for no limit
+     */
+    Property<Long> getMaxTotalHeap();
+
+    /**
+     * @return the number of processors to divide among the GWT JVMs
+     */
+    Property<Integer> getProcessors();
+  }
+
+  private final LinkedList<Ticket> queue = new LinkedList<>();
+  private int running;
+  private long reservedHeap;
+  private final AtomicLong leases = new AtomicLong();
+  private final AtomicLong totalWaitMillis = new AtomicLong();
+  private final Map<String, List<AutoCloseable>> held = new HashMap<>();
+
+  /**
+   * Blocks until the limits allow another GWT JVM.
+   *
+   * @param owner the task requesting the lease, for logging
+   * @param heap the maximum heap of the JVM in bytes, or -1 if unknown
+   * @return the lease, to be closed when the JVM has finished
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public Lease acquire(final String owner, final long heap)
+      throws InterruptedException {
+    final Ticket ticket = new Ticket(Math.max(0, heap));
+    final long start = System.currentTimeMillis();
+    final int concurrent;
+    synchronized (this) {
+      queue.add(ticket);
+      try {
+        while (queue.getFirst() != ticket || !fits(ticket)) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        // lets the tickets behind this one move up
+        queue.remove(ticket);
+        notifyAll();
+        throw e;
+      }
+      queue.removeFirst();
+      running++;
+      reservedHeap += ticket.heap;
+      concurrent = Math.min(maxJvms(), running + queue.size());
+      notifyAll();
+    }
+    final long waitMillis = System.currentTimeMillis() - start;
+    leases.incrementAndGet();
+    totalWaitMillis.addAndGet(waitMillis);
+
+    final int processors = processors();
+    final int share = Math.max(1, processors / Math.max(1, concurrent));
+    if (waitMillis >= 1000) {
+      logger.lifecycle("{} waited {} ms for a GWT JVM slot", owner, waitMillis);
+    } else {
+      logger.info("{} waited {} ms for a GWT JVM slot", owner, waitMillis);
+    }
+    logger.info("{} may use {} local workers, {} GWT JVMs running", owner,
+        share, concurrent);
+    return new Lease(ticket, share, waitMillis);
+  }
+
+  /**
+   * Takes a lease for another GWT JVM of a task that already holds one,
+   * like the permutation workers of a split compile, if the limits allow it
+   * right now and no other request is waiting.
+   *
+   * @param owner the task requesting the lease, for logging
+   * @param heap the maximum heap of the JVM in bytes, or -1 if unknown
+   * @return the lease, to be closed when the JVM has finished, or null if
+   *     the limits don't allow another JVM
+   */
+  public Lease tryAcquire(final String owner, final long heap) {
+    final Ticket ticket = new Ticket(Math.max(0, heap));
+    final int concurrent;
+    synchronized (this) {
+      if (!queue.isEmpty() || running == 0 || !fits(ticket)) {
+        return null;
+      }
+      running++;
+      reservedHeap += ticket.heap;
+      concurrent = Math.min(maxJvms(), running);
+    }
+    leases.incrementAndGet();
+    final int share = Math.max(1, processors() / Math.max(1, concurrent));
+    logger.info("{} may run another GWT JVM, {} GWT JVMs running", owner,
+        concurrent);
+    return new Lease(ticket, share, 0);
+  }
+
+  private boolean fits(final Ticket ticket) {
+    if (running == 0) {
+      return true;
+    }
+    if (running >= maxJvms()) {
+      return false;
+    }
+    final long maxTotalHeap = maxTotalHeap();
+    return maxTotalHeap <= 0 || reservedHeap + ticket.heap <= maxTotalHeap;
+  }
+
+  int maxJvms() {
+    return getParameters().getMaxJvms().get();
+  }
+
+  long maxTotalHeap() {
+    return getParameters().getMaxTotalHeap().get();
+  }
+
+  int processors() {
+    return getParameters().getProcessors().get();
+  }
+
+  /**
+   * @return the number of requests waiting for a lease
+   */
+  synchronized int waiting() {
+    return queue.size();
+  }
+
+  private synchronized void release(final Ticket ticket) {
+    running--;
+    reservedHeap -= ticket.heap;
+    notifyAll();
+  }
+
+  /**
+   * Holds a lease until the given task has finished, whether it failed or
+   * not.
+   *
+   * @param taskPath the path of the task
+   * @param lease the lease to close when the task has finished
+   */
+  public synchronized void hold(final String taskPath,
+      final AutoCloseable lease) {
+    held.computeIfAbsent(taskPath, path -> new ArrayList<>()).add(lease);
+  }
+
+  @Override
+  public void onFinish(final FinishEvent event) {
+    if (event instanceof TaskFinishEvent) {
+      release(((TaskFinishEvent) event).getDescriptor().getTaskPath());
+    }
+  }
+
+  /**
+   * Closes the leases {@link #hold(String, AutoCloseable) held} for the
+   * given task.
+   *
+   * @param taskPath the path of the task
+   */
+  void release(final String taskPath) {
+    final List<AutoCloseable> leases;
+    synchronized (this) {
+      leases = held.remove(taskPath);
+    }
+    if (leases == null) {
+      return;
+    }
+    // in reverse order of acquisition
+    for (int i = leases.size() - 1; i >= 0; i--) {
+      try {
+        leases.get(i).close();
+      } catch (Exception e) {
+        logger.warn("Can't release a GWT JVM slot of {}: {}", taskPath,
+            e.getMessage());
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    final List<String> taskPaths;
+    synchronized (this) {
+      taskPaths = new ArrayList<>(held.keySet());
+    }
+    taskPaths.forEach(this::release);
+    if (leases.get() > 0) {
+      logger.info("{} GWT JVMs waited {} ms in total for a slot",
+          leases.get(), totalWaitMillis.get());
+    }
+  }
+
+  private static final class Ticket {
+
+    private final long heap;
+
+    private Ticket(final long heap) {
+      this.heap = heap;
+    }
+  }
+
+  /**
+   * Permission to run a GWT JVM.
+   */
+  public final class Lease implements AutoCloseable {
+
+    private final Ticket ticket;
+    private final int localWorkers;
+    private final long waitMillis;
+    private boolean released;
+
+    private Lease(final Ticket ticket, final int localWorkers,
+        final long waitMillis) {
+      this.ticket = ticket;
+      this.localWorkers = localWorkers;
+      this.waitMillis = waitMillis;
+    }
+
+    /**
+     * @return the share of the processors the JVM may use as local workers
+     */
+    public int getLocalWorkers() {
+      return localWorkers;
+    }
+
+    /**
+     * @return the time spent waiting for the lease in milliseconds
+     */
+    public long getWaitMillis() {
+      return waitMillis;
+    }
+
+    @Override
+    public synchronized void close() {
+      if (!released) {
+        released = true;
+        release(ticket);
+      }
+    }
+  }
+}
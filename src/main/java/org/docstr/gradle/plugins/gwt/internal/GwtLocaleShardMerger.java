@@ -0,0 +1,211 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Merges the outputs of compiles that each cover a subset of the locales of
+ * the same modules into one deployable directory.
+ *
+ * <p>Permutations, fragments and symbol maps have strong names and are
+ * simply copied. Of all other files, the first shard wins, except for:
+ * <ul>
+ *   <li>the selection scripts (*.nocache.js) whose permutation tables and
+ *   known locales are combined, and</li>
+ *   <li>compilation-mappings.txt, which is concatenated.</li>
+ * </ul>
+ */
+public final class GwtLocaleShardMerger {
+
+  static final String SELECTION_SCRIPT_SUFFIX = ".nocache.js";
+  static final String COMPILATION_MAPPINGS = "compilation-mappings.txt";
+
+  /**
+   * Matches the registration of a permutation in the selection script, like
+   * {@code unflattenKeylistIntoAnswers(['en', 'gecko1_8'], 'ABC...')}. The
+   * function name may be obfuscated, the strong name may have a soft
+   * permutation suffix.
+   */
+  private static final Pattern ANSWER = Pattern.compile(
+      "([\\w$]+)\\((\\[[^\\[\\]]*\\])\\s*,\\s*('[0-9A-F]{32}(?::\\d+)?')\\)");
+
+  /** Matches the known values of the locale property. */
+  private static final Pattern LOCALE_VALUES = Pattern.compile(
+      "(\\[\\s*'locale'\\s*\\]\\s*=\\s*\\{)([^}]*)(\\})");
+
+  private static final Pattern VALUE = Pattern.compile(
+      "'?([^':,\\s]+)'?\\s*:\\s*\\d+");
+
+  private GwtLocaleShardMerger() {
+  }
+
+  /**
+   * Merges the given shard directories into the target directory, which is
+   * emptied first.
+   *
+   * @param shardDirs the output directories of the shard compiles
+   * @param target the directory to merge into
+   * @throws IOException if a file can't be read or written or a selection
+   *     script has an unknown format
+   */
+  public static void merge(final List<File> shardDirs, final File target)
+      throws IOException {
+    final Map<String, List<Path>> files = new LinkedHashMap<>();
+    for (File shardDir : shardDirs) {
+      final Path root = shardDir.toPath();
+      if (!Files.isDirectory(root)) {
+        continue;
+      }
+      try (Stream<Path> paths = Files.walk(root)) {
+        for (Path path : paths.filter(Files::isRegularFile)
+            .collect(Collectors.toList())) {
+          files.computeIfAbsent(root.relativize(path).toString(),
+              key -> new ArrayList<>()).add(path);
+        }
+      }
+    }
+
+    deleteContents(target.toPath());
+    for (Map.Entry<String, List<Path>> entry : files.entrySet()) {
+      final Path to = target.toPath().resolve(entry.getKey());
+      Files.createDirectories(to.getParent());
+      final List<Path> from = entry.getValue();
+      final String name = to.getFileName().toString();
+      if (from.size() > 1 && name.endsWith(SELECTION_SCRIPT_SUFFIX)) {
+        write(to, mergeSelectionScripts(read(from), entry.getKey()));
+      } else if (from.size() > 1 && name.equals(COMPILATION_MAPPINGS)) {
+        write(to, mergeCompilationMappings(read(from)));
+      } else {
+        Files.copy(from.get(0), to, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+  }
+
+  /**
+   * Adds the permutations and known locales of all other selection scripts
+   * to the first one.
+   */
+  static String mergeSelectionScripts(final List<String> scripts,
+      final String path) throws IOException {
+    final String base = scripts.get(0);
+    final Matcher baseAnswers = ANSWER.matcher(base);
+    String function = null;
+    int end = -1;
+    while (baseAnswers.find()) {
+      function = baseAnswers.group(1);
+      end = baseAnswers.end();
+    }
+    if (function == null) {
+      throw new IOException("Can't find the permutations in " + path
+          + ", the linker of the module isn't supported");
+    }
+
+    final boolean statements = end < base.length() && base.charAt(end) == ';';
+    final StringBuilder answers = new StringBuilder();
+    for (String script : scripts.subList(1, scripts.size())) {
+      final Matcher matcher = ANSWER.matcher(script);
+      while (matcher.find()) {
+        answers.append(statements ? "" : ",")
+            .append(function).append('(').append(matcher.group(2))
+            .append(',').append(matcher.group(3)).append(')')
+            .append(statements ? ";" : "");
+      }
+    }
+    final int insertAt = statements ? end + 1 : end;
+    final String merged = base.substring(0, insertAt) + answers
+        + base.substring(insertAt);
+    return mergeLocaleValues(merged, scripts);
+  }
+
+  private static String mergeLocaleValues(final String script,
+      final List<String> scripts) {
+    final Matcher baseValues = LOCALE_VALUES.matcher(script);
+    if (!baseValues.find()) {
+      return script;
+    }
+    final Set<String> locales = new LinkedHashSet<>();
+    for (String other : scripts) {
+      final Matcher values = LOCALE_VALUES.matcher(other);
+      if (values.find()) {
+        final Matcher value = VALUE.matcher(values.group(2));
+        while (value.find()) {
+          locales.add(value.group(1));
+        }
+      }
+    }
+    final List<String> entries = new ArrayList<>();
+    for (String locale : locales) {
+      entries.add("'" + locale + "':" + entries.size());
+    }
+    return script.substring(0, baseValues.start(2))
+        + String.join(", ", entries)
+        + script.substring(baseValues.end(2));
+  }
+
+  static String mergeCompilationMappings(final List<String> mappings) {
+    final StringBuilder merged = new StringBuilder();
+    for (String mapping : mappings) {
+      final String trimmed = mapping.trim();
+      if (!trimmed.isEmpty()) {
+        merged.append(trimmed).append("\n\n");
+      }
+    }
+    return merged.toString();
+  }
+
+  private static List<String> read(final List<Path> paths) throws IOException {
+    final List<String> contents = new ArrayList<>();
+    for (Path path : paths) {
+      contents.add(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+    return contents;
+  }
+
+  private static void write(final Path path, final String content)
+      throws IOException {
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void deleteContents(final Path dir) throws IOException {
+    if (!Files.isDirectory(dir)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(dir)) {
+      for (Path path : paths.sorted((a, b) -> b.compareTo(a))
+          .collect(Collectors.toList())) {
+        if (!path.equals(dir)) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+}
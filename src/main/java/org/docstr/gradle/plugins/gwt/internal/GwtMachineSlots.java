@@ -0,0 +1,331 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Coordinates GWT JVMs of all Gradle builds on a machine through file
+ * locks in a shared directory. The machine's processors and memory are
+ * divided into a fixed number of slots, every GWT JVM holds the slots its
+ * heap needs while running. Locks are released by the operating system if
+ * a build dies, so no slot is lost.
+ *
+ * <p>Waiting JVMs queue up with a ticket file. Only the oldest live ticket
+ * may take slots, so waiting JVMs are served first come, first served
+ * across builds. Every released lease is appended to {@value #USAGE_LOG},
+ * which is rotated once it exceeds {@value #MAX_USAGE_LOG_SIZE} bytes.
+ */
+public final class GwtMachineSlots {
+
+  static final String USAGE_LOG = "usage.log";
+  static final long MAX_USAGE_LOG_SIZE = 1024 * 1024;
+  private static final String QUEUE_DIR = "queue";
+  private static final String COUNTER_FILE = "queue.counter";
+  private static final long POLL_MILLIS = 250;
+
+  /**
+   * File locks are held by the whole JVM and closing any channel of a file
+   * releases all locks of the JVM on it. So files locked by this JVM must
+   * not even be opened by other threads. The plugin's class loader is
+   * shared by the builds of a daemon that use the same plugin version.
+   */
+  private static final Set<String> HELD_FILES =
+      ConcurrentHashMap.newKeySet();
+
+  private final File dir;
+  private final int slots;
+
+  /**
+   * @param dir the directory shared by all builds on the machine
+   * @param slots the number of slots, must be the same for all builds
+   */
+  public GwtMachineSlots(final File dir, final int slots) {
+    this.dir = dir;
+    this.slots = Math.max(1, slots);
+  }
+
+  public int getSlots() {
+    return slots;
+  }
+
+  /**
+   * @param heap the maximum heap of a JVM in bytes, or -1 if unknown
+   * @param totalHeap the heap of all slots in bytes, or -1 for no limit
+   * @return the number of slots a JVM with the given heap needs
+   */
+  public int slotsFor(final long heap, final long totalHeap) {
+    if (heap <= 0 || totalHeap <= 0) {
+      return 1;
+    }
+    final long heapPerSlot = Math.max(1, totalHeap / slots);
+    return (int) Math.max(1, Math.min(slots, (heap + heapPerSlot - 1) / heapPerSlot));
+  }
+
+  /**
+   * @param lease the slots held by a JVM
+   * @param processors the processors of the machine
+   * @return the share of the processors the JVM may use as local workers
+   */
+  public int localWorkersFor(final Lease lease, final int processors) {
+    return Math.max(1, processors * lease.getSlots() / slots);
+  }
+
+  /**
+   * Blocks until the given number of slots is available.
+   *
+   * @param owner the task requesting the slots, for logging
+   * @param count the number of slots, at most all slots are taken
+   * @param log receives progress messages
+   * @return the lease, to be closed when the JVM has finished
+   * @throws IOException if the slot directory isn't usable
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public Lease acquire(final String owner, final int count,
+      final Consumer<String> log) throws IOException, InterruptedException {
+    final int needed = Math.max(1, Math.min(count, slots));
+    final File queueDir = new File(dir, QUEUE_DIR);
+    queueDir.mkdirs();
+    final long start = System.currentTimeMillis();
+
+    final File ticket = new File(queueDir, nextTicket());
+    HELD_FILES.add(ticket.getAbsolutePath());
+    try (FileChannel ticketChannel = FileChannel.open(ticket.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      ticketChannel.lock();
+      boolean announced = false;
+      while (true) {
+        final int ahead = liveTicketsBefore(queueDir, ticket.getName());
+        if (ahead == 0) {
+          final List<Slot> held = tryLockSlots(needed);
+          if (held != null) {
+            final long waitMillis = System.currentTimeMillis() - start;
+            if (announced) {
+              log.accept(owner + " got " + needed + " GWT slot(s) after "
+                  + waitMillis + " ms");
+            }
+            return new Lease(owner, held, waitMillis);
+          }
+        }
+        if (!announced) {
+          log.accept(owner + " waits for " + needed + " of " + slots
+              + " GWT slot(s) in " + dir + ", " + ahead
+              + " JVM(s) queued ahead");
+          announced = true;
+        }
+        Thread.sleep(POLL_MILLIS);
+      }
+    } finally {
+      Files.deleteIfExists(ticket.toPath());
+      HELD_FILES.remove(ticket.getAbsolutePath());
+    }
+  }
+
+  private String nextTicket() throws IOException {
+    synchronized (HELD_FILES) {
+      dir.mkdirs();
+      try (RandomAccessFile file = new RandomAccessFile(
+          new File(dir, COUNTER_FILE), "rw");
+          FileLock ignored = file.getChannel().lock()) {
+        final long next = file.length() >= Long.BYTES ? file.readLong() + 1 : 0;
+        file.seek(0);
+        file.writeLong(next);
+        return String.format("%019d-%s", next, pid());
+      }
+    }
+  }
+
+  /**
+   * Counts the tickets older than the given one whose owner is still
+   * waiting, and removes the tickets of owners that died.
+   */
+  private static int liveTicketsBefore(final File queueDir,
+      final String ticket) {
+    final String[] names = queueDir.list();
+    if (names == null) {
+      return 0;
+    }
+    Arrays.sort(names);
+    int live = 0;
+    for (String name : names) {
+      if (name.compareTo(ticket) >= 0) {
+        break;
+      }
+      final File other = new File(queueDir, name);
+      if (HELD_FILES.contains(other.getAbsolutePath())) {
+        live++;
+        continue;
+      }
+      try (FileChannel channel = FileChannel.open(other.toPath(),
+          StandardOpenOption.WRITE)) {
+        final FileLock lock = channel.tryLock();
+        if (lock == null) {
+          live++;
+        } else {
+          lock.release();
+          Files.deleteIfExists(other.toPath());
+        }
+      } catch (OverlappingFileLockException e) {
+        live++;
+      } catch (IOException e) {
+        // removed meanwhile
+      }
+    }
+    return live;
+  }
+
+  /**
+   * @return the channels of the locked slots or null if not enough slots
+   *     are free, in which case no slot is kept
+   */
+  private List<Slot> tryLockSlots(final int needed) throws IOException {
+    final List<Slot> held = new ArrayList<>();
+    for (int i = 0; i < slots && held.size() < needed; i++) {
+      final File file = new File(dir, "slot-" + i + ".lock");
+      if (!HELD_FILES.add(file.getAbsolutePath())) {
+        continue;
+      }
+      final FileChannel channel = FileChannel.open(file.toPath(),
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      FileLock lock;
+      try {
+        lock = channel.tryLock();
+      } catch (OverlappingFileLockException e) {
+        lock = null;
+      }
+      final Slot slot = new Slot(file, channel);
+      if (lock != null) {
+        held.add(slot);
+      } else {
+        slot.release();
+      }
+    }
+    if (held.size() < needed) {
+      for (Slot slot : held) {
+        slot.release();
+      }
+      return null;
+    }
+    return held;
+  }
+
+  private static String pid() {
+    final String name = ManagementFactory.getRuntimeMXBean().getName();
+    final int at = name.indexOf('@');
+    return at > 0 ? name.substring(0, at) : name;
+  }
+
+  private static final class Slot {
+
+    private final File file;
+    private final FileChannel channel;
+
+    private Slot(final File file, final FileChannel channel) {
+      this.file = file;
+      this.channel = channel;
+    }
+
+    private void release() throws IOException {
+      try {
+        channel.close();
+      } finally {
+        HELD_FILES.remove(file.getAbsolutePath());
+      }
+    }
+  }
+
+  /**
+   * Slots held by a GWT JVM.
+   */
+  public final class Lease implements AutoCloseable {
+
+    private final String owner;
+    private final List<Slot> held;
+    private final long waitMillis;
+    private final long acquired = System.currentTimeMillis();
+    private boolean released;
+
+    private Lease(final String owner, final List<Slot> held,
+        final long waitMillis) {
+      this.owner = owner;
+      this.held = held;
+      this.waitMillis = waitMillis;
+    }
+
+    /**
+     * @return the number of held slots
+     */
+    public int getSlots() {
+      return held.size();
+    }
+
+    /**
+     * @return the time spent waiting for the slots in milliseconds
+     */
+    public long getWaitMillis() {
+      return waitMillis;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      if (released) {
+        return;
+      }
+      released = true;
+      try {
+        for (Slot slot : held) {
+          slot.release();
+        }
+      } finally {
+        final String line = String.format("%tFT%<tT pid=%s slots=%d/%d "
+                + "waitMs=%d heldMs=%d %s%n", System.currentTimeMillis(),
+            pid(), held.size(), slots, waitMillis,
+            System.currentTimeMillis() - acquired, owner);
+        final File usageLog = new File(dir, USAGE_LOG);
+        if (usageLog.length() > MAX_USAGE_LOG_SIZE) {
+          // keeps the previous log only
+          try {
+            Files.move(usageLog.toPath(),
+                new File(dir, USAGE_LOG + ".1").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+          } catch (NoSuchFileException e) {
+            // rotated by another build meanwhile
+          }
+        }
+        Files.write(usageLog.toPath(),
+            line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+/**
+ * The parts of a GWT module descriptor (.gwt.xml) the plugin needs to know.
+ */
+public final class GwtModuleDescriptor {
+
+  /** File name suffix of GWT module descriptors. */
+  public static final String SUFFIX = ".gwt.xml";
+
+  private final String name;
+  private final File file;
+  private final String renameTo;
+
+  private GwtModuleDescriptor(final String name, final File file,
+      final String renameTo) {
+    this.name = name;
+    this.file = file;
+    this.renameTo = renameTo;
+  }
+
+  /**
+   * Looks up the descriptor of a module in the given source roots.
+   *
+   * @param module the name of the module
+   * @param roots the source directories to search
+   * @return the descriptor or null if no root contains the module
+   * @throws IOException if the descriptor can't be read
+   */
+  public static GwtModuleDescriptor find(final String module,
+      final Iterable<File> roots) throws IOException {
+    final String path = module.replace('.', '/') + SUFFIX;
+    for (File root : roots) {
+      final File file = new File(root, path);
+      if (file.isFile()) {
+        return parse(module, file);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Reads the descriptor of a module.
+   *
+   * @param module the name of the module
+   * @param file the .gwt.xml file of the module
+   * @return the descriptor
+   * @throws IOException if the descriptor can't be read
+   */
+  public static GwtModuleDescriptor parse(final String module,
+      final File file) throws IOException {
+    final Element root;
+    try (InputStream in = new FileInputStream(file)) {
+      root = parseXml(in, file.toString());
+    }
+    final String renameTo = root.getAttribute("rename-to");
+    return new GwtModuleDescriptor(module, file,
+        renameTo.isEmpty() ? null : renameTo);
+  }
+
+  static Element parseXml(final InputStream in, final String location)
+      throws IOException {
+    try {
+      final DocumentBuilderFactory factory =
+          DocumentBuilderFactory.newInstance();
+      factory.setValidating(false);
+      factory.setNamespaceAware(false);
+      // module descriptors reference the GWT DTD, which isn't needed
+      factory.setFeature(
+          "http://apache.org/xml/features/nonvalidating/load-external-dtd",
+          false);
+      final DocumentBuilder builder = factory.newDocumentBuilder();
+      return builder.parse(in, location).getDocumentElement();
+    } catch (ParserConfigurationException | SAXException e) {
+      throw new IOException("Can't parse GWT module " + location, e);
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @return the value of the rename-to attribute or null if not set
+   */
+  public String getRenameTo() {
+    return renameTo;
+  }
+
+  /**
+   * @return the name of the module's output directory and selection script
+   */
+  public String getOutputName() {
+    return renameTo != null ? renameTo : name;
+  }
+}
@@ -0,0 +1,392 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * The modules reachable from a GWT module through its inherits, read from
+ * source directories and jars in the same order as the GWT compiler does.
+ * Besides the modules, the graph knows the deferred binding properties and
+ * their values, which allows to estimate the number of permutations.
+ */
+public final class GwtModuleGraph {
+
+  private final List<String> modules = new ArrayList<>();
+  private final List<String> missingModules = new ArrayList<>();
+  private final Set<String> descriptorPaths = new LinkedHashSet<>();
+  private final Set<String> sourcePaths = new LinkedHashSet<>();
+  private final Set<String> superSourcePaths = new LinkedHashSet<>();
+  private final Set<String> generatorPaths = new LinkedHashSet<>();
+  private final Map<String, List<String>> inherits = new LinkedHashMap<>();
+  private final Map<String, Set<String>> javaSourcePaths =
+      new LinkedHashMap<>();
+  private final Map<String, Set<String>> moduleSuperSourcePaths =
+      new LinkedHashMap<>();
+  private final Set<String> excluded;
+  private final Map<String, Set<String>> properties = new LinkedHashMap<>();
+  private final Map<String, Integer> collapsed = new LinkedHashMap<>();
+  private boolean collapseAll;
+
+  private GwtModuleGraph(final Set<String> excluded) {
+    this.excluded = excluded;
+  }
+
+  /**
+   * Reads the given modules and all modules they inherit.
+   *
+   * @param rootModules the modules to start with
+   * @param roots the source directories and jars to read modules from, in
+   *     classpath order
+   * @return the module graph
+   * @throws IOException if a module can't be read
+   */
+  public static GwtModuleGraph load(final Iterable<String> rootModules,
+      final Iterable<File> roots) throws IOException {
+    return load(rootModules, roots, Collections.emptySet());
+  }
+
+  /**
+   * Reads the given modules and all modules they inherit, as if the
+   * excluded modules weren't inherited.
+   *
+   * @param rootModules the modules to start with
+   * @param roots the source directories and jars to read modules from, in
+   *     classpath order
+   * @param excluded the modules to leave out with all modules only they
+   *     inherit
+   * @return the module graph
+   * @throws IOException if a module can't be read
+   */
+  public static GwtModuleGraph load(final Iterable<String> rootModules,
+      final Iterable<File> roots, final Set<String> excluded)
+      throws IOException {
+    final GwtModuleGraph graph = new GwtModuleGraph(excluded);
+    try (Resources resources = new Resources(roots)) {
+      for (String module : rootModules) {
+        graph.visit(module, resources);
+      }
+    }
+    return graph;
+  }
+
+  private void visit(final String module, final Resources resources)
+      throws IOException {
+    if (modules.contains(module) || missingModules.contains(module)
+        || excluded.contains(module)) {
+      return;
+    }
+    final String path = module.replace('.', '/') + GwtModuleDescriptor.SUFFIX;
+    final Element root;
+    try (InputStream in = resources.open(path)) {
+      if (in == null) {
+        missingModules.add(module);
+        return;
+      }
+      root = GwtModuleDescriptor.parseXml(in, path);
+    }
+    modules.add(module);
+    descriptorPaths.add(path);
+    final List<String> moduleInherits = new ArrayList<>();
+    inherits.put(module, moduleInherits);
+    final Set<String> moduleSources = new LinkedHashSet<>();
+    javaSourcePaths.put(module, moduleSources);
+    final Set<String> moduleSuperSources = new LinkedHashSet<>();
+    moduleSuperSourcePaths.put(module, moduleSuperSources);
+
+    // paths in the module are relative to the module's package
+    final String packagePath = path.substring(0, path.lastIndexOf('/') + 1);
+    boolean hasSource = false;
+    boolean hasPublic = false;
+    final NodeList children = root.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      final Node node = children.item(i);
+      if (node.getNodeType() != Node.ELEMENT_NODE) {
+        continue;
+      }
+      final Element element = (Element) node;
+      final String name = element.getAttribute("name");
+      switch (element.getTagName()) {
+        case "inherits":
+          moduleInherits.add(name);
+          visit(name, resources);
+          break;
+        case "source":
+          hasSource = true;
+          moduleSources.add(addSourcePath(packagePath,
+              element.getAttribute("path")));
+          break;
+        case "public":
+          hasPublic = true;
+          addSourcePath(packagePath, element.getAttribute("path"));
+          break;
+        case "super-source":
+          final String superSourcePath = addSourcePath(packagePath,
+              element.getAttribute("path"));
+          superSourcePaths.add(superSourcePath);
+          moduleSuperSources.add(superSourcePath);
+          break;
+        case "resource":
+          addSourcePath(packagePath, element.getAttribute("path"));
+          break;
+        case "generate-with":
+        case "define-linker":
+          final String className = element.getAttribute("class");
+          if (className.lastIndexOf('.') > 0) {
+            generatorPaths.add(className.substring(0,
+                className.lastIndexOf('.') + 1).replace('.', '/'));
+          }
+          break;
+        case "define-property":
+          properties.put(name, values(element.getAttribute("values")));
+          break;
+        case "extend-property":
+          properties.computeIfAbsent(name, key -> new LinkedHashSet<>())
+              .addAll(values(element.getAttribute("values")));
+          break;
+        case "set-property":
+          // conditional values depend on other properties, ignored
+          if (!hasChildElements(element) && properties.containsKey(name)) {
+            properties.put(name, values(element.getAttribute("value")));
+          }
+          break;
+        case "collapse-property":
+          // each group of collapsed values is compiled only once
+          final Set<String> group = values(element.getAttribute("values"));
+          collapsed.merge(name,
+              group.contains("*") ? Integer.MAX_VALUE : group.size() - 1,
+              (x, y) -> x == Integer.MAX_VALUE || y == Integer.MAX_VALUE
+                  ? Integer.MAX_VALUE : x + y);
+          break;
+        case "collapse-all-properties":
+          collapseAll = true;
+          break;
+        default:
+          break;
+      }
+    }
+    // like the compiler, default to the client and public packages
+    if (!hasSource) {
+      moduleSources.add(addSourcePath(packagePath, "client"));
+    }
+    if (!hasPublic) {
+      addSourcePath(packagePath, "public");
+    }
+  }
+
+  private String addSourcePath(final String packagePath, final String path) {
+    final String relative = path.trim().replace('\\', '/');
+    final String sourcePath;
+    if (relative.isEmpty() || relative.equals(".")) {
+      sourcePath = packagePath;
+    } else {
+      sourcePath = packagePath + (relative.endsWith("/")
+          ? relative : relative + '/');
+    }
+    sourcePaths.add(sourcePath);
+    return sourcePath;
+  }
+
+  private static Set<String> values(final String values) {
+    final Set<String> result = new LinkedHashSet<>();
+    for (String value : values.split(",")) {
+      if (!value.trim().isEmpty()) {
+        result.add(value.trim());
+      }
+    }
+    return result;
+  }
+
+  private static boolean hasChildElements(final Element element) {
+    final NodeList children = element.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      if (children.item(i).getNodeType() == Node.ELEMENT_NODE) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the names of all found modules in the order they were read
+   */
+  public List<String> getModules() {
+    return Collections.unmodifiableList(modules);
+  }
+
+  /**
+   * @return the names of inherited modules that weren't found
+   */
+  public List<String> getMissingModules() {
+    return Collections.unmodifiableList(missingModules);
+  }
+
+  /**
+   * @return the paths of the descriptors of all found modules, relative to
+   *     their source directory or jar, e.g. "com/example/App.gwt.xml"
+   */
+  public Set<String> getDescriptorPaths() {
+    return Collections.unmodifiableSet(descriptorPaths);
+  }
+
+  /**
+   * Returns the directories the found modules read sources, super sources,
+   * public files and resources from, relative to their source directory or
+   * jar and ending with a slash, e.g. "com/example/client/". Include and
+   * exclude filters of the module aren't applied.
+   *
+   * @return the source directories of all found modules
+   */
+  public Set<String> getSourcePaths() {
+    return Collections.unmodifiableSet(sourcePaths);
+  }
+
+  /**
+   * @return the super source directories of all found modules, whose files
+   *     are sources of the package below the directory, e.g.
+   *     "com/google/gwt/emul/" for the JRE emulation
+   */
+  public Set<String> getSuperSourcePaths() {
+    return Collections.unmodifiableSet(superSourcePaths);
+  }
+
+  /**
+   * @return the packages of the generators and linkers the found modules
+   *     declare, relative to their classes directory or jar and ending with
+   *     a slash, e.g. "com/example/rebind/"
+   */
+  public Set<String> getGeneratorPaths() {
+    return Collections.unmodifiableSet(generatorPaths);
+  }
+
+  /**
+   * @param module a found module
+   * @return the modules the module inherits directly, in declaration order
+   */
+  public List<String> getInherits(final String module) {
+    return Collections.unmodifiableList(
+        inherits.getOrDefault(module, Collections.emptyList()));
+  }
+
+  /**
+   * @param module a found module
+   * @return the directories the module reads translatable Java sources
+   *     from, without super sources, see {@link #getSourcePaths()}
+   */
+  public Set<String> getJavaSourcePaths(final String module) {
+    return Collections.unmodifiableSet(
+        javaSourcePaths.getOrDefault(module, Collections.emptySet()));
+  }
+
+  /**
+   * @param module a found module
+   * @return the super source directories of the module, see
+   *     {@link #getSuperSourcePaths()}
+   */
+  public Set<String> getSuperSourcePaths(final String module) {
+    return Collections.unmodifiableSet(
+        moduleSuperSourcePaths.getOrDefault(module, Collections.emptySet()));
+  }
+
+  /**
+   * @return the deferred binding properties and their possible values
+   */
+  public Map<String, Set<String>> getProperties() {
+    return Collections.unmodifiableMap(properties);
+  }
+
+  /**
+   * Estimates the number of permutations the compiler has to compile, which
+   * is the product of the number of values of all properties, reduced by
+   * collapsed properties. Conditional property values aren't considered.
+   *
+   * @return the estimated number of permutations
+   */
+  public long estimatePermutations() {
+    if (collapseAll) {
+      return 1;
+    }
+    long permutations = 1;
+    for (Map.Entry<String, Set<String>> property : properties.entrySet()) {
+      final int values = property.getValue().size();
+      final int merged = collapsed.getOrDefault(property.getKey(), 0);
+      final long distinct = merged == Integer.MAX_VALUE
+          ? 1 : Math.max(1, values - merged);
+      permutations = Math.multiplyExact(permutations, distinct);
+    }
+    return permutations;
+  }
+
+  /**
+   * Looks up resources in directories and jars.
+   */
+  private static final class Resources implements AutoCloseable {
+
+    private final List<File> roots = new ArrayList<>();
+    private final Map<File, ZipFile> jars = new LinkedHashMap<>();
+
+    private Resources(final Iterable<File> roots) {
+      roots.forEach(this.roots::add);
+    }
+
+    /**
+     * @return the stream of the first resource with the given path, or null
+     */
+    private InputStream open(final String path) throws IOException {
+      for (File root : roots) {
+        if (root.isDirectory()) {
+          final File file = new File(root, path);
+          if (file.isFile()) {
+            return new FileInputStream(file);
+          }
+        } else if (root.isFile() && root.getName().endsWith(".jar")) {
+          ZipFile jar = jars.get(root);
+          if (jar == null) {
+            jar = new ZipFile(root);
+            jars.put(root, jar);
+          }
+          final ZipEntry entry = jar.getEntry(path);
+          if (entry != null) {
+            return jar.getInputStream(entry);
+          }
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+      for (ZipFile jar : jars.values()) {
+        jar.close();
+      }
+    }
+  }
+}
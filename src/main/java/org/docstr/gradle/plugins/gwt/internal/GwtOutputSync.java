@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves the output of a compile from a staging directory into the real
+ * output directory without touching the files whose content didn't change.
+ * The GWT compiler rewrites every file of its output, so without this all
+ * files get a new timestamp and tasks or tools comparing timestamps, like a
+ * deployment sync, copy all of them again.
+ *
+ * <p>A file is replaced if its size or content differs. The synced files
+ * are listed in a manifest, and only the files the previous sync listed
+ * that the compile didn't produce again are removed. Other files of the
+ * output directory are never touched. The staging directory is deleted
+ * afterwards.
+ */
+public final class GwtOutputSync {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private GwtOutputSync() {
+  }
+
+  /**
+   * Syncs the staging directory into the output directory.
+   *
+   * @param staging the directory the compiler wrote to
+   * @param target the output directory to update
+   * @param manifest the file listing the files of the previous sync, which
+   *     is replaced by the files of this sync
+   * @return the number of written, unchanged and removed files
+   * @throws IOException if a file can't be read, moved or deleted
+   */
+  public static Result sync(final File staging, final File target,
+      final File manifest) throws IOException {
+    final Path from = staging.toPath();
+    final Path to = target.toPath();
+    final Set<String> produced = new TreeSet<>();
+    int written = 0;
+    int unchanged = 0;
+    for (Path file : files(from)) {
+      final Path relative = from.relativize(file);
+      produced.add(relative.toString().replace(File.separatorChar, '/'));
+      final Path existing = to.resolve(relative);
+      if (Files.isRegularFile(existing) && sameContent(file, existing)) {
+        unchanged++;
+        continue;
+      }
+      if (Files.isDirectory(existing)) {
+        delete(existing);
+      }
+      Files.createDirectories(existing.getParent());
+      Files.move(file, existing, StandardCopyOption.REPLACE_EXISTING);
+      written++;
+    }
+
+    int removed = 0;
+    for (String path : readManifest(manifest)) {
+      final Path file = to.resolve(path).normalize();
+      if (!produced.contains(path) && file.startsWith(to)
+          && Files.isRegularFile(file)) {
+        Files.delete(file);
+        deleteEmptyParents(file.getParent(), to);
+        removed++;
+      }
+    }
+    writeManifest(manifest, produced);
+    delete(from);
+    return new Result(written, unchanged, removed);
+  }
+
+  private static List<String> readManifest(final File manifest)
+      throws IOException {
+    if (!manifest.isFile()) {
+      return Collections.emptyList();
+    }
+    return Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8);
+  }
+
+  private static void writeManifest(final File manifest,
+      final Set<String> paths) throws IOException {
+    Files.createDirectories(manifest.getAbsoluteFile().getParentFile()
+        .toPath());
+    Files.write(manifest.toPath(), new ArrayList<>(paths),
+        StandardCharsets.UTF_8);
+  }
+
+  static boolean sameContent(final Path a, final Path b) throws IOException {
+    if (Files.size(a) != Files.size(b)) {
+      return false;
+    }
+    final byte[] bufferA = new byte[BUFFER_SIZE];
+    final byte[] bufferB = new byte[BUFFER_SIZE];
+    try (InputStream inA = Files.newInputStream(a);
+        InputStream inB = Files.newInputStream(b)) {
+      while (true) {
+        final int read = readFully(inA, bufferA);
+        if (read != readFully(inB, bufferB)) {
+          return false;
+        }
+        if (read <= 0) {
+          return true;
+        }
+        if (!Arrays.equals(bufferA, bufferB)) {
+          return false;
+        }
+      }
+    }
+  }
+
+  private static int readFully(final InputStream in, final byte[] buffer)
+      throws IOException {
+    int total = 0;
+    while (total < buffer.length) {
+      final int read = in.read(buffer, total, buffer.length - total);
+      if (read < 0) {
+        break;
+      }
+      total += read;
+    }
+    // the rest of the last buffer must not compare old content
+    Arrays.fill(buffer, total, buffer.length, (byte) 0);
+    return total;
+  }
+
+  private static List<Path> files(final Path dir) throws IOException {
+    if (!Files.isDirectory(dir)) {
+      return Collections.emptyList();
+    }
+    try (Stream<Path> paths = Files.walk(dir)) {
+      return paths.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Deletes the given directory and its parents below the root as long as
+   * they are empty.
+   */
+  private static void deleteEmptyParents(final Path dir, final Path root)
+      throws IOException {
+    for (Path path = dir; path != null && !path.equals(root)
+        && path.startsWith(root); path = path.getParent()) {
+      try (Stream<Path> children = Files.list(path)) {
+        if (children.findAny().isPresent()) {
+          return;
+        }
+      }
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * Deletes the given file or directory, including its contents.
+   *
+   * @param path the file or directory to delete, may not exist
+   * @throws IOException if a file can't be deleted
+   */
+  public static void delete(final Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return;
+    }
+    final List<Path> paths;
+    try (Stream<Path> walk = Files.walk(path)) {
+      paths = walk.sorted(Comparator.reverseOrder())
+          .collect(Collectors.toList());
+    }
+    for (Path each : paths) {
+      Files.delete(each);
+    }
+  }
+
+  /**
+   * The outcome of a sync.
+   */
+  public static final class Result {
+
+    private final int written;
+    private final int unchanged;
+    private final int removed;
+
+    Result(final int written, final int unchanged, final int removed) {
+      this.written = written;
+      this.unchanged = unchanged;
+      this.removed = removed;
+    }
+
+    /**
+     * @return the number of new or changed files
+     */
+    public int getWritten() {
+      return written;
+    }
+
+    /**
+     * @return the number of files that kept their timestamp
+     */
+    public int getUnchanged() {
+      return unchanged;
+    }
+
+    /**
+     * @return the number of files of the previous sync that were removed
+     */
+    public int getRemoved() {
+      return removed;
+    }
+
+    @Override
+    public String toString() {
+      return written + " files written, " + unchanged + " unchanged, "
+          + removed + " removed";
+    }
+  }
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileAgentProtocol.FRAME_FILE;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileAgentProtocol.PRECOMPILATION_CACHED;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileAgentProtocol.PRECOMPILATION_MISSING;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.FRAME_LOG;
+import static org.docstr.gradle.plugins.gwt.internal.GwtCompileServerProtocol.FRAME_RESULT;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Hands permutation jobs to a pool of {@link GwtCompileAgent}s and collects
+ * the compiled permutations. Every agent gets one job at a time. A job whose
+ * agent can't be reached is handed to another agent, an agent that failed
+ * to connect is not used any more.
+ */
+public final class GwtPermutationDispatcher {
+
+  private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+  private static final int MAX_ATTEMPTS = 3;
+
+  private final List<InetSocketAddress> agents;
+  private final String token;
+  private final Consumer<String> log;
+
+  public GwtPermutationDispatcher(final List<InetSocketAddress> agents,
+      final String token, final Consumer<String> log) {
+    this.agents = agents;
+    this.token = token;
+    this.log = log;
+  }
+
+  /**
+   * Parses an agent address.
+   *
+   * @param address the address in the form {@code host:port}
+   * @return the parsed address
+   */
+  public static InetSocketAddress parseAddress(final String address) {
+    final int colon = address.lastIndexOf(':');
+    if (colon <= 0) {
+      throw new IllegalArgumentException(
+          "Agent address must have the form host:port, got " + address);
+    }
+    return InetSocketAddress.createUnresolved(address.substring(0, colon),
+        Integer.parseInt(address.substring(colon + 1)));
+  }
+
+  /**
+   * Compiles all given jobs and blocks until they are done.
+   *
+   * @param jobs the permutations to compile
+   * @throws IOException if a permutation failed to compile or couldn't be
+   *     compiled by any agent
+   */
+  public void compile(final List<Job> jobs) throws IOException {
+    final BlockingQueue<Job> queue = new LinkedBlockingQueue<>(jobs);
+    final AtomicInteger remaining = new AtomicInteger(jobs.size());
+    final AtomicReference<String> failure = new AtomicReference<>();
+    final List<Thread> threads = new ArrayList<>();
+    for (InetSocketAddress agent : agents) {
+      final Thread thread = new Thread(
+          () -> work(agent, queue, remaining, failure),
+          "gwt-permutation-dispatcher-" + agent);
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while compiling permutations", e);
+      }
+    }
+    if (failure.get() != null) {
+      throw new IOException(failure.get());
+    }
+    if (remaining.get() > 0) {
+      throw new IOException(remaining.get()
+          + " permutation(s) couldn't be compiled, no compile agent is left");
+    }
+  }
+
+  private void work(final InetSocketAddress agent, final BlockingQueue<Job> queue,
+      final AtomicInteger remaining, final AtomicReference<String> failure) {
+    // Keep polling until all jobs are done, a job of a failed agent may
+    // still be handed back to the queue
+    while (failure.get() == null && remaining.get() > 0) {
+      final Job job;
+      try {
+        job = queue.poll(200, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (job == null) {
+        continue;
+      }
+      final long start = System.nanoTime();
+      try {
+        if (!compile(agent, job)) {
+          failure.compareAndSet(null, "Permutation " + job.perm + " of "
+              + job.module + " failed to compile on agent " + agent);
+          return;
+        }
+        remaining.decrementAndGet();
+        log.accept(String.format("Compiled permutation %d of %s on %s in %d ms",
+            job.perm, job.module, agent,
+            (System.nanoTime() - start) / 1_000_000));
+      } catch (IOException e) {
+        log.accept("Compile agent " + agent + " failed, it is not used any "
+            + "more: " + e);
+        if (++job.attempts < MAX_ATTEMPTS) {
+          queue.add(job);
+        } else {
+          failure.compareAndSet(null, "Permutation " + job.perm + " of "
+              + job.module + " failed on " + MAX_ATTEMPTS + " agents");
+        }
+        return;
+      }
+    }
+  }
+
+  private boolean compile(final InetSocketAddress agent, final Job job)
+      throws IOException {
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(agent.getHostString(),
+          agent.getPort()), CONNECT_TIMEOUT_MILLIS);
+      final DataInputStream in = new DataInputStream(
+          new BufferedInputStream(socket.getInputStream()));
+      final DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(socket.getOutputStream()));
+      out.writeUTF(token);
+      out.writeUTF(job.module);
+      out.writeInt(job.perm);
+      out.writeUTF(job.precompilationHash);
+      GwtCompileServerProtocol.writeStrings(out, job.args);
+      out.flush();
+
+      final byte answer = in.readByte();
+      if (answer == PRECOMPILATION_MISSING) {
+        GwtCompileAgentProtocol.sendFile(out, job.precompilation);
+      } else if (answer != PRECOMPILATION_CACHED) {
+        throw new IOException("Unexpected answer " + answer);
+      }
+
+      while (true) {
+        final byte frame = in.readByte();
+        if (frame == FRAME_LOG) {
+          log.accept(in.readUTF());
+        } else if (frame == FRAME_RESULT) {
+          if (!Boolean.parseBoolean(in.readUTF())) {
+            return false;
+          }
+          if (in.readByte() != FRAME_FILE) {
+            throw new IOException("Agent didn't send the permutation");
+          }
+          GwtCompileAgentProtocol.receiveFile(in, job.output);
+          return true;
+        } else {
+          throw new IOException("Unexpected frame " + frame);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param precompilation the precompiled module
+   * @return the hash that identifies the precompiled module on the agents
+   * @throws IOException if the file can't be read
+   */
+  public static String hash(final File precompilation) throws IOException {
+    return GwtCompileAgentProtocol.hash(precompilation);
+  }
+
+  /**
+   * A single permutation to compile.
+   */
+  public static final class Job {
+
+    private final String module;
+    private final int perm;
+    private final File precompilation;
+    private final String precompilationHash;
+    private final List<String> args;
+    private final File output;
+    private int attempts;
+
+    /**
+     * @param module the GWT module
+     * @param perm the number of the permutation
+     * @param precompilation the precompiled module
+     * @param precompilationHash the hash of the precompiled module
+     * @param args additional arguments for GWT's CompilePerms
+     * @param output the file that receives the compiled permutation
+     */
+    public Job(final String module, final int perm, final File precompilation,
+        final String precompilationHash, final List<String> args,
+        final File output) {
+      this.module = module;
+      this.perm = perm;
+      this.precompilation = precompilation;
+      this.precompilationHash = precompilationHash;
+      this.args = args;
+      this.output = output;
+    }
+
+    public String getModule() {
+      return module;
+    }
+
+    public int getPerm() {
+      return perm;
+    }
+
+    public List<String> getArgs() {
+      return args;
+    }
+
+    public File getOutput() {
+      return output;
+    }
+  }
+}
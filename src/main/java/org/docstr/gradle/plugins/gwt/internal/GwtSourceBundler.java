@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packs the directories of a GWT compile's classpath into a single jar. The
+ * compiler's resource oracle walks every directory of its classpath on
+ * each compile, which on slow disks takes a noticeable share of the compile
+ * for projects with many files, while it reads a jar's central directory at
+ * once.
+ *
+ * <p>The jar contains the module descriptors, the files below the source,
+ * super-source, public and resource paths of the modules and all classes,
+ * which generators may load. Of several files with the same path the one of
+ * the first directory wins, like on the classpath. Entries are sorted and
+ * have a fixed timestamp, so equal inputs produce an equal jar, and the jar
+ * starts with a {@code META-INF/INDEX.LIST} listing its packages.
+ */
+public final class GwtSourceBundler {
+
+  static final String INDEX = "META-INF/INDEX.LIST";
+
+  private static final String CLASS_SUFFIX = ".class";
+
+  /**
+   * 1980-02-01 in local time, which zip stores the same in every time
+   * zone, like Gradle does for reproducible archives.
+   */
+  private static final long ENTRY_TIME = new GregorianCalendar(1980,
+      Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+
+  private final Set<String> descriptorPaths;
+  private final Set<String> sourcePaths;
+
+  /**
+   * @param descriptorPaths the paths of the module descriptors
+   * @param sourcePaths the directories the modules read files from, null to
+   *     bundle all files, e.g. if a module wasn't found
+   */
+  public GwtSourceBundler(final Set<String> descriptorPaths,
+      final Set<String> sourcePaths) {
+    this.descriptorPaths = descriptorPaths;
+    this.sourcePaths = sourcePaths;
+  }
+
+  /**
+   * Writes the relevant files of the given directories into the jar. Other
+   * entries, like jars, are skipped, as they already are single entries.
+   *
+   * @param entries the classpath entries, in classpath order
+   * @param jar the jar to write
+   * @return the number of bundled files
+   * @throws IOException if a file can't be read or the jar written
+   */
+  public int bundle(final List<File> entries, final File jar)
+      throws IOException {
+    final Map<String, Path> files = new TreeMap<>();
+    for (File entry : entries) {
+      if (!entry.isDirectory()) {
+        continue;
+      }
+      final Path dir = entry.toPath();
+      final List<Path> paths;
+      try (Stream<Path> walk = Files.walk(dir)) {
+        paths = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+      }
+      for (Path file : paths) {
+        final String path = dir.relativize(file).toString()
+            .replace(File.separatorChar, '/');
+        if (isRelevant(path)) {
+          files.putIfAbsent(path, file);
+        }
+      }
+    }
+
+    Files.createDirectories(jar.getParentFile().toPath());
+    final Path tmp = Files.createTempFile(jar.getParentFile().toPath(),
+        jar.getName(), ".tmp");
+    try {
+      try (ZipOutputStream out = new ZipOutputStream(
+          Files.newOutputStream(tmp))) {
+        final Set<String> dirs = directories(files.keySet());
+        putEntry(out, INDEX, index(jar.getName(), dirs)
+            .getBytes(StandardCharsets.UTF_8));
+        for (String dir : dirs) {
+          putEntry(out, dir, null);
+        }
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+          putEntry(out, file.getKey(), Files.readAllBytes(file.getValue()));
+        }
+      }
+      Files.move(tmp, jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+    return files.size();
+  }
+
+  boolean isRelevant(final String path) {
+    if (sourcePaths == null || path.endsWith(CLASS_SUFFIX)
+        || descriptorPaths.contains(path)) {
+      return true;
+    }
+    for (String sourcePath : sourcePaths) {
+      if (path.startsWith(sourcePath)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the parent directories of the given files, ending with a slash
+   */
+  static Set<String> directories(final Set<String> files) {
+    final Set<String> dirs = new TreeSet<>();
+    for (String file : files) {
+      for (int slash = file.indexOf('/'); slash > 0;
+          slash = file.indexOf('/', slash + 1)) {
+        dirs.add(file.substring(0, slash + 1));
+      }
+    }
+    return dirs;
+  }
+
+  /**
+   * @return the jar index listing the packages of the jar, see the jar
+   *     file specification
+   */
+  static String index(final String jarName, final Set<String> dirs) {
+    final StringBuilder index = new StringBuilder("JarIndex-Version: 1.0\n\n")
+        .append(jarName).append('\n');
+    for (String dir : dirs) {
+      if (!dir.startsWith("META-INF/")) {
+        index.append(dir, 0, dir.length() - 1).append('\n');
+      }
+    }
+    return index.append('\n').toString();
+  }
+
+  private static void putEntry(final ZipOutputStream out, final String name,
+      final byte[] content) throws IOException {
+    final ZipEntry entry = new ZipEntry(name);
+    entry.setTime(ENTRY_TIME);
+    out.putNextEntry(entry);
+    if (content != null) {
+      out.write(content);
+    }
+    out.closeEntry();
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+/**
+ * Runs the main method of a GWT tool in a forked JVM and writes the
+ * {@link GwtHeapTelemetry heap telemetry} of the JVM to a file when the JVM
+ * exits. The GWT tools end with {@link System#exit(int)}, so the report is
+ * written by a shutdown hook.
+ *
+ * <p>Arguments: the report file, the main class of the tool and the
+ * arguments of the tool.
+ *
+ * <p>This class must not depend on the Gradle API as it is started with the
+ * project classpath and the plugin jar only.
+ */
+public final class GwtToolLauncher {
+
+  private GwtToolLauncher() {
+  }
+
+  public static void main(final String[] args) throws Throwable {
+    final File reportFile = new File(args[0]);
+    final String mainClass = args[1];
+    final String[] toolArgs = Arrays.copyOfRange(args, 2, args.length);
+
+    final GwtHeapTelemetry telemetry = GwtHeapTelemetry.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        telemetry.finishProcess().writeTo(reportFile);
+      } catch (IOException e) {
+        System.err.println("Can't write heap telemetry: " + e);
+      }
+    }, "gwt-heap-telemetry"));
+    final Thread.UncaughtExceptionHandler handler =
+        Thread.getDefaultUncaughtExceptionHandler();
+    Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {
+      if (e instanceof OutOfMemoryError) {
+        telemetry.outOfMemory();
+      }
+      if (handler != null) {
+        handler.uncaughtException(thread, e);
+      } else {
+        e.printStackTrace();
+      }
+    });
+
+    try {
+      Class.forName(mainClass).getMethod("main", String[].class)
+          .invoke(null, (Object) toolArgs);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof OutOfMemoryError) {
+        telemetry.outOfMemory();
+      }
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,496 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.ImportTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.ModifiersTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import javax.lang.model.element.Modifier;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Checks client sources for code the GWT compiler can't translate, before
+ * the compiler starts. The sources are only parsed, not compiled, with the
+ * javac Tree API, which makes the check take seconds:
+ * <ul>
+ * <li>JRE types that the JRE emulation doesn't provide, imported, fully
+ * qualified or from java.lang, are errors.</li>
+ * <li>Imports of types outside of all GWT source paths are warnings, as
+ * they may only be used by annotations.</li>
+ * <li>Methods of native JsTypes must be native or JsOverlay methods,
+ * JsOverlay methods must be effectively final and JsFunction interfaces
+ * must have a single abstract method.</li>
+ * </ul>
+ * The problems of each file are cached by its path, size and modification
+ * time, the index of translatable types and the Java version, whose
+ * java.lang types are checked, so that only changed files are parsed.
+ */
+public final class GwtTranslatabilityChecker {
+
+  private static final String INDEX_KEY = "#index";
+  private static final String JAVA = "java.";
+
+  private final GwtTranslatableIndex index;
+  private final Set<String> projectTypes;
+  private final File cacheFile;
+  private final Map<String, Boolean> jdkLangTypes = new HashMap<>();
+
+  /**
+   * @param index the translatable types
+   * @param projectTypes the types of the project's source directories, e.g.
+   *     "com/example/client/App"
+   * @param cacheFile the file caching the problems of unchanged files
+   */
+  public GwtTranslatabilityChecker(final GwtTranslatableIndex index,
+      final Set<String> projectTypes, final File cacheFile) {
+    this.index = index;
+    this.projectTypes = projectTypes;
+    this.cacheFile = cacheFile;
+  }
+
+  /**
+   * @return true if the JDK running the build provides the javac Tree API
+   */
+  public static boolean isAvailable() {
+    try {
+      Class.forName("com.sun.source.util.JavacTask");
+      return ToolProvider.getSystemJavaCompiler() != null;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * Checks the given sources.
+   *
+   * @param sources the sources by their path relative to their source
+   *     directory, which is used in the problems
+   * @return the problems of all sources
+   * @throws IOException if a source can't be read
+   */
+  public List<Problem> check(final Map<String, File> sources)
+      throws IOException {
+    final Properties cache = loadCache();
+    final Properties used = new Properties();
+    used.setProperty(INDEX_KEY, indexKey());
+
+    final List<Problem> problems = new ArrayList<>();
+    final Map<File, String> parse = new LinkedHashMap<>();
+    for (Map.Entry<String, File> source : sources.entrySet()) {
+      final String key = source.getKey();
+      final String stamp = stamp(source.getValue());
+      final String cached = cache.getProperty(key);
+      if (cached != null && cached.startsWith(stamp)) {
+        used.setProperty(key, cached);
+        problems.addAll(Problem.parseAll(key,
+            cached.substring(stamp.length())));
+      } else {
+        parse.put(source.getValue(), key);
+      }
+    }
+
+    if (!parse.isEmpty()) {
+      final Map<String, List<Problem>> parsed = parse(parse);
+      for (Map.Entry<File, String> source : parse.entrySet()) {
+        final List<Problem> fileProblems = parsed.getOrDefault(
+            source.getValue(), Collections.emptyList());
+        problems.addAll(fileProblems);
+        used.setProperty(source.getValue(),
+            stamp(source.getKey()) + Problem.formatAll(fileProblems));
+      }
+    }
+    storeCache(used);
+    return problems;
+  }
+
+  /**
+   * @return the key of the types the problems depend on besides the source
+   */
+  private String indexKey() {
+    return index.fingerprint() + ":" + projectTypes.hashCode() + ":"
+        + System.getProperty("java.specification.version");
+  }
+
+  private static String stamp(final File file) {
+    return file.length() + ":" + file.lastModified() + ":";
+  }
+
+  private Properties loadCache() {
+    final Properties cache = new Properties();
+    if (cacheFile.isFile()) {
+      try (InputStream in = Files.newInputStream(cacheFile.toPath())) {
+        cache.load(in);
+      } catch (IOException e) {
+        // a broken cache is as good as none
+      }
+    }
+    if (!indexKey().equals(cache.getProperty(INDEX_KEY))) {
+      cache.clear();
+    }
+    return cache;
+  }
+
+  private void storeCache(final Properties cache) throws IOException {
+    Files.createDirectories(cacheFile.getAbsoluteFile().getParentFile().toPath());
+    final File temp = new File(cacheFile.getPath() + ".tmp");
+    try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+      cache.store(out, "GWT translatability problems by source");
+    }
+    Files.move(temp.toPath(), cacheFile.toPath(),
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private Map<String, List<Problem>> parse(final Map<File, String> sources)
+      throws IOException {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final Map<String, List<Problem>> problems = new HashMap<>();
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(
+        null, null, StandardCharsets.UTF_8)) {
+      final Map<JavaFileObject, String> paths = new IdentityHashMap<>();
+      for (Map.Entry<File, String> source : sources.entrySet()) {
+        for (JavaFileObject fileObject : fileManager.getJavaFileObjectsFromFiles(
+            Collections.singleton(source.getKey()))) {
+          paths.put(fileObject, source.getValue());
+        }
+      }
+      final JavacTask task = (JavacTask) compiler.getTask(null, fileManager,
+          new DiagnosticCollector<JavaFileObject>(),
+          Collections.singletonList("-proc:none"), null, paths.keySet());
+      final SourcePositions positions = Trees.instance(task).getSourcePositions();
+      for (CompilationUnitTree unit : task.parse()) {
+        final String path = paths.get(unit.getSourceFile());
+        final List<Problem> unitProblems = new ArrayList<>();
+        new Scanner(unit, positions, path, unitProblems).scan(unit, null);
+        problems.put(path, unitProblems);
+      }
+    }
+    return problems;
+  }
+
+  private boolean isJdkLangType(final String name) {
+    return jdkLangTypes.computeIfAbsent(name, simpleName -> {
+      try {
+        Class.forName("java.lang." + simpleName, false,
+            ClassLoader.getSystemClassLoader());
+        return true;
+      } catch (ClassNotFoundException | LinkageError e) {
+        return false;
+      }
+    });
+  }
+
+  /**
+   * Finds the problems of one compilation unit.
+   */
+  private final class Scanner extends TreeScanner<Void, Void> {
+
+    private final CompilationUnitTree unit;
+    private final SourcePositions positions;
+    private final String path;
+    private final List<Problem> problems;
+    private final String packagePath;
+    private final Set<String> importedNames = new HashSet<>();
+    private final Set<String> declaredNames = new HashSet<>();
+    private final Deque<ClassTree> classes = new ArrayDeque<>();
+
+    private Scanner(final CompilationUnitTree unit,
+        final SourcePositions positions, final String path,
+        final List<Problem> problems) {
+      this.unit = unit;
+      this.positions = positions;
+      this.path = path;
+      this.problems = problems;
+      this.packagePath = unit.getPackageName() == null ? ""
+          : unit.getPackageName().toString().replace('.', '/') + '/';
+    }
+
+    @Override
+    public Void visitCompilationUnit(final CompilationUnitTree tree,
+        final Void unused) {
+      for (ImportTree importTree : tree.getImports()) {
+        final String name = importTree.getQualifiedIdentifier().toString();
+        importedNames.add(name.substring(name.lastIndexOf('.') + 1));
+      }
+      new TreeScanner<Void, Void>() {
+        @Override
+        public Void visitClass(final ClassTree classTree, final Void v) {
+          declaredNames.add(classTree.getSimpleName().toString());
+          return super.visitClass(classTree, v);
+        }
+      }.scan(tree.getTypeDecls(), null);
+      // the package declaration isn't checked
+      scan(tree.getImports(), null);
+      scan(tree.getTypeDecls(), null);
+      return null;
+    }
+
+    @Override
+    public Void visitImport(final ImportTree tree, final Void unused) {
+      String name = tree.getQualifiedIdentifier().toString();
+      final boolean onDemand = name.endsWith(".*");
+      if (onDemand) {
+        name = name.substring(0, name.length() - 2);
+      }
+      if (tree.isStatic() && !onDemand) {
+        // the imported member
+        name = name.substring(0, name.lastIndexOf('.'));
+      }
+      final String type = name.replace('.', '/');
+      final boolean packageImport = onDemand && !tree.isStatic();
+      if (name.startsWith(JAVA)) {
+        if (packageImport
+            ? !index.isEmulatedPackage(type + '/') : !index.isEmulated(type)) {
+          error(tree, name + (packageImport ? ".*" : "")
+              + " is not emulated by GWT");
+        }
+      } else if (!packageImport && !index.isTranslatable(type)) {
+        warning(tree, name + " is not in a GWT source path");
+      }
+      return null;
+    }
+
+    @Override
+    public Void visitMemberSelect(final MemberSelectTree tree,
+        final Void unused) {
+      final String name = tree.toString();
+      if (!name.startsWith(JAVA)) {
+        return super.visitMemberSelect(tree, unused);
+      }
+      // the type is the first segment starting with an upper case letter
+      final StringBuilder type = new StringBuilder();
+      for (String segment : name.split("\\.")) {
+        type.append(type.length() > 0 ? "/" : "").append(segment);
+        if (!segment.isEmpty() && Character.isUpperCase(segment.charAt(0))) {
+          if (!index.isEmulated(type.toString())) {
+            error(tree, type.toString().replace('/', '.')
+                + " is not emulated by GWT");
+          }
+          break;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public Void visitIdentifier(final IdentifierTree tree,
+        final Void unused) {
+      final String name = tree.getName().toString();
+      if (!name.isEmpty() && Character.isUpperCase(name.charAt(0))
+          && !importedNames.contains(name) && !declaredNames.contains(name)
+          && !projectTypes.contains(packagePath + name)
+          && !index.isTranslatable(packagePath + name)
+          && isJdkLangType(name) && !index.isEmulated("java/lang/" + name)) {
+        error(tree, "java.lang." + name + " is not emulated by GWT");
+      }
+      return null;
+    }
+
+    @Override
+    public Void visitClass(final ClassTree tree, final Void unused) {
+      if (hasAnnotation(tree.getModifiers(), "JsFunction")
+          && tree.getKind() == Tree.Kind.INTERFACE) {
+        int abstractMethods = 0;
+        for (Tree member : tree.getMembers()) {
+          if (member instanceof MethodTree
+              && ((MethodTree) member).getBody() == null
+              && !((MethodTree) member).getModifiers().getFlags()
+                  .contains(Modifier.STATIC)) {
+            abstractMethods++;
+          }
+        }
+        if (abstractMethods != 1) {
+          error(tree, "JsFunction " + tree.getSimpleName()
+              + " must have exactly one abstract method");
+        }
+      }
+      classes.push(tree);
+      try {
+        return super.visitClass(tree, unused);
+      } finally {
+        classes.pop();
+      }
+    }
+
+    @Override
+    public Void visitMethod(final MethodTree tree, final Void unused) {
+      final ClassTree owner = classes.peek();
+      final boolean overlay = hasAnnotation(tree.getModifiers(), "JsOverlay");
+      if (owner != null && owner.getKind() == Tree.Kind.CLASS) {
+        final Set<Modifier> flags = tree.getModifiers().getFlags();
+        if (isNativeJsType(owner) && tree.getBody() != null && !overlay
+            && !tree.getName().contentEquals("<init>")) {
+          error(tree, "Method " + tree.getName() + " of native JsType "
+              + owner.getSimpleName() + " must be native or a JsOverlay");
+        }
+        if (overlay && !flags.contains(Modifier.FINAL)
+            && !flags.contains(Modifier.STATIC)
+            && !owner.getModifiers().getFlags().contains(Modifier.FINAL)) {
+          error(tree, "JsOverlay method " + tree.getName()
+              + " must be final or static");
+        }
+      }
+      return super.visitMethod(tree, unused);
+    }
+
+    private boolean isNativeJsType(final ClassTree tree) {
+      for (AnnotationTree annotation : tree.getModifiers().getAnnotations()) {
+        if (!isAnnotation(annotation, "JsType")) {
+          continue;
+        }
+        for (ExpressionTree argument : annotation.getArguments()) {
+          if (argument instanceof AssignmentTree
+              && ((AssignmentTree) argument).getVariable().toString()
+                  .equals("isNative")
+              && ((AssignmentTree) argument).getExpression().toString()
+                  .equals("true")) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    private boolean hasAnnotation(final ModifiersTree modifiers,
+        final String simpleName) {
+      for (AnnotationTree annotation : modifiers.getAnnotations()) {
+        if (isAnnotation(annotation, simpleName)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean isAnnotation(final AnnotationTree annotation,
+        final String simpleName) {
+      final String type = annotation.getAnnotationType().toString();
+      return type.equals(simpleName) || type.endsWith("." + simpleName);
+    }
+
+    private void error(final Tree tree, final String message) {
+      problems.add(new Problem(true, path, line(tree), message));
+    }
+
+    private void warning(final Tree tree, final String message) {
+      problems.add(new Problem(false, path, line(tree), message));
+    }
+
+    private long line(final Tree tree) {
+      return unit.getLineMap().getLineNumber(
+          positions.getStartPosition(unit, tree));
+    }
+  }
+
+  /**
+   * A translatability problem of a source.
+   */
+  public static final class Problem {
+
+    private final boolean error;
+    private final String path;
+    private final long line;
+    private final String message;
+
+    Problem(final boolean error, final String path, final long line,
+        final String message) {
+      this.error = error;
+      this.path = path;
+      this.line = line;
+      this.message = message;
+    }
+
+    /**
+     * @return true for an error, false for a warning
+     */
+    public boolean isError() {
+      return error;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    public long getLine() {
+      return line;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    static String formatAll(final List<Problem> problems) {
+      final StringBuilder text = new StringBuilder();
+      for (Problem problem : problems) {
+        text.append(problem.error ? 'E' : 'W').append(problem.line)
+            .append(':').append(problem.message).append('\n');
+      }
+      return text.toString();
+    }
+
+    static List<Problem> parseAll(final String path, final String text) {
+      final List<Problem> problems = new ArrayList<>();
+      for (String line : text.split("\n")) {
+        final int colon = line.indexOf(':');
+        if (colon > 1) {
+          problems.add(new Problem(line.charAt(0) == 'E', path,
+              Long.parseLong(line.substring(1, colon)),
+              line.substring(colon + 1)));
+        }
+      }
+      return problems;
+    }
+
+    @Override
+    public String toString() {
+      return path + ":" + line + ": " + (error ? "error" : "warning") + ": "
+          + message;
+    }
+  }
+}
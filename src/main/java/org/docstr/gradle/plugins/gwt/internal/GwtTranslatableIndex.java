@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The classes the GWT compiler can translate for a module graph: the JRE
+ * emulation and other super sources, and the Java sources below the source
+ * paths of the modules. Classes are named by their path without the .java
+ * suffix, e.g. "java/util/List".
+ */
+public final class GwtTranslatableIndex {
+
+  private static final String JAVA_SUFFIX = ".java";
+
+  private final TreeSet<String> emulated = new TreeSet<>();
+  private final Set<String> translatable = new TreeSet<>();
+
+  private GwtTranslatableIndex() {
+  }
+
+  /**
+   * Indexes the sources of a module graph.
+   *
+   * @param graph the module graph
+   * @param roots the source directories and jars the graph was read from
+   * @return the index
+   * @throws IOException if a root can't be read
+   */
+  public static GwtTranslatableIndex load(final GwtModuleGraph graph,
+      final Iterable<File> roots) throws IOException {
+    final Set<String> javaSourcePaths = new TreeSet<>();
+    graph.getModules().forEach(
+        module -> javaSourcePaths.addAll(graph.getJavaSourcePaths(module)));
+    final GwtTranslatableIndex index = new GwtTranslatableIndex();
+    for (File root : roots) {
+      for (String name : GwtClasspathScanner.names(root)) {
+        if (!name.endsWith(JAVA_SUFFIX)) {
+          continue;
+        }
+        final String type = name.substring(0, name.length() - JAVA_SUFFIX.length());
+        for (String path : graph.getSuperSourcePaths()) {
+          if (name.startsWith(path)) {
+            index.emulated.add(type.substring(path.length()));
+          }
+        }
+        for (String path : javaSourcePaths) {
+          if (name.startsWith(path)) {
+            index.translatable.add(type);
+            break;
+          }
+        }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * @return true if no emulated types were found, e.g. because the GWT SDK
+   *     isn't on the classpath
+   */
+  public boolean isEmpty() {
+    return emulated.isEmpty();
+  }
+
+  /**
+   * @param type the path of a type, which may be a nested type, e.g.
+   *     "java/util/Map/Entry"
+   * @return true if the type or its enclosing type is emulated
+   */
+  public boolean isEmulated(final String type) {
+    return containsTypeOrEnclosing(emulated, type);
+  }
+
+  /**
+   * @param type the path of a type, which may be a nested type
+   * @return true if the type or its enclosing type is emulated or in a
+   *     source path
+   */
+  public boolean isTranslatable(final String type) {
+    return isEmulated(type) || containsTypeOrEnclosing(translatable, type);
+  }
+
+  /**
+   * @param packagePath the path of a package, ending with a slash
+   * @return true if the package has emulated types
+   */
+  public boolean isEmulatedPackage(final String packagePath) {
+    final String next = emulated.ceiling(packagePath);
+    return next != null && next.startsWith(packagePath);
+  }
+
+  private static boolean containsTypeOrEnclosing(final Set<String> types,
+      final String type) {
+    String candidate = type;
+    while (true) {
+      if (types.contains(candidate)) {
+        return true;
+      }
+      final int slash = candidate.lastIndexOf('/');
+      if (slash < 0) {
+        return false;
+      }
+      candidate = candidate.substring(0, slash);
+    }
+  }
+
+  /**
+   * @return a hash of the indexed types, which changes with the GWT SDK and
+   *     the modules
+   */
+  public String fingerprint() {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (String type : emulated) {
+        digest.update(("e:" + type + '\n').getBytes(StandardCharsets.UTF_8));
+      }
+      for (String type : translatable) {
+        digest.update(("t:" + type + '\n').getBytes(StandardCharsets.UTF_8));
+      }
+      final StringBuilder hex = new StringBuilder();
+      for (byte b : digest.digest()) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
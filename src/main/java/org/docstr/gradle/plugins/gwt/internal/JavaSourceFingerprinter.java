@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * Computes one fingerprint of many Java sources that only changes if the
+ * {@link JavaSourceNormalizer tokens} of a source or the path of a source
+ * change. The fingerprint of each file is cached by its path, size and
+ * modification time, so that unchanged files aren't read again.
+ */
+public final class JavaSourceFingerprinter {
+
+  private final File cacheFile;
+  private final Properties cache = new Properties();
+  private final Properties used = new Properties();
+  private final MessageDigest digest = sha256();
+
+  /**
+   * @param cacheFile the file caching the fingerprints of single files
+   */
+  public JavaSourceFingerprinter(final File cacheFile) {
+    this.cacheFile = cacheFile;
+    if (cacheFile.isFile()) {
+      try (InputStream in = Files.newInputStream(cacheFile.toPath())) {
+        cache.load(in);
+      } catch (IOException e) {
+        // a broken cache is as good as none
+      }
+    }
+  }
+
+  /**
+   * Adds a source to the fingerprint. Sources must be added in a stable
+   * order.
+   *
+   * @param relativePath the path of the source below its source directory
+   * @param file the source file
+   * @throws IOException if the source can't be read
+   */
+  public void add(final String relativePath, final File file)
+      throws IOException {
+    final String stamp = file.length() + ":" + file.lastModified() + ":";
+    final String key = file.getAbsolutePath();
+    String cached = cache.getProperty(key);
+    if (cached == null || !cached.startsWith(stamp)) {
+      final String source = new String(Files.readAllBytes(file.toPath()),
+          StandardCharsets.UTF_8);
+      cached = stamp + hex(sha256().digest(JavaSourceNormalizer
+          .normalize(source).getBytes(StandardCharsets.UTF_8)));
+    }
+    used.setProperty(key, cached);
+    digest.update((relativePath + '\0' + cached.substring(stamp.length())
+        + '\0').getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Stores the fingerprints of the added files, dropping those of files
+   * that weren't added.
+   *
+   * @return the fingerprint of all added sources
+   * @throws IOException if the cache can't be written
+   */
+  public String finish() throws IOException {
+    Files.createDirectories(cacheFile.getAbsoluteFile().getParentFile().toPath());
+    final File temp = new File(cacheFile.getPath() + ".tmp");
+    try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+      used.store(out, "Fingerprints of normalized Java sources");
+    }
+    Files.move(temp.toPath(), cacheFile.toPath(),
+        StandardCopyOption.REPLACE_EXISTING);
+    return hex(digest.digest());
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hex(final byte[] bytes) {
+    final StringBuilder hex = new StringBuilder();
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+}
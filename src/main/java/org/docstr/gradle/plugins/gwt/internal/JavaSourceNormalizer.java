@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+/**
+ * Reduces Java sources to their tokens, so that sources differing only in
+ * comments, whitespace or line breaks normalize to the same text. The
+ * bodies of JSNI methods look like comments but are JavaScript code, so
+ * they are kept verbatim, like string, character and text block literals.
+ */
+public final class JavaSourceNormalizer {
+
+  /** Operators and separators of more than one character, longest first. */
+  private static final String[] OPERATORS = {
+      ">>>=", "<<=", ">>=", ">>>", "...", "->", "::", "++", "--", "&&", "||",
+      "==", "!=", "<=", ">=", "+=", "-=", "*=", "/=", "&=", "|=", "^=", "%=",
+      "<<", ">>"
+  };
+
+  private JavaSourceNormalizer() {
+  }
+
+  /**
+   * @param source the Java source
+   * @return the tokens of the source, one per line
+   */
+  public static String normalize(final String source) {
+    final StringBuilder tokens = new StringBuilder(source.length());
+    final int length = source.length();
+    int i = 0;
+    while (i < length) {
+      final char c = source.charAt(i);
+      final int end;
+      if (Character.isWhitespace(c)) {
+        i++;
+        continue;
+      } else if (source.startsWith("/*-{", i)) {
+        final int close = source.indexOf("}-*/", i + 4);
+        end = close < 0 ? length : close + 4;
+      } else if (source.startsWith("//", i)) {
+        final int newline = source.indexOf('\n', i);
+        i = newline < 0 ? length : newline;
+        continue;
+      } else if (source.startsWith("/*", i)) {
+        final int close = source.indexOf("*/", i + 2);
+        i = close < 0 ? length : close + 2;
+        continue;
+      } else if (source.startsWith("\"\"\"", i)) {
+        end = textBlockEnd(source, i + 3);
+      } else if (c == '"' || c == '\'') {
+        end = quotedEnd(source, i, c);
+      } else if (Character.isJavaIdentifierPart(c)) {
+        int j = i + 1;
+        while (j < length && Character.isJavaIdentifierPart(source.charAt(j))) {
+          j++;
+        }
+        end = j;
+      } else {
+        end = i + operatorLength(source, i);
+      }
+      tokens.append(source, i, end).append('\n');
+      i = end;
+    }
+    return tokens.toString();
+  }
+
+  private static int textBlockEnd(final String source, final int start) {
+    int i = start;
+    while (true) {
+      final int quotes = source.indexOf("\"\"\"", i);
+      if (quotes < 0) {
+        return source.length();
+      }
+      if (source.charAt(quotes - 1) != '\\') {
+        return quotes + 3;
+      }
+      // an escaped quote doesn't close the text block
+      i = quotes + 1;
+    }
+  }
+
+  private static int quotedEnd(final String source, final int start,
+      final char quote) {
+    int i = start + 1;
+    while (i < source.length()) {
+      final char c = source.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == quote || c == '\n') {
+        return i + 1;
+      } else {
+        i++;
+      }
+    }
+    return source.length();
+  }
+
+  private static int operatorLength(final String source, final int start) {
+    for (String operator : OPERATORS) {
+      if (source.startsWith(operator, start)) {
+        return operator.length();
+      }
+    }
+    return 1;
+  }
+}
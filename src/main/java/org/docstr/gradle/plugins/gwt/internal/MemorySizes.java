@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2013-2017 Steffen Schaefer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Converts between JVM memory size notations like "512M" and bytes.
+ */
+public final class MemorySizes {
+
+  private static final long KILO = 1024;
+  private static final long MEGA = KILO * 1024;
+  private static final long GIGA = MEGA * 1024;
+
+  private MemorySizes() {
+  }
+
+  /**
+   * Parses a memory size as accepted by -Xmx.
+   *
+   * @param size the size, e.g. "512m" or "2G", may be null
+   * @return the size in bytes or -1 if the size is null or can't be parsed
+   */
+  public static long parse(final String size) {
+    if (size == null || size.trim().isEmpty()) {
+      return -1;
+    }
+    final String value = size.trim().toUpperCase(Locale.ROOT);
+    long factor = 1;
+    String digits = value;
+    switch (value.charAt(value.length() - 1)) {
+      case 'K':
+        factor = KILO;
+        break;
+      case 'M':
+        factor = MEGA;
+        break;
+      case 'G':
+        factor = GIGA;
+        break;
+      case 'T':
+        factor = GIGA * KILO;
+        break;
+      default:
+        break;
+    }
+    if (factor != 1) {
+      digits = value.substring(0, value.length() - 1);
+    }
+    try {
+      return Long.parseLong(digits) * factor;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * @return the physical memory of the machine, limited by the memory limit
+   *     of the container, in bytes or -1 if unknown
+   */
+  public static long physicalMemory() {
+    return min(osMemory("getTotalMemorySize", "getTotalPhysicalMemorySize"),
+        ContainerResources.get().getMemoryLimit());
+  }
+
+  /**
+   * Reads a size from the operating system MXBean of the JVM. Java 14
+   * deprecated its accessors in favor of new ones, so they are looked up by
+   * name.
+   *
+   * @param name the accessor since Java 14
+   * @param legacyName the accessor before Java 14
+   * @return the size in bytes or -1 if unknown
+   */
+  private static long osMemory(final String name, final String legacyName) {
+    final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    if (!(os instanceof com.sun.management.OperatingSystemMXBean)) {
+      return -1;
+    }
+    for (String accessor : new String[] {name, legacyName}) {
+      try {
+        return (Long) com.sun.management.OperatingSystemMXBean.class
+            .getMethod(accessor).invoke(os);
+      } catch (NoSuchMethodException e) {
+        // older JVM, try the legacy accessor
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the smaller of two sizes, where -1 stands for unknown
+   */
+  private static long min(final long a, final long b) {
+    if (a < 0) {
+      return b;
+    }
+    return b < 0 ? a : Math.min(a, b);
+  }
+
+  /**
+   * @return the memory available to new processes in bytes, including the
+   *     page cache the kernel can drop and limited by the memory left in the
+   *     container, or -1 if unknown
+   */
+  public static long availableMemory() {
+    return min(hostAvailableMemory(),
+        ContainerResources.get().getAvailableMemory());
+  }
+
+  private static long hostAvailableMemory() {
+    try {
+      for (String line : Files.readAllLines(Paths.get("/proc/meminfo"),
+          StandardCharsets.US_ASCII)) {
+        if (line.startsWith("MemAvailable:")) {
+          // "MemAvailable:   12345678 kB"
+          return parse(line.substring("MemAvailable:".length())
+              .replace("kB", "K").replace(" ", ""));
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // not Linux, fall back to the free memory
+    }
+    return osMemory("getFreeMemorySize", "getFreePhysicalMemorySize");
+  }
+
+  /**
+   * Formats a number of bytes as accepted by -Xmx, rounded down to whole
+   * megabytes.
+   *
+   * @param bytes the size in bytes
+   * @return the size, e.g. "1536M"
+   */
+  public static String format(final long bytes) {
+    return Math.max(1, bytes / MEGA) + "M";
+  }
+}
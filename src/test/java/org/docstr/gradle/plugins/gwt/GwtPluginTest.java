@@ -15,11 +15,21 @@
  */
 package org.docstr.gradle.plugins.gwt;
 
+import static org.hamcrest.core.IsEqual.equalTo;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import org.gradle.api.Project;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.plugins.ExtensionContainer;
@@ -82,6 +92,174 @@ public class GwtPluginTest {
     assertNull(tasks.findByName(GwtBasePlugin.TASK_GWT_SUPER_DEV));
   }
 
+  @Test
+  public void testCompileStageTasksAvailable() {
+    getExtension().setSplitCompile(true);
+    ((ProjectInternal) project).evaluate();
+
+    assertThat(tasks.getByName(GwtCompilerPlugin.TASK_PRECOMPILE_GWT),
+        instanceOf(GwtPrecompile.class));
+    assertThat(tasks.getByName(GwtCompilerPlugin.TASK_COMPILE_PERMS_GWT),
+        instanceOf(GwtCompilePerms.class));
+    assertThat(tasks.getByName(GwtCompilerPlugin.TASK_LINK_GWT),
+        instanceOf(GwtLink.class));
+  }
+
+  @Test
+  public void testCompileStageTasksNotAvailable() {
+    ((ProjectInternal) project).evaluate();
+
+    assertNull(tasks.findByName(GwtCompilerPlugin.TASK_PRECOMPILE_GWT));
+  }
+
+  @Test
+  public void testModuleCompileTasksAvailable() {
+    getExtension().modules("com.example.app.App", "com.example.admin.Admin");
+    getExtension().setCompilePerModule(true);
+    ((ProjectInternal) project).evaluate();
+
+    assertThat(tasks.getByName("compileGwtApp"),
+        instanceOf(GwtModuleCompile.class));
+    assertThat(tasks.getByName("compileGwtAdmin"),
+        instanceOf(GwtModuleCompile.class));
+  }
+
+  @Test
+  public void testCompileVariantsTaskAvailable() {
+    getExtension().getVariants().add(new GwtOutputVariant("pretty"));
+    ((ProjectInternal) project).evaluate();
+
+    assertThat(tasks.getByName(GwtCompilerPlugin.TASK_COMPILE_GWT_VARIANTS),
+        instanceOf(GwtCompileVariants.class));
+  }
+
+  @Test
+  public void testJvmProfilesSelectedByTaskType() {
+    getExtension().getJvmProfiles().setEnabled(true);
+
+    GwtCompile compile =
+        (GwtCompile) tasks.getByName(GwtCompilerPlugin.TASK_COMPILE_GWT);
+    GwtDraftCompile draftCompile = (GwtDraftCompile) tasks
+        .getByName(GwtCompilerPlugin.TASK_DRAFT_COMPILE_GWT);
+    assertThat(compile.getJvmProfile().getName(),
+        equalTo(GwtJvmProfile.COMPILE));
+    assertThat(draftCompile.getJvmProfile().getName(),
+        equalTo(GwtJvmProfile.DRAFT));
+    assertThat(tasks.getByName(GwtCompilerPlugin.TASK_BENCHMARK_JVM_PROFILES),
+        instanceOf(GwtJvmProfileBenchmark.class));
+  }
+
+  @Test
+  public void testJavaLauncherNotSetByDefault() {
+    GwtCompile compile =
+        (GwtCompile) tasks.getByName(GwtCompilerPlugin.TASK_COMPILE_GWT);
+    assertNull(compile.getJavaLauncher());
+    assertThat(tasks.getByName(GwtCompilerPlugin.TASK_BENCHMARK_JDKS),
+        instanceOf(GwtJdkBenchmark.class));
+  }
+
+  @Test
+  public void testCheckTaskWritesMarker() {
+    GwtCheck check = (GwtCheck) tasks.getByName(GwtCompilerPlugin.TASK_CHECK);
+    assertThat(check.getMarkerFile(), equalTo(new File(project.getBuildDir(),
+        "gwt/check/" + GwtCompilerPlugin.TASK_CHECK + ".txt")));
+  }
+
+  @Test
+  public void testCheckTaskUsesWorkersForSeveralModules() {
+    getExtension().modules("com.example.app.App", "com.example.admin.Admin");
+    GwtCheck check = (GwtCheck) tasks.getByName(GwtCompilerPlugin.TASK_CHECK);
+    assertTrue(check.validatesInWorkers());
+
+    getExtension().setExecutionMode(ExecutionMode.SERVER);
+    assertTrue(check.validatesInWorkers());
+
+    check.setDebug(true);
+    assertFalse(check.validatesInWorkers());
+
+    check.setDebug(false);
+    getExtension().setModules(Collections.singletonList("com.example.app.App"));
+    assertFalse(check.validatesInWorkers());
+  }
+
+  @Test
+  public void testSourceBundleUsedWhenEnabled() {
+    GwtCompile compile =
+        (GwtCompile) tasks.getByName(GwtCompilerPlugin.TASK_COMPILE_GWT);
+    assertThat(tasks.getByName(GwtBasePlugin.TASK_GWT_SOURCE_BUNDLE),
+        instanceOf(GwtSourceBundle.class));
+    assertNull(compile.getSourceBundle());
+
+    getExtension().getSourceBundle().setEnabled(true);
+    assertThat(compile.getSourceBundle(), equalTo(new File(
+        project.getBuildDir(), "gwt/sourceBundle/sources.jar")));
+  }
+
+  @Test
+  public void testSourceBundleKeepsTaskSpecificSources() {
+    File srcDir = new File(project.getProjectDir(), "src/main/java");
+    File extraDir = new File(project.getBuildDir(), "gwt/extra");
+    srcDir.mkdirs();
+    extraDir.mkdirs();
+    getExtension().getSourceBundle().setEnabled(true);
+    GwtCompile compile =
+        (GwtCompile) tasks.getByName(GwtCompilerPlugin.TASK_COMPILE_GWT);
+    compile.setSrc(project.files(srcDir, extraDir));
+
+    assertThat(new ArrayList<>(compile.bundledClasspath(
+        compile.getSrc()).getFiles()), equalTo(Arrays.asList(
+        compile.getSourceBundle(), extraDir)));
+  }
+
+  @Test
+  public void testMaxHeapSizeInputIndependentOfMachine() {
+    GwtCompile compile =
+        (GwtCompile) tasks.getByName(GwtCompilerPlugin.TASK_COMPILE_GWT);
+    assertThat(compile.getMaxHeapSize(), equalTo("256M"));
+    assertThat(compile.getContainerMaxHeapSize(), equalTo(true));
+
+    getExtension().setMaxHeapSize("1G");
+    assertThat(compile.getMaxHeapSize(), equalTo("1G"));
+    assertThat(compile.getContainerMaxHeapSize(), equalTo(false));
+  }
+
+  @Test
+  public void testServerClassesNotInClasspathInputs() throws IOException {
+    write(new File(project.getProjectDir(),
+        "src/main/java/com/example/App.gwt.xml"), "<module/>");
+    File classes = new File(project.getBuildDir(), "classes/java/main");
+    File clientClass =
+        write(new File(classes, "com/example/client/A.class"), "");
+    File serverClass =
+        write(new File(classes, "com/example/server/S.class"), "");
+    getExtension().setModules(Collections.singletonList("com.example.App"));
+    GwtCompile compile =
+        (GwtCompile) tasks.getByName(GwtCompilerPlugin.TASK_COMPILE_GWT);
+    assertTrue(compile.getClasspathInputs().getFiles().contains(classes));
+
+    getExtension().setNarrowSourceInputs(true);
+    assertTrue(compile.getClasspathInputs().getFiles().contains(clientClass));
+    assertFalse(compile.getClasspathInputs().getFiles().contains(serverClass));
+    assertTrue(compile.getClasspath().getFiles().contains(classes));
+  }
+
+  @Test
+  public void testClientClassesNotInClasspathInputsWhenNormalized()
+      throws IOException {
+    write(new File(project.getProjectDir(),
+        "src/main/java/com/example/App.gwt.xml"), "<module/>");
+    File classes = new File(project.getBuildDir(), "classes/java/main");
+    File clientClass =
+        write(new File(classes, "com/example/client/A.class"), "");
+    getExtension().setModules(Collections.singletonList("com.example.App"));
+    getExtension().setNormalizeSourceInputs(true);
+    GwtCompile compile =
+        (GwtCompile) tasks.getByName(GwtCompilerPlugin.TASK_COMPILE_GWT);
+
+    assertFalse(compile.getClasspathInputs().getFiles().contains(clientClass));
+    assertTrue(compile.getClasspath().getFiles().contains(classes));
+  }
+
   @Test
   public void testWarTasksAvailable() {
     project.getPlugins().apply(WarPlugin.class);
@@ -94,6 +272,12 @@ public class GwtPluginTest {
         instanceOf(War.class));
   }
 
+  private static File write(File file, String content) throws IOException {
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
   private GwtPluginExtension getExtension() {
     return extensions.getByType(GwtPluginExtension.class);
   }
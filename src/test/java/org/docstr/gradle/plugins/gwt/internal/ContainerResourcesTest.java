@@ -0,0 +1,63 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ContainerResourcesTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void lowestLimitOfAllLevels() throws IOException {
+        Path root = temp.getRoot().toPath();
+        Path pod = Files.createDirectories(root.resolve("kubepods/pod1"));
+        Path container = Files.createDirectories(pod.resolve("abc"));
+        write(root.resolve("kubepods/cpu.max"), "max 100000");
+        write(pod.resolve("cpu.max"), "350000 100000");
+        write(pod.resolve("memory.max"), "8589934592");
+        write(container.resolve("memory.max"), "max");
+        write(container.resolve("memory.current"), "1073741824");
+
+        ContainerResources resources = ContainerResources.read(root, container);
+
+        Assert.assertEquals(4, resources.getCpuLimit());
+        Assert.assertEquals(8589934592L, resources.getMemoryLimit());
+        Assert.assertEquals(7516192768L, resources.getAvailableMemory());
+    }
+
+    @Test
+    public void readsMemoryUsageOnEveryCall() throws IOException {
+        Path root = temp.getRoot().toPath();
+        write(root.resolve("memory.max"), "4294967296");
+        write(root.resolve("memory.current"), "1073741824");
+
+        ContainerResources resources = ContainerResources.read(root, root);
+        Assert.assertEquals(3221225472L, resources.getAvailableMemory());
+
+        write(root.resolve("memory.current"), "3221225472");
+        Assert.assertEquals(1073741824L, resources.getAvailableMemory());
+    }
+
+    @Test
+    public void noLimits() throws IOException {
+        Path root = temp.getRoot().toPath();
+        write(root.resolve("cpu.max"), "max 100000");
+
+        ContainerResources resources = ContainerResources.read(root, root);
+
+        Assert.assertEquals(-1, resources.getCpuLimit());
+        Assert.assertEquals(-1, resources.getMemoryLimit());
+        Assert.assertEquals(-1, resources.getAvailableMemory());
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, (content + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,76 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtBinaryRepositoryTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void fingerprintIgnoresLocation() throws IOException {
+        String a = fingerprint(temp.newFolder("a"), "class A {}");
+        String b = fingerprint(temp.newFolder("b"), "class A {}");
+        String changed = fingerprint(temp.newFolder("c"), "class A { }");
+
+        Assert.assertEquals(a, b);
+        Assert.assertNotEquals(a, changed);
+    }
+
+    @Test
+    public void publishAndUnpack() throws IOException {
+        File output = temp.newFolder("out");
+        write(new File(output, "app/app.nocache.js"), "nocache");
+        write(new File(output, "app/A.cache.js"), "cache");
+        GwtBinaryRepository repository = new GwtBinaryRepository(
+            temp.newFolder("repo"), "org.example", "app-gwt");
+
+        File target = new File(temp.getRoot(), "unpacked");
+        Assert.assertFalse(repository.unpack("abc", target));
+        repository.publish("abc", output);
+
+        Assert.assertEquals(new File(temp.getRoot(),
+            "repo/org/example/app-gwt/abc/app-gwt-abc.zip"),
+            repository.artifact("abc"));
+        Assert.assertTrue(new File(temp.getRoot(),
+            "repo/org/example/app-gwt/abc/app-gwt-abc.pom").isFile());
+        Assert.assertTrue(repository.unpack("abc", target));
+        Assert.assertEquals("nocache",
+            read(new File(target, "app/app.nocache.js")));
+        Assert.assertEquals("cache", read(new File(target, "app/A.cache.js")));
+    }
+
+    private static String fingerprint(File dir, String source)
+        throws IOException {
+        File file = new File(dir, "com/example/client/A.java");
+        write(file, source);
+        File classes = new File(dir, "classes");
+        write(new File(classes, "com/example/A.class"), "bytes");
+        Map<String, File> sources = new TreeMap<>();
+        sources.put("com/example/client/A.java", file);
+        return GwtBinaryRepository.fingerprint(sources,
+            Collections.singletonList(classes),
+            Arrays.asList("2.10.0", "-style", "OBF"));
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()),
+            StandardCharsets.UTF_8);
+    }
+}
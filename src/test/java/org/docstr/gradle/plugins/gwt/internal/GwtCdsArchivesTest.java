@@ -0,0 +1,95 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtCdsArchivesTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void supportedFromJava11() {
+        Assert.assertFalse(GwtCdsArchives.isSupported(null));
+        Assert.assertFalse(GwtCdsArchives.isSupported("1.8"));
+        Assert.assertFalse(GwtCdsArchives.isSupported("10"));
+        Assert.assertTrue(GwtCdsArchives.isSupported("11"));
+        Assert.assertTrue(GwtCdsArchives.isSupported("17"));
+        Assert.assertFalse(GwtCdsArchives.isSupported("unknown"));
+    }
+
+    @Test
+    public void keyIsStableForSameClasspath() throws IOException {
+        final File jar = temp.newFile("gwt-dev.jar");
+
+        Assert.assertEquals(
+            GwtCdsArchives.key(Collections.singletonList(jar), "jdk"),
+            GwtCdsArchives.key(Collections.singletonList(jar), "jdk"));
+        Assert.assertEquals(32,
+            GwtCdsArchives.key(Collections.singletonList(jar), "jdk").length());
+    }
+
+    @Test
+    public void keyChangesWithJdk() throws IOException {
+        final File jar = temp.newFile("gwt-dev.jar");
+
+        Assert.assertNotEquals(
+            GwtCdsArchives.key(Collections.singletonList(jar), "jdk 11"),
+            GwtCdsArchives.key(Collections.singletonList(jar), "jdk 17"));
+    }
+
+    @Test
+    public void keyChangesWithPathSizeAndTime() throws IOException {
+        final File jar = temp.newFile("gwt-dev.jar");
+        final File copy = new File(temp.newFolder("other"), "gwt-dev.jar");
+        Files.copy(jar.toPath(), copy.toPath());
+        Assert.assertTrue(copy.setLastModified(jar.lastModified()));
+        final String key =
+            GwtCdsArchives.key(Collections.singletonList(jar), "jdk");
+
+        Assert.assertNotEquals(key,
+            GwtCdsArchives.key(Collections.singletonList(copy), "jdk"));
+
+        Assert.assertTrue(jar.setLastModified(jar.lastModified() - 60000));
+        final String touched =
+            GwtCdsArchives.key(Collections.singletonList(jar), "jdk");
+        Assert.assertNotEquals(key, touched);
+
+        Files.write(jar.toPath(), new byte[] {1});
+        Assert.assertTrue(jar.setLastModified(jar.lastModified() - 60000));
+        Assert.assertNotEquals(touched,
+            GwtCdsArchives.key(Collections.singletonList(jar), "jdk"));
+    }
+
+    @Test
+    public void keyDependsOnClasspathOrder() throws IOException {
+        final File dev = temp.newFile("gwt-dev.jar");
+        final File user = temp.newFile("gwt-user.jar");
+
+        Assert.assertNotEquals(
+            GwtCdsArchives.key(Arrays.asList(dev, user), "jdk"),
+            GwtCdsArchives.key(Arrays.asList(user, dev), "jdk"));
+    }
+
+    @Test
+    public void archiveNamedAfterKey() {
+        Assert.assertEquals(new File(temp.getRoot(), "gwt-0123.jsa"),
+            GwtCdsArchives.archive(temp.getRoot(), "0123"));
+    }
+
+    @Test
+    public void jdkCoversVersionAndHome() {
+        Assert.assertEquals("Vendor 17 " + temp.getRoot().getAbsolutePath(),
+            GwtCdsArchives.jdk("Vendor 17", temp.getRoot()));
+        Assert.assertTrue(GwtCdsArchives.currentJdk()
+            .endsWith(new File(System.getProperty("java.home"))
+                .getAbsolutePath()));
+    }
+}
@@ -0,0 +1,71 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtClasspathScannerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void keepsModulesSourcesAndPatterns() throws IOException {
+        File src = temp.newFolder("src");
+        write(src.toPath().resolve("com/example/App.gwt.xml"),
+            "<module><inherits name='org.lib.Lib'/></module>");
+        File classes = temp.newFolder("classes");
+        write(classes.toPath().resolve("com/example/client/App.class"), "");
+        File serverClasses = temp.newFolder("serverClasses");
+        write(serverClasses.toPath().resolve("com/example/server/Servlet.class"), "");
+        File lib = jar("lib.jar", "org/lib/Lib.gwt.xml", "org/lib/client/Lib.java");
+        File server = jar("jetty-server.jar", "org/eclipse/jetty/Server.class");
+        File guice = jar("guice-4.2.jar", "com/google/inject/Guice.class");
+
+        GwtModuleGraph graph = GwtModuleGraph.load(
+            Collections.singletonList("com.example.App"),
+            Arrays.asList(src, lib));
+        List<GwtClasspathScanner.Entry> entries =
+            new GwtClasspathScanner(graph, Collections.singletonList("guice-*.jar"))
+                .scan(Arrays.asList(classes, serverClasses, lib, server, guice));
+
+        Assert.assertEquals("module sources", entries.get(0).getReason());
+        Assert.assertFalse(entries.get(1).isKept());
+        Assert.assertEquals(1, entries.get(1).getFiles());
+        Assert.assertEquals("module descriptors", entries.get(2).getReason());
+        Assert.assertFalse(entries.get(3).isKept());
+        Assert.assertEquals("kept by pattern", entries.get(4).getReason());
+    }
+
+    private File jar(String name, String... entries) throws IOException {
+        File jar = new File(temp.getRoot(), name);
+        try (OutputStream out = Files.newOutputStream(jar.toPath());
+            ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (String entry : entries) {
+                zip.putNextEntry(new ZipEntry(entry));
+                if (entry.endsWith(".gwt.xml")) {
+                    zip.write("<module/>".getBytes(StandardCharsets.UTF_8));
+                }
+                zip.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,87 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtCompileAgentProtocolTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void hashIsSha1OfContent() throws IOException {
+        File file = write(temp.newFile("abc"), "abc");
+
+        Assert.assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d",
+            GwtCompileAgentProtocol.hash(file));
+    }
+
+    @Test
+    public void receivesSentFileWithMatchingHash() throws IOException {
+        File sent = write(temp.newFile("sent"), "precompilation");
+        File received = new File(temp.getRoot(), "cache/precompilation.ser");
+
+        GwtCompileAgentProtocol.receiveFile(stream(send(sent)), received,
+            GwtCompileAgentProtocol.hash(sent));
+
+        Assert.assertEquals("precompilation", new String(
+            Files.readAllBytes(received.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void rejectsFileWithOtherHash() throws IOException {
+        File sent = write(temp.newFile("sent"), "corrupt");
+        File received = new File(temp.getRoot(), "cache/precompilation.ser");
+
+        try {
+            GwtCompileAgentProtocol.receiveFile(stream(send(sent)), received,
+                "a9993e364706816aba3e25717850c26c9cd0d89d");
+            Assert.fail("the hash doesn't match");
+        } catch (IOException expected) {
+            Assert.assertFalse(received.exists());
+            Assert.assertEquals(0, received.getParentFile().list().length);
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws IOException {
+        File sent = write(temp.newFile("sent"), "precompilation");
+        byte[] bytes = send(sent);
+        File received = new File(temp.getRoot(), "cache/precompilation.ser");
+
+        try {
+            GwtCompileAgentProtocol.receiveFile(
+                stream(Arrays.copyOf(bytes, bytes.length - 3)), received, null);
+            Assert.fail("the stream is truncated");
+        } catch (IOException expected) {
+            Assert.assertFalse(received.exists());
+            Assert.assertEquals(0, received.getParentFile().list().length);
+        }
+    }
+
+    private static byte[] send(File file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GwtCompileAgentProtocol.sendFile(new DataOutputStream(bytes), file);
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream stream(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    private static File write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
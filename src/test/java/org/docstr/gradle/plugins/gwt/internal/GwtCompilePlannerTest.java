@@ -0,0 +1,117 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtCompilePlannerTest {
+
+    private static final long MB = 1024L * 1024;
+    private static final long GB = 1024 * MB;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void workersLimitedByPermutations() {
+        final GwtCompilePlanner.Plan plan =
+            GwtCompilePlanner.plan(3, 16, -1, -1);
+
+        Assert.assertEquals(3, plan.getLocalWorkers());
+        Assert.assertEquals(GwtCompilePlanner.BASE_HEAP
+            + 3 * GwtCompilePlanner.WORKER_HEAP, plan.getMaxHeapSize());
+    }
+
+    @Test
+    public void workersLimitedByProcessors() {
+        final GwtCompilePlanner.Plan plan =
+            GwtCompilePlanner.plan(24, 4, -1, -1);
+
+        Assert.assertEquals(4, plan.getLocalWorkers());
+        Assert.assertEquals(24, plan.getPermutations());
+    }
+
+    @Test
+    public void workersLimitedByMemory() {
+        // 80% of 2 GB leave room for the base heap and 4 workers
+        final GwtCompilePlanner.Plan plan =
+            GwtCompilePlanner.plan(24, 16, 2 * GB, -1);
+
+        Assert.assertEquals(4, plan.getLocalWorkers());
+        Assert.assertTrue(plan.getMaxHeapSize() <= 2 * GB * 4 / 5);
+    }
+
+    @Test
+    public void atLeastOneWorker() {
+        final GwtCompilePlanner.Plan plan =
+            GwtCompilePlanner.plan(0, 0, 256 * MB, -1);
+
+        Assert.assertEquals(1, plan.getLocalWorkers());
+        Assert.assertEquals(GwtCompilePlanner.MIN_HEAP, plan.getMaxHeapSize());
+    }
+
+    @Test
+    public void heapFromPastPeak() {
+        final GwtCompilePlanner.Plan plan =
+            GwtCompilePlanner.plan(6, 8, -1, 1000 * MB);
+
+        Assert.assertEquals(6, plan.getLocalWorkers());
+        Assert.assertEquals(1280 * MB, plan.getMaxHeapSize());
+    }
+
+    @Test
+    public void heapFromPastPeakCappedByMemory() {
+        final GwtCompilePlanner.Plan plan =
+            GwtCompilePlanner.plan(6, 8, 4 * GB, 8 * GB);
+
+        Assert.assertTrue(plan.getMaxHeapSize() <= 4 * GB * 4 / 5);
+        Assert.assertEquals(0, plan.getMaxHeapSize() % (64 * MB));
+    }
+
+    @Test
+    public void recommendedHeapLeavesHeadroom() {
+        Assert.assertEquals(640 * MB,
+            GwtCompilePlanner.recommendedHeap(500 * MB));
+        Assert.assertEquals(GwtCompilePlanner.MIN_HEAP,
+            GwtCompilePlanner.recommendedHeap(10 * MB));
+        Assert.assertEquals(GwtCompilePlanner.BASE_HEAP
+                + GwtCompilePlanner.WORKER_HEAP,
+            GwtCompilePlanner.recommendedHeap(-1));
+    }
+
+    @Test
+    public void planDescribesHeap() {
+        Assert.assertTrue(GwtCompilePlanner.plan(6, 8, -1, -1).toString()
+            .contains("no heap usage recorded yet"));
+        Assert.assertTrue(GwtCompilePlanner.plan(6, 8, -1, 1000 * MB)
+            .toString().contains("last peak heap"));
+    }
+
+    @Test
+    public void historyKeepsLastPeak() throws IOException {
+        final File file =
+            new File(temp.getRoot(), "gwt/heap-history.properties");
+        final GwtHeapHistory history = new GwtHeapHistory(file);
+        Assert.assertEquals(-1, history.peak("app.App"));
+
+        history.record("app.App", 100);
+        history.record("app.Other", 300);
+        history.record("app.App", 200);
+
+        Assert.assertEquals(200, new GwtHeapHistory(file).peak("app.App"));
+        Assert.assertEquals(300, new GwtHeapHistory(file).peak("app.Other"));
+    }
+
+    @Test
+    public void brokenHistoryIsIgnored() throws IOException {
+        final File file = temp.newFile("heap-history.properties");
+        Files.write(file.toPath(), Collections.singletonList("app.App=lots"));
+
+        Assert.assertEquals(-1, new GwtHeapHistory(file).peak("app.App"));
+    }
+}
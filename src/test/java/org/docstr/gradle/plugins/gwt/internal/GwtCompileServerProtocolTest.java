@@ -0,0 +1,104 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtCompileServerProtocolTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void stringsRoundTrip() throws IOException {
+        List<String> strings = Arrays.asList("-war", "/tmp/out", "", "\u00e4");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GwtCompileServerProtocol.writeStrings(new DataOutputStream(bytes),
+            strings);
+
+        Assert.assertEquals(strings, GwtCompileServerProtocol.readStrings(
+            new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+
+    @Test
+    public void serverFileRoundTrip() throws IOException {
+        File stateDir = temp.newFolder("state");
+        Assert.assertNull(GwtCompileServerProtocol.readServerFile(stateDir));
+
+        Properties properties = new Properties();
+        properties.setProperty(GwtCompileServerProtocol.KEY_PORT, "4711");
+        properties.setProperty(GwtCompileServerProtocol.KEY_TOKEN, "secret");
+        GwtCompileServerProtocol.writeServerFile(stateDir, properties);
+
+        Assert.assertEquals(properties,
+            GwtCompileServerProtocol.readServerFile(stateDir));
+        Assert.assertFalse(new File(stateDir,
+            GwtCompileServerProtocol.SERVER_FILE + ".tmp").exists());
+    }
+
+    @Test
+    public void logFrameWriterSendsLines() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GwtCompileServerProtocol.LogFrameWriter writer =
+            new GwtCompileServerProtocol.LogFrameWriter(
+                new DataOutputStream(bytes))) {
+            writer.write("Compiling module\r\n   Compiling");
+            writer.write(" permutation 0\nunterminated");
+        }
+
+        DataInputStream in = new DataInputStream(
+            new ByteArrayInputStream(bytes.toByteArray()));
+        Assert.assertEquals("Compiling module", readLogFrame(in));
+        Assert.assertEquals("   Compiling permutation 0", readLogFrame(in));
+        Assert.assertEquals("unterminated", readLogFrame(in));
+        Assert.assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void logFrameWriterTruncatesHugeLines() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        char[] line = new char[100000];
+        Arrays.fill(line, 'x');
+        try (GwtCompileServerProtocol.LogFrameWriter writer =
+            new GwtCompileServerProtocol.LogFrameWriter(
+                new DataOutputStream(bytes))) {
+            writer.write(line);
+        }
+
+        Assert.assertEquals(16384, readLogFrame(new DataInputStream(
+            new ByteArrayInputStream(bytes.toByteArray()))).length());
+    }
+
+    @Test
+    public void stateDirDependsOnClasspathAndJvmArgs() {
+        File baseDir = temp.getRoot();
+        List<File> sdk = Collections.singletonList(new File("gwt-dev.jar"));
+        File stateDir = GwtCompileServerClient.stateDir(baseDir, sdk,
+            Collections.singletonList("-Xmx1g"));
+
+        Assert.assertEquals(baseDir, stateDir.getParentFile());
+        Assert.assertEquals(stateDir, GwtCompileServerClient.stateDir(baseDir,
+            sdk, Collections.singletonList("-Xmx1g")));
+        Assert.assertNotEquals(stateDir, GwtCompileServerClient.stateDir(
+            baseDir, sdk, Collections.singletonList("-Xmx2g")));
+        Assert.assertNotEquals(stateDir, GwtCompileServerClient.stateDir(
+            baseDir, Collections.singletonList(new File("gwt-dev-2.jar")),
+            Collections.singletonList("-Xmx1g")));
+    }
+
+    private static String readLogFrame(DataInputStream in) throws IOException {
+        Assert.assertEquals(GwtCompileServerProtocol.FRAME_LOG, in.readByte());
+        return in.readUTF();
+    }
+}
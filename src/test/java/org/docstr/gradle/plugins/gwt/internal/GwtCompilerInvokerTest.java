@@ -0,0 +1,65 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtCompilerInvokerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void supportsCompilerStages() {
+        Assert.assertTrue(GwtCompilerInvoker.isSupported("com.google.gwt.dev.Compiler"));
+        Assert.assertTrue(GwtCompilerInvoker.isSupported("com.google.gwt.dev.Precompile"));
+        Assert.assertTrue(GwtCompilerInvoker.isSupported("com.google.gwt.dev.CompilePerms"));
+        Assert.assertTrue(GwtCompilerInvoker.isSupported("com.google.gwt.dev.Link"));
+        Assert.assertFalse(GwtCompilerInvoker.isSupported("com.google.gwt.dev.DevMode"));
+        Assert.assertFalse(GwtCompilerInvoker.isSupported("com.google.gwt.dev.codeserver.CodeServer"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsupportedTool() throws Exception {
+        GwtCompilerInvoker.run("com.google.gwt.dev.DevMode",
+            Collections.emptyList(), getClass().getClassLoader(),
+            new PrintWriter(new StringWriter()));
+    }
+
+    @Test
+    public void restoresContextClassLoader() throws Exception {
+        ClassLoader before = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader classLoader = GwtCompilerInvoker.createClassLoader(
+            Collections.<File>emptyList(), null)) {
+            GwtCompilerInvoker.run("com.google.gwt.dev.Compiler",
+                Collections.emptyList(), classLoader,
+                new PrintWriter(new StringWriter()));
+            Assert.fail("gwt-dev isn't on the classpath");
+        } catch (ClassNotFoundException e) {
+            Assert.assertSame(before,
+                Thread.currentThread().getContextClassLoader());
+        }
+    }
+
+    @Test
+    public void classLoaderSeesProjectClasspath() throws IOException {
+        File dir = temp.newFolder("classes");
+        Files.write(new File(dir, "App.gwt.xml").toPath(),
+            "<module/>".getBytes(StandardCharsets.UTF_8));
+
+        try (URLClassLoader classLoader = GwtCompilerInvoker.createClassLoader(
+            Collections.singletonList(dir), null)) {
+            Assert.assertNotNull(classLoader.getResource("App.gwt.xml"));
+            Assert.assertNull(classLoader.getResource("Other.gwt.xml"));
+        }
+    }
+}
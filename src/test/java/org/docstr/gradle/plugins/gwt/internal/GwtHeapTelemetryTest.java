@@ -0,0 +1,108 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtHeapTelemetryTest {
+
+    private static final long MB = 1024L * 1024;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void reportRoundTrip() throws IOException {
+        final File file = new File(temp.getRoot(), "heap-telemetry.properties");
+        new GwtHeapTelemetry.Report(700 * MB, 1024 * MB, 12, 345, true,
+            900 * MB).writeTo(file);
+
+        final GwtHeapTelemetry.Report report =
+            GwtHeapTelemetry.Report.readFrom(file);
+
+        Assert.assertEquals(700 * MB, report.getPeakHeap());
+        Assert.assertEquals(1024 * MB, report.getMaxHeap());
+        Assert.assertEquals(12, report.getGcCount());
+        Assert.assertEquals(345, report.getGcMillis());
+        Assert.assertTrue(report.isOutOfMemory());
+        Assert.assertEquals(900 * MB, report.getPeakRss());
+    }
+
+    @Test
+    public void missingOrBrokenReportIsNull() throws IOException {
+        Assert.assertNull(GwtHeapTelemetry.Report.readFrom(
+            new File(temp.getRoot(), "missing.properties")));
+
+        final File broken = temp.newFile("broken.properties");
+        Files.write(broken.toPath(), Collections.singletonList("peakHeap=1"));
+        Assert.assertNull(GwtHeapTelemetry.Report.readFrom(broken));
+    }
+
+    @Test
+    public void reportWithoutPeakRss() throws IOException {
+        final File file = temp.newFile("heap-telemetry.properties");
+        Files.write(file.toPath(), Arrays.asList("peakHeap=1",
+            "maxHeap=2", "gcCount=3", "gcMillis=4", "outOfMemory=false"));
+
+        final GwtHeapTelemetry.Report report =
+            GwtHeapTelemetry.Report.readFrom(file);
+
+        Assert.assertEquals(-1, report.getPeakRss());
+        Assert.assertFalse(report.isOutOfMemory());
+        Assert.assertFalse(report.toString().contains("RSS"));
+    }
+
+    @Test
+    public void measuresCurrentJvm() {
+        final GwtHeapTelemetry telemetry = GwtHeapTelemetry.start();
+        final byte[][] garbage = new byte[16][];
+        for (int i = 0; i < garbage.length; i++) {
+            garbage[i] = new byte[(int) MB];
+        }
+
+        final GwtHeapTelemetry.Report report = telemetry.finish();
+
+        Assert.assertTrue(report.getPeakHeap() > 0);
+        Assert.assertEquals(Runtime.getRuntime().maxMemory(),
+            report.getMaxHeap());
+        Assert.assertEquals(-1, report.getPeakRss());
+        Assert.assertNotNull(garbage[garbage.length - 1]);
+    }
+
+    @Test
+    public void outOfMemoryIsReported() {
+        final GwtHeapTelemetry telemetry = GwtHeapTelemetry.start();
+        telemetry.outOfMemory();
+
+        Assert.assertTrue(telemetry.finish().isOutOfMemory());
+    }
+
+    @Test
+    public void retryHeapGrowsByFactor() {
+        Assert.assertEquals(1536 * MB,
+            GwtHeapTelemetry.retryHeap(1024 * MB, 1.5, -1));
+        Assert.assertEquals(1536 * MB,
+            GwtHeapTelemetry.retryHeap(1024 * MB, 1.5, 0));
+    }
+
+    @Test
+    public void retryHeapCappedByMax() {
+        Assert.assertEquals(1200 * MB,
+            GwtHeapTelemetry.retryHeap(1024 * MB, 2, 1200 * MB));
+    }
+
+    @Test
+    public void noRetryWithoutLargerHeap() {
+        Assert.assertEquals(-1,
+            GwtHeapTelemetry.retryHeap(1024 * MB, 2, 1024 * MB));
+        Assert.assertEquals(-1,
+            GwtHeapTelemetry.retryHeap(1024 * MB, 1, -1));
+        Assert.assertEquals(-1, GwtHeapTelemetry.retryHeap(-1, 2, -1));
+    }
+}
@@ -0,0 +1,92 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtInheritsAnalyzerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void unusedInherits() throws IOException {
+        File src = temp.newFolder("src");
+        File lib = temp.newFolder("lib");
+        write(src, "com/example/App.gwt.xml", "<module>"
+            + "<inherits name='org.used.Used'/>"
+            + "<inherits name='org.json.Json'/>"
+            + "<inherits name='org.conf.Conf'/></module>");
+        write(src, "com/example/client/App.java", "package com.example.client;\n"
+            + "import static org.used.client.Util.run;\nclass App {}");
+        write(lib, "org/used/Used.gwt.xml", "<module/>");
+        write(lib, "org/used/client/Util.java", "");
+        write(lib, "org/json/Json.gwt.xml", "<module>"
+            + "<inherits name='org.json.Impl'/>"
+            + "<define-property name='json.impl' values='a,b'/></module>");
+        write(lib, "org/json/client/Json.java", "");
+        write(lib, "org/json/Impl.gwt.xml", "<module><source path='impl'/></module>");
+        write(lib, "org/json/impl/Parser.java", "");
+        write(lib, "org/conf/Conf.gwt.xml", "<module/>");
+
+        List<GwtInheritsAnalyzer.Inherit> inherits = new GwtInheritsAnalyzer(
+            Collections.singletonList("com.example.App"),
+            Collections.singletonList(src), Collections.singletonList(lib))
+            .analyze();
+
+        Assert.assertEquals(3, inherits.size());
+        Assert.assertTrue(inherits.get(0).isUsed());
+        GwtInheritsAnalyzer.Inherit json = inherits.get(1);
+        Assert.assertTrue(json.isRemovable());
+        Assert.assertEquals(Arrays.asList("org.json.Json", "org.json.Impl"),
+            json.getExclusiveModules());
+        Assert.assertEquals(2, json.getUnits());
+        Assert.assertEquals(1, json.getPermutations());
+        Assert.assertFalse(inherits.get(2).isRemovable());
+    }
+
+    @Test
+    public void superSourceImportsUseInherit() throws IOException {
+        File src = temp.newFolder("src");
+        File lib = temp.newFolder("lib");
+        write(src, "com/example/App.gwt.xml", "<module>"
+            + "<inherits name='org.logging.Logging'/></module>");
+        write(src, "com/example/client/App.java", "package com.example.client;\n"
+            + "import java.util.logging.Logger;\nclass App {}");
+        write(lib, "org/logging/Logging.gwt.xml",
+            "<module><super-source path='super'/></module>");
+        write(lib, "org/logging/super/java/util/logging/Logger.java", "");
+
+        List<GwtInheritsAnalyzer.Inherit> inherits = new GwtInheritsAnalyzer(
+            Collections.singletonList("com.example.App"),
+            Collections.singletonList(src), Collections.singletonList(lib))
+            .analyze();
+
+        Assert.assertEquals(1, inherits.size());
+        Assert.assertTrue(inherits.get(0).isUsed());
+        Assert.assertEquals(1, inherits.get(0).getUnits());
+
+        write(src, "com/example/client/App.java", "package com.example.client;\n"
+            + "import java.util.List;\nclass App {}");
+        Assert.assertTrue(new GwtInheritsAnalyzer(
+            Collections.singletonList("com.example.App"),
+            Collections.singletonList(src), Collections.singletonList(lib))
+            .analyze().get(0).isRemovable());
+    }
+
+    private static void write(File root, String path, String content)
+        throws IOException {
+        Path file = root.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,179 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GwtJvmLimiterTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void grantsSingleLeaseBeyondHeapLimit() throws Exception {
+        final GwtJvmLimiter limiter = limiter(2, 100, 8);
+
+        final GwtJvmLimiter.Lease lease = limiter.acquire("a", 500);
+
+        Assert.assertEquals(8, lease.getLocalWorkers());
+        lease.close();
+    }
+
+    @Test
+    public void waitsForHeap() throws Exception {
+        final GwtJvmLimiter limiter = limiter(4, 100, 8);
+        final GwtJvmLimiter.Lease first = limiter.acquire("a", 60);
+
+        final Future<GwtJvmLimiter.Lease> second = acquire(limiter, "b", 60);
+        awaitWaiting(limiter, 1);
+        Assert.assertFalse(second.isDone());
+
+        first.close();
+        second.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    public void grantsLeasesInRequestOrder() throws Exception {
+        final GwtJvmLimiter limiter = limiter(1, 0, 8);
+        final GwtJvmLimiter.Lease first = limiter.acquire("a", 0);
+        final Future<GwtJvmLimiter.Lease> second = acquire(limiter, "b", 0);
+        awaitWaiting(limiter, 1);
+        final Future<GwtJvmLimiter.Lease> third = acquire(limiter, "c", 0);
+        awaitWaiting(limiter, 2);
+
+        first.close();
+        final GwtJvmLimiter.Lease secondLease = second.get(5, TimeUnit.SECONDS);
+        awaitWaiting(limiter, 1);
+        Assert.assertFalse(third.isDone());
+
+        secondLease.close();
+        third.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    public void dividesProcessorsAmongJvms() throws Exception {
+        final GwtJvmLimiter limiter = limiter(2, 0, 8);
+        final GwtJvmLimiter.Lease first = limiter.acquire("a", 0);
+        final GwtJvmLimiter.Lease second = limiter.acquire("b", 0);
+
+        Assert.assertEquals(8, first.getLocalWorkers());
+        Assert.assertEquals(4, second.getLocalWorkers());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void limitsFanOutOfPermutationWorkers() throws Exception {
+        final GwtJvmLimiter limiter = limiter(3, 250, 8);
+        final GwtJvmLimiter.Lease task = limiter.acquire("perms", 100);
+
+        // one further worker fits the total heap, a third one doesn't
+        final GwtJvmLimiter.Lease worker = limiter.tryAcquire("perms", 100);
+        Assert.assertNotNull(worker);
+        Assert.assertNull(limiter.tryAcquire("perms", 100));
+
+        // a waiting task goes first
+        worker.close();
+        final GwtJvmLimiter.Lease other = limiter.acquire("other", 100);
+        final Future<GwtJvmLimiter.Lease> waiting =
+            acquire(limiter, "waiting", 100);
+        awaitWaiting(limiter, 1);
+        Assert.assertNull(limiter.tryAcquire("perms", 0));
+
+        task.close();
+        other.close();
+        waiting.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    public void interruptedRequestLeavesQueue() throws Exception {
+        final GwtJvmLimiter limiter = limiter(1, 0, 8);
+        final GwtJvmLimiter.Lease first = limiter.acquire("a", 0);
+        final Future<GwtJvmLimiter.Lease> interrupted =
+            acquire(limiter, "b", 0);
+        awaitWaiting(limiter, 1);
+
+        interrupted.cancel(true);
+        awaitWaiting(limiter, 0);
+        first.close();
+
+        acquire(limiter, "c", 0).get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    public void releasesHeldLeasesWhenTaskFinishes() throws Exception {
+        final GwtJvmLimiter limiter = limiter(1, 0, 8);
+        final List<String> closed = new ArrayList<>();
+        limiter.hold(":test", limiter.acquire(":test", 0));
+        limiter.hold(":test", () -> closed.add("slot"));
+        limiter.hold(":other", () -> closed.add("other"));
+
+        limiter.release(":test");
+
+        Assert.assertEquals(1, closed.size());
+        Assert.assertEquals("slot", closed.get(0));
+        acquire(limiter, "b", 0).get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    public void closeReleasesAllHeldLeases() throws Exception {
+        final GwtJvmLimiter limiter = limiter(1, 0, 8);
+        final List<String> closed = new ArrayList<>();
+        limiter.hold(":a", () -> closed.add("a"));
+        limiter.hold(":b", () -> closed.add("b"));
+
+        limiter.close();
+
+        Assert.assertEquals(2, closed.size());
+    }
+
+    private Future<GwtJvmLimiter.Lease> acquire(final GwtJvmLimiter limiter,
+        final String owner, final long heap) {
+        return executor.submit(() -> limiter.acquire(owner, heap));
+    }
+
+    private static void awaitWaiting(final GwtJvmLimiter limiter,
+        final int waiting) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (limiter.waiting() != waiting) {
+            Assert.assertTrue("waiting for " + waiting + " requests",
+                System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static GwtJvmLimiter limiter(final int maxJvms,
+        final long maxTotalHeap, final int processors) {
+        return new GwtJvmLimiter() {
+            @Override
+            int maxJvms() {
+                return maxJvms;
+            }
+
+            @Override
+            long maxTotalHeap() {
+                return maxTotalHeap;
+            }
+
+            @Override
+            int processors() {
+                return processors;
+            }
+
+            @Override
+            public Params getParameters() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GwtLocaleShardMergerTest {
+
+    private static final String HASH_EN = "0123456789ABCDEF0123456789ABCDEF";
+    private static final String HASH_DE = "FEDCBA9876543210FEDCBA9876543210";
+
+    @Test
+    public void mergePrettySelectionScripts() throws IOException {
+        String en = "values['locale'] = {'en':0};\n"
+            + "unflattenKeylistIntoAnswers(['en', 'gecko1_8'], '" + HASH_EN + "');\n"
+            + "strongName = answers[computePropValue('locale')];";
+        String de = "values['locale'] = {'de':0};\n"
+            + "unflattenKeylistIntoAnswers(['de', 'gecko1_8'], '" + HASH_DE + "');\n"
+            + "strongName = answers[computePropValue('locale')];";
+
+        String merged = GwtLocaleShardMerger.mergeSelectionScripts(
+            Arrays.asList(en, de), "app.nocache.js");
+
+        Assert.assertTrue(merged.contains("'" + HASH_EN + "');"));
+        Assert.assertTrue(merged.contains(
+            "unflattenKeylistIntoAnswers(['de', 'gecko1_8'],'" + HASH_DE + "');"));
+        Assert.assertTrue(merged.contains("values['locale'] = {'en':0, 'de':1};"));
+    }
+
+    @Test
+    public void mergeObfuscatedSelectionScripts() throws IOException {
+        String en = "r['locale']={en:0};Q(['en'],'" + HASH_EN + "'),x=1;";
+        String de = "r['locale']={de:0};Z(['de'],'" + HASH_DE + "'),x=1;";
+
+        String merged = GwtLocaleShardMerger.mergeSelectionScripts(
+            Arrays.asList(en, de), "app.nocache.js");
+
+        Assert.assertEquals("r['locale']={'en':0, 'de':1};Q(['en'],'" + HASH_EN
+            + "'),Q(['de'],'" + HASH_DE + "'),x=1;", merged);
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownSelectionScript() throws IOException {
+        GwtLocaleShardMerger.mergeSelectionScripts(
+            Arrays.asList("var a;", "var b;"), "app.nocache.js");
+    }
+
+    @Test
+    public void mergeCompilationMappings() {
+        String merged = GwtLocaleShardMerger.mergeCompilationMappings(Arrays.asList(
+            HASH_EN + ".cache.js\nlocale en\n\n",
+            HASH_DE + ".cache.js\nlocale de\n\n"));
+
+        Assert.assertEquals(HASH_EN + ".cache.js\nlocale en\n\n"
+            + HASH_DE + ".cache.js\nlocale de\n\n", merged);
+    }
+}
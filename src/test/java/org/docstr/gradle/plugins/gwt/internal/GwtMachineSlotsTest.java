@@ -0,0 +1,120 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtMachineSlotsTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final List<String> log = new ArrayList<>();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void slotsForHeap() {
+        final GwtMachineSlots slots = new GwtMachineSlots(temp.getRoot(), 4);
+
+        Assert.assertEquals(1, slots.slotsFor(-1, 8000));
+        Assert.assertEquals(1, slots.slotsFor(1000, -1));
+        Assert.assertEquals(1, slots.slotsFor(2000, 8000));
+        Assert.assertEquals(2, slots.slotsFor(2001, 8000));
+        Assert.assertEquals(4, slots.slotsFor(100000, 8000));
+    }
+
+    @Test
+    public void localWorkersForLease() throws Exception {
+        final GwtMachineSlots slots = new GwtMachineSlots(temp.getRoot(), 4);
+
+        try (GwtMachineSlots.Lease lease = slots.acquire("a", 2, this::log)) {
+            Assert.assertEquals(2, lease.getSlots());
+            Assert.assertEquals(4, slots.localWorkersFor(lease, 8));
+            Assert.assertEquals(1, slots.localWorkersFor(lease, 1));
+        }
+    }
+
+    @Test
+    public void takesAtMostAllSlots() throws Exception {
+        final GwtMachineSlots slots = new GwtMachineSlots(temp.getRoot(), 2);
+
+        try (GwtMachineSlots.Lease lease = slots.acquire("a", 5, this::log)) {
+            Assert.assertEquals(2, lease.getSlots());
+        }
+    }
+
+    @Test
+    public void waitsForReleasedSlots() throws Exception {
+        final GwtMachineSlots slots = new GwtMachineSlots(temp.getRoot(), 2);
+        final GwtMachineSlots.Lease first = slots.acquire("a", 2, this::log);
+
+        final Future<GwtMachineSlots.Lease> second =
+            executor.submit(() -> slots.acquire("b", 1, this::log));
+        Thread.sleep(600);
+        Assert.assertFalse(second.isDone());
+
+        first.close();
+        second.get(5, TimeUnit.SECONDS).close();
+        Assert.assertTrue(log.get(0).startsWith("b waits for 1 of 2"));
+    }
+
+    @Test
+    public void appendsReleasedLeasesToUsageLog() throws Exception {
+        final GwtMachineSlots slots = new GwtMachineSlots(temp.getRoot(), 2);
+
+        slots.acquire(":compileGwt", 1, this::log).close();
+        slots.acquire(":test", 1, this::log).close();
+
+        final List<String> lines = Files.readAllLines(
+            new File(temp.getRoot(), GwtMachineSlots.USAGE_LOG).toPath());
+        Assert.assertEquals(2, lines.size());
+        Assert.assertTrue(lines.get(0).contains("slots=1/2"));
+        Assert.assertTrue(lines.get(0).endsWith(" :compileGwt"));
+        Assert.assertTrue(lines.get(1).endsWith(" :test"));
+    }
+
+    @Test
+    public void rotatesLargeUsageLog() throws Exception {
+        final File usageLog =
+            new File(temp.getRoot(), GwtMachineSlots.USAGE_LOG);
+        final byte[] large =
+            new byte[(int) GwtMachineSlots.MAX_USAGE_LOG_SIZE + 1];
+        Files.write(usageLog.toPath(), large);
+        final GwtMachineSlots slots = new GwtMachineSlots(temp.getRoot(), 2);
+
+        slots.acquire(":compileGwt", 1, this::log).close();
+
+        Assert.assertEquals(large.length, new File(temp.getRoot(),
+            GwtMachineSlots.USAGE_LOG + ".1").length());
+        Assert.assertEquals(1, Files.readAllLines(usageLog.toPath()).size());
+    }
+
+    @Test
+    public void removesTicketAfterAcquire() throws Exception {
+        final GwtMachineSlots slots = new GwtMachineSlots(temp.getRoot(), 1);
+
+        slots.acquire("a", 1, this::log).close();
+
+        Assert.assertEquals(0, new File(temp.getRoot(), "queue").list().length);
+    }
+
+    private synchronized void log(final String message) {
+        log.add(message);
+    }
+}
@@ -0,0 +1,79 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtModuleGraphTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void sourcePathsOfInheritsChain() throws IOException {
+        Path root = temp.getRoot().toPath();
+        write(root.resolve("com/example/App.gwt.xml"),
+            "<module rename-to='app'>"
+                + "<inherits name='com.example.shared.Shared'/>"
+                + "<inherits name='com.google.gwt.user.User'/>"
+                + "<source path='client'/><source path='model/dto'/>"
+                + "<super-source path='jre'/>"
+                + "</module>");
+        write(root.resolve("com/example/shared/Shared.gwt.xml"),
+            "<module><public path='static'/></module>");
+
+        GwtModuleGraph graph = GwtModuleGraph.load(
+            Collections.singletonList("com.example.App"),
+            Collections.singletonList(new File(root.toString())));
+
+        Assert.assertEquals(Arrays.asList("com.example.App",
+            "com.example.shared.Shared"), graph.getModules());
+        Assert.assertEquals(Collections.singletonList("com.google.gwt.user.User"),
+            graph.getMissingModules());
+        Assert.assertEquals(Arrays.asList("com/example/App.gwt.xml",
+            "com/example/shared/Shared.gwt.xml"),
+            Arrays.asList(graph.getDescriptorPaths().toArray()));
+        Assert.assertEquals(Arrays.asList("com/example/shared/static/",
+            "com/example/shared/client/", "com/example/client/",
+            "com/example/model/dto/", "com/example/jre/",
+            "com/example/public/"),
+            Arrays.asList(graph.getSourcePaths().toArray()));
+    }
+
+    @Test
+    public void generatorPathsOfInheritsChain() throws IOException {
+        Path root = temp.getRoot().toPath();
+        write(root.resolve("com/example/App.gwt.xml"),
+            "<module><inherits name='com.example.shared.Shared'/>"
+                + "<generate-with class='com.example.rebind.AppGenerator'>"
+                + "<when-type-assignable class='com.example.client.Gen'/>"
+                + "</generate-with>"
+                + "<replace-with class='com.example.client.ImplIE'>"
+                + "<when-type-is class='com.example.client.Impl'/>"
+                + "</replace-with></module>");
+        write(root.resolve("com/example/shared/Shared.gwt.xml"),
+            "<module><define-linker name='custom'"
+                + " class='com.example.linker.CustomLinker'/></module>");
+
+        GwtModuleGraph graph = GwtModuleGraph.load(
+            Collections.singletonList("com.example.App"),
+            Collections.singletonList(new File(root.toString())));
+
+        Assert.assertEquals(Arrays.asList("com/example/linker/",
+            "com/example/rebind/"),
+            Arrays.asList(graph.getGeneratorPaths().toArray()));
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,86 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtOutputSyncTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void keepsUnchangedFilesAndRemovesStaleOnes() throws IOException {
+        File staging = temp.newFolder("staging");
+        File out = temp.newFolder("out");
+        File manifest = new File(temp.getRoot(), "synced-files.txt");
+        write(new File(staging, "app/clear.cache.gif"), "gif");
+        write(new File(staging, "app/A.cache.js"), "a");
+        write(new File(staging, "old/gone.txt"), "gone");
+        GwtOutputSync.sync(staging, out, manifest);
+
+        write(new File(staging, "app/clear.cache.gif"), "gif");
+        write(new File(staging, "app/app.nocache.js"), "new");
+        write(new File(staging, "app/B.cache.js"), "b");
+        write(new File(out, "app/app.nocache.js"), "old");
+        File unchanged = new File(out, "app/clear.cache.gif");
+        unchanged.setLastModified(1000000000000L);
+
+        GwtOutputSync.Result result = GwtOutputSync.sync(staging, out, manifest);
+
+        Assert.assertEquals(2, result.getWritten());
+        Assert.assertEquals(1, result.getUnchanged());
+        Assert.assertEquals(2, result.getRemoved());
+        Assert.assertEquals(1000000000000L, unchanged.lastModified());
+        Assert.assertEquals("new", read(new File(out, "app/app.nocache.js")));
+        Assert.assertEquals("b", read(new File(out, "app/B.cache.js")));
+        Assert.assertFalse(new File(out, "app/A.cache.js").exists());
+        Assert.assertFalse(new File(out, "old").exists());
+        Assert.assertFalse(staging.exists());
+    }
+
+    @Test
+    public void keepsFilesNotWrittenBySync() throws IOException {
+        File staging = temp.newFolder("staging");
+        File out = temp.newFolder("out");
+        File manifest = new File(temp.getRoot(), "synced-files.txt");
+        write(new File(staging, "app/app.nocache.js"), "js");
+        write(new File(out, "WEB-INF/web.xml"), "web");
+        write(new File(out, "index.html"), "html");
+        new File(out, "empty").mkdirs();
+
+        GwtOutputSync.Result result = GwtOutputSync.sync(staging, out, manifest);
+
+        Assert.assertEquals(0, result.getRemoved());
+        Assert.assertEquals("web", read(new File(out, "WEB-INF/web.xml")));
+        Assert.assertEquals("html", read(new File(out, "index.html")));
+        Assert.assertTrue(new File(out, "empty").isDirectory());
+        Assert.assertEquals("app/app.nocache.js", read(manifest).trim());
+    }
+
+    @Test
+    public void sameContentComparesBytes() throws IOException {
+        File a = temp.newFile("a");
+        File b = temp.newFile("b");
+        write(a, "abc");
+        write(b, "abd");
+        Assert.assertFalse(GwtOutputSync.sameContent(a.toPath(), b.toPath()));
+        write(b, "abc");
+        Assert.assertTrue(GwtOutputSync.sameContent(a.toPath(), b.toPath()));
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()),
+            StandardCharsets.UTF_8);
+    }
+}
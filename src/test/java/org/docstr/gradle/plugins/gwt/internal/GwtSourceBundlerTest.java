@@ -0,0 +1,88 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtSourceBundlerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void bundlesRelevantFilesFirstWins() throws IOException {
+        File src = temp.newFolder("src");
+        File classes = temp.newFolder("classes");
+        write(new File(src, "com/example/App.gwt.xml"), "<module/>");
+        write(new File(src, "com/example/client/A.java"), "src");
+        write(new File(src, "com/example/server/Dao.java"), "server");
+        write(new File(classes, "com/example/client/A.java"), "classes");
+        write(new File(classes, "com/example/server/Dao.class"), "class");
+        File jar = new File(temp.getRoot(), "bundle/sources.jar");
+
+        int files = new GwtSourceBundler(
+            Collections.singleton("com/example/App.gwt.xml"),
+            Collections.singleton("com/example/client/"))
+            .bundle(Arrays.asList(src, classes), jar);
+
+        Assert.assertEquals(3, files);
+        try (ZipFile zip = new ZipFile(jar)) {
+            List<String> names = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                names.add(entry.getName());
+            }
+            Assert.assertEquals(Arrays.asList(GwtSourceBundler.INDEX,
+                "com/", "com/example/", "com/example/client/",
+                "com/example/server/", "com/example/App.gwt.xml",
+                "com/example/client/A.java", "com/example/server/Dao.class"),
+                names);
+            Assert.assertEquals("src", read(zip, "com/example/client/A.java"));
+        }
+    }
+
+    @Test
+    public void bundlesEqualJarsForEqualInputs() throws IOException {
+        File src = temp.newFolder("src");
+        write(new File(src, "com/example/client/A.java"), "a");
+        File first = new File(temp.getRoot(), "first/sources.jar");
+        File second = new File(temp.getRoot(), "second/sources.jar");
+        GwtSourceBundler bundler = new GwtSourceBundler(
+            Collections.emptySet(), null);
+
+        bundler.bundle(Collections.singletonList(src), first);
+        new File(src, "com/example/client/A.java").setLastModified(0);
+        bundler.bundle(Collections.singletonList(src), second);
+
+        Assert.assertArrayEquals(Files.readAllBytes(first.toPath()),
+            Files.readAllBytes(second.toPath()));
+    }
+
+    private static String read(ZipFile zip, String name) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            byte[] buffer = new byte[1024];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,79 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GwtTranslatabilityCheckerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void findsUntranslatableCode() throws IOException {
+        Assume.assumeTrue(GwtTranslatabilityChecker.isAvailable());
+        File src = temp.newFolder("src");
+        File sdk = temp.newFolder("sdk");
+        write(src, "com/example/App.gwt.xml", "<module>"
+            + "<inherits name='com.google.gwt.emul.Emulation'/></module>");
+        write(sdk, "com/google/gwt/emul/Emulation.gwt.xml",
+            "<module><super-source path=''/></module>");
+        write(sdk, "com/google/gwt/emul/java/util/List.java", "");
+        write(sdk, "com/google/gwt/emul/java/lang/String.java", "");
+        write(src, "com/example/client/App.java", "package com.example.client;\n"
+            + "import java.nio.file.Path;\n"
+            + "import java.util.List;\n"
+            + "import com.example.server.Dao;\n"
+            + "class App {\n"
+            + "  String s = \"\";\n"
+            + "  Thread t;\n"
+            + "  java.io.File f;\n"
+            + "}\n");
+        List<File> roots = Arrays.asList(src, sdk);
+        GwtModuleGraph graph = GwtModuleGraph.load(
+            Collections.singletonList("com.example.App"), roots);
+        Map<String, File> sources = new TreeMap<>();
+        sources.put("com/example/client/App.java",
+            new File(src, "com/example/client/App.java"));
+        File cache = new File(temp.getRoot(), "cache.properties");
+
+        List<String> problems = check(graph, roots, sources, cache);
+
+        Assert.assertEquals(Arrays.asList(
+            "com/example/client/App.java:2: error: java.nio.file.Path is not emulated by GWT",
+            "com/example/client/App.java:4: warning: com.example.server.Dao is not in a GWT source path",
+            "com/example/client/App.java:7: error: java.lang.Thread is not emulated by GWT",
+            "com/example/client/App.java:8: error: java.io.File is not emulated by GWT"),
+            problems);
+        Assert.assertEquals(problems, check(graph, roots, sources, cache));
+    }
+
+    private static List<String> check(GwtModuleGraph graph, List<File> roots,
+        Map<String, File> sources, File cache) throws IOException {
+        List<String> problems = new ArrayList<>();
+        new GwtTranslatabilityChecker(GwtTranslatableIndex.load(graph, roots),
+            Collections.singleton("com/example/client/App"), cache)
+            .check(sources).forEach(problem -> problems.add(problem.toString()));
+        return problems;
+    }
+
+    private static void write(File root, String path, String content)
+        throws IOException {
+        Path file = root.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
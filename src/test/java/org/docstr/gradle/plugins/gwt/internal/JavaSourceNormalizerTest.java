@@ -0,0 +1,39 @@
+package org.docstr.gradle.plugins.gwt.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JavaSourceNormalizerTest {
+
+    @Test
+    public void ignoresCommentsAndFormatting() {
+        String original = "/* License */\npackage a;\n/** Doc */\nclass A {\n"
+            + "  int x = 1+2; // one\n  String s = \"a  // b\";\n}\n";
+        String reformatted = "package a;\n\nclass A\n{\n    int x = 1 + 2;\n"
+            + "    String s = \"a  // b\";\n}";
+
+        Assert.assertEquals(JavaSourceNormalizer.normalize(original),
+            JavaSourceNormalizer.normalize(reformatted));
+        Assert.assertNotEquals(JavaSourceNormalizer.normalize(original),
+            JavaSourceNormalizer.normalize(reformatted.replace("a  //", "a //")));
+    }
+
+    @Test
+    public void keepsJsniBlocks() {
+        String jsni = "native void f() /*-{ $wnd.alert('x'); }-*/;";
+
+        Assert.assertEquals("native\nvoid\nf\n(\n)\n"
+            + "/*-{ $wnd.alert('x'); }-*/\n;\n",
+            JavaSourceNormalizer.normalize(jsni));
+        Assert.assertNotEquals(JavaSourceNormalizer.normalize(jsni),
+            JavaSourceNormalizer.normalize(jsni.replace("'x'", "'y'")));
+    }
+
+    @Test
+    public void separatesOperators() {
+        Assert.assertNotEquals(JavaSourceNormalizer.normalize("a + +b"),
+            JavaSourceNormalizer.normalize("a ++b"));
+        Assert.assertEquals(JavaSourceNormalizer.normalize("a + +b"),
+            JavaSourceNormalizer.normalize("a+ +b"));
+    }
+}